@@ -0,0 +1,221 @@
+package main.java.com.example;
+
+/**
+ * @class   AgeStructure
+ * @brief   Age groups of the inhabitants of a region and how they meet each
+ *          other.
+ *
+ * @details Each of the K strata has a share of the inhabitants, a factor
+ *          applied to the disease probability of the viruses and a factor
+ *          applied to their mortality rate. The contacts between strata form
+ *          a K x K matrix: contacts[a][b] is the average number of contacts of
+ *          a person of stratum a with people of stratum b.
+ *
+ *          The matrix is normalized by the average number of contacts of an
+ *          inhabitant, so the internal mobility of the region still gives the
+ *          overall number of contacts and the strata only change who meets
+ *          whom. If every stratum has the same contacts, in proportion to
+ *          the shares, the infections are the same as in a region without
+ *          strata.
+ *
+ *          The counts of a region with strata are kept for each virus in an
+ *          int array shaped [stratum][stage], with the stages below.
+ */
+public class AgeStructure {
+    /** @brief  Stage of the inhabitants in the incubation of the virus. */
+    static final int INFECTED = 0;
+    /** @brief  Stage of the sick inhabitants. */
+    static final int SICK = 1;
+    /** @brief  Stage of the immune inhabitants. */
+    static final int IMMUNE = 2;
+    /** @brief  Deaths of the stratum since the virus arrived. */
+    static final int DEAD = 3;
+    /** @brief  Number of stages of each stratum. */
+    static final int NUM_STAGES = 4;
+
+    /** @brief  Name of each stratum. */
+    private final String[] names;
+    /** @brief  Share of the inhabitants of each stratum. */
+    private final double[] shares;
+    /** @brief  Normalized contacts, row-major: contacts[a * K + b]. */
+    private final double[] contacts;
+    /** @brief  Factor of the disease probability of each stratum. */
+    private final double[] diseaseFactors;
+    /** @brief  Factor of the mortality rate of each stratum. */
+    private final double[] mortalityFactors;
+
+    /**
+     * @brief   Creates the age structure from its strata.
+     *
+     * @param   names               Name of each stratum.
+     * @param   shares              Share of the inhabitants of each stratum,
+     *                              normalized to add up to 1.
+     * @param   contacts            Average contacts of a person of each stratum
+     *                              with each stratum.
+     * @param   diseaseFactors      Factor of the disease probability of each
+     *                              stratum.
+     * @param   mortalityFactors    Factor of the mortality rate of each
+     *                              stratum.
+     *
+     * @throws  IllegalArgumentException    if there are no strata, the sizes do
+     *                                      not match, a value is negative or
+     *                                      nobody has any contact.
+     *
+     * @pre     --
+     * @post    The structure keeps copies of the arrays.
+     */
+    public AgeStructure(String[] names, double[] shares, double[][] contacts,
+                        double[] diseaseFactors, double[] mortalityFactors) {
+        int k = names.length;
+        if (k == 0 || shares.length != k || contacts.length != k ||
+                diseaseFactors.length != k || mortalityFactors.length != k)
+            throw new IllegalArgumentException("Every stratum needs a share, " +
+                    "a row of contacts and its factors.");
+        double totalShare = 0, meanContacts = 0;
+        for (int a = 0; a < k; a++) {
+            if (contacts[a].length != k)
+                throw new IllegalArgumentException("The contacts of stratum " +
+                        names[a] + " must have one value per stratum.");
+            if (shares[a] < 0 || diseaseFactors[a] < 0 || mortalityFactors[a] < 0)
+                throw new IllegalArgumentException("The values of stratum " +
+                        names[a] + " cannot be negative.");
+            totalShare += shares[a];
+        }
+        if (totalShare <= 0)
+            throw new IllegalArgumentException("The shares cannot all be 0.");
+        this.names = names.clone();
+        this.shares = new double[k];
+        for (int a = 0; a < k; a++)
+            this.shares[a] = shares[a] / totalShare;
+        for (int a = 0; a < k; a++)
+            for (int b = 0; b < k; b++) {
+                if (contacts[a][b] < 0)
+                    throw new IllegalArgumentException("The contacts of stratum " +
+                            names[a] + " cannot be negative.");
+                meanContacts += this.shares[a] * contacts[a][b];
+            }
+        if (meanContacts <= 0)
+            throw new IllegalArgumentException("The contacts cannot all be 0.");
+        this.contacts = new double[k * k];
+        for (int a = 0; a < k; a++)
+            for (int b = 0; b < k; b++)
+                this.contacts[a * k + b] = contacts[a][b] / meanContacts;
+        this.diseaseFactors = diseaseFactors.clone();
+        this.mortalityFactors = mortalityFactors.clone();
+    }
+
+    /** @return The number of strata. */
+    public int getNumStrata() {
+        return names.length;
+    }
+
+    /**
+     * @param   a   Index of the stratum.
+     *
+     * @return  The name of the stratum.
+     */
+    public String getName(int a) {
+        return names[a];
+    }
+
+    /**
+     * @param   a   Index of the stratum.
+     *
+     * @return  The share of the inhabitants of the stratum.
+     */
+    public double getShare(int a) {
+        return shares[a];
+    }
+
+    /**
+     * @param   a   Index of the stratum.
+     *
+     * @return  The factor of the disease probability of the stratum.
+     */
+    public double getDiseaseFactor(int a) {
+        return diseaseFactors[a];
+    }
+
+    /**
+     * @param   a   Index of the stratum.
+     *
+     * @return  The factor of the mortality rate of the stratum.
+     */
+    public double getMortalityFactor(int a) {
+        return mortalityFactors[a];
+    }
+
+    /**
+     * @brief   Computes the probability of infection of each stratum.
+     *
+     * @details The fraction of infected met by a person of stratum a is the
+     *          product of the normalized contacts by the fractions of
+     *          infected of the strata, which then goes through the same
+     *          formula as a region without strata (see
+     *          InfectionKernel.coincidenceProbability()).
+     *
+     * @param   infectedFraction    Fraction of infected of each stratum.
+     * @param   contagionRate       Contagion rate of the virus.
+     * @param   mobility            Number of contacts of each inhabitant in a
+     *                              unit of time.
+     * @param   probability         Array where the probability of infection of
+     *                              each stratum is written.
+     *
+     * @pre     Both arrays have getNumStrata() elements.
+     * @post    probability[a] is the probability that a susceptible person of
+     *          stratum a is infected.
+     */
+    public void infectionProbabilities(double[] infectedFraction, double contagionRate,
+                                       double mobility, double[] probability) {
+        int k = names.length;
+        for (int a = 0; a < k; a++) {
+            double met = 0;
+            for (int b = 0; b < k; b++)
+                met += contacts[a * k + b] * infectedFraction[b];
+            probability[a] = InfectionKernel.coincidenceProbability(Math.min(met, 1),
+                    contagionRate, mobility);
+        }
+    }
+
+    /**
+     * @brief   Splits a number of people between the strata in proportion to
+     *          some weights.
+     *
+     * @details The shares are truncated and the people left are given one by
+     *          one to the strata in order, without giving any stratum more
+     *          than its weight unless the weights add up to less than n.
+     *
+     * @param   n       Number of people to split.
+     * @param   weights Weight of each stratum.
+     * @param   k       Number of strata.
+     * @param   out     Array where the people of each stratum are written.
+     *
+     * @return  The number of people split, which is n unless n is negative or
+     *          every weight is 0.
+     *
+     * @pre     Both arrays have at least k elements and no weight is negative.
+     * @post    out[a] is the part of n given to stratum a.
+     */
+    static int split(int n, int[] weights, int k, int[] out) {
+        long total = 0;
+        for (int a = 0; a < k; a++)
+            total += weights[a];
+        if (n <= 0 || total <= 0) {
+            for (int a = 0; a < k; a++)
+                out[a] = 0;
+            return 0;
+        }
+        int given = 0;
+        for (int a = 0; a < k; a++) {
+            out[a] = (int) ((long) n * weights[a] / total);
+            given += out[a];
+        }
+        for (int a = 0; given < n; a = (a + 1) % k) {
+            if (out[a] < weights[a] || n > total) {
+                out[a]++;
+                given++;
+            }
+        }
+        return given;
+    }
+}
@@ -0,0 +1,480 @@
+package main.java.com.example;
+
+import java.util.stream.IntStream;
+
+/**
+ * @class   AgentPopulation
+ * @brief   Inhabitants of a region followed one by one for a virus, in the
+ *          agent-based mode of the simulation.
+ *
+ * @details Each agent is 32 bits packed two per long: its stage (susceptible,
+ *          infected, sick, immune or dead), its contagion phase (none, latent
+ *          or contagious) and a timer for each of them. The same parameters
+ *          of the virus drive the transitions as in the compartment model of
+ *          Region, but each agent draws its own chances, so the individual
+ *          history of every inhabitant is kept.
+ *
+ *          The random numbers are a hash of the seed, the step and the index
+ *          of the agent, so the result does not depend on the order in which
+ *          the agents are stepped. Big populations are stepped in parallel by
+ *          chunks, each with its own counters, and stepping never creates an
+ *          object per agent.
+ */
+public class AgentPopulation {
+    /** @brief  Stage of an agent that can be infected. */
+    static final int SUSCEPTIBLE = 0;
+    /** @brief  Stage of an agent in the incubation of the virus. */
+    static final int INFECTED = 1;
+    /** @brief  Stage of an agent that is sick. */
+    static final int SICK = 2;
+    /** @brief  Stage of an agent that is immune. */
+    static final int IMMUNE = 3;
+    /** @brief  Stage of an agent that has died. */
+    static final int DEAD = 4;
+
+    /** @brief  Contagion phase of an agent that does not spread the virus. */
+    static final int NONE = 0;
+    /** @brief  Contagion phase of an agent in the latency of the virus. */
+    static final int LATENT = 1;
+    /** @brief  Contagion phase of an agent that spreads the virus. */
+    static final int CONTAGIOUS = 2;
+
+    /** @brief  Highest value of a timer. */
+    static final int MAX_TIMER = (1 << 13) - 1;
+    /** @brief  Number of agents from which the population is stepped in
+     *          parallel. */
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    /** @brief  Position of the contagion phase in an agent. */
+    private static final int PHASE_SHIFT = 3;
+    /** @brief  Position of the timer of the stage in an agent. */
+    private static final int STAGE_TIMER_SHIFT = 5;
+    /** @brief  Position of the timer of the contagion phase in an agent. */
+    private static final int PHASE_TIMER_SHIFT = 18;
+    /** @brief  Number of longs stepped by each parallel task. */
+    private static final int CHUNK_WORDS = 1 << 14;
+
+    /** @brief  Index of the infected in the counts. */
+    private static final int NUM_INFECTED = 0;
+    /** @brief  Index of the latents in the counts. */
+    private static final int NUM_LATENTS = 1;
+    /** @brief  Index of the contagious in the counts. */
+    private static final int NUM_CONTAGIOUS = 2;
+    /** @brief  Index of the sick in the counts. */
+    private static final int NUM_SICK = 3;
+    /** @brief  Index of the immune in the counts. */
+    private static final int NUM_IMMUNE = 4;
+    /** @brief  Index of the dead in the counts. */
+    private static final int NUM_DEAD = 5;
+    /** @brief  Index of the agents infected at the last step in the counts. */
+    private static final int NEW_INFECTED = 6;
+    /** @brief  Index of the agents that became contagious at the last step
+     *          in the counts. */
+    private static final int NEW_CONTAGIOUS = 7;
+    /** @brief  Index of the agents that fell sick at the last step in the
+     *          counts. */
+    private static final int NEW_SICK = 8;
+    /** @brief  Index of the agents that died at the last step in the
+     *          counts. */
+    private static final int NEW_DEAD = 9;
+    /** @brief  Index of the agents cured at the last step in the counts. */
+    private static final int NEW_CURED = 10;
+    /** @brief  Number of counts. */
+    private static final int NUM_COUNTS = 11;
+
+    /** @brief  The agents, two per long. */
+    private final long[] words;
+    /** @brief  Number of agents. */
+    private final int size;
+    /** @brief  Seed of the random numbers of the agents. */
+    private final long seed;
+    /** @brief  Counts of the population after the last step. */
+    private final int[] counts;
+    /** @brief  Counts of each chunk of the last step. */
+    private final int[] chunkCounts;
+
+    /**
+     * @brief   Creates a population where every agent is susceptible.
+     *
+     * @param   size    Number of agents.
+     * @param   seed    Seed of the random numbers of the agents.
+     *
+     * @throws  IllegalArgumentException    if size is negative.
+     */
+    public AgentPopulation(int size, long seed) {
+        if (size < 0)
+            throw new IllegalArgumentException("The number of agents cannot be negative.");
+        this.size = size;
+        this.seed = seed;
+        this.words = new long[(size + 1) / 2];
+        this.counts = new int[NUM_COUNTS];
+        this.chunkCounts = new int[numChunks() * NUM_COUNTS];
+    }
+
+    /** @return The number of agents. */
+    public int size() {
+        return size;
+    }
+
+    /** @return The number of agents in the incubation of the virus. */
+    public int getNumInfected() {
+        return counts[NUM_INFECTED];
+    }
+
+    /** @return The number of agents in the latency of the virus. */
+    public int getNumLatents() {
+        return counts[NUM_LATENTS];
+    }
+
+    /** @return The number of agents that spread the virus. */
+    public int getNumContagious() {
+        return counts[NUM_CONTAGIOUS];
+    }
+
+    /** @return The number of sick agents. */
+    public int getNumSick() {
+        return counts[NUM_SICK];
+    }
+
+    /** @return The number of immune agents. */
+    public int getNumImmune() {
+        return counts[NUM_IMMUNE];
+    }
+
+    /** @return The number of agents that have died. */
+    public int getNumDead() {
+        return counts[NUM_DEAD];
+    }
+
+    /** @return The number of agents infected at the last step. */
+    public int getNewInfected() {
+        return counts[NEW_INFECTED];
+    }
+
+    /** @return The number of agents that became contagious at the last step. */
+    public int getNewContagious() {
+        return counts[NEW_CONTAGIOUS];
+    }
+
+    /** @return The number of agents that fell sick at the last step. */
+    public int getNewSick() {
+        return counts[NEW_SICK];
+    }
+
+    /** @return The number of agents that died at the last step. */
+    public int getNewDead() {
+        return counts[NEW_DEAD];
+    }
+
+    /** @return The number of agents cured at the last step. */
+    public int getNewCured() {
+        return counts[NEW_CURED];
+    }
+
+    /**
+     * @param   i   Index of the agent.
+     *
+     * @return  The stage of the agent.
+     */
+    private int getStage(int i) {
+        return agent(i) & 7;
+    }
+
+    /**
+     * @brief   Infects some susceptible agents.
+     *
+     * @details The agents are taken in order from a position that depends on
+     *          the seed and the step, skipping the ones that are not
+     *          susceptible.
+     *
+     * @param   virus       The virus that infects the agents.
+     * @param   numToInfect Number of agents to infect.
+     * @param   step        Current simulation step.
+     *
+     * @return  The number of agents infected, lower than numToInfect if there
+     *          are not enough susceptible agents.
+     *
+     * @pre     virus is not null.
+     * @post    The agents are in the incubation and latency of the virus.
+     */
+    public int infect(Virus virus, int numToInfect, int step) {
+        int infected = 0;
+        int start = size == 0 ? 0 : (int) Math.floorMod(hash(seed, step, -1, 0), (long) size);
+        for (int n = 0; n < size && infected < numToInfect; n++) {
+            int i = (start + n) % size;
+            if (getStage(i) != SUSCEPTIBLE)
+                continue;
+            setAgent(i, pack(INFECTED, timer(virus.getIncubationTime()),
+                    LATENT, timer(virus.getLatencyTime())));
+            infected++;
+        }
+        counts[NUM_INFECTED] += infected;
+        counts[NUM_LATENTS] += infected;
+        return infected;
+    }
+
+    /**
+     * @brief   Makes some susceptible agents sick and contagious.
+     *
+     * @param   virus           The virus that makes the agents sick.
+     * @param   numToMakeSick   Number of agents to make sick.
+     * @param   step            Current simulation step.
+     *
+     * @return  The number of agents made sick, lower than numToMakeSick if
+     *          there are not enough susceptible agents.
+     *
+     * @pre     virus is not null.
+     * @post    The agents are sick and contagious.
+     */
+    public int makeSick(Virus virus, int numToMakeSick, int step) {
+        int sick = 0;
+        int start = size == 0 ? 0 : (int) Math.floorMod(hash(seed, step, -1, 1), (long) size);
+        for (int n = 0; n < size && sick < numToMakeSick; n++) {
+            int i = (start + n) % size;
+            if (getStage(i) != SUSCEPTIBLE)
+                continue;
+            setAgent(i, pack(SICK, timer(virus.getDiseaseDuration()),
+                    CONTAGIOUS, timer(virus.getInfectionDuration())));
+            sick++;
+        }
+        counts[NUM_SICK] += sick;
+        counts[NUM_CONTAGIOUS] += sick;
+        return sick;
+    }
+
+    /**
+     * @brief   Advances every agent by one unit of time.
+     *
+     * @details In the same order as Region.updateRegion(), each agent:
+     *          becomes contagious at the end of its latency, stops being
+     *          contagious at the end of its contagion, is infected with the
+     *          given probability if it is susceptible, falls sick with the
+     *          disease probability while infected or becomes immune at the end
+     *          of the incubation, dies with the mortality rate while sick or
+     *          becomes immune at the end of the disease, and becomes
+     *          susceptible again at the end of its immunity.
+     *
+     * @param   virus                   The virus of the population.
+     * @param   infectionProbability    Probability that a susceptible agent is
+     *                                  infected in this step.
+     * @param   step                    Current simulation step.
+     *
+     * @pre     virus is not null.
+     * @post    The agents and the counts have been updated. Unless the
+     *          population is stepped in parallel, no object is created.
+     */
+    public void step(Virus virus, double infectionProbability, int step) {
+        int numChunks = numChunks();
+        if (size >= PARALLEL_THRESHOLD)
+            IntStream.range(0, numChunks).parallel()
+                    .forEach(c -> stepChunk(c, virus, infectionProbability, step));
+        else
+            for (int c = 0; c < numChunks; c++)
+                stepChunk(c, virus, infectionProbability, step);
+        for (int k = 0; k < NUM_COUNTS; k++) {
+            int total = 0;
+            for (int c = 0; c < numChunks; c++)
+                total += chunkCounts[c * NUM_COUNTS + k];
+            counts[k] = total;
+        }
+    }
+
+    /**
+     * @brief   Advances the agents of a chunk by one unit of time.
+     *
+     * @param   c                       Index of the chunk.
+     * @param   virus                   The virus of the population.
+     * @param   infectionProbability    Probability that a susceptible agent is
+     *                                  infected in this step.
+     * @param   step                    Current simulation step.
+     *
+     * @pre     --
+     * @post    The agents of the chunk have been updated and its counts
+     *          written to chunkCounts.
+     */
+    private void stepChunk(int c, Virus virus, double infectionProbability, int step) {
+        int incubation = timer(virus.getIncubationTime());
+        int latency = timer(virus.getLatencyTime());
+        int contagion = timer(virus.getInfectionDuration());
+        int disease = timer(virus.getDiseaseDuration());
+        int immunity = timer(virus.getImmunityDuration());
+        double diseaseProbability = virus.getDiseaseProbability();
+        double mortalityRate = virus.getMortalityRate();
+        int numInfected = 0, numLatents = 0, numContagious = 0, numSick = 0,
+                numImmune = 0, numDead = 0, newInfected = 0, newContagious = 0,
+                newSick = 0, newDead = 0, newCured = 0;
+        int end = Math.min(words.length, (c + 1) * CHUNK_WORDS);
+        for (int w = c * CHUNK_WORDS; w < end; w++) {
+            long word = words[w];
+            long stepped = 0;
+            for (int half = 0; half < 2; half++) {
+                int i = 2 * w + half;
+                int agent = (int) (word >>> (32 * half));
+                if (i >= size)
+                    break;
+                int stage = agent & 7;
+                int phase = (agent >>> PHASE_SHIFT) & 3;
+                int stageTimer = (agent >>> STAGE_TIMER_SHIFT) & MAX_TIMER;
+                int phaseTimer = (agent >>> PHASE_TIMER_SHIFT) & MAX_TIMER;
+                if (stage != DEAD) {
+                    if (phase == LATENT) {
+                        if (phaseTimer != 0)
+                            phaseTimer--;
+                        else {
+                            phase = CONTAGIOUS;
+                            phaseTimer = contagion;
+                            newContagious++;
+                        }
+                    }
+                    if (phase == CONTAGIOUS) {
+                        if (phaseTimer != 0)
+                            phaseTimer--;
+                        else
+                            phase = NONE;
+                    }
+                    if (stage == SUSCEPTIBLE && infectionProbability > 0 &&
+                            uniform(seed, step, i, 0) < infectionProbability) {
+                        stage = INFECTED;
+                        stageTimer = incubation;
+                        phase = LATENT;
+                        phaseTimer = latency;
+                        newInfected++;
+                    }
+                    if (stage == INFECTED) {
+                        if (uniform(seed, step, i, 1) < diseaseProbability) {
+                            stage = SICK;
+                            stageTimer = disease;
+                            newSick++;
+                        } else if (stageTimer != 0)
+                            stageTimer--;
+                        else {
+                            stage = IMMUNE;
+                            stageTimer = immunity;
+                            newCured++;
+                        }
+                    }
+                    if (stage == SICK) {
+                        if (uniform(seed, step, i, 2) < mortalityRate) {
+                            stage = DEAD;
+                            phase = NONE;
+                            newDead++;
+                        } else if (stageTimer != 0)
+                            stageTimer--;
+                        else {
+                            stage = IMMUNE;
+                            stageTimer = immunity;
+                            newCured++;
+                        }
+                    }
+                    if (stage == IMMUNE) {
+                        if (stageTimer != 0)
+                            stageTimer--;
+                        else
+                            stage = SUSCEPTIBLE;
+                    }
+                    agent = pack(stage, stageTimer, phase, phaseTimer);
+                }
+                switch (stage) {
+                    case INFECTED: numInfected++; break;
+                    case SICK: numSick++; break;
+                    case IMMUNE: numImmune++; break;
+                    case DEAD: numDead++; break;
+                    default: break;
+                }
+                if (phase == LATENT)
+                    numLatents++;
+                else if (phase == CONTAGIOUS)
+                    numContagious++;
+                stepped |= (agent & 0xFFFFFFFFL) << (32 * half);
+            }
+            words[w] = stepped;
+        }
+        int offset = c * NUM_COUNTS;
+        chunkCounts[offset + NUM_INFECTED] = numInfected;
+        chunkCounts[offset + NUM_LATENTS] = numLatents;
+        chunkCounts[offset + NUM_CONTAGIOUS] = numContagious;
+        chunkCounts[offset + NUM_SICK] = numSick;
+        chunkCounts[offset + NUM_IMMUNE] = numImmune;
+        chunkCounts[offset + NUM_DEAD] = numDead;
+        chunkCounts[offset + NEW_INFECTED] = newInfected;
+        chunkCounts[offset + NEW_CONTAGIOUS] = newContagious;
+        chunkCounts[offset + NEW_SICK] = newSick;
+        chunkCounts[offset + NEW_DEAD] = newDead;
+        chunkCounts[offset + NEW_CURED] = newCured;
+    }
+
+    /** @return The number of chunks in which the agents are stepped. */
+    private int numChunks() {
+        return Math.max(1, (words.length + CHUNK_WORDS - 1) / CHUNK_WORDS);
+    }
+
+    /**
+     * @param   i   Index of the agent.
+     *
+     * @return  The packed agent.
+     */
+    private int agent(int i) {
+        return (int) (words[i >>> 1] >>> (32 * (i & 1)));
+    }
+
+    /**
+     * @param   i       Index of the agent.
+     * @param   agent   The packed agent.
+     */
+    private void setAgent(int i, int agent) {
+        int shift = 32 * (i & 1);
+        words[i >>> 1] = (words[i >>> 1] & ~(0xFFFFFFFFL << shift)) |
+                ((agent & 0xFFFFFFFFL) << shift);
+    }
+
+    /**
+     * @param   stage       Stage of the agent.
+     * @param   stageTimer  Timer of the stage.
+     * @param   phase       Contagion phase of the agent.
+     * @param   phaseTimer  Timer of the contagion phase.
+     *
+     * @return  The packed agent.
+     */
+    private static int pack(int stage, int stageTimer, int phase, int phaseTimer) {
+        return stage | (phase << PHASE_SHIFT) | (stageTimer << STAGE_TIMER_SHIFT) |
+                (phaseTimer << PHASE_TIMER_SHIFT);
+    }
+
+    /**
+     * @param   duration    A duration of the virus.
+     *
+     * @return  The duration bounded to the values a timer can hold.
+     */
+    private static int timer(int duration) {
+        return Math.max(0, Math.min(MAX_TIMER, duration));
+    }
+
+    /**
+     * @param   seed    Seed of the population.
+     * @param   step    Simulation step.
+     * @param   agent   Index of the agent.
+     * @param   draw    Index of the draw of the agent in the step.
+     *
+     * @return  A uniform random number in [0, 1) that only depends on the
+     *          parameters.
+     */
+    private static double uniform(long seed, int step, int agent, int draw) {
+        return (hash(seed, step, agent, draw) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * @param   seed    Seed of the population.
+     * @param   step    Simulation step.
+     * @param   agent   Index of the agent.
+     * @param   draw    Index of the draw of the agent in the step.
+     *
+     * @return  A SplitMix64 hash of the parameters.
+     */
+    private static long hash(long seed, int step, int agent, int draw) {
+        long z = seed + ((((long) step << 32) | (agent & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L)
+                + draw * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,204 @@
+package main.java.com.example;
+
+import java.util.Arrays;
+
+/**
+ * @class   Cohorts
+ * @brief   Groups of inhabitants of a region that share the same remaining
+ *          time in a state, such as incubation, latency or immunity.
+ *
+ * @details The number of inhabitants and the remaining time of each group are
+ *          kept in two primitive arrays, so counting down the groups at each
+ *          step does not create any object. The arrays only grow when there
+ *          are more groups than ever before, which stops happening once the
+ *          oldest groups expire as fast as new ones are added.
+ */
+public class Cohorts {
+    /** @brief  Initial capacity of the arrays. */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /** @brief  Number of inhabitants of each group. */
+    private int[] counts;
+    /** @brief  Remaining time of each group. */
+    private int[] times;
+    /** @brief  Number of groups. */
+    private int size;
+
+    /**
+     * @brief   Creates an empty set of groups.
+     */
+    public Cohorts() {
+        counts = new int[INITIAL_CAPACITY];
+        times = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    /** @return The number of groups. */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param   i   Index of the group.
+     *
+     * @return  The number of inhabitants of the group.
+     */
+    public int getCount(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @param   i   Index of the group.
+     *
+     * @return  The remaining time of the group.
+     */
+    public int getTime(int i) {
+        return times[i];
+    }
+
+    /**
+     * @param   i       Index of the group.
+     * @param   count   The new number of inhabitants of the group.
+     *
+     * @pre     0 <= i < size().
+     * @post    The group has count inhabitants.
+     */
+    public void setCount(int i, int count) {
+        counts[i] = count;
+    }
+
+    /** @return The number of inhabitants of all the groups. */
+    public int total() {
+        int total = 0;
+        for (int i = 0; i < size; i++)
+            total += counts[i];
+        return total;
+    }
+
+    /**
+     * @brief   Adds a group of inhabitants.
+     *
+     * @details A group with no inhabitants does not change any count, so it is
+     *          not added. A group is never merged with another one with the
+     *          same remaining time: the illnesses and deaths of each group are
+     *          rounded down separately, so merging them would change the
+     *          results.
+     *
+     * @param   count   Number of inhabitants of the group.
+     * @param   time    Remaining time of the group.
+     *
+     * @pre     --
+     * @post    The group is the last one, unless count is 0.
+     */
+    public void add(int count, int time) {
+        if (count == 0)
+            return;
+        if (size == counts.length) {
+            counts = Arrays.copyOf(counts, 2 * size);
+            times = Arrays.copyOf(times, 2 * size);
+        }
+        counts[size] = count;
+        times[size] = time;
+        size++;
+    }
+
+    /**
+     * @brief   Removes a number of inhabitants from the groups in proportion to
+     *          their size.
+     *
+     * @details The shares are truncated and the inhabitants left are taken one
+     *          by one from the groups in order.
+     *
+     * @param   n   Number of inhabitants to remove.
+     *
+     * @return  The number of inhabitants removed, which is lower than n only if
+     *          the groups have fewer inhabitants.
+     *
+     * @pre     No group has a negative number of inhabitants.
+     * @post    The groups have n fewer inhabitants, or none at all.
+     */
+    public int remove(int n) {
+        long total = 0;
+        for (int i = 0; i < size; i++)
+            total += counts[i];
+        if (n <= 0 || total <= 0)
+            return 0;
+        n = (int) Math.min(n, total);
+        int removed = 0;
+        for (int i = 0; i < size; i++) {
+            int share = (int) ((long) n * counts[i] / total);
+            counts[i] -= share;
+            removed += share;
+        }
+        for (int i = 0; removed < n; i = (i + 1) % size) {
+            if (counts[i] > 0) {
+                counts[i]--;
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @brief   Counts down the groups by one unit of time.
+     *
+     * @details A group whose remaining time is already 0 expires and is
+     *          removed. The order of the other groups is kept.
+     *
+     * @return  The number of inhabitants of the groups that expired.
+     *
+     * @pre     --
+     * @post    The remaining time of each group has been reduced by one unit
+     *          and the expired groups have been removed.
+     */
+    public int countDown() {
+        int expired = 0, kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (times[i] != 0) {
+                counts[kept] = counts[i];
+                times[kept] = times[i] - 1;
+                kept++;
+            } else
+                expired += counts[i];
+        }
+        size = kept;
+        return expired;
+    }
+
+    /**
+     * @brief   Counts down the groups by several units of time at once.
+     *
+     * @details Used after steps in which none of the groups could expire.
+     *          Groups with no inhabitants are removed.
+     *
+     * @param   steps   Number of units of time.
+     *
+     * @pre     Every group with inhabitants has a remaining time of at least
+     *          steps.
+     * @post    The remaining time of each group has been reduced by steps
+     *          units.
+     */
+    public void skip(int steps) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (counts[i] != 0) {
+                counts[kept] = counts[i];
+                times[kept] = Math.max(0, times[i] - steps);
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * @return  The lowest remaining time of a group with inhabitants, or
+     *          Integer.MAX_VALUE if there is none.
+     */
+    public int minTime() {
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < size; i++)
+            if (counts[i] != 0)
+                min = Math.min(min, times[i]);
+        return min;
+    }
+}
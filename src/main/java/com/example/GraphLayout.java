@@ -0,0 +1,321 @@
+package main.java.com.example;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * @class   GraphLayout
+ * @brief   Static positions of the regions in the graph.
+ *
+ * @details The regions and their neighbors never change during a simulation,
+ *          so the positions of the nodes are computed once with a
+ *          force-directed algorithm and saved in a layout file next to the
+ *          files of the scenario. Later runs load the file instead of
+ *          computing the layout again.
+ *
+ *          The layout file starts with the line "layout" and the hash of the
+ *          topology the layout was computed for (see topologyHash()),
+ *          followed by one line per region with its name and its x and y
+ *          coordinates. A file whose hash does not match the regions, or
+ *          without a hash, is computed again.
+ */
+public class GraphLayout {
+    /** @brief  Number of iterations of the force-directed algorithm. */
+    private static final int ITERATIONS = 200;
+    /** @brief  Ideal length of an edge. */
+    private static final double EDGE_LENGTH = 1.0;
+    /** @brief  Initial value of the FNV-1a hash of the topology. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    /** @brief  Multiplier of the FNV-1a hash of the topology. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /** @brief  Position of each region, by region name. */
+    private final Map<String, double[]> positions;
+    /** @brief  Hash of the topology the layout was computed for, or null if
+     *          it is unknown. */
+    private final Long topologyHash;
+
+    /**
+     * @brief   Creates a layout from the positions of the regions.
+     *
+     * @param   positions       x and y coordinates of each region, by region
+     *                          name.
+     * @param   topologyHash    Hash of the topology the layout was computed
+     *                          for, or null if it is unknown.
+     */
+    private GraphLayout(Map<String, double[]> positions, Long topologyHash) {
+        this.positions = positions;
+        this.topologyHash = topologyHash;
+    }
+
+    /**
+     * @param   regionName  The name of the region.
+     *
+     * @return  The x and y coordinates of the region, or null if the region is
+     *          not in the layout.
+     */
+    public double[] getPosition(String regionName) {
+        return positions.get(regionName);
+    }
+
+    /**
+     * @param   regions The regions to look for.
+     *
+     * @return  True if the layout has a position for every region.
+     */
+    public boolean covers(Collection<String> regions) {
+        return positions.keySet().containsAll(regions);
+    }
+
+    /**
+     * @param   regions Map of all regions in the simulation.
+     *
+     * @return  True if the layout was computed for the same regions, with the
+     *          same neighbors and flows of people.
+     */
+    public boolean matches(Map<String, Region> regions) {
+        return topologyHash != null && topologyHash == topologyHash(regions)
+                && covers(regions.keySet());
+    }
+
+    /**
+     * @brief   Hashes the regions, their neighbors and the percentage of
+     *          people flowing to each neighbor.
+     *
+     * @details The regions and neighbors are hashed in name order, so the hash
+     *          does not depend on the order in which they were loaded.
+     *
+     * @param   regions Map of all regions in the simulation.
+     *
+     * @return  The FNV-1a hash of the topology.
+     */
+    public static long topologyHash(Map<String, Region> regions) {
+        List<String> names = new ArrayList<>(regions.keySet());
+        Collections.sort(names);
+        long hash = FNV_OFFSET;
+        for (String name : names) {
+            hash = hash(hash, name);
+            Map<String, Integer> flows = new TreeMap<>();
+            for (Map.Entry<Region, Integer> entry : regions.get(name).getNeighboringRegions().entrySet())
+                flows.put(entry.getKey().getName(), entry.getValue());
+            for (Map.Entry<String, Integer> flow : flows.entrySet())
+                hash = hash(hash, "\t" + flow.getKey() + "\t" + flow.getValue());
+            hash = hash(hash, "\n");
+        }
+        return hash;
+    }
+
+    /**
+     * @param   hash    Hash of the text before s.
+     * @param   s       Text to add to the hash.
+     *
+     * @return  The FNV-1a hash of the text followed by s.
+     */
+    private static long hash(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @brief   Loads the layout of the file if it was computed for the same
+     *          topology, or computes it and saves it to the file otherwise.
+     *
+     * @param   file    The layout file of the scenario.
+     * @param   regions Map of all regions in the simulation.
+     *
+     * @throws  IOException If the file cannot be read or written.
+     *
+     * @return  The layout of the regions.
+     */
+    public static GraphLayout loadOrCompute(File file, Map<String, Region> regions)
+            throws IOException {
+        if (file.isFile()) {
+            GraphLayout layout = load(file);
+            if (layout.matches(regions))
+                return layout;
+        }
+        GraphLayout layout = compute(regions);
+        layout.save(file);
+        return layout;
+    }
+
+    /**
+     * @brief   Reads a layout file.
+     *
+     * @param   file    The layout file.
+     *
+     * @throws  IOException If the file does not exist or is malformed.
+     *
+     * @return  The layout stored in the file.
+     */
+    public static GraphLayout load(File file) throws IOException {
+        Map<String, double[]> positions = new HashMap<>();
+        Long topologyHash = null;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            if (line == null || !(line.equals("layout") || line.startsWith("layout ")))
+                throw new IOException("Malformed layout file: " + file.getName());
+            // Files saved before the hash was added have none
+            if (!line.equals("layout")) {
+                try {
+                    topologyHash = Long.parseUnsignedLong(line.substring("layout ".length()), 16);
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed layout file: " + file.getName());
+                }
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty())
+                    continue;
+                String[] parts = line.split(" ", 4);
+                if (parts.length < 3)
+                    throw new IOException("Malformed line for position: " + line);
+                positions.put(parts[0], new double[]{
+                        Double.parseDouble(parts[1]), Double.parseDouble(parts[2])});
+            }
+        }
+        return new GraphLayout(positions, topologyHash);
+    }
+
+    /**
+     * @brief   Writes the layout to a file.
+     *
+     * @param   file    The layout file.
+     *
+     * @throws  IOException If the file cannot be written.
+     *
+     * @pre     --
+     * @post    The file contains the hash of the topology, if known, and the
+     *          position of every region of the layout.
+     */
+    public void save(File file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            writer.println(topologyHash == null ? "layout"
+                    : "layout " + Long.toHexString(topologyHash));
+            for (Map.Entry<String, double[]> entry : positions.entrySet()) {
+                double[] p = entry.getValue();
+                writer.println(entry.getKey() + " " + p[0] + " " + p[1]);
+            }
+        }
+    }
+
+    /**
+     * @brief   Computes the positions of the regions with the
+     *          Fruchterman-Reingold force-directed algorithm.
+     *
+     * @details Repulsive forces are only computed between regions in
+     *          neighboring cells of a grid, which keeps each iteration close to
+     *          linear in the number of regions. The forces on the regions are
+     *          computed in parallel.
+     *
+     * @param   regions Map of all regions in the simulation.
+     *
+     * @return  The computed layout.
+     */
+    public static GraphLayout compute(Map<String, Region> regions) {
+        List<String> names = new ArrayList<>(regions.keySet());
+        Collections.sort(names);
+        int n = names.size();
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            index.put(names.get(i), i);
+        int[][] adjacency = new int[n][];
+        for (int i = 0; i < n; i++) {
+            Set<Region> neighbors = regions.get(names.get(i)).getNeighboringRegions().keySet();
+            adjacency[i] = neighbors.stream()
+                    .map(r -> index.get(r.getName()))
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        // Start from a deterministic square grid so the layout is reproducible
+        double[] x = new double[n];
+        double[] y = new double[n];
+        int side = (int) Math.ceil(Math.sqrt(n));
+        Random random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % side) * EDGE_LENGTH + random.nextDouble() * 0.1;
+            y[i] = (i / side) * EDGE_LENGTH + random.nextDouble() * 0.1;
+        }
+
+        double cell = 2 * EDGE_LENGTH;
+        double temperature = side * EDGE_LENGTH / 10;
+        double[] dx = new double[n];
+        double[] dy = new double[n];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Map<Long, List<Integer>> grid = new HashMap<>();
+            for (int i = 0; i < n; i++)
+                grid.computeIfAbsent(cellKey(x[i], y[i], cell), k -> new ArrayList<>()).add(i);
+            IntStream.range(0, n).parallel().forEach(i -> {
+                double fx = 0, fy = 0;
+                long cx = (long) Math.floor(x[i] / cell);
+                long cy = (long) Math.floor(y[i] / cell);
+                for (long gx = cx - 1; gx <= cx + 1; gx++)
+                    for (long gy = cy - 1; gy <= cy + 1; gy++) {
+                        List<Integer> others = grid.get(key(gx, gy));
+                        if (others == null)
+                            continue;
+                        for (int j : others) {
+                            if (j == i)
+                                continue;
+                            double ex = x[i] - x[j];
+                            double ey = y[i] - y[j];
+                            double d2 = Math.max(ex * ex + ey * ey, 1e-6);
+                            if (d2 < cell * cell) {
+                                fx += ex * EDGE_LENGTH * EDGE_LENGTH / d2;
+                                fy += ey * EDGE_LENGTH * EDGE_LENGTH / d2;
+                            }
+                        }
+                    }
+                for (int j : adjacency[i]) {
+                    double ex = x[i] - x[j];
+                    double ey = y[i] - y[j];
+                    double d = Math.sqrt(ex * ex + ey * ey);
+                    fx -= ex * d / EDGE_LENGTH;
+                    fy -= ey * d / EDGE_LENGTH;
+                }
+                dx[i] = fx;
+                dy[i] = fy;
+            });
+            for (int i = 0; i < n; i++) {
+                double length = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i]);
+                if (length > 0) {
+                    double step = Math.min(length, temperature);
+                    x[i] += dx[i] / length * step;
+                    y[i] += dy[i] / length * step;
+                }
+            }
+            temperature = Math.max(temperature * 0.97, EDGE_LENGTH / 100);
+        }
+
+        Map<String, double[]> positions = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            positions.put(names.get(i), new double[]{x[i], y[i]});
+        return new GraphLayout(positions, topologyHash(regions));
+    }
+
+    /**
+     * @param   x       The x coordinate.
+     * @param   y       The y coordinate.
+     * @param   cell    The side of a cell of the grid.
+     *
+     * @return  The key of the cell of the grid that contains the point.
+     */
+    private static long cellKey(double x, double y, double cell) {
+        return key((long) Math.floor(x / cell), (long) Math.floor(y / cell));
+    }
+
+    /**
+     * @param   gx  The column of the cell.
+     * @param   gy  The row of the cell.
+     *
+     * @return  The key of the cell of the grid.
+     */
+    private static long key(long gx, long gy) {
+        return (gx << 32) ^ (gy & 0xffffffffL);
+    }
+}
@@ -4,46 +4,135 @@ import org.graphstream.graph.Graph;
 import org.graphstream.graph.implementations.SingleGraph;
 import org.graphstream.ui.view.Viewer;
 
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * @class   GraphVisualizer
  * @brief   Visualizes the regions and their connections in a graph.
+ *
+ * @details When the world has more than CLUSTER_THRESHOLD regions, the
+ *          regions are grouped into clusters of neighboring regions and each
+ *          cluster is shown as a single node. The clusters with more than
+ *          CLUSTER_BRANCHING regions are split again into sub-clusters, and so
+ *          on, so a cluster is expanded one level at a time into at most
+ *          CLUSTER_BRANCHING nodes, which are either sub-clusters or regions.
+ *          As only a few clusters stay expanded at the same time, at most
+ *          MAX_CLUSTERS + MAX_EXPANDED_CLUSTERS * CLUSTER_BRANCHING nodes are
+ *          displayed whatever the size of the world.
+ *
+ *          The nodes are placed at the positions of a precomputed GraphLayout,
+ *          so no layout is computed while the simulation runs.
+ *
+ *          The simulation updates the graph from the main thread while a
+ *          HistoryPlayer shows its frames from the event dispatch thread, so
+ *          the methods that change the graph or the expanded clusters are
+ *          synchronized.
  */
 public class GraphVisualizer {
+    /** @brief  Number of regions from which the regions are clustered. */
+    static final int CLUSTER_THRESHOLD = 1000;
+    /** @brief  Maximum number of clusters shown when zoomed out. */
+    static final int MAX_CLUSTERS = 200;
+    /** @brief  Maximum number of sub-clusters or regions of a cluster. */
+    static final int CLUSTER_BRANCHING = 16;
+    /** @brief  Maximum number of clusters expanded at the same time. */
+    static final int MAX_EXPANDED_CLUSTERS = 8;
+    /** @brief  Prefix of the identifiers of the cluster nodes. */
+    private static final String CLUSTER_PREFIX = "cluster:";
+
     private final Graph graph;
     private final Viewer viewer;
+    /** @brief  Clusters shown when zoomed out, or null if every region is
+     *          displayed. */
+    private final List<Cluster> clusters;
+    /** @brief  Smallest cluster of each region, by region name. */
+    private final Map<String, Cluster> clusterOf;
+    /** @brief  Expanded clusters, from the least to the most recently expanded. */
+    private final Set<Cluster> expanded;
+    /** @brief  Static positions of the regions. */
+    private final GraphLayout layout;
 
     /**
      * @brief   Constructor of the GraphVisualizer class.
      *
      * @param   regions Map of all regions in the simulation.
+     * @param   layout  Static positions of the regions.
      *
-     * @pre     regions is not null.
+     * @pre     regions is not null and layout has a position for every region.
      * @post    Initializes the graph and adds nodes and edges based on regions and their neighbors.
      */
-    public GraphVisualizer(Map<String, Region> regions) {
+    public GraphVisualizer(Map<String, Region> regions, GraphLayout layout) {
         graph = new SingleGraph("Virus Simulation");
+        this.layout = layout;
 
         System.setProperty("org.graphstream.ui", "swing");
 
-        // Add regions as nodes with initial styling
-        for (String regionName : regions.keySet()) {
-            graph.addNode(regionName).setAttribute("ui.label", regionName);
-            graph.getNode(regionName).setAttribute("ui.style", "fill-color: red;");
-        }
+        expanded = new LinkedHashSet<>();
+        clusterOf = new HashMap<>();
+        if (regions.size() > CLUSTER_THRESHOLD) {
+            // Add one node per cluster and the edges between clusters
+            clusters = buildClusters(regions, MAX_CLUSTERS, null);
+            for (Cluster cluster : clusters) {
+                addClusterNode(cluster);
+            }
+            for (Region region : regions.values()) {
+                for (Region neighbor : region.getNeighboringRegions().keySet()) {
+                    connect(region, neighbor);
+                }
+            }
+        } else {
+            clusters = null;
 
-        // Add edges based on neighboring regions with initial styling
-        for (Region region : regions.values()) {
-            for (Region neighbor : region.getNeighboringRegions().keySet()) {
-                addEdge(region.getName(), neighbor.getName());
+            // Add regions as nodes with initial styling
+            for (String regionName : regions.keySet()) {
+                addNode(regionName, regionName);
+            }
+
+            // Add edges based on neighboring regions with initial styling
+            for (Region region : regions.values()) {
+                for (Region neighbor : region.getNeighboringRegions().keySet()) {
+                    addEdge(region.getName(), neighbor.getName());
+                }
             }
         }
 
-        // Initialize viewer
-        viewer = graph.display();
-        viewer.enableAutoLayout();
+        // Initialize viewer with the nodes at their precomputed positions
+        viewer = graph.display(false);
+    }
+
+    /**
+     * @brief   Groups regions into clusters, splitting again the clusters with
+     *          more than CLUSTER_BRANCHING regions.
+     *
+     * @param   regions     The regions to group.
+     * @param   maxClusters Maximum number of clusters to create.
+     * @param   parent      Cluster containing the regions, or null.
+     *
+     * @pre     regions is not empty.
+     * @post    The smallest cluster of each region is set in clusterOf.
+     *
+     * @return  The clusters of the regions.
+     */
+    private List<Cluster> buildClusters(Map<String, Region> regions,
+                                        int maxClusters, Cluster parent) {
+        RegionClusters grouping = new RegionClusters(regions, maxClusters);
+        List<Cluster> result = new ArrayList<>();
+        for (int i = 0; i < grouping.getNumClusters(); i++) {
+            String id = parent == null ? CLUSTER_PREFIX + i : parent.id + "." + i;
+            Cluster cluster = new Cluster(id, grouping.getLabel(i),
+                    grouping.getRegions(i), parent);
+            if (cluster.regions.size() > CLUSTER_BRANCHING) {
+                Map<String, Region> subset = new HashMap<>();
+                for (Region region : cluster.regions)
+                    subset.put(region.getName(), region);
+                cluster.children = buildClusters(subset, CLUSTER_BRANCHING, cluster);
+            } else {
+                for (Region region : cluster.regions)
+                    clusterOf.put(region.getName(), cluster);
+            }
+            result.add(cluster);
+        }
+        return result;
     }
 
     /**
@@ -56,6 +145,238 @@ public class GraphVisualizer {
         viewer.getDefaultView();
     }
 
+    /**
+     * @brief   Adds a node to the graph with the initial styling.
+     *
+     * @param   id      Identifier of the node.
+     * @param   label   Label shown for the node.
+     *
+     * @pre     There is no node with the same identifier.
+     * @post    The node has been added to the graph.
+     */
+    private void addNode(String id, String label) {
+        graph.addNode(id).setAttribute("ui.label", label);
+        graph.getNode(id).setAttribute("ui.style", "fill-color: red;");
+        double[] position = layout.getPosition(id);
+        if (position != null) {
+            graph.getNode(id).setAttribute("xyz", position[0], position[1], 0);
+        }
+    }
+
+    /**
+     * @brief   Adds the node of a collapsed cluster to the graph.
+     *
+     * @param   cluster The cluster.
+     *
+     * @pre     The node of the cluster is not in the graph.
+     * @post    The node has been added at the centroid of the positions of the
+     *          regions of the cluster.
+     */
+    private void addClusterNode(Cluster cluster) {
+        addNode(cluster.id, cluster.label);
+        double x = 0, y = 0;
+        for (Region region : cluster.regions) {
+            double[] position = layout.getPosition(region.getName());
+            x += position[0];
+            y += position[1];
+        }
+        graph.getNode(cluster.id).setAttribute("xyz",
+                x / cluster.regions.size(), y / cluster.regions.size(), 0);
+    }
+
+    /**
+     * @param   regionName  The name of a known region.
+     *
+     * @return  The collapsed cluster in which the region is displayed, or null
+     *          if the region itself is displayed.
+     */
+    private Cluster displayedClusterOf(String regionName) {
+        Cluster displayed = null;
+        for (Cluster c = clusterOf.get(regionName); c != null; c = c.parent) {
+            if (!expanded.contains(c))
+                displayed = c;
+        }
+        return displayed;
+    }
+
+    /**
+     * @param   region  The region to look for.
+     *
+     * @return  The identifier of the node in which the region is displayed:
+     *          the region itself or its collapsed cluster.
+     */
+    private String nodeIdOf(Region region) {
+        return nodeIdOf(region.getName());
+    }
+
+    /**
+     * @param   regionName  The name of the region to look for.
+     *
+     * @return  The identifier of the node in which the region is displayed:
+     *          the region itself or its collapsed cluster.
+     */
+    private String nodeIdOf(String regionName) {
+        if (clusters == null)
+            return regionName;
+        Cluster displayed = displayedClusterOf(regionName);
+        return displayed == null ? regionName : displayed.id;
+    }
+
+    /**
+     * @brief   Adds an edge between the nodes in which two neighboring regions
+     *          are displayed.
+     *
+     * @param   region      The first region.
+     * @param   neighbor    The second region.
+     *
+     * @pre     --
+     * @post    Adds the edge if both regions are not displayed in the same
+     *          node and the edge does not already exist.
+     */
+    private void connect(Region region, Region neighbor) {
+        String id1 = nodeIdOf(region);
+        String id2 = nodeIdOf(neighbor);
+        if (!id1.equals(id2)) {
+            addEdge(id1, id2);
+        }
+    }
+
+    /** @return True if the regions are grouped into clusters. */
+    public boolean isClustered() {
+        return clusters != null;
+    }
+
+    /**
+     * @param   regionName  Name of a region.
+     *
+     * @return  True if the region itself is displayed, because all its
+     *          clusters are expanded or the regions are not grouped into
+     *          clusters.
+     */
+    public synchronized boolean isExpanded(String regionName) {
+        return clusters == null || displayedClusterOf(regionName) == null;
+    }
+
+    /**
+     * @brief   Expands the collapsed cluster in which a region is displayed,
+     *          one level down.
+     *
+     * @details If MAX_EXPANDED_CLUSTERS clusters are already expanded, the
+     *          least recently expanded one that does not contain the region is
+     *          collapsed first.
+     *
+     * @param   regionName  Name of a region of the cluster to expand.
+     *
+     * @throws  IllegalArgumentException    if the region is unknown.
+     *
+     * @pre     The regions are grouped into clusters.
+     * @post    The node of the cluster has been replaced by the nodes of its
+     *          sub-clusters or of its regions, and their edges.
+     */
+    public synchronized void expandCluster(String regionName) {
+        checkRegion(regionName);
+        Cluster cluster = displayedClusterOf(regionName);
+        if (cluster == null)
+            return;
+        if (expanded.size() >= MAX_EXPANDED_CLUSTERS) {
+            for (Cluster oldest : expanded) {
+                if (!oldest.contains(cluster)) {
+                    collapse(oldest);
+                    break;
+                }
+            }
+        }
+        graph.removeNode(cluster.id);
+        expanded.add(cluster);
+        if (cluster.children != null) {
+            for (Cluster child : cluster.children) {
+                addClusterNode(child);
+            }
+        } else {
+            for (Region region : cluster.regions) {
+                addNode(region.getName(), region.getName());
+            }
+        }
+        connectAll(cluster);
+    }
+
+    /**
+     * @brief   Collapses the innermost expanded cluster of a region into a
+     *          single node.
+     *
+     * @param   regionName  Name of a region of the cluster to collapse.
+     *
+     * @throws  IllegalArgumentException    if the region is unknown.
+     *
+     * @pre     The regions are grouped into clusters.
+     * @post    The nodes displayed for the cluster have been replaced by the
+     *          node of the cluster and its edges.
+     */
+    public synchronized void collapseCluster(String regionName) {
+        checkRegion(regionName);
+        Cluster displayed = displayedClusterOf(regionName);
+        Cluster cluster = displayed == null ? clusterOf.get(regionName) : displayed.parent;
+        if (cluster != null)
+            collapse(cluster);
+    }
+
+    /**
+     * @brief   Collapses an expanded cluster into a single node.
+     *
+     * @param   cluster The cluster to collapse.
+     *
+     * @pre     The cluster is expanded.
+     * @post    The nodes displayed for the cluster, including its expanded
+     *          sub-clusters, have been replaced by the node of the cluster and
+     *          its edges.
+     */
+    private void collapse(Cluster cluster) {
+        if (cluster.children != null) {
+            for (Cluster child : cluster.children) {
+                if (expanded.contains(child))
+                    collapse(child);
+                graph.removeNode(child.id);
+            }
+        } else {
+            for (Region region : cluster.regions) {
+                graph.removeNode(region.getName());
+            }
+        }
+        expanded.remove(cluster);
+        addClusterNode(cluster);
+        connectAll(cluster);
+    }
+
+    /**
+     * @param   cluster A cluster.
+     *
+     * @pre     --
+     * @post    The edges of the nodes in which the regions of the cluster are
+     *          displayed have been added.
+     */
+    private void connectAll(Cluster cluster) {
+        for (Region region : cluster.regions) {
+            for (Region neighbor : region.getNeighboringRegions().keySet()) {
+                connect(region, neighbor);
+            }
+        }
+    }
+
+    /**
+     * @param   regionName  Name of a region.
+     *
+     * @throws  IllegalStateException       if the regions are not grouped into
+     *                                      clusters.
+     * @throws  IllegalArgumentException    if the region is unknown.
+     */
+    private void checkRegion(String regionName) {
+        if (clusters == null)
+            throw new IllegalStateException("The regions are not grouped " +
+                    "into clusters.");
+        if (!clusterOf.containsKey(regionName))
+            throw new IllegalArgumentException("Region not found: " + regionName);
+    }
+
     /**
      * @brief   Adds an edge between two regions in the graph.
      *
@@ -65,7 +386,7 @@ public class GraphVisualizer {
      * @pre     region1 and region2 are valid region names.
      * @post    Adds an edge between the two regions if it does not already exist.
      */
-    public void addEdge(String region1, String region2) {
+    public synchronized void addEdge(String region1, String region2) {
         String edgeId = region1 + "-" + region2;
         String reverseEdgeId = region2 + "-" + region1;
         if (graph.getEdge(edgeId) == null && graph.getEdge(reverseEdgeId) == null &&
@@ -83,7 +404,7 @@ public class GraphVisualizer {
      * @pre     region1 and region2 are valid region names.
      * @post    Removes the edge between the two regions if it exists.
      */
-    public void removeEdge(String region1, String region2) {
+    public synchronized void removeEdge(String region1, String region2) {
         String edgeId = region1 + "-" + region2;
         String reverseEdgeId = region2 + "-" + region1;
         if (graph.getEdge(edgeId) != null) {
@@ -100,10 +421,12 @@ public class GraphVisualizer {
      *
      * @pre     s is not null.
      * @post    Updates the size and color of the nodes based on the number of
-     *          infected inhabitants.
+     *          infected inhabitants. The nodes of collapsed clusters show the
+     *          infected inhabitants of all their regions.
      */
-    public void updateGraph(Simulator s) {
+    public synchronized void updateGraph(Simulator s) {
         Map<Region, List<Virus>> virusRegions = s.getRegionViruses();
+        Map<String, Integer> infectedByNode = new HashMap<>();
         for (Region region : virusRegions.keySet()) {
             List<Virus> viruses = virusRegions.get(region);
             if (viruses != null) {
@@ -111,12 +434,87 @@ public class GraphVisualizer {
                 for (Virus virus : viruses) {
                     totalInfected += region.getNumInfected(virus);
                 }
-                org.graphstream.graph.Node node = graph.getNode(region.getName());
-                if (node != null) {
-                    double size = Math.min(20.0, 5.0 + totalInfected / 100.0); // Example logic for node size
-                    node.setAttribute("ui.style", "fill-color: red; size: " + size + "px;");
-                }
+                infectedByNode.merge(nodeIdOf(region), totalInfected, Integer::sum);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : infectedByNode.entrySet()) {
+            org.graphstream.graph.Node node = graph.getNode(entry.getKey());
+            if (node != null) {
+                double size = Math.min(20.0, 5.0 + entry.getValue() / 100.0); // Example logic for node size
+                node.setAttribute("ui.style", "fill-color: red; size: " + size + "px;");
             }
         }
     }
+
+    /**
+     * @brief   Shows a recorded frame of the simulation on the graph.
+     *
+     * @param   history The recorded history of the regions.
+     * @param   frame   Index of the frame to show.
+     * @param   metric  The metric used to color the nodes.
+     *
+     * @pre     frame is a valid frame of the history.
+     * @post    The size and color of the nodes depend on the value of the
+     *          metric relative to its highest value in the whole history. The
+     *          nodes of collapsed clusters show the values of all their regions.
+     */
+    public synchronized void showFrame(RegionHistory history, int frame, RegionHistory.Metric metric) {
+        int max = Math.max(1, history.getMaxValue(metric));
+        Map<String, Integer> valueByNode = new HashMap<>();
+        for (String regionName : history.getRegionNames()) {
+            valueByNode.merge(nodeIdOf(regionName), history.getValue(frame, metric, regionName), Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : valueByNode.entrySet()) {
+            org.graphstream.graph.Node node = graph.getNode(entry.getKey());
+            if (node != null) {
+                double fraction = Math.min(1.0, (double) entry.getValue() / max);
+                int red = (int) Math.round(255 * Math.min(1, 2 * fraction));
+                int green = (int) Math.round(255 * Math.min(1, 2 * (1 - fraction)));
+                double size = 5.0 + 15.0 * Math.sqrt(fraction);
+                node.setAttribute("ui.style", String.format(Locale.ROOT,
+                        "fill-color: rgb(%d,%d,0); size: %.1fpx;", red, green, size));
+            }
+        }
+    }
+
+    /** @brief  Group of neighboring regions shown as a single node. */
+    private static class Cluster {
+        /** @brief  Identifier of the node of the cluster. */
+        private final String id;
+        /** @brief  Label shown for the cluster. */
+        private final String label;
+        /** @brief  Regions of the cluster. */
+        private final List<Region> regions;
+        /** @brief  Cluster containing this one, or null. */
+        private final Cluster parent;
+        /** @brief  Sub-clusters, or null if the cluster expands into its
+         *          regions. */
+        private List<Cluster> children;
+
+        /**
+         * @param   id      Identifier of the node of the cluster.
+         * @param   label   Label shown for the cluster.
+         * @param   regions Regions of the cluster.
+         * @param   parent  Cluster containing this one, or null.
+         */
+        private Cluster(String id, String label, List<Region> regions, Cluster parent) {
+            this.id = id;
+            this.label = label;
+            this.regions = regions;
+            this.parent = parent;
+        }
+
+        /**
+         * @param   other   A cluster.
+         *
+         * @return  True if the other cluster is this one or one of its
+         *          sub-clusters.
+         */
+        private boolean contains(Cluster other) {
+            for (Cluster c = other; c != null; c = c.parent)
+                if (c == this)
+                    return true;
+            return false;
+        }
+    }
 }
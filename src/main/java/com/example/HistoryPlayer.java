@@ -0,0 +1,150 @@
+package main.java.com.example;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * @class   HistoryPlayer
+ * @brief   Window that replays a recorded RegionHistory on the graph.
+ *
+ * @details Offers a time slider, a play/pause button, a speed control and the
+ *          choice of the metric used to color the regions. Each frame is read
+ *          from the history, so moving to any step does not simulate
+ *          anything.
+ *
+ *          Like any Swing window, the player is created and used on the event
+ *          dispatch thread. The history it replays must not change meanwhile,
+ *          so a history still being recorded is given as a snapshot, whose
+ *          frames stay those of the time slider.
+ */
+public class HistoryPlayer {
+    /** @brief  Maximum playback speed in steps per second. */
+    private static final int MAX_SPEED = 30;
+
+    /** @brief  The history being replayed, which does not change. */
+    private final RegionHistory history;
+    /** @brief  The graph where the frames are shown. */
+    private final GraphVisualizer graphVisualizer;
+    /** @brief  Window of the player. */
+    private final JFrame frame;
+    /** @brief  Slider with the frame being shown. */
+    private final JSlider timeSlider;
+    /** @brief  Button to start and stop the playback. */
+    private final JButton playButton;
+    /** @brief  Metric used to color the regions. */
+    private final JComboBox<RegionHistory.Metric> metricBox;
+    /** @brief  Label with the simulation step being shown. */
+    private final JLabel stepLabel;
+    /** @brief  Timer that moves to the next frame while playing. */
+    private final Timer timer;
+
+    /**
+     * @brief   Creates the player window.
+     *
+     * @param   history         The history to replay.
+     * @param   graphVisualizer The graph where the frames are shown.
+     *
+     * @throws  IllegalArgumentException    if the history is empty.
+     *
+     * @pre     Called on the event dispatch thread, history does not change
+     *          anymore and graphVisualizer displays the regions of the
+     *          history.
+     * @post    The window is created, showing the first frame, but not
+     *          visible.
+     */
+    public HistoryPlayer(RegionHistory history, GraphVisualizer graphVisualizer) {
+        if (history.getNumFrames() == 0)
+            throw new IllegalArgumentException("The history has no frames.");
+        this.history = history;
+        this.graphVisualizer = graphVisualizer;
+
+        timeSlider = new JSlider(0, history.getNumFrames() - 1, 0);
+        timeSlider.addChangeListener(e -> showFrame());
+        playButton = new JButton("Play");
+        playButton.addActionListener(e -> togglePlay());
+        metricBox = new JComboBox<>(RegionHistory.Metric.values());
+        metricBox.addActionListener(e -> showFrame());
+        stepLabel = new JLabel();
+        JSlider speedSlider = new JSlider(1, MAX_SPEED, 5);
+        timer = new Timer(1000 / speedSlider.getValue(), e -> nextFrame());
+        speedSlider.addChangeListener(e -> timer.setDelay(1000 / speedSlider.getValue()));
+
+        JPanel controls = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        controls.add(playButton);
+        controls.add(new JLabel("Speed"));
+        controls.add(speedSlider);
+        controls.add(new JLabel("Color by"));
+        controls.add(metricBox);
+        controls.add(stepLabel);
+
+        frame = new JFrame("Virus Simulation - History");
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                timer.stop();
+            }
+        });
+        frame.getContentPane().add(timeSlider, BorderLayout.NORTH);
+        frame.getContentPane().add(controls, BorderLayout.CENTER);
+        frame.pack();
+        showFrame();
+    }
+
+    /**
+     * @brief   Shows the player window.
+     *
+     * @pre     Called on the event dispatch thread.
+     * @post    The window is visible.
+     */
+    public void show() {
+        frame.setVisible(true);
+    }
+
+    /**
+     * @brief   Starts or stops the playback.
+     *
+     * @pre     --
+     * @post    The playback has been started from the current frame, or from
+     *          the first one if the last frame was being shown, or stopped.
+     */
+    private void togglePlay() {
+        if (timer.isRunning()) {
+            timer.stop();
+            playButton.setText("Play");
+        } else {
+            if (timeSlider.getValue() == timeSlider.getMaximum())
+                timeSlider.setValue(0);
+            timer.start();
+            playButton.setText("Pause");
+        }
+    }
+
+    /**
+     * @brief   Moves the playback to the next frame.
+     *
+     * @pre     --
+     * @post    The next frame is shown, or the playback has been stopped if
+     *          the last frame was being shown.
+     */
+    private void nextFrame() {
+        if (timeSlider.getValue() < timeSlider.getMaximum())
+            timeSlider.setValue(timeSlider.getValue() + 1);
+        else
+            togglePlay();
+    }
+
+    /**
+     * @brief   Shows the frame selected in the time slider on the graph.
+     *
+     * @pre     --
+     * @post    The regions are colored by the selected metric at the selected
+     *          frame.
+     */
+    private void showFrame() {
+        int f = timeSlider.getValue();
+        RegionHistory.Metric metric = (RegionHistory.Metric) metricBox.getSelectedItem();
+        stepLabel.setText("Step " + history.getStep(f));
+        graphVisualizer.showFrame(history, f, metric);
+    }
+}
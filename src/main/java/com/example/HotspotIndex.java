@@ -0,0 +1,193 @@
+package main.java.com.example;
+
+/**
+ * @class   HotspotIndex
+ * @brief   Regions with the highest number of infected, sick or deaths at the
+ *          last step, over all their viruses.
+ *
+ * @details Each region is offered once it has been stepped, and each metric
+ *          keeps its k highest regions in a min-heap of at most k elements, so
+ *          a region only enters it if it beats the lowest one. At the end of
+ *          the step the heaps are sorted into the published rankings, which
+ *          are read until the end of the next step. The heaps and the rankings
+ *          are plain arrays of fixed size, so a step does not create objects.
+ */
+public class HotspotIndex {
+    /** @brief  Metrics by which the regions are ranked. */
+    public enum Metric { INFECTED, SICK, DEATHS }
+
+    /** @brief  Number of regions of each ranking. */
+    private final int k;
+    /** @brief  Regions of the heap of each metric. */
+    private final Region[][] heapRegions;
+    /** @brief  Values of the regions of the heap of each metric. */
+    private final long[][] heapValues;
+    /** @brief  Number of regions in the heap of each metric. */
+    private final int[] heapSize;
+    /** @brief  Regions of the ranking of each metric, from the highest. */
+    private final Region[][] topRegions;
+    /** @brief  Values of the regions of the ranking of each metric. */
+    private final long[][] topValues;
+    /** @brief  Number of regions in the ranking of each metric. */
+    private final int[] topSize;
+
+    /**
+     * @brief   Creates an empty index.
+     *
+     * @param   k   Number of regions of each ranking.
+     *
+     * @throws  IllegalArgumentException    if k is not positive.
+     *
+     * @pre     --
+     * @post    The rankings are empty.
+     */
+    public HotspotIndex(int k) {
+        if (k <= 0)
+            throw new IllegalArgumentException("At least one region must be ranked.");
+        int numMetrics = Metric.values().length;
+        this.k = k;
+        this.heapRegions = new Region[numMetrics][k];
+        this.heapValues = new long[numMetrics][k];
+        this.heapSize = new int[numMetrics];
+        this.topRegions = new Region[numMetrics][k];
+        this.topValues = new long[numMetrics][k];
+        this.topSize = new int[numMetrics];
+    }
+
+    /**
+     * @brief   Offers the values of a region that has just been stepped.
+     *
+     * @details A region with a value of 0 is never ranked.
+     *
+     * @param   region      The region.
+     * @param   infected    Infected of the region, over all its viruses.
+     * @param   sick        Sick of the region, over all its viruses.
+     * @param   deaths      Deaths of the region at the step.
+     *
+     * @pre     The region has not been offered yet in this step.
+     * @post    The region is in the heap of each metric for which it is among
+     *          the k highest so far.
+     */
+    public void offer(Region region, long infected, long sick, long deaths) {
+        offer(Metric.INFECTED.ordinal(), region, infected);
+        offer(Metric.SICK.ordinal(), region, sick);
+        offer(Metric.DEATHS.ordinal(), region, deaths);
+    }
+
+    /**
+     * @param   m       Index of the metric.
+     * @param   region  The region.
+     * @param   value   Value of the metric for the region.
+     */
+    private void offer(int m, Region region, long value) {
+        Region[] regions = heapRegions[m];
+        long[] values = heapValues[m];
+        if (value <= 0)
+            return;
+        if (heapSize[m] < k) {
+            // Sift the new region up from the last leaf
+            int i = heapSize[m]++;
+            while (i > 0 && values[(i - 1) / 2] > value) {
+                regions[i] = regions[(i - 1) / 2];
+                values[i] = values[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            regions[i] = region;
+            values[i] = value;
+        } else if (value > values[0]) {
+            siftDown(regions, values, heapSize[m], region, value);
+        }
+    }
+
+    /**
+     * @brief   Replaces the root of a min-heap and restores the heap.
+     *
+     * @param   regions Regions of the heap.
+     * @param   values  Values of the heap.
+     * @param   size    Number of elements of the heap.
+     * @param   region  Region that replaces the root.
+     * @param   value   Value of the region.
+     */
+    private static void siftDown(Region[] regions, long[] values, int size,
+                                 Region region, long value) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && values[child + 1] < values[child])
+                child++;
+            if (values[child] >= value)
+                break;
+            regions[i] = regions[child];
+            values[i] = values[child];
+            i = child;
+        }
+        regions[i] = region;
+        values[i] = value;
+    }
+
+    /**
+     * @brief   Publishes the rankings of the step and empties the heaps.
+     *
+     * @pre     Every stepped region has been offered.
+     * @post    The rankings hold the regions offered in the step, from the
+     *          highest value.
+     */
+    public void publish() {
+        for (int m = 0; m < heapSize.length; m++) {
+            Region[] regions = heapRegions[m];
+            long[] values = heapValues[m];
+            int size = heapSize[m];
+            topSize[m] = size;
+            // Popping the lowest value fills the ranking from its end
+            for (int n = size; n > 0; n--) {
+                topRegions[m][n - 1] = regions[0];
+                topValues[m][n - 1] = values[0];
+                siftDown(regions, values, n - 1, regions[n - 1], values[n - 1]);
+                regions[n - 1] = null;
+            }
+            heapSize[m] = 0;
+        }
+    }
+
+    /** @return The number of regions of each ranking. */
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @param   metric  The metric.
+     *
+     * @return  The number of regions ranked by the metric at the last step.
+     */
+    public int size(Metric metric) {
+        return topSize[metric.ordinal()];
+    }
+
+    /**
+     * @param   metric  The metric.
+     * @param   rank    Position in the ranking, from 0 for the highest.
+     *
+     * @throws  IndexOutOfBoundsException   if there is no such position.
+     *
+     * @return  The region at the position of the ranking.
+     */
+    public Region getRegion(Metric metric, int rank) {
+        if (rank < 0 || rank >= topSize[metric.ordinal()])
+            throw new IndexOutOfBoundsException("Invalid rank " + rank + ".");
+        return topRegions[metric.ordinal()][rank];
+    }
+
+    /**
+     * @param   metric  The metric.
+     * @param   rank    Position in the ranking, from 0 for the highest.
+     *
+     * @throws  IndexOutOfBoundsException   if there is no such position.
+     *
+     * @return  The value of the metric for the region at the position.
+     */
+    public long getValue(Metric metric, int rank) {
+        if (rank < 0 || rank >= topSize[metric.ordinal()])
+            throw new IndexOutOfBoundsException("Invalid rank " + rank + ".");
+        return topValues[metric.ordinal()][rank];
+    }
+}
@@ -0,0 +1,81 @@
+package main.java.com.example;
+
+/**
+ * @class   InfectionKernel
+ * @brief   Computes the new infections of many region-virus cells at once.
+ *
+ * @details The probability that a susceptible inhabitant meets at least one
+ *          infected inhabitant is 1 - (1 - infectedFraction * contagionRate)
+ *          ^ mobility. Instead of calling Math.pow for every cell, the power
+ *          is computed as exp(mobility * log(1 - infectedFraction *
+ *          contagionRate)), using the log and exp intrinsics of the JVM, and
+ *          the cells are read from plain arrays in a single loop.
+ *
+ *          A base that is not positive has no logarithm. Those cells, which
+ *          only appear when a region has more infected than inhabitants or
+ *          none at all, are computed with Math.pow as before.
+ */
+public class InfectionKernel {
+    /**
+     * @brief   Private constructor: the class only has static methods.
+     */
+    private InfectionKernel() {
+    }
+
+    /**
+     * @param   infectedFraction    Fraction of the inhabitants that is
+     *                              infected.
+     * @param   contagionRate       Contagion rate of the virus.
+     * @param   mobility            Number of contacts of each inhabitant in a
+     *                              unit of time.
+     *
+     * @return  The probability that an inhabitant meets at least one infected
+     *          and is infected.
+     */
+    public static double coincidenceProbability(double infectedFraction, double contagionRate,
+                                                double mobility) {
+        double base = 1 - infectedFraction * contagionRate;
+        if (base > 0 && mobility != 0)
+            return 1 - Math.exp(mobility * Math.log(base));
+        return 1 - Math.pow(base, mobility);
+    }
+
+    /**
+     * @param   susceptible Number of inhabitants that can be infected.
+     * @param   probability Probability that each of them is infected.
+     *
+     * @return  The number of new infections, truncated and never negative.
+     */
+    public static int newInfections(int susceptible, double probability) {
+        int numToInfect = (int) (susceptible * probability);
+        return Math.max(numToInfect, 0);
+    }
+
+    /**
+     * @brief   Computes the new infections of a batch of cells.
+     *
+     * @param   susceptible         Number of inhabitants that can be infected
+     *                              in each cell.
+     * @param   infectedFraction    Fraction of infected inhabitants of each
+     *                              cell.
+     * @param   contagionRate       Contagion rate of the virus of each cell.
+     * @param   mobility            Mobility of the region of each cell.
+     * @param   numToInfect         Array where the new infections are
+     *                              written.
+     * @param   n                   Number of cells.
+     *
+     * @pre     All the arrays have at least n elements.
+     * @post    numToInfect[i] = newInfections(susceptible[i],
+     *          coincidenceProbability(infectedFraction[i], contagionRate[i],
+     *          mobility[i])) for every i < n.
+     */
+    public static void newInfections(int[] susceptible, double[] infectedFraction,
+                                     double[] contagionRate, double[] mobility,
+                                     int[] numToInfect, int n) {
+        for (int i = 0; i < n; i++) {
+            double probability = coincidenceProbability(infectedFraction[i],
+                    contagionRate[i], mobility[i]);
+            numToInfect[i] = newInfections(susceptible[i], probability);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package main.java.com.example;
+
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.Node;
+import org.graphstream.graph.implementations.SingleGraph;
+import org.graphstream.stream.file.FileSinkDGS;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @class   InfectionMapExporter
+ * @brief   Exports the infection map of the regions at each simulation step
+ *          without a display.
+ *
+ * @details The size and color of each region depend on the fraction of its
+ *          inhabitants that is infected. The maps are written either as one
+ *          PNG image per step or as a GraphStream DGS event stream.
+ *
+ *          The simulation thread only takes a snapshot of the number of
+ *          infected of each region, and a background thread renders and writes
+ *          it. If the background thread falls behind, the snapshots that do
+ *          not fit in the queue are dropped, so exporting never blocks the
+ *          simulation.
+ */
+public class InfectionMapExporter implements Consumer<Simulator>, AutoCloseable {
+    /** @brief  Formats in which the maps can be exported. */
+    public enum Format { PNG, DGS }
+
+    /** @brief  Width and height of the exported images in pixels. */
+    private static final int IMAGE_SIZE = 1024;
+    /** @brief  Margin of the exported images in pixels. */
+    private static final int MARGIN = 32;
+    /** @brief  Number of snapshots waiting to be exported. */
+    private static final int QUEUE_CAPACITY = 64;
+    /** @brief  Milliseconds between checks that the background thread is
+     *          still running while closing. */
+    private static final long CLOSE_POLL_MILLIS = 100;
+
+    /** @brief  Regions of the map, in the order of the snapshots. */
+    private final Region[] regions;
+    /** @brief  Index of the neighbors of each region. */
+    private final int[][] neighbors;
+    /** @brief  Static positions of the regions. */
+    private final GraphLayout layout;
+    /** @brief  Folder where the maps are written. */
+    private final File outputDir;
+    /** @brief  Format in which the maps are written. */
+    private final Format format;
+    /** @brief  Snapshots waiting to be exported. */
+    private final BlockingQueue<Frame> queue;
+    /** @brief  Background thread that exports the snapshots. */
+    private final Thread worker;
+    /** @brief  Number of snapshots dropped because the queue was full. */
+    private int droppedFrames;
+
+    /**
+     * @brief   Creates the exporter and starts its background thread.
+     *
+     * @param   regions     Map of all regions in the simulation.
+     * @param   layout      Static positions of the regions.
+     * @param   outputDir   Folder where the maps are written.
+     * @param   format      Format in which the maps are written.
+     *
+     * @throws  IOException If the output folder cannot be created.
+     *
+     * @pre     layout has a position for every region.
+     * @post    The background thread is waiting for snapshots.
+     */
+    public InfectionMapExporter(Map<String, Region> regions, GraphLayout layout,
+                                File outputDir, Format format) throws IOException {
+        if (!outputDir.isDirectory() && !outputDir.mkdirs())
+            throw new IOException("Cannot create the folder " + outputDir);
+        List<String> names = new ArrayList<>(regions.keySet());
+        Collections.sort(names);
+        Map<String, Integer> index = new HashMap<>();
+        this.regions = new Region[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            this.regions[i] = regions.get(names.get(i));
+            index.put(names.get(i), i);
+        }
+        this.neighbors = new int[this.regions.length][];
+        for (int i = 0; i < this.regions.length; i++) {
+            this.neighbors[i] = this.regions[i].getNeighboringRegions().keySet().stream()
+                    .map(r -> index.get(r.getName()))
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        this.layout = layout;
+        this.outputDir = outputDir;
+        this.format = format;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.worker = new Thread(this::export, "infection-map-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @brief   Takes a snapshot of the current step of the simulation and
+     *          queues it to be exported.
+     *
+     * @param   s   Simulator containing the current state of the simulation.
+     *
+     * @pre     s is not null.
+     * @post    The snapshot has been queued, or dropped if the queue was full.
+     */
+    @Override
+    public void accept(Simulator s) {
+        Map<Region, List<Virus>> regionViruses = s.getRegionViruses();
+        int[] infected = new int[regions.length];
+        int[] inhabitants = new int[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            inhabitants[i] = regions[i].getNumInhabitants();
+            List<Virus> viruses = regionViruses.get(regions[i]);
+            if (viruses != null)
+                for (Virus virus : viruses)
+                    infected[i] += regions[i].getNumInfected(virus);
+        }
+        if (!queue.offer(new Frame(s.getSimulationStep(), infected, inhabitants)))
+            droppedFrames++;
+    }
+
+    /** @return The number of snapshots dropped because the queue was full. */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @brief   Exports the pending snapshots and stops the background thread.
+     *
+     * @details If the background thread has stopped, the end of the export is
+     *          not queued, so closing never waits for a thread that will not
+     *          take it. If the calling thread is interrupted, it stops waiting
+     *          and keeps its interrupt status.
+     *
+     * @pre     --
+     * @post    All the queued snapshots have been written, unless the export
+     *          failed.
+     */
+    @Override
+    public void close() {
+        try {
+            while (!queue.offer(Frame.END, CLOSE_POLL_MILLIS, TimeUnit.MILLISECONDS))
+                if (!worker.isAlive())
+                    return;
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @brief   Body of the background thread: writes each queued snapshot
+     *          until the end of the export.
+     */
+    private void export() {
+        Graph graph = null;
+        FileSinkDGS sink = null;
+        try {
+            if (format == Format.DGS) {
+                graph = new SingleGraph("Virus Simulation");
+                sink = new FileSinkDGS();
+                graph.addSink(sink);
+                sink.begin(new File(outputDir, "infection.dgs").getPath());
+                addRegions(graph);
+            }
+            Frame frame;
+            while ((frame = queue.take()) != Frame.END) {
+                if (format == Format.DGS)
+                    writeStep(graph, frame);
+                else
+                    ImageIO.write(render(frame), "png",
+                            new File(outputDir, String.format("frame_%05d.png", frame.step)));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cannot export the infection map: " + e.getMessage());
+            // Keep taking the snapshots, so the queue never stays full
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (sink != null) {
+                try {
+                    sink.end();
+                } catch (IOException e) {
+                    System.err.println("Cannot close the infection map: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief   Takes the queued snapshots without exporting them, until the
+     *          end of the export.
+     */
+    private void drain() {
+        try {
+            Frame frame = queue.take();
+            while (frame != Frame.END)
+                frame = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @brief   Adds the regions and their edges to the exported graph.
+     *
+     * @param   graph   The graph connected to the DGS sink.
+     *
+     * @pre     The graph is empty.
+     * @post    The graph has one node per region at its static position and
+     *          one edge per pair of neighboring regions.
+     */
+    private void addRegions(Graph graph) {
+        for (Region region : regions) {
+            Node node = graph.addNode(region.getName());
+            node.setAttribute("ui.label", region.getName());
+            double[] position = layout.getPosition(region.getName());
+            node.setAttribute("xyz", position[0], position[1], 0);
+        }
+        for (int i = 0; i < regions.length; i++)
+            for (int j : neighbors[i]) {
+                String id1 = regions[i].getName(), id2 = regions[j].getName();
+                if (graph.getEdge(id1 + "-" + id2) == null && graph.getEdge(id2 + "-" + id1) == null)
+                    graph.addEdge(id1 + "-" + id2, id1, id2);
+            }
+    }
+
+    /**
+     * @brief   Writes the infection of a snapshot as a step of the DGS stream.
+     *
+     * @param   graph   The graph connected to the DGS sink.
+     * @param   frame   The snapshot to write.
+     */
+    private void writeStep(Graph graph, Frame frame) {
+        graph.stepBegins(frame.step);
+        for (int i = 0; i < regions.length; i++) {
+            double fraction = frame.fraction(i);
+            Node node = graph.getNode(regions[i].getName());
+            node.setAttribute("infected", frame.infected[i]);
+            node.setAttribute("ui.style", String.format(Locale.ROOT,
+                    "fill-color: rgb(%d,%d,0); size: %.1fpx;",
+                    red(fraction), green(fraction), 5 + 15 * Math.sqrt(fraction)));
+        }
+    }
+
+    /**
+     * @param   frame   The snapshot to render.
+     *
+     * @return  An image of the regions, with the size and color of each
+     *          region depending on its fraction of infected.
+     */
+    private BufferedImage render(Frame frame) {
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        int[] x = new int[regions.length];
+        int[] y = new int[regions.length];
+        for (Region region : regions) {
+            double[] p = layout.getPosition(region.getName());
+            minX = Math.min(minX, p[0]);
+            minY = Math.min(minY, p[1]);
+            maxX = Math.max(maxX, p[0]);
+            maxY = Math.max(maxY, p[1]);
+        }
+        double scale = (IMAGE_SIZE - 2 * MARGIN) /
+                Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+        for (int i = 0; i < regions.length; i++) {
+            double[] p = layout.getPosition(regions[i].getName());
+            x[i] = MARGIN + (int) ((p[0] - minX) * scale);
+            y[i] = IMAGE_SIZE - MARGIN - (int) ((p[1] - minY) * scale);
+        }
+
+        BufferedImage image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, IMAGE_SIZE, IMAGE_SIZE);
+        g.setColor(Color.PINK);
+        for (int i = 0; i < regions.length; i++)
+            for (int j : neighbors[i])
+                g.drawLine(x[i], y[i], x[j], y[j]);
+        for (int i = 0; i < regions.length; i++) {
+            double fraction = frame.fraction(i);
+            int radius = (int) (3 + 12 * Math.sqrt(fraction));
+            g.setColor(new Color(red(fraction), green(fraction), 0));
+            g.fillOval(x[i] - radius, y[i] - radius, 2 * radius, 2 * radius);
+        }
+        g.setColor(Color.BLACK);
+        g.drawString("Simulation step " + frame.step, MARGIN, MARGIN / 2 + 6);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * @param   fraction    Fraction of infected inhabitants, between 0 and 1.
+     *
+     * @return  The red component of the color of a region, from green when no
+     *          one is infected to red when everyone is.
+     */
+    private static int red(double fraction) {
+        return (int) Math.round(255 * Math.min(1, 2 * fraction));
+    }
+
+    /**
+     * @param   fraction    Fraction of infected inhabitants, between 0 and 1.
+     *
+     * @return  The green component of the color of a region.
+     */
+    private static int green(double fraction) {
+        return (int) Math.round(255 * Math.min(1, 2 * (1 - fraction)));
+    }
+
+    /** @brief  Snapshot of the infection of the regions at a simulation step. */
+    private static class Frame {
+        /** @brief  Snapshot that marks the end of the export. */
+        private static final Frame END = new Frame(-1, new int[0], new int[0]);
+
+        /** @brief  Simulation step of the snapshot. */
+        private final int step;
+        /** @brief  Number of infected of each region. */
+        private final int[] infected;
+        /** @brief  Number of inhabitants of each region. */
+        private final int[] inhabitants;
+
+        /**
+         * @param   step        Simulation step of the snapshot.
+         * @param   infected    Number of infected of each region.
+         * @param   inhabitants Number of inhabitants of each region.
+         */
+        private Frame(int step, int[] infected, int[] inhabitants) {
+            this.step = step;
+            this.infected = infected;
+            this.inhabitants = inhabitants;
+        }
+
+        /**
+         * @param   region  Index of the region.
+         *
+         * @return  The fraction of infected inhabitants of the region, between
+         *          0 and 1.
+         */
+        private double fraction(int region) {
+            if (inhabitants[region] <= 0)
+                return 0;
+            return Math.max(0, Math.min(1, (double) infected[region] / inhabitants[region]));
+        }
+    }
+}
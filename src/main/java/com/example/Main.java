@@ -1,10 +1,14 @@
 package main.java.com.example;
 
+import javax.swing.SwingUtilities;
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
 public class Main {
+    /** @brief  Number of states shown in each page of a filtered report. */
+    private static final int PAGE_SIZE = 10;
 
     public static void main(String[] args) throws IOException {
         Scanner sc = new Scanner(System.in);
@@ -14,28 +18,85 @@ public class Main {
         String folderName = sc.nextLine();
         String dir = "res" + File.separator + folderName;  // Set the directory to the selected folder
 
-        System.out.println("Processing files in folder: " + dir);
-        File folder = new File(dir);
-        File[] listOfFiles = folder.listFiles();
-
-        String simulationFileName = "";
-        assert listOfFiles != null;
-        for (File file : listOfFiles) {
-            if (file.isFile()) {
-                String filePath = file.getAbsolutePath();
-                if (file.getName().startsWith("ini")) {
-                    simulationFileName = filePath;
-                } else {
-                    Simulator.chooseFile(filePath);
-                }
-            }
+        // With -Dvirusland.workers=<n>, the regions are stepped by n processes
+        int workers = Integer.getInteger("virusland.workers", 1);
+        if (workers > 1) {
+            runPartitioned(dir, workers, sc);
+            return;
         }
 
+        System.out.println("Processing files in folder: " + dir);
+        String simulationFileName = loadFolder(dir);
+
+        // With -Dvirusland.agents=<seed>, each inhabitant is simulated on its own
+        Long agentSeed = Long.getLong("virusland.agents");
+        if (agentSeed != null)
+            s.useAgents(agentSeed);
         s.initializeSimulation(simulationFileName);
+        // With -Dvirusland.retention=<steps>, older states are only summarized
+        Integer retention = Integer.getInteger("virusland.retention");
+        if (retention != null)
+            s.retainSteps(retention);
+
+        // Initialize GraphVisualizer with the layout saved next to the files
+        GraphLayout layout = GraphLayout.loadOrCompute(
+                new File(dir, "layout.txt"), s.getRegions());
+        // With -Dvirusland.history, the state of the regions at each step is
+        // recorded to replay it later, only for the retained steps if any
+        RegionHistory history = null;
+        if (System.getProperty("virusland.history") != null) {
+            history = new RegionHistory(s.getRegions().keySet(),
+                    retention != null ? retention : 0);
+            history.accept(s);
+            s.addStepListener(history);
+        }
+        // With -Dvirusland.results=<file>, every state is written to a file
+        String resultsFile = System.getProperty("virusland.results");
+        ResultWriter results = null;
+        if (resultsFile != null) {
+            results = new ResultWriter(new File(resultsFile),
+                    ResultWriter.Format.valueOf(System.getProperty("virusland.results.format", "csv").toUpperCase()),
+                    ResultWriter.Backpressure.valueOf(System.getProperty("virusland.results.backpressure", "block").toUpperCase()),
+                    ResultWriter.DEFAULT_CAPACITY);
+            s.addStepListener(results);
+        }
+        // With -Dvirusland.rollup=<groups>, totals by group of regions are kept
+        Integer rollupGroups = Integer.getInteger("virusland.rollup");
+        RollupCube rollup = null;
+        if (rollupGroups != null) {
+            rollup = new RollupCube(s.getRegions(), rollupGroups);
+            rollup.accept(s);
+            s.addStepListener(rollup);
+        }
+        // With -Dvirusland.server=<port>, the state can be queried over HTTP
+        Integer serverPort = Integer.getInteger("virusland.server");
+        QueryServer server = null;
+        if (serverPort != null) {
+            server = new QueryServer(serverPort, QueryServer.DEFAULT_RETAINED_STEPS);
+            server.accept(s);
+            s.addStepListener(server);
+            System.out.println("Answering queries on http://localhost:" + server.getPort() + "/");
+        }
 
-        // Initialize GraphVisualizer
-        GraphVisualizer graphVisualizer = new GraphVisualizer(s.getRegions());
-        graphVisualizer.display();
+        GraphVisualizer graphVisualizer = null;
+        InfectionMapExporter exporter = null;
+        if (GraphicsEnvironment.isHeadless()) {
+            // Without a display, the infection maps are exported to files
+            String formatName = System.getProperty("virusland.export", "png");
+            InfectionMapExporter.Format format = InfectionMapExporter.Format.PNG;
+            try {
+                format = InfectionMapExporter.Format.valueOf(formatName.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Unknown export format " + formatName + ", exporting PNG images.");
+            }
+            File mapsDir = new File(dir, "maps");
+            exporter = new InfectionMapExporter(s.getRegions(), layout, mapsDir, format);
+            s.addStepListener(exporter);
+            System.out.println("No display available, exporting the infection maps to " + mapsDir);
+        } else {
+            graphVisualizer = new GraphVisualizer(s.getRegions(), layout);
+            graphVisualizer.display();
+        }
 
         showOptions();
         System.out.print("Option: ");
@@ -45,19 +106,25 @@ public class Main {
                 case "1":
                     Vaccine v = chooseVaccine(s.getVaccines(), sc);
                     List<Pair<Region, Integer>> regionList = chooseRegionsForVaccine(s.getRegions(), sc);
-                    for (Pair<Region, Integer> r : regionList) {
-                        s.vaccinateRegion(r.first, v, r.second);
+                    try {
+                        for (Pair<Region, Integer> r : regionList) {
+                            s.vaccinateRegion(r.first, v, r.second);
+                        }
+                    } catch (IllegalStateException e) {
+                        System.out.println(e.getMessage());
                     }
                     break;
                 case "2":
                     Pair<Region, Region> regionsPair = chooseRegionsToCloseFlow(s.getRegions(), sc, true);
                     s.applyClosure(regionsPair.first, regionsPair.second);
-                    graphVisualizer.addEdge(regionsPair.first.getName(), regionsPair.second.getName());
+                    if (graphVisualizer != null)
+                        graphVisualizer.addEdge(regionsPair.first.getName(), regionsPair.second.getName());
                     break;
                 case "3":
                     Pair<Region, Region> regionPair = chooseRegionsToCloseFlow(s.getRegions(), sc, false);
                     s.openClosure(regionPair.first, regionPair.second);
-                    graphVisualizer.removeEdge(regionPair.first.getName(), regionPair.second.getName());
+                    if (graphVisualizer != null)
+                        graphVisualizer.removeEdge(regionPair.first.getName(), regionPair.second.getName());
                     break;
                 case "4":
                     Pair<Region, Pair<Integer, Integer>> confinementData = chooseRegionToConfine(s.getRegions(), sc);
@@ -77,7 +144,12 @@ public class Main {
                 case "7":
                     System.out.print("Number of steps to simulate: ");
                     int steps = sc.nextInt();
+                    s.reserveSteps(steps);
                     for (int i = 0; i < steps; i++) {
+                        if (s.isQuiescent()) {
+                            showSteadyState(s, i, steps);
+                            break;
+                        }
                         s.simulate();
                     }
                     break;
@@ -87,16 +159,160 @@ public class Main {
                 case "9":
                     showTotalInformation(s);
                     break;
+                case "f":
+                    showFilteredInformation(s, sc);
+                    break;
+                case "h":
+                    showHotspots(s, sc);
+                    break;
+                case "r":
+                    if (rollup != null)
+                        showRollup(rollup, sc);
+                    else
+                        System.out.println("Start with -Dvirusland.rollup=<groups> to keep totals by group.");
+                    break;
+                case "c":
+                    if (graphVisualizer != null)
+                        toggleCluster(graphVisualizer, s.getRegions(), sc);
+                    else
+                        System.out.println("No display available.");
+                    break;
+                case "p":
+                    if (graphVisualizer != null)
+                        playHistory(history, graphVisualizer, sc);
+                    else
+                        System.out.println("No display available.");
+                    break;
+                case "s":
+                    if (history == null) {
+                        System.out.println("Start with -Dvirusland.history to record the history.");
+                        break;
+                    }
+                    System.out.print("File to save the history to: ");
+                    try {
+                        history.save(new File(sc.next()));
+                    } catch (IOException e) {
+                        System.out.println("Cannot save the history: " + e.getMessage());
+                    }
+                    break;
                 case "m":
                     showOptions();
                     break;
                 default:
                     System.out.println("Incorrect Option.");
             }
-            graphVisualizer.updateGraph(s);
+            if (graphVisualizer != null)
+                graphVisualizer.updateGraph(s);
             System.out.print("Option: ");
             option = sc.next();
         }
+        if (server != null)
+            server.close();
+        if (results != null) {
+            results.close();
+            if (results.getDroppedSteps() > 0)
+                System.out.println(results.getDroppedSteps() + " steps were not written " +
+                        "because the results file fell behind the simulation.");
+        }
+        if (exporter != null) {
+            exporter.close();
+            if (exporter.getDroppedFrames() > 0)
+                System.out.println(exporter.getDroppedFrames() + " infection maps were " +
+                        "dropped because the export fell behind the simulation.");
+        }
+    }
+
+    /**
+     * @brief   Loads the regions, viruses, vaccines and ages of a folder.
+     *
+     * @param   dir Folder containing the files.
+     * @throws  IOException If a file cannot be read.
+     *
+     * @return  The path of the initial state file of the folder.
+     *
+     * @pre     The folder exists.
+     * @post    Every file of the folder but the initial state and the layout
+     *          has been loaded into the Simulator.
+     */
+    public static String loadFolder(String dir) throws IOException {
+        File folder = new File(dir);
+        File[] listOfFiles = folder.listFiles();
+
+        String simulationFileName = "";
+        assert listOfFiles != null;
+        for (File file : listOfFiles) {
+            if (file.isFile()) {
+                String filePath = file.getAbsolutePath();
+                if (file.getName().startsWith("ini")) {
+                    simulationFileName = filePath;
+                } else if (!file.getName().startsWith("lay")) { // The layout is loaded with the graph
+                    Simulator.chooseFile(filePath);
+                }
+            }
+        }
+        return simulationFileName;
+    }
+
+    /**
+     * @brief   Runs the simulation with the regions split between several
+     *          worker processes (see PartitionCoordinator).
+     *
+     * @details Only the options that step the simulation and show its
+     *          information are available, since the interventions would
+     *          have to reach the process of each region.
+     *
+     * @param   dir     Folder containing the files.
+     * @param   workers Number of worker processes.
+     * @param   sc      Scanner.
+     * @throws  IOException If a worker cannot be started or fails.
+     *
+     * @pre     workers is greater than 1.
+     * @post    The workers have been stopped.
+     */
+    public static void runPartitioned(String dir, int workers, Scanner sc) throws IOException {
+        System.out.println("Processing files in folder: " + dir + " with " + workers + " workers");
+        try (PartitionCoordinator c = new PartitionCoordinator(dir, workers)) {
+            showOptions();
+            System.out.print("Option: ");
+            String option = sc.next();
+            while (!option.equals("0")) {
+                switch (option) {
+                    case "6":
+                        c.simulate();
+                        break;
+                    case "7":
+                        System.out.print("Number of steps to simulate: ");
+                        int steps = sc.nextInt();
+                        for (int i = 0; i < steps; i++) {
+                            if (c.isQuiescent()) {
+                                System.out.println("Steady state reached at step " +
+                                        c.getSimulationStep() + " after " + i + " of " + steps +
+                                        " steps: nobody is infected, contagious or sick in any region.");
+                                break;
+                            }
+                            c.simulate();
+                        }
+                        break;
+                    case "8":
+                        System.out.println("Current step information:");
+                        for (String state : c.getRegionStates())
+                            System.out.println(state);
+                        break;
+                    case "9":
+                        System.out.println("Total information:");
+                        for (String totals : c.getRegionTotals())
+                            System.out.println(totals);
+                        break;
+                    case "m":
+                        showOptions();
+                        break;
+                    default:
+                        System.out.println("Option not available with several workers.");
+                }
+                System.out.print("Option: ");
+                option = sc.next();
+            }
+        }
     }
 
     /**
@@ -117,6 +333,12 @@ public class Main {
         System.out.println("* 7. Simulate n steps                                *");
         System.out.println("* 8. Show current step information                   *");
         System.out.println("* 9. Show total information                          *");
+        System.out.println("* f. Show filtered information page by page          *");
+        System.out.println("* h. Show the regions with the most cases            *");
+        System.out.println("* r. Show totals by group of regions and family      *");
+        System.out.println("* c. Expand/collapse a cluster of regions            *");
+        System.out.println("* p. Play back the history                           *");
+        System.out.println("* s. Save the history to a file                      *");
         System.out.println("* m. Show Options                                    *");
         System.out.println("*                                                    *");
         System.out.println("* 0. End                                             *");
@@ -277,6 +499,100 @@ public class Main {
         return r;
     }
 
+    /**
+     * @brief   Expands or collapses the cluster of a region in the graph.
+     *
+     * @param   graphVisualizer Graph where the regions are displayed.
+     * @param   regions         Map of all regions in the simulator.
+     * @param   sc              Scanner.
+     *
+     * @pre     --
+     * @post    The cluster in which the chosen region is displayed has been
+     *          expanded one level, or its innermost cluster collapsed if the
+     *          region itself was displayed.
+     */
+    public static void toggleCluster(GraphVisualizer graphVisualizer,
+                                     Map<String, Region> regions, Scanner sc) {
+        if (!graphVisualizer.isClustered()) {
+            System.out.println("All the regions are already displayed.");
+            return;
+        }
+        System.out.print("Name of a region of the cluster: ");
+        String regionName = sc.next();
+        if (!regions.containsKey(regionName)) {
+            System.out.println("Region not found: " + regionName);
+        } else if (graphVisualizer.isExpanded(regionName)) {
+            graphVisualizer.collapseCluster(regionName);
+        } else {
+            graphVisualizer.expandCluster(regionName);
+        }
+    }
+
+    /**
+     * @brief   Opens a player to replay the history of the current simulation
+     *          or of a saved history file.
+     *
+     * @param   history         History of the current simulation, or null if
+     *                          it is not recorded.
+     * @param   graphVisualizer Graph where the history is replayed.
+     * @param   sc              Scanner.
+     *
+     * @pre     --
+     * @post    The player window is shown with the frames recorded so far,
+     *          or an error is printed if the history file cannot be read or
+     *          has no frames, or the current history is not recorded.
+     */
+    public static void playHistory(RegionHistory history,
+                                   GraphVisualizer graphVisualizer, Scanner sc) {
+        System.out.print("History file to play (* for the current simulation): ");
+        String fileName = sc.next();
+        RegionHistory played;
+        if (fileName.equals("*")) {
+            if (history == null) {
+                System.out.println("Start with -Dvirusland.history to record the history.");
+                return;
+            }
+            // The simulation keeps adding frames to the live history
+            played = history.snapshot();
+        } else {
+            try {
+                played = RegionHistory.load(new File(fileName));
+            } catch (IOException e) {
+                System.out.println("Cannot read the history: " + e.getMessage());
+                return;
+            }
+        }
+        if (played.getNumFrames() == 0) {
+            System.out.println("The history has no frames.");
+            return;
+        }
+        RegionHistory snapshot = played;
+        SwingUtilities.invokeLater(() -> new HistoryPlayer(snapshot, graphVisualizer).show());
+    }
+
+    /**
+     * @brief   Reports that the simulation stopped early because nobody can be
+     *          infected anymore.
+     *
+     * @param   s           Simulator
+     * @param   simulated   Number of steps simulated before stopping.
+     * @param   requested   Number of steps that were requested.
+     *
+     * @pre     s is quiescent.
+     * @post    Prints the step reached and the next pending countdown.
+     */
+    public static void showSteadyState(Simulator s, int simulated, int requested) {
+        System.out.println("Steady state reached at step " + s.getSimulationStep() +
+                " after " + simulated + " of " + requested + " steps: nobody is " +
+                "infected, contagious or sick in any region.");
+        int nextEventStep = s.getNextEventStep();
+        if (nextEventStep == Integer.MAX_VALUE)
+            System.out.println("Nothing else will change until a new intervention.");
+        else
+            System.out.println("Only immunities, vaccines and lockdowns count down, " +
+                    "the next one expires at step " + nextEventStep + ".");
+    }
+
     /**
      * @brief   Shows the current step information of the simulator for all
      *          regions.
@@ -308,7 +624,8 @@ public class Main {
      * @param   s   Simulator
      *
      * @pre     s is not null.
-     * @post    Prints the total information for all regions in the simulator.
+     * @post    Prints the world totals of each virus and the total information
+     *          for all regions in the simulator.
      */
     public static void showTotalInformation(Simulator s) {
         Map<Region, List<Virus>> virusRegions = s.getRegionViruses();
@@ -316,6 +633,7 @@ public class Main {
         if (virusRegions.isEmpty()) {
             System.out.println("No virus information available.");
         } else {
+            showWorldTotals(s);
             for (Map.Entry<Region, List<Virus>> virRegEntry : virusRegions.entrySet()) {
                 Region r = virRegEntry.getKey();
                 for (Virus v : virRegEntry.getValue()) {
@@ -324,4 +642,179 @@ public class Main {
             }
         }
     }
+
+    /**
+     * @brief   Shows the sums of a metric by group of regions and by buckets of
+     *          steps, for a family or for all of them.
+     *
+     * @param   rollup  Totals of the simulation by group and family.
+     * @param   sc      Scanner.
+     *
+     * @pre     rollup is not null.
+     * @post    Prints a row per group and a column per bucket, or an error if
+     *          the metric or the family is not known.
+     */
+    public static void showRollup(RollupCube rollup, Scanner sc) {
+        System.out.print("Metric " + Arrays.toString(RollupCube.Metric.values()).toLowerCase() + ": ");
+        RollupCube.Metric metric;
+        try {
+            metric = RollupCube.Metric.valueOf(sc.next().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown metric.");
+            return;
+        }
+        System.out.print("Family " + rollup.getFamilies() + " (* for all of them): ");
+        String family = sc.next();
+        if (family.equals("*"))
+            family = null;
+        else if (!rollup.getFamilies().contains(family)) {
+            System.out.println("Unknown family: " + family);
+            return;
+        }
+        System.out.print("First step (" + rollup.getFirstStep() + " to " + rollup.getLastStep() + "): ");
+        int fromStep = sc.nextInt();
+        System.out.print("Last step: ");
+        int toStep = sc.nextInt();
+        System.out.print("Steps per bucket: ");
+        int bucketSteps = sc.nextInt();
+        if (bucketSteps <= 0 || toStep < fromStep) {
+            System.out.println("Invalid range of steps.");
+            return;
+        }
+        long[][] sums = rollup.groupBy(metric, family, fromStep, toStep, bucketSteps);
+        int numBuckets = (toStep - fromStep) / bucketSteps + 1;
+        StringBuilder header = new StringBuilder(String.format("%-24s", "Group"));
+        for (int bucket = 0; bucket < numBuckets; bucket++)
+            header.append(String.format(" %12s", "From " + (fromStep + bucket * bucketSteps)));
+        System.out.println(header.append(String.format(" %14s", "Total")));
+        for (int group = 0; group < sums.length; group++) {
+            StringBuilder row = new StringBuilder(String.format("%-24s", rollup.getGroupLabel(group)));
+            for (long sum : sums[group])
+                row.append(String.format(" %12d", sum));
+            row.append(String.format(" %14d", rollup.sum(metric, group, family, fromStep, toStep)));
+            System.out.println(row);
+        }
+        System.out.println(String.format("%-24s", "World") + " ".repeat(13 * numBuckets) +
+                String.format(" %14d", rollup.sum(metric, RollupCube.ALL, family, fromStep, toStep)));
+    }
+
+    /**
+     * @brief   Shows the totals of each virus over all the regions.
+     *
+     * @param   s   Simulator
+     *
+     * @pre     s is not null.
+     * @post    Prints the world totals of every virus present in a region, read
+     *          from the totals kept by the simulator.
+     */
+    public static void showWorldTotals(Simulator s) {
+        Set<Virus> viruses = new LinkedHashSet<>();
+        for (List<Virus> regionViruses : s.getRegionViruses().values())
+            viruses.addAll(regionViruses);
+        String separator = "******************************************************";
+        String format = "* %-28s %21s *\n";
+        for (Virus v : viruses) {
+            System.out.println(separator);
+            System.out.println("WORLD TOTALS FOR THE VIRUS " + v.getName().toUpperCase());
+            System.out.print(separator + "\n" +
+                    String.format(format, "Number of infected", s.getWorldTotal(v, Simulator.WorldTotal.INFECTED)) +
+                    String.format(format, "Number of contagious", s.getWorldTotal(v, Simulator.WorldTotal.CONTAGIOUS)) +
+                    String.format(format, "Number of sick", s.getWorldTotal(v, Simulator.WorldTotal.SICK)) +
+                    String.format(format, "Number of deaths", s.getWorldTotal(v, Simulator.WorldTotal.TOTAL_DEATHS)) +
+                    String.format(format, "Number of vaccinated", s.getWorldTotal(v, Simulator.WorldTotal.VACCINATED)) +
+                    separator + "\n\n");
+        }
+    }
+
+    /**
+     * @brief   Shows the state or the totals of the regions that match some
+     *          filters, a page at a time.
+     *
+     * @details The matching regions and viruses are found first, and each
+     *          state is only formatted when its page is shown, so a world
+     *          with thousands of regions can be browsed without printing all
+     *          of them.
+     *
+     * @param   s   Simulator
+     * @param   sc  Scanner.
+     *
+     * @pre     s is not null.
+     * @post    Prints the pages chosen by the user.
+     */
+    public static void showFilteredInformation(Simulator s, Scanner sc) {
+        System.out.print("Show the current step (c) or the totals (t): ");
+        boolean totals = sc.next().equalsIgnoreCase("t");
+        System.out.print("Region name prefix (* for all): ");
+        String prefix = sc.next().toLowerCase();
+        if (prefix.equals("*"))
+            prefix = "";
+        System.out.print("Virus (* for all): ");
+        String virusName = sc.next();
+        System.out.print("Minimum number of infected (0 for all): ");
+        int minInfected = sc.nextInt();
+
+        List<Pair<Region, Virus>> matches = new ArrayList<>();
+        for (Map.Entry<Region, List<Virus>> virRegEntry : s.getRegionViruses().entrySet()) {
+            Region r = virRegEntry.getKey();
+            if (!r.getName().toLowerCase().startsWith(prefix))
+                continue;
+            for (Virus v : virRegEntry.getValue())
+                if ((virusName.equals("*") || v.getName().equals(virusName)) &&
+                        r.getNumInfected(v) >= minInfected)
+                    matches.add(new Pair<>(r, v));
+        }
+        if (matches.isEmpty()) {
+            System.out.println("No region matches the filters.");
+            return;
+        }
+        matches.sort(Comparator.comparing((Pair<Region, Virus> p) -> p.first.getName())
+                .thenComparing(p -> p.second.getName()));
+        int numPages = (matches.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int page = 0; page < numPages; page++) {
+            for (int i = page * PAGE_SIZE; i < Math.min(matches.size(), (page + 1) * PAGE_SIZE); i++) {
+                Pair<Region, Virus> match = matches.get(i);
+                System.out.println(totals ? match.first.getRegionTotals(match.second) :
+                        match.first.regionState(match.second, s.getSimulationStep()));
+            }
+            System.out.println("Page " + (page + 1) + " of " + numPages + " (" +
+                    matches.size() + " states).");
+            if (page + 1 < numPages) {
+                System.out.print("Next page (n) or stop (any other key): ");
+                if (!sc.next().equalsIgnoreCase("n"))
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @brief   Shows the regions with the highest value of a metric at the
+     *          last step, over all their viruses.
+     *
+     * @param   s   Simulator
+     * @param   sc  Scanner.
+     *
+     * @pre     s is not null.
+     * @post    Prints the ranking kept by the simulator, or an error if the
+     *          metric is not known.
+     */
+    public static void showHotspots(Simulator s, Scanner sc) {
+        HotspotIndex hotspots = s.getHotspots();
+        System.out.print("Metric " + Arrays.toString(HotspotIndex.Metric.values()).toLowerCase() + ": ");
+        HotspotIndex.Metric metric;
+        try {
+            metric = HotspotIndex.Metric.valueOf(sc.next().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Unknown metric.");
+            return;
+        }
+        if (hotspots.size(metric) == 0) {
+            System.out.println("No region has any " + metric.name().toLowerCase() + ".");
+            return;
+        }
+        System.out.println("Regions with the most " + metric.name().toLowerCase() +
+                " at step " + s.getSimulationStep() + ":");
+        for (int rank = 0; rank < hotspots.size(metric); rank++)
+            System.out.println(String.format("%3d. %-30s %12d", rank + 1,
+                    hotspots.getRegion(metric, rank).getName(), hotspots.getValue(metric, rank)));
+    }
 }
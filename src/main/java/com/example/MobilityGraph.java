@@ -0,0 +1,434 @@
+package main.java.com.example;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * @class   MobilityGraph
+ * @brief   Flows of people between neighboring regions, stored in compressed
+ *          sparse row (CSR) arrays.
+ *
+ * @details The regions are numbered from 0 to n - 1. The edges of region i
+ *          are stored from rowStart[i] to rowStart[i + 1] - 1: for each edge,
+ *          neighbor holds the index of the neighboring region and inflow the
+ *          percentage of the inhabitants of the neighbor that travel to
+ *          region i. A bitmask keeps which edges are open.
+ *
+ *          With this layout, the external population of every region is a
+ *          single sparse matrix-vector product, and each row can be computed
+ *          independently, so the product runs in parallel on big worlds.
+ *
+ *          The contagious travellers of a region are pushed the other way,
+ *          through the edges pointing back to it, so spreading a virus only
+ *          touches the edges of the regions that have contagious.
+ *
+ *          The bitmask is the only record of the closures between regions.
+ *          Closing or opening the flows of a set of regions walks the edges of
+ *          those regions once, with no recursion, so it costs O(edges
+ *          touched) whatever the size of the world.
+ *
+ *          The regions are numbered in the order they are given. Ordering
+ *          them first with localityOrder() keeps neighboring regions close in
+ *          the arrays, so the rows of the product read nearby elements and a
+ *          contiguous range of indices, such as the work of a parallel task or
+ *          a SimulationPartition, has few edges leaving it.
+ */
+public class MobilityGraph {
+    /** @brief  Number of regions from which the product runs in parallel. */
+    static final int PARALLEL_THRESHOLD = 4096;
+
+    /** @brief  Regions of the graph, by index. */
+    private final Region[] regions;
+    /** @brief  Index of each region. */
+    private final Map<Region, Integer> index;
+    /** @brief  First edge of each region, plus the total number of edges. */
+    private final int[] rowStart;
+    /** @brief  Index of the neighboring region of each edge. */
+    private final int[] neighbor;
+    /** @brief  Percentage of the neighbor's inhabitants arriving by each edge. */
+    private final int[] inflow;
+    /** @brief  Edge in the opposite direction of each edge, or -1 if none. */
+    private final int[] reverse;
+    /** @brief  Bit e is set if edge e is open. */
+    private final long[] open;
+
+    /**
+     * @brief   Builds the graph from the neighbors of the regions.
+     *
+     * @param   regions All the regions of the simulation.
+     *
+     * @pre     The neighbors of every region are in the collection.
+     * @post    The graph has one edge per neighboring region, all of them open,
+     *          and the regions refer to this graph for their closures.
+     */
+    public MobilityGraph(Collection<Region> regions) {
+        this.regions = regions.toArray(new Region[0]);
+        this.index = new HashMap<>();
+        for (int i = 0; i < this.regions.length; i++)
+            index.put(this.regions[i], i);
+        this.rowStart = new int[this.regions.length + 1];
+        for (int i = 0; i < this.regions.length; i++)
+            rowStart[i + 1] = rowStart[i] + this.regions[i].getNeighboringRegions().size();
+        this.neighbor = new int[rowStart[this.regions.length]];
+        this.inflow = new int[neighbor.length];
+        for (int i = 0; i < this.regions.length; i++) {
+            int e = rowStart[i];
+            for (Region neighboringRegion : this.regions[i].getNeighboringRegions().keySet()) {
+                Integer j = index.get(neighboringRegion);
+                if (j == null)
+                    throw new IllegalArgumentException("The neighboring region " +
+                            neighboringRegion.getName() + " is not in the graph");
+                Integer percentage = neighboringRegion.getNeighboringRegions().get(this.regions[i]);
+                neighbor[e] = j;
+                inflow[e] = percentage == null ? 0 : percentage;
+                e++;
+            }
+        }
+        this.reverse = new int[neighbor.length];
+        for (int i = 0; i < this.regions.length; i++)
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++)
+                reverse[e] = findEdge(neighbor[e], i);
+        this.open = new long[(neighbor.length + 63) / 64];
+        Arrays.fill(open, -1L);
+        for (Region region : this.regions)
+            region.setMobilityGraph(this);
+    }
+
+    /**
+     * @brief   Orders the regions so that neighboring regions are close to each
+     *          other, with the reverse Cuthill-McKee algorithm.
+     *
+     * @details The regions are visited breadth-first, from a region of the
+     *          lowest degree of each connected component, and the neighbors of
+     *          each region are visited from the lowest degree to the highest.
+     *          The order of the visit is then reversed. Ties are broken by the
+     *          order of the collection, so the same collection always gives
+     *          the same order.
+     *
+     * @param   regions All the regions of the simulation.
+     *
+     * @return  The regions in an order that keeps the edges between them
+     *          short, as a graph built from it shows in getBandwidth().
+     *
+     * @pre     --
+     * @post    The list has every region of the collection once. Neighbors
+     *          outside the collection are ignored.
+     */
+    public static List<Region> localityOrder(Collection<Region> regions) {
+        Region[] input = regions.toArray(new Region[0]);
+        int n = input.length;
+        Map<Region, Integer> position = new HashMap<>();
+        for (int i = 0; i < n; i++)
+            position.put(input[i], i);
+        List<Set<Integer>> adjacent = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            adjacent.add(new TreeSet<>());
+        for (int i = 0; i < n; i++)
+            for (Region neighboringRegion : input[i].getNeighboringRegions().keySet()) {
+                Integer j = position.get(neighboringRegion);
+                if (j != null && j != i) {
+                    adjacent.get(i).add(j);
+                    adjacent.get(j).add(i);
+                }
+            }
+        int[] degree = new int[n];
+        for (int i = 0; i < n; i++)
+            degree[i] = adjacent.get(i).size();
+        Comparator<Integer> byDegree = Comparator.<Integer>comparingInt(i -> degree[i])
+                .thenComparingInt(i -> i);
+
+        List<Integer> starts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            starts.add(i);
+        starts.sort(byDegree);
+
+        boolean[] visited = new boolean[n];
+        int[] order = new int[n];
+        int visitedCount = 0;
+        List<Integer> next = new ArrayList<>();
+        for (int start : starts) {
+            if (visited[start])
+                continue;
+            visited[start] = true;
+            order[visitedCount++] = start;
+            for (int head = visitedCount - 1; head < visitedCount; head++) {
+                next.clear();
+                for (int j : adjacent.get(order[head]))
+                    if (!visited[j])
+                        next.add(j);
+                next.sort(byDegree);
+                for (int j : next) {
+                    visited[j] = true;
+                    order[visitedCount++] = j;
+                }
+            }
+        }
+        List<Region> ordered = new ArrayList<>(n);
+        for (int k = n - 1; k >= 0; k--)
+            ordered.add(input[order[k]]);
+        return ordered;
+    }
+
+    /**
+     * @param   i   Index of the region.
+     * @param   j   Index of the neighboring region.
+     *
+     * @return  The edge from region i to region j, or -1 if they are not
+     *          neighbors.
+     */
+    private int findEdge(int i, int j) {
+        for (int e = rowStart[i]; e < rowStart[i + 1]; e++)
+            if (neighbor[e] == j)
+                return e;
+        return -1;
+    }
+
+    /** @return The number of regions of the graph. */
+    public int getNumRegions() {
+        return regions.length;
+    }
+
+    /** @return The number of edges of the graph. */
+    public int getNumEdges() {
+        return neighbor.length;
+    }
+
+    /** @return The highest number of neighbors of a region. */
+    public int getMaxDegree() {
+        int maxDegree = 0;
+        for (int i = 0; i < regions.length; i++)
+            maxDegree = Math.max(maxDegree, rowStart[i + 1] - rowStart[i]);
+        return maxDegree;
+    }
+
+    /**
+     * @return  The highest difference between the indices of two neighboring
+     *          regions, which localityOrder() keeps low.
+     */
+    public int getBandwidth() {
+        int bandwidth = 0;
+        for (int i = 0; i < regions.length; i++)
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++)
+                bandwidth = Math.max(bandwidth, Math.abs(neighbor[e] - i));
+        return bandwidth;
+    }
+
+    /**
+     * @param   i   Index of the region.
+     *
+     * @return  The number of neighbors of the region.
+     */
+    public int getDegree(int i) {
+        return rowStart[i + 1] - rowStart[i];
+    }
+
+    /**
+     * @param   i   Index of the region.
+     * @param   k   Position of the neighbor, from 0 to getDegree(i) - 1.
+     *
+     * @return  The index of the k-th neighbor of the region.
+     */
+    public int getNeighbor(int i, int k) {
+        return neighbor[rowStart[i] + k];
+    }
+
+    /**
+     * @param   i   Index of the region.
+     *
+     * @return  The region with the index.
+     */
+    public Region getRegion(int i) {
+        return regions[i];
+    }
+
+    /**
+     * @param   region  The region to look for.
+     *
+     * @return  The index of the region, or -1 if it is not in the graph.
+     */
+    public int indexOf(Region region) {
+        Integer i = index.get(region);
+        return i == null ? -1 : i;
+    }
+
+    /**
+     * @param   e   Index of the edge.
+     *
+     * @return  True if the flow of people through the edge is open.
+     */
+    public boolean isOpen(int e) {
+        return (open[e >>> 6] & (1L << e)) != 0;
+    }
+
+    /**
+     * @param   region      The region.
+     * @param   neighbor    The neighboring region.
+     *
+     * @return  True if the flow of people from the neighbor to the region is
+     *          closed, false if it is open or they are not neighbors.
+     */
+    public boolean isClosed(Region region, Region neighbor) {
+        int i = indexOf(region), j = indexOf(neighbor);
+        if (i < 0 || j < 0)
+            return false;
+        int e = findEdge(i, j);
+        return e >= 0 && !isOpen(e);
+    }
+
+    /**
+     * @brief   Closes or opens the flow of people between a region and some of
+     *          its neighbors, in both directions.
+     *
+     * @param   region      The region.
+     * @param   neighbors   The neighboring regions.
+     * @param   isOpen      True to open the flows, false to close them.
+     *
+     * @pre     --
+     * @post    The edges between the region and each of the neighbors, in
+     *          both directions, are open or closed. Regions that are not
+     *          neighbors of the region are ignored.
+     */
+    public void setFlows(Region region, Collection<Region> neighbors, boolean isOpen) {
+        int i = indexOf(region);
+        if (i < 0)
+            return;
+        for (Region neighboringRegion : neighbors) {
+            int j = indexOf(neighboringRegion);
+            int e = j < 0 ? -1 : findEdge(i, j);
+            if (e >= 0)
+                setEdge(e, isOpen);
+        }
+    }
+
+    /**
+     * @brief   Closes or opens all the flows of people of a set of regions.
+     *
+     * @param   regions The regions whose flows are closed or opened.
+     * @param   isOpen  True to open the flows, false to close them.
+     *
+     * @pre     --
+     * @post    Every edge from or to one of the regions is open or closed.
+     */
+    public void setAllFlows(Collection<Region> regions, boolean isOpen) {
+        for (Region region : regions) {
+            int i = indexOf(region);
+            if (i < 0)
+                continue;
+            for (int e = rowStart[i]; e < rowStart[i + 1]; e++)
+                setEdge(e, isOpen);
+        }
+    }
+
+    /**
+     * @brief   Opens or closes an edge and the edge in the opposite direction.
+     *
+     * @param   e       Index of the edge.
+     * @param   isOpen  True to open the edges, false to close them.
+     */
+    private void setEdge(int e, boolean isOpen) {
+        setBit(e, isOpen);
+        if (reverse[e] >= 0)
+            setBit(reverse[e], isOpen);
+    }
+
+    /**
+     * @param   e       Index of the edge.
+     * @param   isOpen  True to set the bit of the edge, false to clear it.
+     */
+    private void setBit(int e, boolean isOpen) {
+        if (isOpen)
+            open[e >>> 6] |= 1L << e;
+        else
+            open[e >>> 6] &= ~(1L << e);
+    }
+
+    /**
+     * @brief   Copies the current number of inhabitants of every region.
+     *
+     * @param   inhabitants Array where the inhabitants are written, by index.
+     *
+     * @pre     inhabitants has getNumRegions() elements.
+     * @post    inhabitants[i] is the number of inhabitants of region i.
+     */
+    public void gatherInhabitants(int[] inhabitants) {
+        for (int i = 0; i < regions.length; i++)
+            inhabitants[i] = regions[i].getNumInhabitants();
+    }
+
+    /**
+     * @brief   Computes the number of inhabitants arriving in every region in
+     *          a unit of time.
+     *
+     * @details Computes external = M * inhabitants, where M[i][j] is the
+     *          percentage of the inhabitants of j that travel to i if the edge
+     *          between them is open, and 0 otherwise.
+     *
+     * @param   inhabitants Number of inhabitants of each region, by index.
+     * @param   external    Array where the arrivals are written, by index.
+     *
+     * @pre     Both arrays have getNumRegions() elements.
+     * @post    external[i] is the number of inhabitants arriving in region i
+     *          through its open edges.
+     */
+    public void computeExternalPopulations(int[] inhabitants, int[] external) {
+        if (regions.length >= PARALLEL_THRESHOLD)
+            IntStream.range(0, regions.length).parallel()
+                    .forEach(i -> external[i] = externalPopulation(i, inhabitants));
+        else
+            for (int i = 0; i < regions.length; i++)
+                external[i] = externalPopulation(i, inhabitants);
+    }
+
+    /**
+     * @brief   Computes the number of travellers of a region arriving in each
+     *          of its neighbors in a unit of time.
+     *
+     * @details Uses the same percentages and rounding as
+     *          computeExternalPopulations(), applied to a part of the
+     *          inhabitants of the region, such as the contagious of a virus.
+     *
+     * @param   i           Index of the region the travellers leave from.
+     * @param   travellers  Number of travellers in the region.
+     * @param   targets     Array where the index of each neighbor reached is
+     *                      written.
+     * @param   arrivals    Array where the travellers arriving in each
+     *                      neighbor are written.
+     *
+     * @return  The number of neighbors written, which only includes the
+     *          neighbors reached through an open edge by at least one
+     *          traveller.
+     *
+     * @pre     Both arrays have at least getMaxDegree() elements.
+     * @post    targets[k] and arrivals[k] describe the k-th neighbor reached.
+     */
+    public int spreadTravellers(int i, int travellers, int[] targets, int[] arrivals) {
+        int n = 0;
+        for (int e = rowStart[i]; e < rowStart[i + 1]; e++) {
+            int back = reverse[e];
+            if (back < 0 || !isOpen(back))
+                continue;
+            int arriving = (int) ((long) inflow[back] * travellers / 100);
+            if (arriving > 0) {
+                targets[n] = neighbor[e];
+                arrivals[n] = arriving;
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @param   i           Index of the region.
+     * @param   inhabitants Number of inhabitants of each region, by index.
+     *
+     * @return  The number of inhabitants arriving in region i through its open
+     *          edges.
+     */
+    int externalPopulation(int i, int[] inhabitants) {
+        int external = 0;
+        for (int e = rowStart[i]; e < rowStart[i + 1]; e++)
+            if (isOpen(e))
+                external += (int) ((long) inflow[e] * inhabitants[neighbor[e]] / 100);
+        return external;
+    }
+}
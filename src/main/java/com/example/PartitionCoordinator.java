@@ -0,0 +1,307 @@
+package main.java.com.example;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @class   PartitionCoordinator
+ * @brief   Runs a simulation whose regions are split between several local
+ *          worker processes (see PartitionWorker).
+ *
+ * @details The coordinator starts one JVM per part, with the same class path,
+ *          and each of them connects back to a loopback socket. The workers
+ *          only talk to the coordinator, which acts as the barrier of each
+ *          step: it collects the inhabitants of the boundaries of every part
+ *          before sending each part its halo, and collects all the contagious
+ *          crossing parts before sending them to the part of their region,
+ *          part by part so that they stay in increasing order of the region
+ *          sending them. Every region is stepped from the inhabitants and contagious of the
+ *          start of the step, as in a single Simulator.
+ *
+ *          The interventions are not available in this mode, so only the
+ *          viruses change the simulation.
+ */
+public class PartitionCoordinator implements AutoCloseable {
+    /** @brief  Milliseconds to wait for the workers to load their files. */
+    private static final int CONNECT_TIMEOUT = 120000;
+
+    /** @brief  Worker process of each part. */
+    private final Process[] processes;
+    /** @brief  Stream from each part. */
+    private final DataInputStream[] in;
+    /** @brief  Stream to each part. */
+    private final DataOutputStream[] out;
+    /** @brief  Boundary of each part. */
+    private final int[][] boundary;
+    /** @brief  Halo of each part. */
+    private final int[][] halo;
+    /** @brief  Number of regions of the graph. */
+    private int numRegions;
+    /** @brief  Inhabitants of each boundary region at the start of the step. */
+    private int[] inhabitants;
+    /** @brief  Contagious crossing to each part during the step. */
+    private final ByteArrayOutputStream[] imports;
+    /** @brief  Stream that writes into each buffer of imports. */
+    private final DataOutputStream[] importOut;
+    /** @brief  Number of exports in each buffer of imports. */
+    private final int[] numImports;
+    /** @brief  Number of regions fully updated at the last step. */
+    private int numActiveRegions;
+    /** @brief  True if every part was quiescent at the last step. */
+    private boolean quiescent;
+    /** @brief  Simulation step. */
+    private int step;
+
+    /**
+     * @brief   Starts the workers and waits for them to load the files.
+     *
+     * @param   dir         Folder containing the files.
+     * @param   numParts    Number of worker processes.
+     * @throws  IOException If a worker cannot be started or does not connect.
+     *
+     * @pre     numParts is greater than 0.
+     * @post    Every worker has initialized its part of the simulation.
+     */
+    public PartitionCoordinator(String dir, int numParts) throws IOException {
+        this.processes = new Process[numParts];
+        this.in = new DataInputStream[numParts];
+        this.out = new DataOutputStream[numParts];
+        this.boundary = new int[numParts][];
+        this.halo = new int[numParts][];
+        this.imports = new ByteArrayOutputStream[numParts];
+        this.importOut = new DataOutputStream[numParts];
+        this.numImports = new int[numParts];
+        try (ServerSocket server = new ServerSocket(0, numParts, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(CONNECT_TIMEOUT);
+            for (int part = 0; part < numParts; part++)
+                processes[part] = startWorker(dir, part, numParts, server.getLocalPort());
+            for (int k = 0; k < numParts; k++)
+                connect(server.accept());
+        } catch (SocketTimeoutException e) {
+            close();
+            throw new IOException("The workers did not start in time.", e);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        this.inhabitants = new int[numRegions];
+        for (int part = 0; part < numParts; part++) {
+            imports[part] = new ByteArrayOutputStream();
+            importOut[part] = new DataOutputStream(imports[part]);
+        }
+        this.step = 0;
+    }
+
+    /**
+     * @brief   Starts the JVM of a worker.
+     *
+     * @param   dir         Folder containing the files.
+     * @param   part        Index of the part.
+     * @param   numParts    Number of parts.
+     * @param   port        Port of the coordinator.
+     * @throws  IOException If the process cannot be started.
+     *
+     * @return  The process of the worker.
+     */
+    private static Process startWorker(String dir, int part, int numParts, int port)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        String agentSeed = System.getProperty("virusland.agents");
+        if (agentSeed != null)
+            command.add("-Dvirusland.agents=" + agentSeed);
+        String retention = System.getProperty("virusland.retention");
+        if (retention != null)
+            command.add("-Dvirusland.retention=" + retention);
+        command.add(PartitionWorker.class.getName());
+        command.add(dir);
+        command.add(Integer.toString(part));
+        command.add(Integer.toString(numParts));
+        command.add(Integer.toString(port));
+        return new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    /**
+     * @brief   Reads which regions a worker steps and which ones it needs.
+     *
+     * @param   socket  Connection of the worker.
+     * @throws  IOException If the connection fails.
+     */
+    private void connect(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream workerIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream workerOut = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        int part = workerIn.readInt();
+        if (part < 0 || part >= in.length || in[part] != null)
+            throw new IOException("Unexpected worker " + part + ".");
+        int regions = workerIn.readInt();
+        if (numRegions != 0 && regions != numRegions)
+            throw new IOException("The workers loaded different regions.");
+        numRegions = regions;
+        in[part] = workerIn;
+        out[part] = workerOut;
+        boundary[part] = PartitionWorker.readIndices(workerIn);
+        halo[part] = PartitionWorker.readIndices(workerIn);
+    }
+
+    /**
+     * @brief   Simulates a step of every part.
+     *
+     * @throws  IOException If a worker fails.
+     *
+     * @pre     --
+     * @post    Every part has stepped its regions.
+     */
+    public void simulate() throws IOException {
+        int numParts = in.length;
+        for (int part = 0; part < numParts; part++) {
+            out[part].writeInt(PartitionWorker.STEP);
+            out[part].flush();
+        }
+        for (int part = 0; part < numParts; part++)
+            for (int index : boundary[part])
+                inhabitants[index] = in[part].readInt();
+        for (int part = 0; part < numParts; part++) {
+            for (int index : halo[part])
+                out[part].writeInt(inhabitants[index]);
+            out[part].flush();
+        }
+        for (int part = 0; part < numParts; part++) {
+            imports[part].reset();
+            numImports[part] = 0;
+        }
+        for (int part = 0; part < numParts; part++) {
+            int numExports = in[part].readInt();
+            for (int k = 0; k < numExports; k++) {
+                int source = in[part].readInt();
+                int target = in[part].readInt();
+                byte[] virus = new byte[in[part].readInt()];
+                in[part].readFully(virus);
+                int travellers = in[part].readInt();
+                int owner = SimulationPartition.owner(target, numRegions, numParts);
+                DataOutputStream buffer = importOut[owner];
+                buffer.writeInt(source);
+                buffer.writeInt(target);
+                buffer.writeInt(virus.length);
+                buffer.write(virus);
+                buffer.writeInt(travellers);
+                numImports[owner]++;
+            }
+        }
+        for (int part = 0; part < numParts; part++) {
+            out[part].writeInt(numImports[part]);
+            imports[part].writeTo(out[part]);
+            out[part].flush();
+        }
+        numActiveRegions = 0;
+        quiescent = true;
+        for (int part = 0; part < numParts; part++) {
+            numActiveRegions += in[part].readInt();
+            quiescent &= in[part].readBoolean();
+        }
+        step++;
+    }
+
+    /** @return  The current simulation step. */
+    public int getSimulationStep() {
+        return step;
+    }
+
+    /** @return  The number of regions fully updated at the last step. */
+    public int getNumActiveRegions() {
+        return numActiveRegions;
+    }
+
+    /**
+     * @return  True if nobody could be infected in any region of any part at
+     *          the last step. Always false before the first step.
+     */
+    public boolean isQuiescent() {
+        return step > 0 && quiescent;
+    }
+
+    /**
+     * @return  The state of each virus of each region at the current step,
+     *          part by part (see Region.regionState()).
+     *
+     * @throws  IOException If a worker fails.
+     */
+    public List<String> getRegionStates() throws IOException {
+        return collectReports(PartitionWorker.STATES);
+    }
+
+    /**
+     * @return  The totals of each virus of each region, part by part (see
+     *          Region.getRegionTotals()).
+     *
+     * @throws  IOException If a worker fails.
+     */
+    public List<String> getRegionTotals() throws IOException {
+        return collectReports(PartitionWorker.TOTALS);
+    }
+
+    /**
+     * @param   command Command asking for the reports.
+     * @throws  IOException If a worker fails.
+     *
+     * @return  The reports of every part.
+     */
+    private List<String> collectReports(int command) throws IOException {
+        for (DataOutputStream workerOut : out) {
+            workerOut.writeInt(command);
+            workerOut.flush();
+        }
+        List<String> reports = new ArrayList<>();
+        for (DataInputStream workerIn : in) {
+            int numReports = workerIn.readInt();
+            for (int k = 0; k < numReports; k++)
+                reports.add(PartitionWorker.readString(workerIn));
+        }
+        return reports;
+    }
+
+    /**
+     * @brief   Stops the workers.
+     *
+     * @pre     --
+     * @post    Every worker process has ended.
+     */
+    @Override
+    public void close() {
+        for (DataOutputStream workerOut : out) {
+            if (workerOut == null)
+                continue;
+            try {
+                workerOut.writeInt(PartitionWorker.QUIT);
+                workerOut.close();
+            } catch (IOException e) {
+                // The worker has already ended
+            }
+        }
+        for (Process process : processes) {
+            if (process == null)
+                continue;
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS))
+                    process.destroyForcibly();
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        Arrays.fill(processes, null);
+        Arrays.fill(out, null);
+    }
+}
@@ -0,0 +1,359 @@
+package main.java.com.example;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @class   PartitionWorker
+ * @brief   Process that steps a part of the regions of a simulation, on behalf
+ *          of a PartitionCoordinator.
+ *
+ * @details The worker loads the same files as Main, but only infects and
+ *          steps the regions of its part (see SimulationPartition), so the
+ *          states and histories of the other regions never take room in its
+ *          heap. Every worker still creates all the regions, without viruses,
+ *          and the whole MobilityGraph, since the parts are blocks of the
+ *          locality order of the whole graph: the heap of a worker grows with
+ *          the size of the world, not only with the size of its part.
+ *
+ *          The worker talks to the coordinator through a loopback socket: after
+ *          saying which regions it steps and which ones it needs, it runs the
+ *          commands of the coordinator until it is told to quit.
+ *
+ *          At each step, the worker sends the inhabitants of its boundary,
+ *          receives those of its halo, spreads the contagious of its regions,
+ *          sends those reaching other parts, receives those reaching its own
+ *          regions and updates them. The contagious reaching its regions, from
+ *          its own part or from others, are imported in increasing order of
+ *          the region sending them, as a single Simulator does, so the viruses
+ *          of each region are in the same order and give the same results. The viruses travel as their parameters,
+ *          preceded by their length so that the coordinator passes them on
+ *          without reading them, so a variant that appeared in another part is created again with
+ *          the same name and family, and is equal to its original.
+ */
+public class PartitionWorker {
+    /** @brief  Command that simulates a step. */
+    static final int STEP = 1;
+    /** @brief  Command that asks for the state of the regions at this step. */
+    static final int STATES = 2;
+    /** @brief  Command that asks for the totals of the regions. */
+    static final int TOTALS = 3;
+    /** @brief  Command that stops the worker. */
+    static final int QUIT = 4;
+
+    /** @brief  Simulator of the regions of the part. */
+    private final Simulator simulator;
+    /** @brief  Regions of the part. */
+    private final SimulationPartition partition;
+    /** @brief  Own regions whose inhabitants are sent at each step. */
+    private final int[] boundary;
+    /** @brief  Regions of other parts whose inhabitants are received. */
+    private final int[] halo;
+    /** @brief  Viruses received from other parts, by name and family. */
+    private final Map<String, Virus> received;
+    /** @brief  Buffer where the parameters of each exported virus are written. */
+    private final ByteArrayOutputStream virusBuffer;
+    /** @brief  Stream that writes into virusBuffer. */
+    private final DataOutputStream virusOut;
+
+    /**
+     * @brief   Loads the files of a folder and initializes a part of the
+     *          simulation.
+     *
+     * @param   dir         Folder containing the files.
+     * @param   part        Index of the part.
+     * @param   numParts    Number of parts.
+     * @throws  IOException If a file cannot be read.
+     *
+     * @pre     The folder exists.
+     * @post    The regions of the part are infected as in the initial state.
+     */
+    public PartitionWorker(String dir, int part, int numParts) throws IOException {
+        this.simulator = new Simulator();
+        String simulationFileName = Main.loadFolder(dir);
+        Long agentSeed = Long.getLong("virusland.agents");
+        if (agentSeed != null)
+            simulator.useAgents(agentSeed);
+        simulator.usePartition(part, numParts);
+        simulator.initializeSimulation(simulationFileName);
+        Integer retention = Integer.getInteger("virusland.retention");
+        if (retention != null)
+            simulator.retainSteps(retention);
+        this.partition = simulator.getPartition();
+        this.boundary = partition.getBoundary();
+        this.halo = partition.getHalo();
+        this.received = new HashMap<>();
+        this.virusBuffer = new ByteArrayOutputStream();
+        this.virusOut = new DataOutputStream(virusBuffer);
+    }
+
+    /**
+     * @brief   Says which regions the worker steps and runs the commands of the
+     *          coordinator.
+     *
+     * @param   in  Stream from the coordinator.
+     * @param   out Stream to the coordinator.
+     * @throws  IOException If the connection fails.
+     *
+     * @pre     --
+     * @post    The coordinator has sent QUIT or closed the connection.
+     */
+    public void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        out.writeInt(partition.getPart());
+        out.writeInt(simulator.getMobilityGraph().getNumRegions());
+        writeIndices(out, boundary);
+        writeIndices(out, halo);
+        out.flush();
+        int command;
+        while ((command = in.readInt()) != QUIT) {
+            switch (command) {
+                case STEP:
+                    step(in, out);
+                    break;
+                case STATES:
+                    writeReports(out, false);
+                    break;
+                case TOTALS:
+                    writeReports(out, true);
+                    break;
+                default:
+                    throw new IOException("Unknown command " + command + ".");
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * @brief   Simulates a step of the regions of the part.
+     *
+     * @param   in  Stream from the coordinator.
+     * @param   out Stream to the coordinator.
+     * @throws  IOException If the connection fails.
+     */
+    private void step(DataInputStream in, DataOutputStream out) throws IOException {
+        simulator.gatherInhabitants();
+        for (int index : boundary)
+            out.writeInt(simulator.getInhabitants(index));
+        out.flush();
+        for (int index : halo)
+            simulator.setInhabitants(index, in.readInt());
+        simulator.computeExternalPopulations();
+        simulator.spreadContagious();
+        int numExports = partition.getNumExports();
+        out.writeInt(numExports);
+        for (int k = 0; k < numExports; k++) {
+            out.writeInt(partition.getExportSource(k));
+            out.writeInt(partition.getExportTarget(k));
+            virusBuffer.reset();
+            writeVirus(virusOut, partition.getExportVirus(k));
+            out.writeInt(virusBuffer.size());
+            virusBuffer.writeTo(out);
+            out.writeInt(partition.getExportTravellers(k));
+        }
+        out.flush();
+        // The imports come part by part, each in increasing order of source,
+        // so they are merged with the local arrivals in the order of a single
+        // Simulator
+        int numImports = in.readInt();
+        int numLocal = partition.getNumLocalArrivals();
+        int local = 0;
+        for (int k = 0; k < numImports; k++) {
+            int source = in.readInt();
+            int target = in.readInt();
+            in.readInt(); // Length of the parameters, only used by the coordinator
+            Virus virus = readVirus(in);
+            int travellers = in.readInt();
+            while (local < numLocal && partition.getLocalSource(local) < source)
+                importLocal(local++);
+            simulator.importContagious(target, virus, travellers);
+        }
+        while (local < numLocal)
+            importLocal(local++);
+        simulator.updateRegions();
+        out.writeInt(simulator.getNumActiveRegions());
+        out.writeBoolean(simulator.isQuiescent());
+    }
+
+    /**
+     * @param   k   Index of an arrival of the step that stays in the part.
+     *
+     * @pre     --
+     * @post    The contagious of the arrival have been imported.
+     */
+    private void importLocal(int k) {
+        simulator.importContagious(partition.getLocalTarget(k),
+                partition.getLocalVirus(k), partition.getLocalTravellers(k));
+    }
+
+    /**
+     * @brief   Sends the state or the totals of each virus of each region of
+     *          the part.
+     *
+     * @param   out     Stream to the coordinator.
+     * @param   totals  True for the totals, false for the state at this step.
+     * @throws  IOException If the connection fails.
+     */
+    private void writeReports(DataOutputStream out, boolean totals) throws IOException {
+        Map<Region, List<Virus>> virusRegions = simulator.getRegionViruses();
+        int numReports = 0;
+        for (List<Virus> viruses : virusRegions.values())
+            numReports += viruses.size();
+        out.writeInt(numReports);
+        for (Map.Entry<Region, List<Virus>> virRegEntry : virusRegions.entrySet()) {
+            Region r = virRegEntry.getKey();
+            for (Virus v : virRegEntry.getValue())
+                writeString(out, totals ? r.getRegionTotals(v) :
+                        r.regionState(v, simulator.getSimulationStep()));
+        }
+    }
+
+    /**
+     * @brief   Writes the parameters of a virus, which are enough to create it
+     *          again in another process.
+     *
+     * @param   out     Stream where the virus is written.
+     * @param   virus   The virus.
+     * @throws  IOException If the stream fails.
+     */
+    static void writeVirus(DataOutputStream out, Virus virus) throws IOException {
+        out.writeUTF(virus.getName());
+        out.writeUTF(virus.getFamily() == null ? "" : virus.getFamily().getName());
+        out.writeBoolean(virus instanceof VirusRNA);
+        out.writeDouble(virus.getDiseaseProbability());
+        out.writeInt(virus.getIncubationTime());
+        out.writeInt(virus.getLatencyTime());
+        out.writeInt(virus.getDiseaseDuration());
+        out.writeInt(virus.getInfectionDuration());
+        out.writeInt(virus.getImmunityDuration());
+        out.writeDouble(virus.getMortalityRate());
+        out.writeDouble(virus.getContagionRate());
+        if (virus instanceof VirusRNA) {
+            VirusRNA virusRNA = (VirusRNA) virus;
+            out.writeDouble(virusRNA.getMutationProbabilityCopyError());
+            out.writeDouble(virusRNA.getMutationProbabilityCoincidence());
+        }
+    }
+
+    /**
+     * @brief   Reads a virus written by writeVirus().
+     *
+     * @details A virus of the viruses file, or one already received, is
+     *          reused. Otherwise the virus is created with the family of the
+     *          same name, so it is equal to the one of the other process.
+     *
+     * @param   in  Stream where the virus is read.
+     * @throws  IOException If the stream fails.
+     *
+     * @return  The virus.
+     */
+    private Virus readVirus(DataInputStream in) throws IOException {
+        String name = in.readUTF();
+        String familyName = in.readUTF();
+        boolean isRNA = in.readBoolean();
+        double diseaseProbability = in.readDouble();
+        int incubation = in.readInt();
+        int latency = in.readInt();
+        int diseaseDuration = in.readInt();
+        int infectionDuration = in.readInt();
+        int immunityDuration = in.readInt();
+        double mortality = in.readDouble();
+        double contagionRate = in.readDouble();
+        double copyMutationProbability = isRNA ? in.readDouble() : 0;
+        double coincidenceMutationProbability = isRNA ? in.readDouble() : 0;
+
+        Virus virus = simulator.getVirus(name);
+        Family family = Simulator.a_families.get(familyName);
+        if (virus != null && virus.getFamily() == family)
+            return virus;
+        String key = name + " " + familyName;
+        virus = received.get(key);
+        if (virus == null) {
+            if (isRNA)
+                virus = new VirusRNA(name, family, diseaseProbability, incubation, latency,
+                        diseaseDuration, infectionDuration, immunityDuration, mortality,
+                        contagionRate, copyMutationProbability, coincidenceMutationProbability);
+            else
+                virus = new VirusDNA(name, family, diseaseProbability, incubation, latency,
+                        diseaseDuration, infectionDuration, immunityDuration, mortality,
+                        contagionRate);
+            received.put(key, virus);
+        }
+        return virus;
+    }
+
+    /**
+     * @param   out     Stream where the indices are written.
+     * @param   indices Indices of regions, written after their number.
+     * @throws  IOException If the stream fails.
+     */
+    static void writeIndices(DataOutputStream out, int[] indices) throws IOException {
+        out.writeInt(indices.length);
+        for (int index : indices)
+            out.writeInt(index);
+    }
+
+    /**
+     * @param   in  Stream where the indices are read.
+     * @throws  IOException If the stream fails.
+     *
+     * @return  The indices written by writeIndices().
+     */
+    static int[] readIndices(DataInputStream in) throws IOException {
+        int[] indices = new int[in.readInt()];
+        for (int k = 0; k < indices.length; k++)
+            indices[k] = in.readInt();
+        return indices;
+    }
+
+    /**
+     * @brief   Writes a string of any length, unlike writeUTF().
+     *
+     * @param   out Stream where the string is written.
+     * @param   s   The string.
+     * @throws  IOException If the stream fails.
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @param   in  Stream where the string is read.
+     * @throws  IOException If the stream fails.
+     *
+     * @return  The string written by writeString().
+     */
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @brief   Starts a worker.
+     *
+     * @param   args    Folder of the files, index of the part, number of parts
+     *                  and port of the coordinator on the loopback address.
+     * @throws  IOException If a file cannot be read or the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: PartitionWorker <folder> <part> <parts> <port>");
+            System.exit(2);
+        }
+        PartitionWorker worker = new PartitionWorker(args[0],
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(args[3]))) {
+            socket.setTcpNoDelay(true);
+            worker.serve(new DataInputStream(new BufferedInputStream(socket.getInputStream())),
+                    new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+        }
+    }
+}
@@ -0,0 +1,603 @@
+package main.java.com.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * @class   QueryServer
+ * @brief   HTTP server on the loopback address that answers JSON queries about
+ *          the state of a running simulation.
+ *
+ * @details At the end of each step, the simulation thread copies the counts of
+ *          every region and virus into an immutable snapshot and publishes it,
+ *          which takes a lock only to store the reference. The queries are
+ *          answered by a small pool of daemon threads from the snapshots, so
+ *          they always see a whole step and never pause the simulation. The
+ *          last snapshots are kept, so recent steps can be queried too. A
+ *          snapshot only holds the counts of each virus for the regions where
+ *          it is present, and shares the counts of a virus that have not
+ *          changed since the previous step, so the retained snapshots do not
+ *          grow with the variants times the regions.
+ *
+ *          The queries are:
+ *          - /step: the current step and the retained steps.
+ *          - /region?name=R[&step=N]: the counts of each virus of a region.
+ *          - /virus?name=V[&step=N]: the world totals of a virus.
+ *          - /top?metric=M[&k=K][&virus=V][&step=N]: the K regions with the
+ *            highest value of a metric, for a virus or for all of them.
+ */
+public class QueryServer implements Consumer<Simulator>, AutoCloseable {
+    /** @brief  Values recorded for each region and virus. */
+    public enum Metric { INFECTED, CONTAGIOUS, SICK, DEATHS, VACCINATED }
+
+    /** @brief  Number of steps retained when no other number is given. */
+    public static final int DEFAULT_RETAINED_STEPS = 100;
+    /** @brief  Number of threads answering the queries. */
+    private static final int NUM_THREADS = 2;
+    /** @brief  Number of regions of a top query when k is not given. */
+    private static final int DEFAULT_TOP = 10;
+    /** @brief  Number of metrics. */
+    private static final int NUM_METRICS = Metric.values().length;
+
+    /** @brief  Underlying HTTP server. */
+    private final HttpServer server;
+    /** @brief  Threads answering the queries. */
+    private final ExecutorService executor;
+    /** @brief  Last snapshots, by step modulo their number. */
+    private final Snapshot[] retained;
+    /** @brief  Last published snapshot, or null before the first one. */
+    private Snapshot latest;
+
+    /**
+     * @brief   Starts the server.
+     *
+     * @param   port            Port on the loopback address, or 0 for any free
+     *                          port.
+     * @param   retainedSteps   Number of steps whose snapshot is kept.
+     *
+     * @throws  IOException                 If the port cannot be bound.
+     * @throws  IllegalArgumentException    if retainedSteps is not positive.
+     *
+     * @pre     --
+     * @post    The server answers the queries until it is closed.
+     */
+    public QueryServer(int port, int retainedSteps) throws IOException {
+        if (retainedSteps <= 0)
+            throw new IllegalArgumentException("At least one step must be retained.");
+        this.retained = new Snapshot[retainedSteps];
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newFixedThreadPool(NUM_THREADS, r -> {
+            Thread t = new Thread(r, "query-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/step", exchange -> answer(exchange, this::step));
+        server.createContext("/region", exchange -> answer(exchange, this::region));
+        server.createContext("/virus", exchange -> answer(exchange, this::virus));
+        server.createContext("/top", exchange -> answer(exchange, this::top));
+        server.start();
+    }
+
+    /** @return The port the server listens to. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @brief   Publishes a snapshot of the current step of the simulation.
+     *
+     * @param   s   Simulator containing the current state of the simulation.
+     *
+     * @pre     s is not null.
+     * @post    The queries are answered from this step.
+     */
+    @Override
+    public void accept(Simulator s) {
+        record(s.getSimulationStep(), s.getRegionViruses());
+    }
+
+    /**
+     * @brief   Publishes a snapshot of the counts of some regions.
+     *
+     * @param   step            Simulation step of the counts.
+     * @param   regionViruses   Viruses within each region.
+     *
+     * @pre     regionViruses is not null.
+     * @post    The queries are answered from this step.
+     */
+    public void record(int step, Map<Region, List<Virus>> regionViruses) {
+        Snapshot previous;
+        synchronized (retained) {
+            previous = latest;
+        }
+        Snapshot snapshot = new Snapshot(step, regionViruses, previous);
+        synchronized (retained) {
+            retained[Math.floorMod(step, retained.length)] = snapshot;
+            latest = snapshot;
+        }
+    }
+
+    /**
+     * @param   step    A simulation step, or null for the last one.
+     *
+     * @throws  QueryException  If the step is not retained.
+     *
+     * @return  The snapshot of the step.
+     */
+    private Snapshot snapshot(String step) throws QueryException {
+        synchronized (retained) {
+            if (latest == null)
+                throw new QueryException(404, "No step has been simulated yet.");
+            if (step == null)
+                return latest;
+            int n = parseInt(step, "step");
+            Snapshot snapshot = retained[Math.floorMod(n, retained.length)];
+            if (snapshot == null || snapshot.step != n)
+                throw new QueryException(404, "Step " + n + " is not retained.");
+            return snapshot;
+        }
+    }
+
+    /**
+     * @param   query   Parameters of the query.
+     *
+     * @return  The current step and the range of retained steps.
+     */
+    private String step(Map<String, String> query) throws QueryException {
+        Snapshot last = snapshot(null);
+        int first = last.step;
+        synchronized (retained) {
+            while (first > last.step - retained.length + 1) {
+                Snapshot previous = retained[Math.floorMod(first - 1, retained.length)];
+                if (previous == null || previous.step != first - 1)
+                    break;
+                first--;
+            }
+        }
+        return "{\"step\":" + last.step + ",\"firstRetained\":" + first + "}";
+    }
+
+    /**
+     * @param   query   Parameters of the query, with the name of the region.
+     *
+     * @return  The counts of each virus of the region.
+     */
+    private String region(Map<String, String> query) throws QueryException {
+        Snapshot snapshot = snapshot(query.get("step"));
+        String name = required(query, "name");
+        int i = Arrays.binarySearch(snapshot.regionNames, name);
+        if (i < 0)
+            throw new QueryException(404, "Region " + name + " has no viruses.");
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"step\":").append(snapshot.step)
+                .append(",\"region\":").append(quote(name))
+                .append(",\"inhabitants\":").append(snapshot.inhabitants[i])
+                .append(",\"viruses\":{");
+        boolean first = true;
+        for (Map.Entry<String, Counts> entry : snapshot.counts.entrySet()) {
+            Counts counts = entry.getValue();
+            int k = counts.find(i);
+            if (k < 0)
+                continue;
+            if (!first)
+                sb.append(',');
+            first = false;
+            sb.append(quote(entry.getKey())).append(':');
+            appendMetrics(sb, counts, k);
+        }
+        return sb.append("}}").toString();
+    }
+
+    /**
+     * @param   query   Parameters of the query, with the name of the virus.
+     *
+     * @return  The world totals of the virus.
+     */
+    private String virus(Map<String, String> query) throws QueryException {
+        Snapshot snapshot = snapshot(query.get("step"));
+        String name = required(query, "name");
+        Counts counts = snapshot.counts.get(name);
+        if (counts == null)
+            throw new QueryException(404, "Virus " + name + " is not in any region.");
+        // The totals of the world can exceed the range of an int
+        long[] totals = new long[NUM_METRICS];
+        for (int k = 0; k < counts.size; k++)
+            for (Metric metric : Metric.values())
+                totals[metric.ordinal()] += counts.get(k, metric);
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"step\":").append(snapshot.step)
+                .append(",\"virus\":").append(quote(name))
+                .append(",\"regions\":").append(counts.size)
+                .append(",\"totals\":");
+        appendMetrics(sb, totals);
+        return sb.append('}').toString();
+    }
+
+    /**
+     * @param   query   Parameters of the query, with the metric.
+     *
+     * @return  The regions with the highest values of the metric, highest
+     *          first.
+     */
+    private String top(Map<String, String> query) throws QueryException {
+        Snapshot snapshot = snapshot(query.get("step"));
+        Metric metric;
+        try {
+            metric = Metric.valueOf(required(query, "metric").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new QueryException(400, "Unknown metric " + query.get("metric") + ".");
+        }
+        int k = query.containsKey("k") ? parseInt(query.get("k"), "k") : DEFAULT_TOP;
+        if (k <= 0)
+            throw new QueryException(400, "k must be positive.");
+        String virus = query.get("virus");
+        if (virus != null && !snapshot.counts.containsKey(virus))
+            throw new QueryException(404, "Virus " + virus + " is not in any region.");
+
+        int n = snapshot.regionNames.length;
+        long[] value = new long[n];
+        for (Map.Entry<String, Counts> entry : snapshot.counts.entrySet()) {
+            if (virus != null && !virus.equals(entry.getKey()))
+                continue;
+            Counts counts = entry.getValue();
+            for (int c = 0; c < counts.size; c++)
+                value[counts.regions[c]] += Math.max(0, counts.get(c, metric));
+        }
+        // Smallest of the K highest at the head, so each region is compared once
+        PriorityQueue<Integer> heap = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(i -> value[i]).thenComparingInt(i -> -i));
+        for (int i = 0; i < n; i++) {
+            heap.add(i);
+            if (heap.size() > k)
+                heap.poll();
+        }
+        List<Integer> highest = new ArrayList<>(heap);
+        highest.sort(Comparator.<Integer>comparingLong(i -> -value[i]).thenComparingInt(i -> i));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"step\":").append(snapshot.step)
+                .append(",\"metric\":").append(quote(metric.name().toLowerCase()))
+                .append(",\"regions\":[");
+        for (int r = 0; r < highest.size(); r++) {
+            int i = highest.get(r);
+            if (r > 0)
+                sb.append(',');
+            sb.append("{\"region\":").append(quote(snapshot.regionNames[i]))
+                    .append(",\"value\":").append(value[i]).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * @brief   Appends the metrics of a region as a JSON object.
+     *
+     * @param   sb      Builder where the object is appended.
+     * @param   counts  Counts of a virus.
+     * @param   k       Position of the region in the counts.
+     */
+    private static void appendMetrics(StringBuilder sb, Counts counts, int k) {
+        sb.append('{');
+        for (Metric metric : Metric.values()) {
+            if (metric.ordinal() > 0)
+                sb.append(',');
+            sb.append('"').append(metric.name().toLowerCase()).append("\":")
+                    .append(counts.get(k, metric));
+        }
+        sb.append('}');
+    }
+
+    /**
+     * @brief   Appends totals of the metrics as a JSON object.
+     *
+     * @param   sb      Builder where the object is appended.
+     * @param   totals  Total of each metric.
+     */
+    private static void appendMetrics(StringBuilder sb, long[] totals) {
+        sb.append('{');
+        for (Metric metric : Metric.values()) {
+            if (metric.ordinal() > 0)
+                sb.append(',');
+            sb.append('"').append(metric.name().toLowerCase()).append("\":")
+                    .append(totals[metric.ordinal()]);
+        }
+        sb.append('}');
+    }
+
+    /**
+     * @brief   Answers a query with the JSON of a handler, or with an error.
+     *
+     * @param   exchange    The query.
+     * @param   handler     Handler that writes the JSON of the answer.
+     * @throws  IOException If the answer cannot be sent.
+     */
+    private static void answer(HttpExchange exchange, Handler handler) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            if (!exchange.getRequestMethod().equals("GET"))
+                throw new QueryException(405, "Only GET queries are answered.");
+            body = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (QueryException e) {
+            status = e.status;
+            body = "{\"error\":" + quote(e.getMessage()) + "}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @param   rawQuery    Query of the URI, still encoded, or null.
+     *
+     * @return  The value of each parameter of the query.
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null)
+            return query;
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals <= 0)
+                continue;
+            query.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8),
+                    URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    /**
+     * @param   query   Parameters of the query.
+     * @param   name    Name of the parameter.
+     *
+     * @throws  QueryException  If the parameter is missing.
+     *
+     * @return  The value of the parameter.
+     */
+    private static String required(Map<String, String> query, String name) throws QueryException {
+        String value = query.get(name);
+        if (value == null)
+            throw new QueryException(400, "Missing parameter " + name + ".");
+        return value;
+    }
+
+    /**
+     * @param   value   Value of a parameter.
+     * @param   name    Name of the parameter.
+     *
+     * @throws  QueryException  If the value is not an integer.
+     *
+     * @return  The value as an integer.
+     */
+    private static int parseInt(String value, String name) throws QueryException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new QueryException(400, "Parameter " + name + " must be an integer.");
+        }
+    }
+
+    /**
+     * @param   s   A string.
+     *
+     * @return  The string as a JSON string literal.
+     */
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if (c < 0x20)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * @brief   Stops the server.
+     *
+     * @pre     --
+     * @post    No more queries are answered.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @class   Handler
+     * @brief   Writes the JSON answer of a query.
+     */
+    private interface Handler {
+        /**
+         * @param   query   Parameters of the query.
+         *
+         * @throws  QueryException  If the query cannot be answered.
+         *
+         * @return  The JSON of the answer.
+         */
+        String handle(Map<String, String> query) throws QueryException;
+    }
+
+    /**
+     * @class   QueryException
+     * @brief   Query that cannot be answered, with the HTTP status to send.
+     */
+    private static class QueryException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        /** @brief  HTTP status of the answer. */
+        private final int status;
+
+        /**
+         * @param   status  HTTP status of the answer.
+         * @param   message Reason sent in the answer.
+         */
+        private QueryException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * @class   Snapshot
+     * @brief   Counts of every region and virus at a simulation step, never
+     *          modified once published.
+     */
+    private static class Snapshot {
+        /** @brief  Simulation step of the snapshot. */
+        private final int step;
+        /** @brief  Names of the regions with viruses, sorted. */
+        private final String[] regionNames;
+        /** @brief  Inhabitants of each region. */
+        private final int[] inhabitants;
+        /** @brief  Counts of each virus, by virus name. */
+        private final Map<String, Counts> counts;
+
+        /**
+         * @param   step            Simulation step of the snapshot.
+         * @param   regionViruses   Viruses within each region.
+         * @param   previous        Snapshot of the previous step, or null.
+         *
+         * @post    The regions and the counts of each virus that are the same
+         *          as in the previous snapshot are shared with it.
+         */
+        private Snapshot(int step, Map<Region, List<Virus>> regionViruses, Snapshot previous) {
+            this.step = step;
+            Region[] regions = regionViruses.keySet().toArray(new Region[0]);
+            Arrays.sort(regions, Comparator.comparing(Region::getName));
+            int n = regions.length;
+            String[] names = new String[n];
+            this.inhabitants = new int[n];
+            Map<String, Counts> built = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                Region region = regions[i];
+                names[i] = region.getName();
+                inhabitants[i] = region.getNumInhabitants();
+                for (Virus virus : regionViruses.get(region))
+                    built.computeIfAbsent(virus.getName(), name -> new Counts()).add(i, region, virus);
+            }
+            // The positions of the counts are only the same if the regions are
+            boolean sameRegions = previous != null && Arrays.equals(previous.regionNames, names);
+            this.regionNames = sameRegions ? previous.regionNames : names;
+            this.counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Counts> entry : built.entrySet()) {
+                Counts virusCounts = entry.getValue();
+                virusCounts.trim();
+                Counts old = sameRegions ? previous.counts.get(entry.getKey()) : null;
+                counts.put(entry.getKey(), virusCounts.equals(old) ? old : virusCounts);
+            }
+        }
+    }
+
+    /**
+     * @class   Counts
+     * @brief   Values of the metrics of a virus for the regions where it is
+     *          present, never modified once published.
+     */
+    private static class Counts {
+        /** @brief  Positions in the regions of the snapshot, in increasing
+         *          order. */
+        private int[] regions;
+        /** @brief  Value of each metric, by region and then by metric. */
+        private int[] values;
+        /** @brief  Number of regions. */
+        private int size;
+
+        /** @brief  Creates the counts of a virus present in no region. */
+        private Counts() {
+            this.regions = new int[4];
+            this.values = new int[4 * NUM_METRICS];
+        }
+
+        /**
+         * @param   i       Position of the region in the snapshot, higher
+         *                  than those already added.
+         * @param   region  The region.
+         * @param   virus   A virus present in the region.
+         *
+         * @pre     The counts have not been published.
+         * @post    The values of the virus in the region have been added.
+         */
+        private void add(int i, Region region, Virus virus) {
+            if (size == regions.length) {
+                regions = Arrays.copyOf(regions, 2 * size);
+                values = Arrays.copyOf(values, 2 * size * NUM_METRICS);
+            }
+            int v = size * NUM_METRICS;
+            values[v + Metric.INFECTED.ordinal()] = region.getNumInfected(virus);
+            values[v + Metric.CONTAGIOUS.ordinal()] = region.getNumContagious(virus);
+            values[v + Metric.SICK.ordinal()] = region.getNumSick(virus);
+            values[v + Metric.DEATHS.ordinal()] = region.getNumDeaths(virus);
+            values[v + Metric.VACCINATED.ordinal()] = region.getNumVaccinated(virus);
+            regions[size++] = i;
+        }
+
+        /**
+         * @pre     All the regions have been added.
+         * @post    The arrays have no room left.
+         */
+        private void trim() {
+            regions = Arrays.copyOf(regions, size);
+            values = Arrays.copyOf(values, size * NUM_METRICS);
+        }
+
+        /**
+         * @param   i   Position of a region in the snapshot.
+         *
+         * @return  The position of the region in the counts, or a negative
+         *          number if the virus is not present in it.
+         */
+        private int find(int i) {
+            return Arrays.binarySearch(regions, 0, size, i);
+        }
+
+        /**
+         * @param   k       Position of the region in the counts.
+         * @param   metric  The metric to read.
+         *
+         * @return  The value of the metric in the region.
+         */
+        private int get(int k, Metric metric) {
+            return values[k * NUM_METRICS + metric.ordinal()];
+        }
+
+        /**
+         * @param   o   Another object.
+         *
+         * @return  True if it holds the same values for the same regions.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Counts))
+                return false;
+            Counts other = (Counts) o;
+            return size == other.size && Arrays.equals(regions, other.regions) &&
+                    Arrays.equals(values, other.values);
+        }
+
+        /** @return The hash value of the counts. */
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(regions) + Arrays.hashCode(values);
+        }
+    }
+}
@@ -10,28 +10,69 @@ import java.util.*;
  *          surface area, and statistics related to each present virus.
  */
 public class Region {
+    /** @brief  Number of integers of a state copied by copyState(). */
+    static final int STATE_INTS = 8;
+    /** @brief  Number of doubles of a state copied by copyState(). */
+    static final int STATE_DOUBLES = 2;
+
     /** @brief  The name of the region. */
     private final String name;
     /** @brief  Number of inhabitants of the region. */
     private int inhabitants;
+    /** @brief  People from the neighboring regions who arrived at the last
+     *          even step and leave at the next odd step. */
+    private int visitors;
     /** @brief  Internal mobility rate of the region. */
     private final double internalMobility;
-    /** @brief  Reduced mobility rate of the region if any. */
-    private Pair<Integer, Integer> reducedMobility;
+    /** @brief  Reduced mobility rate of the region during a lockdown. */
+    private int reducedMobility;
+    /** @brief  Remaining steps of the lockdown, or 0 if there is none. */
+    private int lockdownSteps;
     /** @brief  Percentage of external mobility for each neighboring region. */
     private final Map<Region, Integer> neighboringRegions;
-    /** @brief  Closures applied to neighboring regions. */
-    private final Map<Region, Boolean> regionClosures;
+    /** @brief  Mobility graph that records the closures with the neighboring
+     *          regions, or null if the region is not part of one yet. */
+    private MobilityGraph mobilityGraph;
     /** @brief  Statistics of each virus in the region. */
     private final Map<Virus, Statistics> virusStatistics;
-    /** @brief  Map of vaccines applied to the region. */
-    private final Map<Vaccine, List<Pair<Integer, Pair<Integer, Integer>>>> vaccinated;
-    /** @brief  Copies of viruses that have had vaccine effects applied to them. */
-    private final List<Virus> virusCopies;
+    /** @brief  Keys of virusStatistics, in the order they were added, so they
+     *          can be walked at each step without an iterator. */
+    private final List<Virus> viruses;
+    /** @brief  Doses of vaccines applied to the region, in the order they
+     *          were applied. */
+    private final List<Doses> vaccinated;
+    /** @brief  Doses of vaccines applied to the region, by the virus their
+     *          vaccine targets. */
+    private final Map<Virus, TargetDoses> dosesByTarget;
     /** @brief  Region states for each virus at each step of the simulation. */
-    private final Map<Virus, List<RegionState>> states;
+    private final Map<Virus, RegionStates> states;
+    /** @brief  Number of steps for which the region states have room. */
+    private int reservedSteps;
+    /** @brief  Number of last steps whose region states are kept whole, or 0
+     *          to keep them all. */
+    private int retainedSteps;
     /** @brief  Steps of the simulation in time units. */
     private int simulationStep;
+    /** @brief  Steps skipped with skipStep() whose countdowns have not been
+     *          applied yet. */
+    private int skippedSteps;
+    /** @brief  Inputs and outputs of the infection kernel, reused at each
+     *          step. */
+    private final InfectionBatch batch;
+    /** @brief  True if the region is simulated agent by agent. */
+    private boolean agentBased;
+    /** @brief  Seed of the random numbers of the agents. */
+    private long agentSeed;
+    /** @brief  Age strata of the inhabitants, or null if they are a single
+     *          pool. */
+    private AgeStructure ageStructure;
+    /** @brief  Age composition of the residents: inhabitants of each age
+     *          stratum when the strata were chosen, minus the deaths of the
+     *          residents of each stratum. */
+    private int[] stratumPopulation;
+    /** @brief  Values of each age stratum for the virus being updated,
+     *          reused at each step. */
+    private StrataBatch strataBatch;
 
     /**
      * @brief   Creates a region from the given parameters.
@@ -44,15 +85,24 @@ public class Region {
     public Region(String name, int numInhabitants, double internalMobility) {
         this.name = name;
         this.neighboringRegions = new HashMap<>();
-        this.regionClosures = new HashMap<>();
         this.inhabitants = numInhabitants;
+        this.visitors = 0;
         this.internalMobility = internalMobility;
-        this.reducedMobility = new Pair<>(0, 0);
+        this.reducedMobility = 0;
+        this.lockdownSteps = 0;
         this.virusStatistics = new HashMap<>();
-        this.vaccinated = new HashMap<>();
-        this.virusCopies = new ArrayList<>();
+        this.viruses = new ArrayList<>();
+        this.vaccinated = new ArrayList<>();
+        this.dosesByTarget = new HashMap<>();
         this.states = new HashMap<>();
+        this.reservedSteps = 0;
+        this.retainedSteps = 0;
         this.simulationStep = 0;
+        this.skippedSteps = 0;
+        this.batch = new InfectionBatch();
+        this.agentBased = false;
+        this.agentSeed = 0;
+        this.ageStructure = null;
     }
 
     /** @return the name of the region. */
@@ -71,14 +121,13 @@ public class Region {
      *
      * @pre     The added region is not null and not the same current region.
      * @post    The added region is in the list of neighboring regions of the
-     *          current region and the map of region closures has been updated.
+     *          current region.
      */
     public void addNeighboringRegion(Region region, int percentage) {
         if (region == null || region.equals(this))
             throw new IllegalArgumentException("The added region cannot be " +
                     "null or the same as the current region");
         neighboringRegions.put(region, percentage);
-        regionClosures.put(region, false);
     }
 
     /** @return  The map of neighboring regions of the region. */
@@ -95,6 +144,28 @@ public class Region {
         return neighboringRegions.containsKey(region);
     }
 
+    /**
+     * @param   region  The neighboring region to check.
+     *
+     * @return  true if the flow of people with the region is closed.
+     */
+    public boolean isClosedWith(Region region) {
+        return mobilityGraph != null && mobilityGraph.isClosed(this, region);
+    }
+
+    /**
+     * @brief   Sets the mobility graph that records the closures of the region.
+     *
+     * @param   mobilityGraph   The mobility graph the region is part of.
+     *
+     * @pre     The region is part of the graph.
+     * @post    The closures of the region are read from and written to the
+     *          graph.
+     */
+    void setMobilityGraph(MobilityGraph mobilityGraph) {
+        this.mobilityGraph = mobilityGraph;
+    }
+
     /** @return the number of inhabitants of the region. */
     public int getNumInhabitants() {
         return inhabitants;
@@ -123,7 +194,13 @@ public class Region {
         if (numToInfect < 0)
             throw new IllegalArgumentException("The number of infections to " +
                     "add cannot be negative.");
-        if (numToInfect != 0) {
+        applySkippedSteps();
+        if (numToInfect != 0 && agentBased) {
+            initializeVirusStatistics(virus);
+            Statistics statistics = virusStatistics.get(virus);
+            statistics.increaseInfected(statistics.getAgents().infect(virus,
+                    numToInfect, simulationStep));
+        } else if (numToInfect != 0) {
             int possibleInfection =
                     inhabitants - getNumInfected(virus) - getNumImmune(virus);
             numToInfect = Math.min(numToInfect, possibleInfection);
@@ -131,11 +208,48 @@ public class Region {
         }
     }
 
+    /**
+     * @brief   Adds contagious people of a virus arriving from a neighboring
+     *          region during the current step.
+     *
+     * @details The travellers do not stay in the region, but they mix with its
+     *          inhabitants and raise the probability of infection of the virus
+     *          at the next update. The virus is added to the region if it was
+     *          not present.
+     *
+     * @param   virus       The virus carried by the travellers.
+     * @param   travellers  The number of contagious arriving.
+     *
+     * @throws  IllegalArgumentException    if the number of travellers is
+     *                                      negative.
+     *
+     * @pre     virus is not null.
+     * @post    The travellers are counted by the next call to updateRegion(),
+     *          which forgets them afterwards.
+     */
+    public void importContagious(Virus virus, int travellers) {
+        if (travellers < 0)
+            throw new IllegalArgumentException("The number of travellers " +
+                    "cannot be negative.");
+        initializeVirusStatistics(virus);
+        virusStatistics.get(virus).increaseImported(travellers);
+    }
+
     /**
      * @brief   Infects people based on the internal mobility of the
      *          region and the contagion rate of a virus.
      *
-     * @param   virus   The virus for which people are infected.
+     * @details The contagious arriving from the neighboring regions mix with
+     *          the infected of the region. The infections are usually computed
+     *          beforehand for all the viruses of the region with the
+     *          InfectionKernel. They are computed again only if a mutation
+     *          found earlier in the step has changed the number of infected of
+     *          the virus.
+     *
+     * @param   virus       The virus for which people are infected.
+     * @param   infected    Number of infected of the virus used by the kernel.
+     * @param   numToInfect New infections computed by the kernel.
+     * @param   mutations   List where the new mutations are added.
      *
      * @pre     virus is not null.
      * @post    A number of people have been infected based on the contagion rate
@@ -143,54 +257,151 @@ public class Region {
      *          Mutations of the virus due to copy error and coincidence have also
      *          been generated.
      */
-    private void infectByProbability(Virus virus, List<Virus> mutations) {
-        double infectedPercentage = (double) getNumInfected(virus) / inhabitants;
-        double coincidenceProbability;
-        if (reducedMobility.second != 0)
-            coincidenceProbability = (1 - Math.pow((1 - infectedPercentage *
-                    virus.getContagionRate()), reducedMobility.first));
-        else
-            coincidenceProbability = (1 - Math.pow((1 - infectedPercentage *
-                    virus.getContagionRate()), internalMobility));
-        int numToInfect = (int) ((inhabitants - getNumInfected(virus) -
-                getNumImmune(virus)) * coincidenceProbability);
-        if (numToInfect < 0)
-            numToInfect = 0;
-        if (virus instanceof VirusRNA) {
-            int copyErrorMutations =
-                    (int) (infectedPercentage * virus.getContagionRate() *
-                            ((VirusRNA) virus).getMutationProbabilityCopyError());
-            for (int i = 0; i < copyErrorMutations; i++) {
-                Virus mutation = ((VirusRNA) virus).mutateDueToCopyError();
+    private void infectByProbability(Virus virus, int infected, int numToInfect,
+                                     List<Virus> mutations) {
+        double infectedPercentage = fractionOfInhabitants(getNumInfected(virus));
+        Statistics statistics = virusStatistics.get(virus);
+        int[] strata = statistics.getStrata();
+        if (strata != null)
+            numToInfect = infectByStratum(virus);
+        else if (getNumInfected(virus) != infected) {
+            double coincidenceProbability = InfectionKernel.coincidenceProbability(
+                    fractionOfInhabitants(getNumInfected(virus) +
+                            statistics.getImported()),
+                    statistics.getContagionRate(virus), getMobility());
+            numToInfect = InfectionKernel.newInfections(inhabitants -
+                    getNumInfected(virus) - getNumImmune(virus), coincidenceProbability);
+        }
+        if (virus instanceof VirusRNA)
+            mutate((VirusRNA) virus, infectedPercentage, numToInfect, mutations);
+        directInfect(virus, numToInfect, strata == null ? null : strataBatch.infections);
+    }
+
+    /**
+     * @brief   Creates the mutations of an RNA virus due to copy error and
+     *          coincidence.
+     *
+     * @details The counts used by the mutations are bounded by the
+     *          inhabitants, and a region with fewer than 2 inhabitants has no
+     *          mutations. Otherwise, once the infected outnumber the
+     *          inhabitants of a region emptied by deaths, the integer formulas
+     *          create mutations without end, and divide by 0 when 1 inhabitant
+     *          is left.
+     *
+     * @param   virus               The virus that mutates.
+     * @param   infectedPercentage  Fraction of the inhabitants infected by the
+     *                              virus.
+     * @param   numToInfect         New infections of the virus, also given to
+     *                              each mutation.
+     * @param   mutations           List where the new mutations are added.
+     *
+     * @pre     virus is present in the region.
+     * @post    The mutations have been added to the region and to the list.
+     */
+    private void mutate(VirusRNA virus, double infectedPercentage, int numToInfect,
+                        List<Virus> mutations) {
+        if (inhabitants <= 1)
+            return;
+        Statistics statistics = virusStatistics.get(virus);
+        int copyErrorMutations =
+                (int) (infectedPercentage * statistics.getContagionRate(virus) *
+                        virus.getMutationProbabilityCopyError());
+        for (int i = 0; i < copyErrorMutations; i++) {
+            Virus mutation = virus.mutateDueToCopyError();
+            initializeVirusStatistics(mutation);
+            directInfect(mutation, numToInfect);
+            mutations.add(mutation);
+        }
+        // The family is walked up to the current number of viruses, so the
+        // mutations added below are not part of it, as before
+        int numViruses = viruses.size();
+        int familyInfected = 0;
+        for (int v = 0; v < numViruses; v++)
+            if (virus.sameFamily(viruses.get(v)))
+                familyInfected += Math.min(getNumInfected(viruses.get(v)), inhabitants);
+        for (int v = 0; v < numViruses; v++) {
+            Virus familyVirus = viruses.get(v);
+            if (!virus.sameFamily(familyVirus))
+                continue;
+            int p = familyInfected / getNumInhabitants();
+            int familyVirusInfected = Math.min(getNumInfected(familyVirus), inhabitants);
+            int probabilityInfectedTwoViruses =
+                    (familyVirusInfected / getNumInhabitants()) *
+                            ((familyVirusInfected - 1) / (getNumInhabitants() - 1)) * p;
+            int coincidenceErrorMutations = (int) (infectedPercentage *
+                    statistics.getContagionRate(virus) * probabilityInfectedTwoViruses *
+                    virus.getMutationProbabilityCoincidence());
+            for (int i = 0; i < coincidenceErrorMutations; i++) {
+                Virus mutation = virus.mutateByCoincidence((VirusRNA) familyVirus);
                 initializeVirusStatistics(mutation);
                 directInfect(mutation, numToInfect);
                 mutations.add(mutation);
             }
-            List<Virus> sameFamilyViruses = new ArrayList<>();
-            for (Virus virusB : virusStatistics.keySet())
-                if (virus.sameFamily(virusB))
-                    sameFamilyViruses.add(virusB);
-            int familyInfected = 0;
-            for (Virus familyVirus : sameFamilyViruses)
-                familyInfected += getNumInfected(familyVirus);
-            for (Virus familyVirus : sameFamilyViruses) {
-                int p = familyInfected / getNumInhabitants();
-                int probabilityInfectedTwoViruses =
-                        (getNumInfected(familyVirus) / getNumInhabitants()) *
-                                ((getNumInfected(familyVirus) - 1) / (getNumInhabitants() - 1)) * p;
-                int coincidenceErrorMutations = (int) (infectedPercentage *
-                        virus.getContagionRate() * probabilityInfectedTwoViruses *
-                        ((VirusRNA) virus).getMutationProbabilityCoincidence());
-                for (int i = 0; i < coincidenceErrorMutations; i++) {
-                    Virus mutation =
-                            ((VirusRNA) virus).mutateByCoincidence((VirusRNA) familyVirus);
-                    initializeVirusStatistics(mutation);
-                    directInfect(mutation, numToInfect);
-                    mutations.add(mutation);
-                }
-            }
         }
-        directInfect(virus, numToInfect);
+    }
+
+    /**
+     * @brief   Computes the new infections of a virus in each age stratum.
+     *
+     * @details The contagious arriving from the neighboring regions are split
+     *          between the strata by their shares.
+     *
+     * @param   virus   The virus for which people are infected.
+     *
+     * @return  The new infections of all the strata, which are written by
+     *          stratum to strataBatch.infections.
+     *
+     * @pre     The region has age strata.
+     * @post    strataBatch.infections holds the new infections of each
+     *          stratum.
+     */
+    private int infectByStratum(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        int[] strata = statistics.getStrata();
+        int k = ageStructure.getNumStrata();
+        StrataBatch b = strataBatch;
+        for (int a = 0; a < k; a++) {
+            double size = stratumSize(a);
+            double infected = strata[a * AgeStructure.NUM_STAGES + AgeStructure.INFECTED] +
+                    statistics.getImported() * ageStructure.getShare(a);
+            b.infectedFraction[a] = size > 0 ? Math.max(0, Math.min(1, infected / size)) : 0;
+        }
+        ageStructure.infectionProbabilities(b.infectedFraction, statistics.getContagionRate(virus),
+                getMobility(), b.probability);
+        int numToInfect = 0;
+        for (int a = 0; a < k; a++) {
+            int susceptible = (int) stratumSize(a) -
+                    strata[a * AgeStructure.NUM_STAGES + AgeStructure.INFECTED] -
+                    strata[a * AgeStructure.NUM_STAGES + AgeStructure.IMMUNE];
+            b.infections[a] = InfectionKernel.newInfections(susceptible, b.probability[a]);
+            numToInfect += b.infections[a];
+        }
+        return numToInfect;
+    }
+
+    /**
+     * @param   a   Index of the age stratum.
+     *
+     * @return  The number of people of the stratum in the region, counting
+     *          the visitors as if they had the same ages as the inhabitants.
+     */
+    private double stratumSize(int a) {
+        long composition = total(stratumPopulation, stratumPopulation.length);
+        if (composition <= 0 || inhabitants <= 0)
+            return 0;
+        return (double) inhabitants * stratumPopulation[a] / composition;
+    }
+
+    /**
+     * @param   people  A number of people in the region.
+     *
+     * @return  The fraction of the inhabitants they represent, bounded between
+     *          0 and 1, or 0 if the region has no inhabitants left.
+     */
+    private double fractionOfInhabitants(int people) {
+        if (inhabitants <= 0)
+            return 0;
+        return Math.max(0, Math.min(1, (double) people / inhabitants));
     }
 
     /**
@@ -205,18 +416,112 @@ public class Region {
      *          number of infected for the virus.
      */
     private void directInfect(Virus virus, int numToInfect) {
+        directInfect(virus, numToInfect, null);
+    }
+
+    /**
+     * @brief   Directly infects a number of people of each age stratum.
+     *
+     * @param   virus           The virus for which to infect.
+     * @param   numToInfect     The number of infections to add.
+     * @param   byStratum       The infections of each stratum, or null to
+     *                          split them by the susceptible of each stratum.
+     *
+     * @pre     virus is not null and byStratum adds up to numToInfect.
+     * @post    The same as directInfect(), and the infected of each stratum
+     *          have been updated if the region has strata.
+     */
+    private void directInfect(Virus virus, int numToInfect, int[] byStratum) {
         initializeVirusStatistics(virus);
-        Pair<Integer, Integer> incubationPair =
-                new Pair<>(numToInfect, virus.getIncubationTime());
-        List<Pair<Integer, Integer>> incubationPairs =
-                virusStatistics.get(virus).getInfected();
-        incubationPairs.add(incubationPair);
-        Pair<Integer, Integer> latencyPair = new Pair<>(numToInfect,
-                virus.getLatencyTime());
-        List<Pair<Integer, Integer>> latencyPairs =
-                virusStatistics.get(virus).getLatents();
-        latencyPairs.add(latencyPair);
-        virusStatistics.get(virus).increaseInfected(numToInfect);
+        Statistics statistics = virusStatistics.get(virus);
+        statistics.getInfected().add(numToInfect, virus.getIncubationTime());
+        statistics.getLatents().add(numToInfect, virus.getLatencyTime());
+        statistics.increaseInfected(numToInfect);
+        int[] strata = statistics.getStrata();
+        if (strata != null)
+            enterStage(strata, AgeStructure.INFECTED, byStratum != null ? byStratum :
+                    splitSusceptible(strata, numToInfect));
+    }
+
+    /**
+     * @brief   Splits a number of people of a virus between the age strata by
+     *          their susceptible.
+     *
+     * @param   strata  Counts of each stratum for the virus.
+     * @param   n       Number of people to split.
+     *
+     * @return  strataBatch.counts, with the people of each stratum. If no
+     *          stratum has susceptible left, they are split by the
+     *          inhabitants of each stratum.
+     *
+     * @pre     The region has age strata.
+     * @post    --
+     */
+    private int[] splitSusceptible(int[] strata, int n) {
+        int k = ageStructure.getNumStrata();
+        StrataBatch b = strataBatch;
+        for (int a = 0; a < k; a++)
+            b.weights[a] = Math.max(0, (int) stratumSize(a) -
+                    strata[a * AgeStructure.NUM_STAGES + AgeStructure.INFECTED] -
+                    strata[a * AgeStructure.NUM_STAGES + AgeStructure.IMMUNE]);
+        if (AgeStructure.split(n, b.weights, k, b.counts) < n)
+            AgeStructure.split(n, stratumPopulation, k, b.counts);
+        return b.counts;
+    }
+
+    /**
+     * @param   strata      Counts of each age stratum for a virus.
+     * @param   stage       Stage the people enter (see AgeStructure).
+     * @param   byStratum   People of each stratum entering the stage.
+     *
+     * @pre     The region has age strata.
+     * @post    The stage of each stratum has byStratum more people.
+     */
+    private void enterStage(int[] strata, int stage, int[] byStratum) {
+        for (int a = 0; a < ageStructure.getNumStrata(); a++)
+            strata[a * AgeStructure.NUM_STAGES + stage] += byStratum[a];
+    }
+
+    /**
+     * @brief   Takes a number of people of a virus out of a stage, from each
+     *          age stratum in proportion to the people of the stratum in the
+     *          stage.
+     *
+     * @param   strata  Counts of each stratum for the virus, or null if the
+     *                  region has no strata.
+     * @param   stage   Stage the people leave (see AgeStructure).
+     * @param   n       Number of people leaving the stage.
+     *
+     * @return  strataBatch.counts, with the people of each stratum that left
+     *          the stage, or null if the region has no strata.
+     *
+     * @pre     --
+     * @post    The stage of each stratum has lost its part of n.
+     */
+    private int[] leaveStage(int[] strata, int stage, int n) {
+        if (strata == null)
+            return null;
+        int k = ageStructure.getNumStrata();
+        StrataBatch b = strataBatch;
+        for (int a = 0; a < k; a++)
+            b.weights[a] = Math.max(0, strata[a * AgeStructure.NUM_STAGES + stage]);
+        AgeStructure.split(Math.min(n, total(b.weights, k)), b.weights, k, b.counts);
+        for (int a = 0; a < k; a++)
+            strata[a * AgeStructure.NUM_STAGES + stage] -= b.counts[a];
+        return b.counts;
+    }
+
+    /**
+     * @param   values  Values of each age stratum.
+     * @param   k       Number of strata.
+     *
+     * @return  The sum of the values, bounded by Integer.MAX_VALUE.
+     */
+    private static int total(int[] values, int k) {
+        long total = 0;
+        for (int a = 0; a < k; a++)
+            total += values[a];
+        return (int) Math.min(total, Integer.MAX_VALUE);
     }
 
     /**
@@ -228,15 +533,13 @@ public class Region {
      * @return  the number of infected by this specific virus at the current step.
      */
     public int getNumInfected(Virus virus) {
-        if (!virusStatistics.containsKey(virus)) {
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics == null) {
             return 0; // or handle the error as needed
         }
-        List<Pair<Integer, Integer>> pairs =
-                virusStatistics.get(virus).getInfected();
-        int infected = 0;
-        for (Pair<Integer, Integer> pair : pairs)
-            infected += pair.first;
-        return infected;
+        if (statistics.getAgents() != null)
+            return statistics.getAgents().getNumInfected();
+        return statistics.getInfected().total();
     }
 
     /**
@@ -252,8 +555,188 @@ public class Region {
     public void initializeVirusStatistics(Virus virus) {
         if (!virusStatistics.containsKey(virus)) {
             Statistics statistics = new Statistics();
+            if (agentBased)
+                statistics.setAgents(new AgentPopulation(Math.max(inhabitants, 0),
+                        agentSeed + 0x9E3779B97F4A7C15L * virus.hashCode()));
+            if (ageStructure != null)
+                statistics.setStrata(new int[ageStructure.getNumStrata() *
+                        AgeStructure.NUM_STAGES]);
             virusStatistics.put(virus, statistics);
+            viruses.add(virus);
+            indexVirus(viruses.size() - 1);
+        }
+    }
+
+    /**
+     * @brief   Adds a new virus of the region to the viruses covered by the
+     *          vaccines applied so far.
+     *
+     * @param   v   Index of the virus in the list of viruses.
+     *
+     * @pre     The virus has just been added to the region.
+     * @post    The virus is covered by the targets it is a mutation of, and
+     *          the vaccines in effect on them have effects on it.
+     */
+    private void indexVirus(int v) {
+        if (dosesByTarget.isEmpty())
+            return;
+        boolean attenuated = false;
+        for (TargetDoses target : dosesByTarget.values())
+            if (target.covers(viruses.get(v))) {
+                target.covered.set(v);
+                attenuated |= !target.inEffect.isEmpty();
+            }
+        if (attenuated)
+            updateVaccineEffects(v);
+    }
+
+    /**
+     * @brief   Simulates the region agent by agent instead of with the
+     *          compartment model.
+     *
+     * @details Each virus of the region gets an AgentPopulation with one agent
+     *          per inhabitant, driven by the same parameters of the virus. The
+     *          counts of the agents are recorded in the same region states.
+     *          Vaccines and mutations are not simulated in this mode, and the
+     *          immunity of an agent only protects from the virus that caused
+     *          it.
+     *
+     * @param   seed    Seed of the random numbers of the agents.
+     *
+     * @throws  IllegalStateException   if a virus is already present in the
+     *                                  region.
+     *
+     * @pre     --
+     * @post    The viruses added from now on are simulated agent by agent.
+     */
+    public void useAgents(long seed) {
+        if (!viruses.isEmpty())
+            throw new IllegalStateException("The agents must be chosen before " +
+                    "adding any virus to the region " + name + ".");
+        if (ageStructure != null)
+            throw new IllegalStateException("The age strata are not simulated " +
+                    "in the agent-based mode.");
+        agentBased = true;
+        agentSeed = seed;
+    }
+
+    /** @return True if the region is simulated agent by agent. */
+    public boolean isAgentBased() {
+        return agentBased;
+    }
+
+    /**
+     * @brief   Splits the inhabitants of the region into age strata.
+     *
+     * @details The infections, the illness and the deaths of every virus are
+     *          computed for each stratum, with the contacts, disease
+     *          probability and mortality of the stratum (see AgeStructure).
+     *          The countdowns are shared by all the strata, and the people
+     *          whose countdown expires are taken from each stratum in
+     *          proportion to its people in the same stage.
+     *
+     * @param   ageStructure    The age strata of the inhabitants.
+     *
+     * @throws  IllegalStateException   if a virus is already present in the
+     *                                  region or it is agent based.
+     *
+     * @pre     ageStructure is not null.
+     * @post    The inhabitants are split between the strata by their shares.
+     */
+    public void useAgeStructure(AgeStructure ageStructure) {
+        if (!viruses.isEmpty())
+            throw new IllegalStateException("The age strata must be chosen " +
+                    "before adding any virus to the region " + name + ".");
+        if (agentBased)
+            throw new IllegalStateException("The age strata are not simulated " +
+                    "in the agent-based mode.");
+        int k = ageStructure.getNumStrata();
+        this.ageStructure = ageStructure;
+        this.stratumPopulation = new int[k];
+        this.strataBatch = new StrataBatch(k);
+        int residents = Math.max(inhabitants, 0), given = 0;
+        for (int a = 0; a < k; a++) {
+            stratumPopulation[a] = (int) (residents * ageStructure.getShare(a));
+            given += stratumPopulation[a];
         }
+        for (int a = 0; given < residents; a = (a + 1) % k) {
+            if (ageStructure.getShare(a) > 0) {
+                stratumPopulation[a]++;
+                given++;
+            }
+        }
+    }
+
+    /** @return The age strata of the inhabitants, or null if there are none. */
+    public AgeStructure getAgeStructure() {
+        return ageStructure;
+    }
+
+    /**
+     * @param   stratum Index of the age stratum.
+     *
+     * @return  The number of inhabitants of the stratum, without the visitors:
+     *          the inhabitants of the region split by its age composition.
+     */
+    public int getNumInhabitants(int stratum) {
+        long composition = total(stratumPopulation, stratumPopulation.length);
+        if (composition <= 0)
+            return 0;
+        return (int) ((long) Math.max(0, inhabitants - visitors) *
+                stratumPopulation[stratum] / composition);
+    }
+
+    /**
+     * @param   virus   The virus for which to get the current number of
+     *                  infected.
+     * @param   stratum Index of the age stratum.
+     *
+     * @return  The number of inhabitants of the stratum in the incubation of
+     *          the virus.
+     */
+    public int getNumInfected(Virus virus, int stratum) {
+        return getStratumCount(virus, stratum, AgeStructure.INFECTED);
+    }
+
+    /**
+     * @param   virus   The virus for which to get the current number of sick.
+     * @param   stratum Index of the age stratum.
+     *
+     * @return  The number of inhabitants of the stratum sick from the virus.
+     */
+    public int getNumSick(Virus virus, int stratum) {
+        return getStratumCount(virus, stratum, AgeStructure.SICK);
+    }
+
+    /**
+     * @param   virus   The virus for which to get the deaths.
+     * @param   stratum Index of the age stratum.
+     *
+     * @return  The number of inhabitants of the stratum killed by the virus
+     *          since it arrived in the region.
+     */
+    public int getTotalDeaths(Virus virus, int stratum) {
+        return getStratumCount(virus, stratum, AgeStructure.DEAD);
+    }
+
+    /**
+     * @param   virus   The virus.
+     * @param   stratum Index of the age stratum.
+     * @param   stage   Stage of the count (see AgeStructure).
+     *
+     * @throws  IllegalStateException   if the region has no age strata.
+     *
+     * @return  The count of the stage of the stratum for the virus, or 0 if
+     *          the virus is not present in the region.
+     */
+    private int getStratumCount(Virus virus, int stratum, int stage) {
+        if (ageStructure == null)
+            throw new IllegalStateException("The region " + name + " has no " +
+                    "age strata.");
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics == null)
+            return 0;
+        return statistics.getStrata()[stratum * AgeStructure.NUM_STAGES + stage];
     }
 
     /**
@@ -276,26 +759,33 @@ public class Region {
      * @post    The map of infected has been updated.
      */
     private void contagion(Virus virus, int numToContagion) {
-        Pair<Integer, Integer> contagionPair =
-                new Pair<>(numToContagion, virus.getInfectionDuration());
-        List<Pair<Integer, Integer>> infectedVirus =
-                virusStatistics.get(virus).getContagious();
-        infectedVirus.add(contagionPair);
-        virusStatistics.get(virus).increaseContagious(numToContagion);
+        Statistics statistics = virusStatistics.get(virus);
+        statistics.getContagious().add(numToContagion, virus.getInfectionDuration());
+        statistics.increaseContagious(numToContagion);
     }
 
     /**
-     * @param   virus   The virus for which to get the current number of infected.
+     * @param   virus   The virus for which to get the current number of contagious.
      *
-     * @return  the number of infected by this specific virus at the current step.
+     * @return  the number of contagious by this specific virus at the current step.
+     */
+    public int getNumContagious(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics.getAgents() != null)
+            return statistics.getAgents().getNumContagious();
+        return statistics.getContagious().total();
+    }
+
+    /**
+     * @param   virus   The virus for which to get the current number of latents.
+     *
+     * @return  the number of latents of this specific virus at the current step.
      */
-    private int getNumContagious(Virus virus) {
-        List<Pair<Integer, Integer>> pairs =
-                virusStatistics.get(virus).getContagious();
-        int infected = 0;
-        for (Pair<Integer, Integer> pair : pairs)
-            infected += pair.first;
-        return infected;
+    private int getNumLatents(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics.getAgents() != null)
+            return statistics.getAgents().getNumLatents();
+        return statistics.getLatents().total();
     }
 
     /**
@@ -316,13 +806,20 @@ public class Region {
      *
      * @pre     percentage is an integer between 0 and 100.
      * @post    A random number of inhabitants not already sick from the virus
-     *          have been made sick, according to the specified percentage.
+     *          have been made sick, according to the specified percentage. In
+     *          an agent-based region, a percentage of 0 does nothing, since
+     *          the agents already fall sick by probability at each step.
      */
     public void makeSick(Virus virus, int percentage) {
         if (percentage < 0 || percentage > 100)
             throw new IllegalArgumentException("The percentage must be an " +
                     "integer between 0 and 100");
-        if (percentage == 0)
+        applySkippedSteps();
+        if (agentBased) {
+            // The agents already fall sick by probability at each step
+            if (percentage != 0)
+                agentsMakeSick(virus, (int) Math.round((percentage / 100.0) * inhabitants));
+        } else if (percentage == 0)
             makeSickByProbability(virus);
         else {
             int numToMakeSick =
@@ -344,23 +841,55 @@ public class Region {
      */
     private void directMakeSick(Virus virus, int numToMakeSick) {
         Statistics statistics = new Statistics();
-        virusStatistics.put(virus, statistics);
+        if (ageStructure != null)
+            statistics.setStrata(new int[ageStructure.getNumStrata() *
+                    AgeStructure.NUM_STAGES]);
+        Statistics previous = virusStatistics.put(virus, statistics);
+        if (previous == null) {
+            viruses.add(virus);
+            indexVirus(viruses.size() - 1);
+        } else if (previous.isAttenuated())
+            statistics.setVaccineEffects(previous.getDiseaseProbability(virus),
+                    previous.getDiseaseDuration(virus), previous.getMortalityRate(virus),
+                    previous.getContagionRate(virus));
         int possibleSickness = inhabitants - getNumVaccinated(virus) -
                 getNumImmune(virus) - getNumSick(virus);
         numToMakeSick = Math.min(numToMakeSick, possibleSickness);
         if (numToMakeSick <= 0)
             throw new IllegalArgumentException("Not enough susceptibles to " +
                     "make sick.");
-        Pair<Integer, Integer> pair = new Pair<>(numToMakeSick,
-                virus.getDiseaseDuration());
-        List<Pair<Integer, Integer>> pairs =
-                virusStatistics.get(virus).getSick();
-        pairs.add(pair);
-        virusStatistics.get(virus).increaseSick(numToMakeSick);
+        statistics.getSick().add(numToMakeSick, statistics.getDiseaseDuration(virus));
+        statistics.increaseSick(numToMakeSick);
+        if (statistics.getStrata() != null)
+            enterStage(statistics.getStrata(), AgeStructure.SICK,
+                    splitSusceptible(statistics.getStrata(), numToMakeSick));
         infect(virus, numToMakeSick);
         contagion(virus, numToMakeSick);
     }
 
+    /**
+     * @brief   Makes a certain number of agents sick with a given virus.
+     *
+     * @param   virus           The virus that will cause the illness.
+     * @param   numToMakeSick   The number of agents to be made sick.
+     *
+     * @throws  IllegalArgumentException    if no agent can be made sick.
+     *
+     * @pre     The region is agent based.
+     * @post    Up to numToMakeSick susceptible agents are sick and contagious.
+     */
+    private void agentsMakeSick(Virus virus, int numToMakeSick) {
+        initializeVirusStatistics(virus);
+        Statistics statistics = virusStatistics.get(virus);
+        int numSick = statistics.getAgents().makeSick(virus, numToMakeSick, simulationStep);
+        if (numSick <= 0)
+            throw new IllegalArgumentException("Not enough susceptibles to " +
+                    "make sick.");
+        statistics.increaseSick(numSick);
+        statistics.increaseInfected(numSick);
+        statistics.increaseContagious(numSick);
+    }
+
     /**
      * @brief   Makes inhabitants infected with a virus sick according to the
      *          probability rate of the virus.
@@ -373,28 +902,86 @@ public class Region {
      *          has been updated.
      */
     private void makeSickByProbability(Virus virus) {
-        List<Pair<Integer, Integer>> infectedPairs =
-                virusStatistics.get(virus).getInfected();
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics.getStrata() != null) {
+            makeSickByStratum(virus);
+            return;
+        }
+        Cohorts infectedGroups = statistics.getInfected();
         int numToMakeSick = 0;
-        for (int i = 0; i < infectedPairs.size(); i++) {
-            Pair<Integer, Integer> pair = infectedPairs.get(i);
-            int probabilityOfIllness = (int) (virus.getDiseaseProbability() *
-                    pair.first);
+        for (int i = 0; i < infectedGroups.size(); i++) {
+            int probabilityOfIllness = (int) (statistics.getDiseaseProbability(virus) *
+                    infectedGroups.getCount(i));
             numToMakeSick += probabilityOfIllness;
-            pair.first -= probabilityOfIllness;
-            infectedPairs.set(i, pair);
+            infectedGroups.setCount(i, infectedGroups.getCount(i) - probabilityOfIllness);
         }
         int possibleSickness = inhabitants - getNumVaccinated(virus) -
                 getNumImmune(virus) - getNumSick(virus);
         if (possibleSickness < 0)
             possibleSickness = 0;
         numToMakeSick = Math.min(numToMakeSick, possibleSickness);
-        Pair<Integer, Integer> pair = new Pair<>(numToMakeSick,
-                virus.getDiseaseDuration());
-        List<Pair<Integer, Integer>> sickPairs =
-                virusStatistics.get(virus).getSick();
-        sickPairs.add(pair);
-        virusStatistics.get(virus).increaseSick(numToMakeSick);
+        statistics.getSick().add(numToMakeSick, statistics.getDiseaseDuration(virus));
+        statistics.increaseSick(numToMakeSick);
+    }
+
+    /**
+     * @brief   Makes infected sick in each age stratum according to the
+     *          probability rate of the virus and the disease factor of the
+     *          stratum.
+     *
+     * @param   virus   The virus that will cause the illness.
+     *
+     * @pre     The region has age strata.
+     * @post    The same as makeSickByProbability(), and the infected and sick
+     *          of each stratum have been updated.
+     */
+    private void makeSickByStratum(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        int[] strata = statistics.getStrata();
+        int k = ageStructure.getNumStrata();
+        StrataBatch b = strataBatch;
+        int numToMakeSick = 0;
+        for (int a = 0; a < k; a++) {
+            int infected = Math.max(0, strata[a * AgeStructure.NUM_STAGES + AgeStructure.INFECTED]);
+            b.counts[a] = Math.min(infected, (int) (statistics.getDiseaseProbability(virus) *
+                    ageStructure.getDiseaseFactor(a) * infected));
+            numToMakeSick += b.counts[a];
+        }
+        int possibleSickness = Math.max(0, inhabitants - getNumVaccinated(virus) -
+                getNumImmune(virus) - getNumSick(virus));
+        numToMakeSick = removeByStratum(statistics.getInfected(),
+                Math.min(numToMakeSick, possibleSickness), b.counts);
+        for (int a = 0; a < k; a++) {
+            strata[a * AgeStructure.NUM_STAGES + AgeStructure.INFECTED] -= b.counts[a];
+            strata[a * AgeStructure.NUM_STAGES + AgeStructure.SICK] += b.counts[a];
+        }
+        statistics.getSick().add(numToMakeSick, statistics.getDiseaseDuration(virus));
+        statistics.increaseSick(numToMakeSick);
+    }
+
+    /**
+     * @brief   Removes people of each age stratum from the groups of a stage.
+     *
+     * @param   groups      The groups of the stage.
+     * @param   n           Number of people to remove.
+     * @param   byStratum   People of each stratum to remove, adding up to at
+     *                      least n.
+     *
+     * @return  The number of people removed. byStratum is scaled down to add
+     *          up to it.
+     *
+     * @pre     The region has age strata.
+     * @post    The groups have lost the people removed, in proportion to their
+     *          size.
+     */
+    private int removeByStratum(Cohorts groups, int n, int[] byStratum) {
+        int k = ageStructure.getNumStrata();
+        int removed = groups.remove(n);
+        if (removed < total(byStratum, k)) {
+            System.arraycopy(byStratum, 0, strataBatch.weights, 0, k);
+            AgeStructure.split(removed, strataBatch.weights, k, byStratum);
+        }
+        return removed;
     }
 
     /**
@@ -402,13 +989,11 @@ public class Region {
      *
      * @return  the number of sick from the last simulation step.
      */
-    private int getNumSick(Virus virus) {
-        List<Pair<Integer, Integer>> pairs =
-                virusStatistics.get(virus).getSick();
-        int sick = 0;
-        for (Pair<Integer, Integer> pair : pairs)
-            sick += pair.first;
-        return sick;
+    public int getNumSick(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics.getAgents() != null)
+            return statistics.getAgents().getNumSick();
+        return statistics.getSick().total();
     }
 
     /**
@@ -428,23 +1013,23 @@ public class Region {
      *
      * @param   virus           The virus to immunize against.
      * @param   numToImmunize   The number of inhabitants to immunize.
+     * @param   byStratum       The inhabitants of each age stratum to
+     *                          immunize, or null if the region has no strata.
      *
      * @pre     --
      * @post    A number of inhabitants have been immunized against all viruses
      *          from the same family and the map of statistics has been updated.
      */
-    private void immunize(Virus virus, int numToImmunize) {
-        List<Virus> sameFamilyViruses = new ArrayList<>();
-        for (Virus immuneVirus : virusStatistics.keySet())
-            if (virus.sameFamily(immuneVirus))
-                sameFamilyViruses.add(immuneVirus);
-        for (Virus familyVirus : sameFamilyViruses) {
-            Pair<Integer, Integer> immunityPair =
-                    new Pair<>(numToImmunize,
-                            familyVirus.getImmunityDuration());
-            List<Pair<Integer, Integer>> immuneVirus =
-                    virusStatistics.get(familyVirus).getImmune();
-            immuneVirus.add(immunityPair);
+    private void immunize(Virus virus, int numToImmunize, int[] byStratum) {
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus familyVirus = viruses.get(v);
+            if (virus.sameFamily(familyVirus)) {
+                Statistics statistics = virusStatistics.get(familyVirus);
+                statistics.getImmune().add(numToImmunize,
+                        familyVirus.getImmunityDuration());
+                if (byStratum != null && statistics.getStrata() != null)
+                    enterStage(statistics.getStrata(), AgeStructure.IMMUNE, byStratum);
+            }
         }
     }
 
@@ -454,12 +1039,10 @@ public class Region {
      * @return  the number of immune from the last simulation step.
      */
     private int getNumImmune(Virus virus) {
-        List<Pair<Integer, Integer>> pairs =
-                virusStatistics.get(virus).getImmune();
-        int immune = 0;
-        for (Pair<Integer, Integer> pair : pairs)
-            immune += pair.first;
-        return immune;
+        Statistics statistics = virusStatistics.get(virus);
+        if (statistics.getAgents() != null)
+            return statistics.getAgents().getNumImmune();
+        return statistics.getImmune().total();
     }
 
     /**
@@ -471,7 +1054,7 @@ public class Region {
      *
      * @return  the number of deaths from the last simulation step.
      */
-    private int getNumDeaths(Virus virus) {
+    public int getNumDeaths(Virus virus) {
         if (!virusStatistics.containsKey(virus))
             throw new IllegalArgumentException("The virus is not present in " +
                     "the region or not enough steps have been simulated.");
@@ -485,13 +1068,10 @@ public class Region {
      *          specified virus since the simulation started.
      */
     private int getTotalNumDeaths(Virus virus) {
-        List<RegionState> virusStates = states.get(virus);
+        RegionStates virusStates = states.get(virus);
         if (virusStates == null)
             return 0;
-        int totalDeaths = 0;
-        for (RegionState regionState : virusStates)
-            totalDeaths += regionState.deaths;
-        return totalDeaths;
+        return virusStates.totalDeaths;
     }
 
     /**
@@ -518,43 +1098,58 @@ public class Region {
      *                       vaccinate the population.
      * @param   percentage   The percentage of the population to be vaccinated.
      *
+     * @throws  IllegalStateException   if the region is agent based.
+     *
      * @pre     percentage is an integer between 0 and 100.
      * @post    A percentage of inhabitants have been vaccinated with the
      *          specified vaccine and the map of vaccinated has been updated.
      */
     public void vaccinate(Vaccine vaccine, int percentage) {
+        if (agentBased)
+            throw new IllegalStateException("Vaccines are not simulated in " +
+                    "the agent-based mode.");
+        applySkippedSteps();
         int numToVaccinate = (int) Math.round((percentage / 100.0) * inhabitants);
         if (vaccine.getEffectiveness() != null)
             numToVaccinate *= (int) (vaccine.getEffectiveness() / 100.0);
-        Pair<Integer, Pair<Integer, Integer>> vaccinationPair =
-                new Pair<>(numToVaccinate,
-                        new Pair<>(vaccine.getActivationTime(), vaccine.getDuration()));
-        List<Pair<Integer, Pair<Integer, Integer>>> vaccinatedList =
-                vaccinated.getOrDefault(vaccine, new ArrayList<>());
-        vaccinatedList.add(vaccinationPair);
-        vaccinated.put(vaccine, vaccinatedList);
-        for (Virus virus : virusStatistics.keySet())
-            if (virus.getName().startsWith(vaccine.getTargetVirus().getName()))
-                virusStatistics.get(virus).increaseVaccinated(numToVaccinate);
+        Doses doses = new Doses(vaccine, numToVaccinate);
+        vaccinated.add(doses);
+        TargetDoses target = getTargetDoses(vaccine);
+        target.add(doses);
+        for (int v = target.covered.nextSetBit(0); v >= 0; v = target.covered.nextSetBit(v + 1))
+            virusStatistics.get(viruses.get(v)).increaseVaccinated(numToVaccinate);
+    }
+
+    /**
+     * @param   vaccine The vaccine.
+     *
+     * @return  The doses applied to the region of the vaccines that target the
+     *          same virus as the given one, which are created if there were
+     *          none yet.
+     */
+    private TargetDoses getTargetDoses(Vaccine vaccine) {
+        TargetDoses target = dosesByTarget.get(vaccine.getTargetVirus());
+        if (target == null) {
+            target = new TargetDoses(vaccine.getTargetVirus());
+            for (int v = 0; v < viruses.size(); v++)
+                if (target.covers(viruses.get(v)))
+                    target.covered.set(v);
+            dosesByTarget.put(vaccine.getTargetVirus(), target);
+        }
+        return target;
     }
 
     /**
      * @param   virus   The virus for which to get the number of vaccinated.
      *
+     * @details Only the doses of the first vaccine applied to the region
+     *          that targets the virus are counted.
+     *
      * @return  the number of vaccinated from the last simulation step.
      */
-    private int getNumVaccinated(Virus virus) {
-        int numVaccinated = 0;
-        for (Vaccine vaccine : vaccinated.keySet()) {
-            if (virus.equals(vaccine.getTargetVirus())) {
-                List<Pair<Integer, Pair<Integer, Integer>>> pairs =
-                        vaccinated.get(vaccine);
-                for (Pair<Integer, Pair<Integer, Integer>> pair : pairs)
-                    numVaccinated += pair.first;
-                break;
-            }
-        }
-        return numVaccinated;
+    public int getNumVaccinated(Virus virus) {
+        TargetDoses target = dosesByTarget.get(virus);
+        return target == null ? 0 : target.numVaccinated;
     }
 
     /**
@@ -583,11 +1178,7 @@ public class Region {
     private double calculateMortalityRate(Virus virus) {
         if (getNumDeaths(virus) < 1)
             return 0.00;
-        double mortalityRate =
-                (double) getTotalNumDeaths(virus) / getTotalNumInfected(virus);
-        String strMortalityRate =
-                String.format("%.2f", mortalityRate).replace(",", ".");
-        return Double.parseDouble(strMortalityRate);
+        return roundRate(getTotalNumDeaths(virus), getTotalNumInfected(virus));
     }
 
     /**
@@ -597,133 +1188,541 @@ public class Region {
      * @return  The transmission rate of the region for a specific virus.
      */
     private double calculateTransmissionRate(Virus virus) {
-        if (!states.containsKey(virus))
+        RegionStates virusStates = states.get(virus);
+        if (virusStates == null || simulationStep == virusStates.firstStep)
             return 0.00;
-        double transmissionRate =
-                (double) getNumContagious(virus) / getRegionState(virus,
-                        simulationStep).infected;
-        String strTransmissionRate =
-                String.format("%.2f", transmissionRate).replace(",", ".");
-        return Double.parseDouble(strTransmissionRate);
+        checkStep(virusStates, simulationStep);
+        return roundRate(getNumContagious(virus),
+                virusStates.getInfected(simulationStep - 1 - virusStates.firstStep));
     }
 
-    /** @return The number of inhabitants arriving in the region in a unit of time. */
-    private int externalPopulation() {
-        int externalPopulation = 0;
-        for (Region neighboringRegion : neighboringRegions.keySet()) {
-            if (!regionClosures.get(neighboringRegion)) {
-                Map<Region, Integer> neighbors = neighboringRegion.getNeighboringRegions();
-                if (neighbors != null) {
-                    Integer percentage = neighbors.get(this);
-                    if (percentage != null) {
-                        int neighborPopulation = neighboringRegion.getNumInhabitants();
-                        externalPopulation += (percentage * neighborPopulation) / 100;
-                    }
-                }
-            }
-        }
-        return externalPopulation;
+    /**
+     * @brief   Divides two numbers of people and rounds the result to two
+     *          decimals, half up.
+     *
+     * @details Gives the same result as formatting the quotient with "%.2f"
+     *          and parsing it back, without creating any string.
+     *
+     * @param   numerator   The dividend.
+     * @param   denominator The divisor.
+     *
+     * @return  The rounded quotient, or an infinity or NaN if the divisor is 0.
+     */
+    static double roundRate(long numerator, long denominator) {
+        if (denominator == 0)
+            return (double) numerator / denominator;
+        boolean negative = (numerator < 0) != (denominator < 0);
+        long n = Math.abs(numerator), d = Math.abs(denominator);
+        long hundredths = (200 * n + d) / (2 * d);
+        return negative ? -(hundredths / 100.0) : hundredths / 100.0;
     }
 
     /**
-     * @brief   Updates the state of the region and its inhabitants.
+     * @brief   Moves the people from the neighboring regions at the start of a
+     *          step.
      *
-     * @details At each step of the simulation, the infected, latents, and
-     *          contagious are updated, as well as the number of sick, immune,
-     *          and vaccinated inhabitants. A new region state is also created
-     *          for each present virus.
+     * @details The people arriving at an even step stay as visitors until the
+     *          next odd step, when the ones still alive leave. The
+     *          inhabitants of the neighbors change between both steps, so
+     *          subtracting the people arriving at the odd step instead would
+     *          make the population drift, even below 0.
+     *
+     * @param   externalPopulation  The number of inhabitants arriving in the
+     *                              region in a unit of time.
      *
      * @pre     --
-     * @post    The state of the inhabitants has been updated and a new region
-     *          state has been created for each present virus. The simulation
-     *          step has been incremented by one unit and the list of mutations
-     *          has been updated as well as the map of statistics for each virus.
+     * @post    The visitors have arrived at an even step, or left at an odd
+     *          one.
      */
-    public void updateRegion(List<Virus> mutations) {
-        if (simulationStep % 2 == 0)
-            inhabitants += externalPopulation();
-        else
-            inhabitants -= externalPopulation();
-        updateLatents();
-        updateContagious(mutations);
-        updateInfected();
-        updateSick();
-        updateImmune();
-        updateVaccinated();
-        for (Virus virus : virusStatistics.keySet()) {
-            RegionState state = new RegionState(simulationStep, inhabitants,
-                    getNumInfected(virus), getNumContagious(virus), getNumImmune(virus),
-                    getNumSick(virus), getNumDeaths(virus), getNumVaccinated(virus),
-                    calculateTransmissionRate(virus), calculateMortalityRate(virus));
-            states.computeIfAbsent(virus, k -> new ArrayList<>()).add(state);
-        }
-        if (reducedMobility.second != 0) {
-            reducedMobility.second -= 1;
-            if (reducedMobility.second == 0)
-                relaxClosure(new ArrayList<>(neighboringRegions.keySet()));
-        }
-        simulationStep++;
+    private void moveVisitors(int externalPopulation) {
+        if (simulationStep % 2 == 0) {
+            visitors = externalPopulation;
+            inhabitants += visitors;
+        } else
+            sendVisitorsHome();
     }
 
     /**
-     * @brief   Updates the inhabitants in latent state for each virus.
+     * @brief   Limits the deaths of a virus to the people left in the region.
      *
-     * @details For each virus, decreases the latency time of each latent by 1
-     *          unit. If a group of latents has reached the end of their latency
-     *          period, it is removed from the map of latents and passes to the
-     *          group of contagious.
+     * @details Every virus kills its sick independently, so the deaths of all
+     *          the viruses of a region emptied by them could exceed its
+     *          population and leave it with fewer than 0 inhabitants.
      *
-     * @pre     --
-     * @post    The map of latents and the map of contagious for each virus have
-     *          been updated.
+     * @param   deaths  The number of people killed by a virus.
+     *
+     * @return  The deaths, at most the inhabitants left.
      */
-    private void updateLatents() {
-        for (Virus virus : virusStatistics.keySet()) {
-            List<Pair<Integer, Integer>> latentsVirus =
-                    virusStatistics.get(virus).getLatents();
-            Iterator<Pair<Integer, Integer>> itr = latentsVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Integer> pair = itr.next();
-                if (pair.second != 0)
-                    pair.second -= 1;
-                else {
-                    contagion(virus, pair.first);
-                    itr.remove();
-                }
-            }
-        }
+    private int capDeaths(int deaths) {
+        return Math.min(deaths, Math.max(inhabitants, 0));
     }
 
     /**
-     * @brief   Updates the inhabitants contagious for each virus.
+     * @brief   Removes the people who died from the inhabitants.
      *
-     * @details For each virus, decreases the contagion time of each group of
-     *          contagious by one unit, removing it if the duration has been
-     *          surpassed, or updating the remaining duration if it has not yet
-     *          ended. Also calls the infection method to update the state of
-     *          infected people based on the virus and its transmission rate in
-     *          the region.
+     * @details The visitors die in the same proportion as the rest of the
+     *          inhabitants, so fewer of them go back home.
      *
-     * @pre     --
-     * @post    The map of contagious has been updated as described. Additionally,
-     *          the infection method has been called for each virus.
+     * @param   deaths  The number of people who died.
+     *
+     * @pre     deaths is not negative.
+     * @post    The inhabitants and the visitors have been reduced.
+     */
+    private void removeDead(int deaths) {
+        if (visitors > 0 && inhabitants > 0)
+            visitors -= (int) ((long) visitors * Math.min(deaths, inhabitants) / inhabitants);
+        inhabitants -= deaths;
+    }
+
+    /**
+     * @pre     --
+     * @post    The visitors have left the region.
+     */
+    private void sendVisitorsHome() {
+        inhabitants -= visitors;
+        visitors = 0;
+    }
+
+    /**
+     * @brief   Sends back home the visitors who came from some neighboring
+     *          regions.
+     *
+     * @details The visitors are not recorded by origin, so the ones of each
+     *          neighbor are its share of the people arriving through the open
+     *          flows, as they were counted when they arrived.
+     *
+     * @param   neighbors   The neighboring regions whose flow toward the
+     *                      region is closed.
+     *
+     * @pre     The flows with the neighbors are still open.
+     * @post    The visitors from the neighbors have left the region.
+     */
+    private void sendVisitorsHome(Collection<Region> neighbors) {
+        if (visitors == 0)
+            return;
+        long fromNeighbors = 0, fromAll = 0;
+        for (Region neighboringRegion : neighboringRegions.keySet()) {
+            if (isClosedWith(neighboringRegion))
+                continue;
+            int arrivals = arrivalsFrom(neighboringRegion);
+            fromAll += arrivals;
+            if (neighbors.contains(neighboringRegion))
+                fromNeighbors += arrivals;
+        }
+        if (fromNeighbors == 0)
+            return;
+        int leaving = fromNeighbors == fromAll ? visitors
+                : (int) (visitors * fromNeighbors / fromAll);
+        inhabitants -= leaving;
+        visitors -= leaving;
+    }
+
+    /**
+     * @param   neighbors   The neighboring regions whose flows with the region
+     *                      are about to close.
+     *
+     * @pre     The flows with the neighbors are still open.
+     * @post    The visitors from the neighbors have left the region, and the
+     *          visitors from the region have left the neighbors.
+     */
+    private void sendVisitorsHomeAcross(Collection<Region> neighbors) {
+        sendVisitorsHome(neighbors);
+        Collection<Region> self = Collections.singletonList(this);
+        for (Region neighbor : neighbors)
+            if (neighbor != this)
+                neighbor.sendVisitorsHome(self);
+    }
+
+    /**
+     * @param   neighboringRegion   A neighboring region.
+     *
+     * @return  The number of inhabitants of the neighbor arriving in the
+     *          region in a unit of time, whether the flow is open or not.
+     */
+    private int arrivalsFrom(Region neighboringRegion) {
+        Map<Region, Integer> neighbors = neighboringRegion.getNeighboringRegions();
+        if (neighbors == null)
+            return 0;
+        Integer percentage = neighbors.get(this);
+        if (percentage == null)
+            return 0;
+        return (percentage * neighboringRegion.getNumInhabitants()) / 100;
+    }
+
+    /** @return The number of inhabitants arriving in the region in a unit of time. */
+    private int externalPopulation() {
+        int externalPopulation = 0;
+        for (Region neighboringRegion : neighboringRegions.keySet()) {
+            if (!isClosedWith(neighboringRegion))
+                externalPopulation += arrivalsFrom(neighboringRegion);
+        }
+        return externalPopulation;
+    }
+
+    /**
+     * @brief   Updates the state of the region and its inhabitants.
+     *
+     * @details At each step of the simulation, the infected, latents, and
+     *          contagious are updated, as well as the number of sick, immune,
+     *          and vaccinated inhabitants. A new region state is also created
+     *          for each present virus.
+     *
+     * @pre     --
+     * @post    The state of the inhabitants has been updated and a new region
+     *          state has been created for each present virus. The simulation
+     *          step has been incremented by one unit and the list of mutations
+     *          has been updated as well as the map of statistics for each virus.
+     */
+    public void updateRegion(List<Virus> mutations) {
+        updateRegion(mutations, externalPopulation());
+    }
+
+    /**
+     * @brief   Updates the state of the region and its inhabitants, given the
+     *          number of inhabitants arriving from the neighboring regions.
+     *
+     * @details Same as updateRegion(mutations), but the external population is
+     *          computed by the caller, usually for all the regions at once with
+     *          a MobilityGraph.
+     *
+     * @param   mutations           List where the new mutations are added.
+     * @param   externalPopulation  The number of inhabitants arriving in the
+     *                              region in a unit of time.
+     *
+     * @pre     --
+     * @post    Same as updateRegion(mutations).
+     */
+    public void updateRegion(List<Virus> mutations, int externalPopulation) {
+        applySkippedSteps();
+        moveVisitors(externalPopulation);
+        if (agentBased)
+            updateAgents();
+        else {
+            updateLatents();
+            updateContagious(mutations);
+            updateInfected();
+            updateSick();
+            updateImmune();
+            updateVaccinated();
+        }
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            double transmissionRate = calculateTransmissionRate(virus);
+            double mortalityRate = calculateMortalityRate(virus);
+            getRegionStates(virus).add(simulationStep, inhabitants,
+                    getNumInfected(virus), getNumContagious(virus), getNumImmune(virus),
+                    getNumSick(virus), getNumDeaths(virus), getNumVaccinated(virus),
+                    transmissionRate, mortalityRate);
+        }
+        if (lockdownSteps != 0) {
+            lockdownSteps -= 1;
+            if (lockdownSteps == 0 && mobilityGraph != null)
+                mobilityGraph.setAllFlows(Collections.singletonList(this), true);
+        }
+        simulationStep++;
+    }
+
+    /**
+     * @param   virus   The virus whose region states are wanted.
+     *
+     * @return  The region states of the virus, created with room for the
+     *          reserved steps if the virus had none yet.
+     */
+    private RegionStates getRegionStates(Virus virus) {
+        RegionStates virusStates = states.get(virus);
+        if (virusStates == null) {
+            virusStates = new RegionStates(simulationStep, reservedSteps - simulationStep);
+            virusStates.retain(retainedSteps);
+            states.put(virus, virusStates);
+        }
+        return virusStates;
+    }
+
+    /**
+     * @brief   Makes room for the region states of a number of steps.
+     *
+     * @details Recording the state of a step then writes into buffers that are
+     *          already allocated, so a long simulation does not create any
+     *          object at each step. Since the states are compressed, the room
+     *          for them is estimated from the first ones (see RegionStates).
+     *
+     * @param   steps   Number of steps that will be simulated.
+     *
+     * @pre     steps is not negative.
+     * @post    The region states of each virus, including the ones recorded
+     *          for the first time later, have room for steps more steps.
+     */
+    public void reserveSteps(int steps) {
+        reservedSteps = simulationStep + steps;
+        for (RegionStates virusStates : states.values())
+            virusStates.reserve(reservedSteps - virusStates.firstStep);
+    }
+
+    /**
+     * @brief   Limits the number of steps whose region states are kept whole.
+     *
+     * @details The states of older steps are replaced by the minimum, mean and
+     *          maximum of each value over windows of steps, which get wider as
+     *          they get older, so the memory of the region states no longer
+     *          grows with the steps. The totals of the region do not depend on
+     *          the kept states.
+     *
+     * @param   steps   Number of last steps kept, or 0 to keep them all.
+     *
+     * @throws  IllegalArgumentException    if steps is negative.
+     *
+     * @pre     --
+     * @post    The region states of each virus, including the ones recorded
+     *          for the first time later, keep at least the last steps.
+     */
+    public void retainSteps(int steps) {
+        if (steps < 0)
+            throw new IllegalArgumentException("The number of steps cannot be negative.");
+        retainedSteps = steps;
+        for (RegionStates virusStates : states.values())
+            virusStates.retain(steps);
+    }
+
+    /**
+     * @brief   Brings a region that has not been simulated yet to the current
+     *          step of the simulation.
+     *
+     * @details A region without viruses is not updated, so it stays at step 0
+     *          with its initial inhabitants until a virus reaches it. The
+     *          inhabitants of an updated region alternate between the initial
+     *          ones plus the visitors, after an even step, and the initial
+     *          ones, after an odd step. A region joining at an odd step gets
+     *          the visitors of the even step first, so that it follows the
+     *          same alternation.
+     *
+     * @param   step                The current step of the simulation.
+     * @param   externalPopulation  The number of inhabitants arriving in the
+     *                              region in a unit of time.
+     *
+     * @pre     The region has never been updated.
+     * @post    The next update records the states of step.
+     */
+    public void joinAt(int step, int externalPopulation) {
+        if (simulationStep != 0 || step == 0)
+            return;
+        simulationStep = step;
+        if (step % 2 != 0) {
+            visitors = externalPopulation;
+            inhabitants += visitors;
+        }
+    }
+
+    /**
+     * @brief   Counts the steps during which the region can be advanced with
+     *          skipStep() instead of updateRegion().
+     *
+     * @details When no virus has infected, latents, contagious or sick
+     *          inhabitants, nobody can be infected and the region only changes
+     *          through countdowns: the immunity of the immune, the activation
+     *          and duration of the vaccines and the duration of the lockdown.
+     *          The countdowns are deterministic, so the steps up to the next
+     *          one that expires can be skipped and applied at once later.
+     *
+     * @return  0 if someone can be infected or a countdown expires at the next
+     *          step, the number of steps until the next countdown expires
+     *          otherwise, or Integer.MAX_VALUE if nothing can change anymore.
+     *          Always 0 for a region simulated agent by agent, whose timers
+     *          are not skipped.
+     */
+    public int getQuietSteps() {
+        if (agentBased)
+            return 0;
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            if (getNumInfected(virus) != 0 || getNumLatents(virus) != 0 ||
+                    getNumContagious(virus) != 0 || getNumSick(virus) != 0)
+                return 0;
+        }
+        int quietSteps = Integer.MAX_VALUE;
+        for (int v = 0; v < viruses.size(); v++)
+            quietSteps = Math.min(quietSteps,
+                    virusStatistics.get(viruses.get(v)).getImmune().minTime());
+        for (int i = 0; i < vaccinated.size(); i++) {
+            Doses doses = vaccinated.get(i);
+            if (doses.activation != 0)
+                quietSteps = Math.min(quietSteps, doses.activation - 1);
+            else
+                quietSteps = Math.min(quietSteps, doses.duration);
+        }
+        if (lockdownSteps != 0)
+            quietSteps = Math.min(quietSteps, lockdownSteps - 1);
+        return quietSteps;
+    }
+
+    /**
+     * @brief   Advances a quiet region by one step.
+     *
+     * @details Only the people arriving from the neighboring regions change,
+     *          so the region state of each virus is recorded without running
+     *          the updates of updateRegion(). The countdowns of the skipped
+     *          steps are applied all at once by the next update or
+     *          intervention.
+     *
+     * @param   externalPopulation  The number of inhabitants arriving in the
+     *                              region in a unit of time.
+     *
+     * @pre     The steps skipped since the last update are fewer than
+     *          getQuietSteps() returned after it.
+     * @post    The inhabitants have been updated, a region state has been
+     *          created for each present virus, and the simulation step has
+     *          been incremented by one unit.
+     */
+    public void skipStep(int externalPopulation) {
+        moveVisitors(externalPopulation);
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            virusStatistics.get(virus).setDeaths(0);
+            double transmissionRate = calculateTransmissionRate(virus);
+            getRegionStates(virus).add(simulationStep, inhabitants,
+                    0, 0, getNumImmune(virus), 0, 0, getNumVaccinated(virus),
+                    transmissionRate, 0.00);
+        }
+        skippedSteps++;
+        simulationStep++;
+    }
+
+    /**
+     * @brief   Applies the countdowns of the steps skipped with skipStep().
+     *
+     * @details The groups with no inhabitants left are removed instead, as
+     *          they no longer change any count.
+     *
+     * @pre     --
+     * @post    The immunity, vaccine and lockdown countdowns are as if every
+     *          skipped step had been fully updated.
+     */
+    private void applySkippedSteps() {
+        if (skippedSteps == 0)
+            return;
+        for (int v = 0; v < viruses.size(); v++) {
+            Statistics statistics = virusStatistics.get(viruses.get(v));
+            statistics.getInfected().skip(skippedSteps);
+            statistics.getLatents().skip(skippedSteps);
+            statistics.getContagious().skip(skippedSteps);
+            statistics.getSick().skip(skippedSteps);
+            statistics.getImmune().skip(skippedSteps);
+        }
+        for (int i = 0; i < vaccinated.size(); i++) {
+            Doses doses = vaccinated.get(i);
+            if (doses.activation != 0)
+                doses.activation = Math.max(1, doses.activation - skippedSteps);
+            else
+                doses.duration = Math.max(0, doses.duration - skippedSteps);
+        }
+        if (lockdownSteps != 0)
+            lockdownSteps = Math.max(1, lockdownSteps - skippedSteps);
+        skippedSteps = 0;
+    }
+
+    /**
+     * @brief   Updates the inhabitants in latent state for each virus.
+     *
+     * @details For each virus, decreases the latency time of each latent by 1
+     *          unit. If a group of latents has reached the end of their latency
+     *          period, it is removed from the map of latents and passes to the
+     *          group of contagious.
+     *
+     * @pre     --
+     * @post    The map of latents and the map of contagious for each virus have
+     *          been updated.
+     */
+    private void updateLatents() {
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            int numToContagion = virusStatistics.get(virus).getLatents().countDown();
+            contagion(virus, numToContagion);
+        }
+    }
+
+    /**
+     * @brief   Advances the agents of each virus by one unit of time.
+     *
+     * @details The probability of infection of the susceptible agents is
+     *          computed as in the compartment model, from the infected of the
+     *          region and the contagious arriving from the neighboring
+     *          regions.
+     *
+     * @pre     The region is agent based.
+     * @post    The agents of each virus have been stepped, and the totals,
+     *          deaths and inhabitants of the region updated with their
+     *          changes.
+     */
+    private void updateAgents() {
+        double mobility = getMobility();
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            Statistics statistics = virusStatistics.get(virus);
+            AgentPopulation agents = statistics.getAgents();
+            double infectionProbability = InfectionKernel.coincidenceProbability(
+                    fractionOfInhabitants(agents.getNumInfected() + statistics.getImported()),
+                    virus.getContagionRate(), mobility);
+            agents.step(virus, infectionProbability, simulationStep);
+            statistics.increaseInfected(agents.getNewInfected());
+            statistics.increaseContagious(agents.getNewContagious());
+            statistics.increaseSick(agents.getNewSick());
+            statistics.setCured(statistics.getCured() + agents.getNewCured());
+            int deaths = capDeaths(agents.getNewDead());
+            statistics.setDeaths(deaths);
+            removeDead(deaths);
+            statistics.clearImported();
+        }
+    }
+
+    /**
+     * @brief   Updates the inhabitants contagious for each virus.
+     *
+     * @details For each virus, decreases the contagion time of each group of
+     *          contagious by one unit, removing it if the duration has been
+     *          surpassed, or updating the remaining duration if it has not yet
+     *          ended. Also calls the infection method to update the state of
+     *          infected people based on the virus and its transmission rate in
+     *          the region.
+     *
+     * @pre     --
+     * @post    The map of contagious has been updated as described. Additionally,
+     *          the infection method has been called for each virus.
      */
     private void updateContagious(List<Virus> mutations) {
-        for (Virus virus : virusStatistics.keySet()) {
-            infectByProbability(virus, mutations);
-            List<Pair<Integer, Integer>> contagiousVirus =
-                    virusStatistics.get(virus).getContagious();
-            Iterator<Pair<Integer, Integer>> itr = contagiousVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Integer> pair = itr.next();
-                if (pair.second != 0)
-                    pair.second -= 1;
-                else
-                    itr.remove();
-            }
+        // The mutations that appear during the loop are not updated until the
+        // next step
+        int numViruses = viruses.size();
+        batch.reserve(numViruses);
+        double mobility = getMobility();
+        for (int v = 0; v < numViruses; v++) {
+            Virus virus = viruses.get(v);
+            int infected = getNumInfected(virus);
+            batch.infected[v] = infected;
+            batch.susceptible[v] = inhabitants - infected - getNumImmune(virus);
+            Statistics statistics = virusStatistics.get(virus);
+            batch.infectedFraction[v] = fractionOfInhabitants(infected +
+                    statistics.getImported());
+            batch.contagionRate[v] = statistics.getContagionRate(virus);
+            batch.mobility[v] = mobility;
+        }
+        InfectionKernel.newInfections(batch.susceptible, batch.infectedFraction,
+                batch.contagionRate, batch.mobility, batch.numToInfect, numViruses);
+        for (int v = 0; v < numViruses; v++) {
+            Virus virus = viruses.get(v);
+            infectByProbability(virus, batch.infected[v], batch.numToInfect[v], mutations);
+            virusStatistics.get(virus).getContagious().countDown();
+            virusStatistics.get(virus).clearImported();
         }
     }
 
+    /**
+     * @return  The number of contacts of each inhabitant in a unit of time:
+     *          the reduced mobility during a lockdown, or the internal
+     *          mobility otherwise.
+     */
+    private double getMobility() {
+        return lockdownSteps != 0 ? reducedMobility : internalMobility;
+    }
+
     /**
      * @brief   Updates the inhabitants infected for each virus.
      *
@@ -738,21 +1737,14 @@ public class Region {
      *          number of infected inhabitants have been made sick or immunized.
      */
     private void updateInfected() {
-        for (Virus virus : virusStatistics.keySet()) {
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
             makeSickByProbability(virus);
-            List<Pair<Integer, Integer>> infectedVirus =
-                    virusStatistics.get(virus).getInfected();
-            Iterator<Pair<Integer, Integer>> itr = infectedVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Integer> pair = itr.next();
-                if (pair.second != 0)
-                    pair.second -= 1;
-                else {
-                    immunize(virus, pair.first);
-                    virusStatistics.get(virus).setCured(getTotalNumCured(virus) + pair.first);
-                    itr.remove();
-                }
-            }
+            Statistics statistics = virusStatistics.get(virus);
+            int numToImmunize = statistics.getInfected().countDown();
+            immunize(virus, numToImmunize, leaveStage(statistics.getStrata(),
+                    AgeStructure.INFECTED, numToImmunize));
+            virusStatistics.get(virus).setCured(getTotalNumCured(virus) + numToImmunize);
         }
     }
 
@@ -772,33 +1764,71 @@ public class Region {
      *          inhabitants in the region has been updated.
      */
     private void updateSick() {
-        for (Virus virus : virusStatistics.keySet()) {
-            List<Pair<Integer, Integer>> sickVirus =
-                    virusStatistics.get(virus).getSick();
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            Statistics statistics = virusStatistics.get(virus);
+            Cohorts sickVirus = statistics.getSick();
             int numDeathsVirus = 0;
-            for (int i = 0; i < sickVirus.size(); i++) {
-                Pair<Integer, Integer> pair = sickVirus.get(i);
-                int deathProbability = (int) (virus.getMortalityRate() * pair.first);
-                numDeathsVirus += deathProbability;
-                inhabitants -= deathProbability;
-                pair.first -= deathProbability;
-                sickVirus.set(i, pair);
-            }
-            virusStatistics.get(virus).setDeaths(numDeathsVirus);
-            Iterator<Pair<Integer, Integer>> itr = sickVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Integer> pair = itr.next();
-                if (pair.second != 0)
-                    pair.second -= 1;
-                else {
-                    immunize(virus, pair.first);
-                    virusStatistics.get(virus).setCured(getTotalNumCured(virus) + pair.first);
-                    itr.remove();
+            if (statistics.getStrata() != null)
+                numDeathsVirus = killByStratum(virus);
+            else {
+                for (int i = 0; i < sickVirus.size(); i++) {
+                    int deathProbability = capDeaths((int) (statistics.getMortalityRate(virus) *
+                            sickVirus.getCount(i)));
+                    numDeathsVirus += deathProbability;
+                    removeDead(deathProbability);
+                    sickVirus.setCount(i, sickVirus.getCount(i) - deathProbability);
                 }
             }
+            virusStatistics.get(virus).setDeaths(numDeathsVirus);
+            int numToImmunize = sickVirus.countDown();
+            immunize(virus, numToImmunize, leaveStage(statistics.getStrata(),
+                    AgeStructure.SICK, numToImmunize));
+            virusStatistics.get(virus).setCured(getTotalNumCured(virus) + numToImmunize);
         }
     }
 
+    /**
+     * @brief   Kills sick inhabitants of a virus in each age stratum according
+     *          to the mortality rate of the virus and the mortality factor of
+     *          the stratum.
+     *
+     * @param   virus   The virus of the sick.
+     *
+     * @return  The number of deaths, which is never higher than the
+     *          inhabitants of the region.
+     *
+     * @pre     The region has age strata.
+     * @post    The sick, deaths and inhabitants of each stratum and of the
+     *          region have been updated.
+     */
+    private int killByStratum(Virus virus) {
+        Statistics statistics = virusStatistics.get(virus);
+        int[] strata = statistics.getStrata();
+        int k = ageStructure.getNumStrata();
+        StrataBatch b = strataBatch;
+        int deaths = 0;
+        for (int a = 0; a < k; a++) {
+            int sick = Math.max(0, strata[a * AgeStructure.NUM_STAGES + AgeStructure.SICK]);
+            b.counts[a] = Math.min(sick, (int) (statistics.getMortalityRate(virus) *
+                    ageStructure.getMortalityFactor(a) * sick));
+            deaths += b.counts[a];
+        }
+        deaths = removeByStratum(statistics.getSick(), capDeaths(deaths), b.counts);
+        // The visitors die in the same proportion as the inhabitants, but
+        // only the deaths of the residents change the strata of the region
+        long residents = Math.max(0, inhabitants - visitors);
+        for (int a = 0; a < k; a++) {
+            strata[a * AgeStructure.NUM_STAGES + AgeStructure.SICK] -= b.counts[a];
+            strata[a * AgeStructure.NUM_STAGES + AgeStructure.DEAD] += b.counts[a];
+            int residentDeaths = inhabitants <= 0 ? 0 :
+                    (int) (b.counts[a] * residents / inhabitants);
+            stratumPopulation[a] = Math.max(0, stratumPopulation[a] - residentDeaths);
+        }
+        removeDead(deaths);
+        return deaths;
+    }
+
     /**
      * @brief   Updates the inhabitants immunized by the virus.
      *
@@ -810,17 +1840,10 @@ public class Region {
      * @post    The map of immune for each virus has been updated.
      */
     private void updateImmune() {
-        for (Virus virus : virusStatistics.keySet()) {
-            List<Pair<Integer, Integer>> immuneVirus =
-                    virusStatistics.get(virus).getImmune();
-            Iterator<Pair<Integer, Integer>> itr = immuneVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Integer> pair = itr.next();
-                if (pair.second != 0)
-                    pair.second -= 1;
-                else
-                    itr.remove();
-            }
+        for (int v = 0; v < viruses.size(); v++) {
+            Statistics statistics = virusStatistics.get(viruses.get(v));
+            leaveStage(statistics.getStrata(), AgeStructure.IMMUNE,
+                    statistics.getImmune().countDown());
         }
     }
 
@@ -843,120 +1866,133 @@ public class Region {
      *          appropriate.
      */
     private void updateVaccinated() {
-        for (Vaccine vaccine : vaccinated.keySet()) {
-            List<Pair<Integer, Pair<Integer, Integer>>> vaccinatedVirus = vaccinated.get(vaccine);
-            Iterator<Pair<Integer, Pair<Integer, Integer>>> itr = vaccinatedVirus.iterator();
-            while (itr.hasNext()) {
-                Pair<Integer, Pair<Integer, Integer>> pair = itr.next();
-                if (pair.second.first != 0) {
-                    pair.second.first -= 1;
-                    if (pair.second.first == 0)
-                        applyVaccineEffects(vaccine);
-                } else {
-                    if (pair.second.second != 0)
-                        pair.second.second -= 1;
-                    else {
-                        itr.remove();
-                        removeVaccineEffects(vaccine);
-                    }
-                }
+        int i = 0;
+        while (i < vaccinated.size()) {
+            Doses doses = vaccinated.get(i);
+            if (doses.activation != 0) {
+                doses.activation -= 1;
+                if (doses.activation == 0)
+                    applyVaccineEffects(doses.vaccine);
+            } else if (doses.duration != 0)
+                doses.duration -= 1;
+            else {
+                vaccinated.remove(i);
+                dosesByTarget.get(doses.vaccine.getTargetVirus()).remove(doses);
+                removeVaccineEffects(doses.vaccine);
+                continue;
             }
+            i++;
         }
     }
 
     /**
-     * @brief   Applies the effects of a vaccine.
+     * @brief   Starts the effects of a vaccine whose doses have just been
+     *          activated.
      *
      * @details The effects are applied to the virus the vaccine is targeted at
-     *          and its mutations.
+     *          and its mutations, when their parameters are read. Only when
+     *          the first doses of the vaccine in effect are activated do the
+     *          parameters of those viruses change.
      *
      * @param   vaccine  The vaccine to apply to the viruses.
      *
-     * @pre     --
-     * @post    The effects of the vaccine have been applied to the corresponding
-     *          viruses and the map of statistics has been updated, as well as
-     *          the list of virus copies.
+     * @pre     Doses of the vaccine have been applied to the region.
+     * @post    The effects of the vaccine are in effect on the corresponding
+     *          viruses.
      */
     private void applyVaccineEffects(Vaccine vaccine) {
-        for (Virus virus : virusStatistics.keySet())
-            if (virus.getName().startsWith(vaccine.getTargetVirus().getName())) {
-                Virus vaccinatedVirus;
-                if (virus instanceof VirusDNA)
-                    vaccinatedVirus = new VirusDNA(virus.getName(), virus.getFamily(),
-                            virus.getDiseaseProbability() *
-                                    (100 - vaccine.getDiseaseProbabilityReduction()) / 100,
-                            virus.getIncubationTime(), virus.getLatencyTime(),
-                            virus.getDiseaseDuration() *
-                                    (100 - vaccine.getDiseaseDurationReduction()) / 100,
-                            virus.getInfectionDuration(), virus.getImmunityDuration(),
-                            virus.getMortalityRate() *
-                                    (100 - vaccine.getMortalityRateReduction()) / 100,
-                            virus.getContagionRate() *
-                                    (100 - vaccine.getContagionRateReduction()) / 100);
-                else
-                    vaccinatedVirus = new VirusRNA(virus.getName(), virus.getFamily(),
-                            virus.getDiseaseProbability() *
-                                    (100 - vaccine.getDiseaseProbabilityReduction()) / 100,
-                            virus.getIncubationTime(), virus.getLatencyTime(),
-                            virus.getDiseaseDuration() *
-                                    (100 - vaccine.getDiseaseDurationReduction()) / 100,
-                            virus.getInfectionDuration(), virus.getImmunityDuration(),
-                            virus.getMortalityRate() *
-                                    (100 - vaccine.getMortalityRateReduction()) / 100,
-                            virus.getContagionRate() *
-                                    (100 - vaccine.getContagionRateReduction()) / 100,
-                            ((VirusRNA) virus).getMutationProbabilityCopyError(),
-                            ((VirusRNA) virus).getMutationProbabilityCoincidence());
-                Statistics originalStatistics = virusStatistics.get(virus);
-                virusCopies.add(virus);
-                virusStatistics.remove(virus);
-                virusStatistics.put(vaccinatedVirus, originalStatistics);
-            }
+        TargetDoses target = dosesByTarget.get(vaccine.getTargetVirus());
+        if (target.startEffects(vaccine))
+            for (int v = target.covered.nextSetBit(0); v >= 0; v = target.covered.nextSetBit(v + 1))
+                updateVaccineEffects(v);
     }
 
     /**
-     * @brief   Removes the effects of a previously applied vaccine for a series
-     *          of specific viruses.
+     * @brief   Ends the effects of a vaccine whose doses have just expired.
+     *
+     * @details The effects of an inhibiting vaccine are never removed. Only
+     *          when the last doses of the vaccine in effect expire do the
+     *          parameters of the viruses change.
      *
      * @param   vaccine  The vaccine for which the effects are being removed.
      *
-     * @pre     The vaccine must be of type "attenuating".
-     * @post    The viruses affected by the vaccine return to their original
-     *          attributes and have been removed from the list of virus copies.
+     * @pre     The effects of the doses have been started.
+     * @post    If no doses of an attenuating vaccine are left in effect, its
+     *          effects on the viruses have ended.
      */
     private void removeVaccineEffects(Vaccine vaccine) {
         if (!vaccine.getType().equals("attenuating"))
             return;
-        for (Virus virus : virusCopies) {
-            if (virus.getName().startsWith(vaccine.getTargetVirus().getName())) {
-                Statistics statistics = virusStatistics.get(virus);
-                virusStatistics.remove(virus);
-                virusStatistics.put(virus, statistics);
-                virusCopies.remove(virus);
+        TargetDoses target = dosesByTarget.get(vaccine.getTargetVirus());
+        if (target.endEffects(vaccine))
+            for (int v = target.covered.nextSetBit(0); v >= 0; v = target.covered.nextSetBit(v + 1))
+                updateVaccineEffects(v);
+    }
+
+    /**
+     * @brief   Computes the parameters of a virus of the region with the
+     *          effects of every vaccine in effect that covers it.
+     *
+     * @details Each vaccine reduces the parameters left by the previous ones
+     *          by its percentages.
+     *
+     * @param   v   Index of the virus in the list of viruses.
+     *
+     * @pre     --
+     * @post    The statistics of the virus give its parameters with the
+     *          effects of the vaccines, or those of the virus if there are
+     *          none.
+     */
+    private void updateVaccineEffects(int v) {
+        Virus virus = viruses.get(v);
+        double diseaseProbability = virus.getDiseaseProbability();
+        int diseaseDuration = virus.getDiseaseDuration();
+        double mortalityRate = virus.getMortalityRate();
+        double contagionRate = virus.getContagionRate();
+        boolean attenuated = false;
+        for (TargetDoses target : dosesByTarget.values()) {
+            if (target.inEffect.isEmpty() || !target.covered.get(v))
+                continue;
+            for (Vaccine vaccine : target.inEffect.keySet()) {
+                diseaseProbability = diseaseProbability *
+                        (100 - vaccine.getDiseaseProbabilityReduction()) / 100;
+                diseaseDuration = diseaseDuration *
+                        (100 - vaccine.getDiseaseDurationReduction()) / 100;
+                mortalityRate = mortalityRate *
+                        (100 - vaccine.getMortalityRateReduction()) / 100;
+                contagionRate = contagionRate *
+                        (100 - vaccine.getContagionRateReduction()) / 100;
+                attenuated = true;
             }
         }
+        Statistics statistics = virusStatistics.get(virus);
+        if (attenuated)
+            statistics.setVaccineEffects(diseaseProbability, diseaseDuration,
+                    mortalityRate, contagionRate);
+        else
+            statistics.clearVaccineEffects();
     }
 
     /**
      * @brief   Applies a closure between the current region and a specific number
      *          of regions.
      *
-     * @details This method applies a closure between the current region and a set
-     *          of neighboring regions, passed as a parameter. If a hard lockdown
-     *          is being applied, the list of regions may include all neighboring
-     *          regions. To avoid infinite recursion, a list of visited regions is
-     *          maintained.
+     * @details The flow of people between the current region and each of the
+     *          given neighboring regions is closed in both directions. The
+     *          closures are recorded in the mobility graph, so no other region
+     *          has to be visited. The visitors who came through the closed
+     *          flows go back home, in both directions, while the ones from the
+     *          neighbors still open stay until the next odd step.
      *
      * @param   regions the list of regions for which the closure will be applied.
      *
-     * @throws  IllegalArgumentException    if the list of regions is empty.
+     * @throws  IllegalArgumentException    if the list of regions is null.
+     * @throws  IllegalStateException       if the region is not part of a
+     *                                      mobility graph.
      *
-     * @pre     The list of regions passed as a parameter is not empty.
-     * @post    The closure between the current region and the neighboring regions
-     *          passed as a parameter has been applied. If a hard lockdown is
-     *          being applied, the closure between the current region and all
-     *          neighboring regions has been applied. The map of closures for all
-     *          affected regions has been updated.
+     * @pre     The list of regions passed as a parameter is not null.
+     * @post    The closure between the current region and the neighboring
+     *          regions passed as a parameter has been applied.
      */
     public void applyClosure(List<Region> regions) {
         if (regions == null)
@@ -964,39 +2000,26 @@ public class Region {
                     "null");
         if (regions.isEmpty())
             return;
-        if (simulationStep % 2 == 0)
-            inhabitants -= externalPopulation();
-        Set<Region> visited = new HashSet<>();
-        for (Region region : regions)
-            if (isNeighboringWith(region) && !region.equals(this)) {
-                regionClosures.put(region, true);
-                if (!visited.contains(region)) {
-                    visited.add(region);
-                    List<Region> regionsToVisit = new ArrayList<>(regions);
-                    regionsToVisit.remove(this);
-                    region.applyClosure(regionsToVisit);
-                }
-            }
+        checkMobilityGraph();
+        sendVisitorsHomeAcross(regions);
+        mobilityGraph.setFlows(this, regions, false);
     }
 
     /**
      * @brief   Relaxes (stops applying) the closure to a number of specified
      *          regions.
      *
-     * @details This method relaxes the closure in the regions passed as a
-     *          parameter, setting the corresponding value in the map of closures
-     *          to false. It also propagates this closure change to all
-     *          neighboring regions, recursively applying the relaxClosure method.
-     *          A list of visited regions is used to avoid infinite recursion.
+     * @details The flow of people between the current region and each of the
+     *          given neighboring regions is opened in both directions.
      *
      * @param   regions the list of regions for which to relax the closure.
      *
-     * @throws  IllegalArgumentException    if the list of regions is empty.
+     * @throws  IllegalArgumentException    if the list of regions is null.
+     * @throws  IllegalStateException       if the region is not part of a
+     *                                      mobility graph.
      *
      * @pre     The parameter regions is not null.
-     * @post    The closure in the specified regions has been relaxed and this
-     *          closure change has been propagated to all neighboring regions.
-     *          Consequently, the map of closures has been updated.
+     * @post    The closure with the specified regions has been relaxed.
      */
     public void relaxClosure(List<Region> regions) {
         if (regions == null)
@@ -1004,52 +2027,65 @@ public class Region {
                     "null");
         if (regions.isEmpty())
             return;
-        Set<Region> visited = new HashSet<>();
-        for (Region region : regions)
-            if (isNeighboringWith(region) && !region.equals(this)) {
-                regionClosures.put(region, false);
-                if (!visited.contains(region)) {
-                    visited.add(region);
-                    List<Region> regionsToVisit = new ArrayList<>(regions);
-                    regionsToVisit.remove(this);
-                    region.applyClosure(regionsToVisit);
-                }
-            }
+        checkMobilityGraph();
+        mobilityGraph.setFlows(this, regions, true);
+    }
+
+    /**
+     * @throws  IllegalStateException   if the region is not part of a mobility
+     *                                  graph.
+     */
+    private void checkMobilityGraph() {
+        if (mobilityGraph == null)
+            throw new IllegalStateException("The region " + name + " is not " +
+                    "part of a mobility graph.");
     }
 
     /**
      * @brief   Applies a hard lockdown to the region.
      *
-     * @details Modifies the reduced internal mobility and applies a closure with
-     *          all neighboring regions.
+     * @details Modifies the reduced internal mobility and closes the flow of
+     *          people with all neighboring regions, sending back home the
+     *          visitors of the region and the visitors from the region.
      *
      * @param   confinement object containing the mobility reduction to apply
      *                      and the time to apply it.
      *
+     * @throws  IllegalStateException   if the region is not part of a mobility
+     *                                  graph.
+     *
      * @pre     --
      * @post    The reduced internal mobility of the region has been modified
-     *          and a closure has been applied to the region and all neighboring
-     *          regions in relation to this.
+     *          and all the flows of people from and to the region are closed.
      */
     public void applyHardLockdown(Confinement confinement) {
-        reducedMobility = new Pair<>(confinement.getMobilityReduction(),
-                confinement.getDuration());
-        applyClosure(new ArrayList<>(neighboringRegions.keySet()));
+        checkMobilityGraph();
+        applySkippedSteps();
+        reducedMobility = confinement.getMobilityReduction();
+        lockdownSteps = confinement.getDuration();
+        sendVisitorsHomeAcross(neighboringRegions.keySet());
+        mobilityGraph.setAllFlows(Collections.singletonList(this), false);
     }
 
     /**
      * @brief   Relaxes (stops applying) the lockdown in a region.
      *
-     * @details Modifies the reduced internal mobility and relaxes the
-     *          closure (if it exists) with all neighboring regions.
+     * @details Modifies the reduced internal mobility and opens the flow of
+     *          people with all neighboring regions.
+     *
+     * @throws  IllegalStateException   if the region is not part of a mobility
+     *                                  graph.
      *
      * @pre     --
-     * @post    The reduced internal mobility of the region is equal to 0 and the
-     *          closure (if applied) has been relaxed in all neighboring regions.
+     * @post    The reduced internal mobility of the region is equal to 0 and all
+     *          the flows of people from and to the region are open.
      */
     public void relaxLockdown() {
-        reducedMobility = new Pair<>(0, 0);
-        relaxClosure(new ArrayList<>(neighboringRegions.keySet()));
+        checkMobilityGraph();
+        applySkippedSteps();
+        reducedMobility = 0;
+        lockdownSteps = 0;
+        mobilityGraph.setAllFlows(Collections.singletonList(this), true);
     }
 
     /**
@@ -1059,26 +2095,21 @@ public class Region {
      *
      * @throws  IllegalArgumentException    if the virus is not present in the
      *                                      region.
-     * @throws  IndexOutOfBoundsException   if the value of simulationStep is
-     *                                      greater than the number of saved
-     *                                      states.
+     * @throws  IndexOutOfBoundsException   if no state of the virus was saved
+     *                                      at the step before simulationStep.
      *
      * @return  a string with the state of the region for a given virus at a
-     *          specific simulation step.
+     *          specific simulation step, or with the minimum, mean and maximum
+     *          of each value around that step if the state is no longer kept
+     *          (see retainSteps()).
      */
     public String regionState(Virus virus, int simulationStep) {
-        if (!states.containsKey(virus))
-            throw new IllegalArgumentException("There is no state of the region " +
-                    "for this virus.");
-        List<RegionState> virusStates = states.get(virus);
-        if (simulationStep < 0 || simulationStep > virusStates.size())
-            throw new IndexOutOfBoundsException("Invalid simulation step.");
+        String state = describeState(virus, simulationStep);
         StringBuilder sb = new StringBuilder();
         sb.append("******************************************************\n");
         sb.append("REGION ").append(name.toUpperCase()).append(" SITUATION FOR THE VIRUS ")
                 .append(virus.getName().toUpperCase()).append(" AT SIMULATION STEP ").append(simulationStep - 1)
                 .append("\n");
-        RegionState state = virusStates.get(simulationStep - 1);
         sb.append(state);
         return sb.toString();
     }
@@ -1090,20 +2121,72 @@ public class Region {
      *
      * @throws  IllegalArgumentException    if the virus is not present in the
      *                                      region.
-     * @throws  IndexOutOfBoundsException   if the value of simulationStep is
-     *                                      greater than the number of saved
-     *                                      states.
+     * @throws  IndexOutOfBoundsException   if no state of the virus was saved
+     *                                      at the step before simulationStep.
      *
-     * @return  the state of the region for the given virus and simulation step.
+     * @return  the state of the region for the given virus and simulation step,
+     *          or the summary of the steps around it if it is no longer kept,
+     *          to be shown.
      */
-    private RegionState getRegionState(Virus virus, int simulationStep) {
+    private String describeState(Virus virus, int simulationStep) {
         if (!states.containsKey(virus))
             throw new IllegalArgumentException("There is no state of the region " +
                     "for this virus.");
-        List<RegionState> virusStates = states.get(virus);
-        if (simulationStep < 0 || simulationStep > virusStates.size())
+        RegionStates virusStates = states.get(virus);
+        checkStep(virusStates, simulationStep);
+        int i = simulationStep - 1 - virusStates.firstStep;
+        if (!virusStates.isKept(i))
+            return virusStates.summary(i);
+        return virusStates.get(i).toString();
+    }
+
+    /**
+     * @brief   Copies the state of the region for a virus at a step into
+     *          arrays, without creating any object.
+     *
+     * @details The integers are, in this order, the simulation step, the
+     *          inhabitants and the infected, contagious, sick, immune, dead and
+     *          vaccinated inhabitants. The doubles are the transmission and
+     *          mortality rates.
+     *
+     * @param   virus           The virus for which to get the state.
+     * @param   simulationStep  The simulation step, as in regionState().
+     * @param   ints            Array where the integers are written.
+     * @param   intOffset       Position of the first integer.
+     * @param   doubles         Array where the doubles are written.
+     * @param   doubleOffset    Position of the first double.
+     *
+     * @return  False if no state of the virus was saved at the step before
+     *          simulationStep, or if it is no longer kept (see retainSteps()),
+     *          in which case nothing is written.
+     *
+     * @pre     ints has STATE_INTS elements from intOffset and doubles has
+     *          STATE_DOUBLES elements from doubleOffset.
+     * @post    The arrays hold the state if there is one.
+     */
+    boolean copyState(Virus virus, int simulationStep, int[] ints, int intOffset,
+                      double[] doubles, int doubleOffset) {
+        RegionStates virusStates = states.get(virus);
+        if (virusStates == null)
+            return false;
+        int i = simulationStep - 1 - virusStates.firstStep;
+        if (!virusStates.isKept(i))
+            return false;
+        virusStates.decode(i, ints, intOffset, doubles, doubleOffset);
+        return true;
+    }
+
+    /**
+     * @param   virusStates     The region states of a virus.
+     * @param   simulationStep  The simulation step to check.
+     *
+     * @throws  IndexOutOfBoundsException   if no state of the virus was saved
+     *                                      at the step before simulationStep.
+     */
+    private static void checkStep(RegionStates virusStates, int simulationStep) {
+        int i = simulationStep - 1 - virusStates.firstStep;
+        if (i < 0 || i >= virusStates.size)
             throw new IndexOutOfBoundsException("Invalid simulation step.");
-        return virusStates.get(simulationStep - 1);
     }
 
     /**
@@ -1113,7 +2196,9 @@ public class Region {
      * @throws  IllegalArgumentException    if there is no state for this specific
      *                                      virus.
      *
-     * @return  a string with the totals of the region for a given virus.
+     * @return  a string with the totals of the region for a given virus,
+     *          followed by the deaths of each age stratum if the region has
+     *          strata.
      */
     public String getRegionTotals(Virus virus) {
         if (!states.containsKey(virus))
@@ -1129,6 +2214,13 @@ public class Region {
                 getTotalNumDeaths(virus), getTotalNumVaccinated(virus),
                 calculateTransmissionRate(virus), calculateMortalityRate(virus));
         sb.append(state);
+        if (ageStructure != null) {
+            String format = "* %-28s %21s *\n";
+            for (int a = 0; a < ageStructure.getNumStrata(); a++)
+                sb.append(String.format(format, "Deaths of " + ageStructure.getName(a),
+                        getTotalDeaths(virus, a)));
+            sb.append("******************************************************\n");
+        }
         return sb.toString();
     }
 
@@ -1215,4 +2307,658 @@ public class Region {
                     separator + "\n";
         }
     }
+
+    /**
+     * @brief   Region states of a virus at each step of the simulation,
+     *          compressed so that long histories of many regions fit in memory.
+     *
+     * @details The states are stored in blocks of BLOCK_STEPS steps. In each
+     *          block, every number is written as its difference with the same
+     *          number at the previous state of the block, zig-zag encoded as a
+     *          varint, so the numbers that barely change take a single byte.
+     *          The rates are rounded to hundredths, so they are encoded as the
+     *          difference of their hundredths, or as their raw bits if they
+     *          are infinite or not a number. The first state of a block is
+     *          written as differences with 0, so a state is decoded from the
+     *          offset of its block without reading the previous blocks.
+     *
+     *          Recording a step writes into a buffer that already has room for
+     *          it, so it does not create any object unless the buffer is full.
+     *          The room reserved for the steps to come is estimated from the
+     *          size of the first block.
+     *
+     *          If the retention is limited, only the blocks holding the last
+     *          retained steps are kept. Each older block is replaced by the
+     *          minimum, maximum and sum of each number over its states, in a
+     *          fixed number of windows: when they are all used, each pair of
+     *          consecutive windows is merged, so the oldest steps are
+     *          summarized with less and less detail, as in a round-robin
+     *          database, and the memory does not grow with the steps.
+     */
+    private static class RegionStates {
+        /** @brief  Number of states of each block. */
+        private static final int BLOCK_STEPS = 64;
+        /** @brief  Number of states with room in the initial buffer. */
+        private static final int INITIAL_CAPACITY = 16;
+        /** @brief  Maximum number of bytes of an encoded state. */
+        private static final int MAX_STATE_BYTES = STATE_INTS * 5 + STATE_DOUBLES * 10;
+        /** @brief  Rates with more hundredths are stored as their raw bits. */
+        private static final long MAX_HUNDREDTHS = 1L << 50;
+        /** @brief  Numbers of a state, integers and rates. */
+        private static final int COLUMNS = STATE_INTS + STATE_DOUBLES;
+        /** @brief  Minimum number of windows summarizing the removed blocks. */
+        private static final int MIN_WINDOWS = 8;
+
+        /** @brief  Simulation step of the first state, when the virus reached
+         *          the region. */
+        private final int firstStep;
+        /** @brief  Encoded states. */
+        private byte[] data;
+        /** @brief  Number of bytes used in data. */
+        private int length;
+        /** @brief  Position in data of the first state of each kept block,
+         *          from the oldest one. */
+        private int[] blockOffsets;
+        /** @brief  Number of states the buffers must have room for, counted
+         *          from the first state. */
+        private int capacity;
+        /** @brief  Number of complete blocks kept, or 0 to keep them all. */
+        private int retainedBlocks;
+        /** @brief  Number of blocks removed from the buffers. */
+        private int firstBlock;
+        /** @brief  Index of the first state of each window. */
+        private int[] windowFirst;
+        /** @brief  Number of states of each window. */
+        private int[] windowSize;
+        /** @brief  Minimum, maximum and sum of each number over each window,
+         *          COLUMNS triples per window. */
+        private double[] windowStats;
+        /** @brief  Number of used windows. */
+        private int numWindows;
+        /** @brief  Integers of the state being summarized, reused. */
+        private final int[] scratchInts;
+        /** @brief  Hundredths of the rates of the state being summarized. */
+        private final long[] scratchHundredths;
+        /** @brief  Rates of the state being summarized. */
+        private final double[] scratchDoubles;
+        /** @brief  Integers of the last state, in the order of copyState(). */
+        private final int[] lastInts;
+        /** @brief  Hundredths of the rates of the last state, or 0 if it was
+         *          stored as its raw bits. */
+        private final long[] lastHundredths;
+        /** @brief  Rates of the last state. */
+        private final double[] lastDoubles;
+        /** @brief  Number of recorded states. */
+        private int size;
+        /** @brief  Number of deaths over all the recorded states. */
+        private int totalDeaths;
+
+        /**
+         * @param   firstStep   Simulation step of the first state.
+         * @param   capacity    Number of states the buffers must have room for.
+         */
+        private RegionStates(int firstStep, int capacity) {
+            this.firstStep = firstStep;
+            this.data = new byte[INITIAL_CAPACITY * MAX_STATE_BYTES];
+            this.blockOffsets = new int[1];
+            this.lastInts = new int[STATE_INTS];
+            this.lastHundredths = new long[STATE_DOUBLES];
+            this.lastDoubles = new double[STATE_DOUBLES];
+            this.scratchInts = new int[STATE_INTS];
+            this.scratchHundredths = new long[STATE_DOUBLES];
+            this.scratchDoubles = new double[STATE_DOUBLES];
+            reserve(capacity);
+        }
+
+        /**
+         * @brief   Limits the number of steps kept with their full state.
+         *
+         * @param   steps   Number of last steps kept, or 0 to keep them all.
+         *
+         * @pre     steps is not negative.
+         * @post    At least the last steps states are kept, and the older
+         *          blocks are summarized.
+         */
+        private void retain(int steps) {
+            retainedBlocks = (steps + BLOCK_STEPS - 1) / BLOCK_STEPS;
+            if (retainedBlocks > 0) {
+                int windows = Math.max(MIN_WINDOWS, 2 * retainedBlocks);
+                windowFirst = Arrays.copyOf(windowFirst == null ? new int[0] : windowFirst, windows);
+                windowSize = Arrays.copyOf(windowSize == null ? new int[0] : windowSize, windows);
+                windowStats = Arrays.copyOf(windowStats == null ? new double[0] : windowStats,
+                        windows * COLUMNS * 3);
+                while (numWindows > windows)
+                    mergeWindows();
+                while (size / BLOCK_STEPS - firstBlock > retainedBlocks)
+                    removeBlock();
+            }
+            reserve(capacity);
+        }
+
+        /**
+         * @brief   Makes room for a number of states.
+         *
+         * @details Until the first block is complete the buffer only grows
+         *          as needed, since nothing is known of the size of the states
+         *          yet.
+         *
+         * @param   capacity    Number of states the buffers must have room for.
+         */
+        private void reserve(int capacity) {
+            this.capacity = Math.max(this.capacity, capacity);
+            int kept = this.capacity - firstBlock * BLOCK_STEPS;
+            if (retainedBlocks > 0)
+                kept = Math.min(kept, (retainedBlocks + 1) * BLOCK_STEPS);
+            int blocks = (kept + BLOCK_STEPS - 1) / BLOCK_STEPS;
+            if (blocks > blockOffsets.length)
+                blockOffsets = Arrays.copyOf(blockOffsets, blocks);
+            int keptStates = size - firstBlock * BLOCK_STEPS;
+            if (keptStates >= BLOCK_STEPS) {
+                // Half as much room again as the states kept so far take
+                long bytes = (long) length * kept / keptStates * 3 / 2 + MAX_STATE_BYTES;
+                if (bytes > data.length)
+                    data = Arrays.copyOf(data, (int) Math.min(bytes, Integer.MAX_VALUE - 8));
+            }
+        }
+
+        /**
+         * @brief   Records the state of a step, with the same parameters as the
+         *          constructor of RegionState.
+         *
+         * @pre     --
+         * @post    The state is the last one. The buffers have doubled their
+         *          room if they were full.
+         */
+        private void add(int simulationStep, int numInhabitants, int infected,
+                         int contagious, int immune, int sick, int deaths,
+                         int vaccinated, double transmissionRate,
+                         double mortalityRate) {
+            if (size % BLOCK_STEPS == 0) {
+                if (retainedBlocks > 0 && size / BLOCK_STEPS - firstBlock > retainedBlocks)
+                    removeBlock();
+                int block = size / BLOCK_STEPS - firstBlock;
+                if (block == blockOffsets.length)
+                    blockOffsets = Arrays.copyOf(blockOffsets, 2 * block);
+                blockOffsets[block] = length;
+                Arrays.fill(lastInts, 0);
+                Arrays.fill(lastHundredths, 0);
+                if (size == BLOCK_STEPS)
+                    reserve(capacity);
+            }
+            if (data.length - length < MAX_STATE_BYTES)
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + MAX_STATE_BYTES));
+            putInt(0, simulationStep);
+            putInt(1, numInhabitants);
+            putInt(2, infected);
+            putInt(3, contagious);
+            putInt(4, sick);
+            putInt(5, immune);
+            putInt(6, deaths);
+            putInt(7, vaccinated);
+            putRate(0, transmissionRate);
+            putRate(1, mortalityRate);
+            totalDeaths += deaths;
+            size++;
+        }
+
+        /**
+         * @param   column  Position of the integer in the order of copyState().
+         * @param   value   Value of the integer at the new state.
+         */
+        private void putInt(int column, int value) {
+            putVarLong((long) value - lastInts[column]);
+            lastInts[column] = value;
+        }
+
+        /**
+         * @param   column  Position of the rate in the order of copyState().
+         * @param   rate    Value of the rate at the new state.
+         */
+        private void putRate(int column, double rate) {
+            long hundredths = Math.round(rate * 100);
+            if (Math.abs(hundredths) < MAX_HUNDREDTHS &&
+                    Double.doubleToRawLongBits(hundredths / 100.0) == Double.doubleToRawLongBits(rate)) {
+                putVarLong((hundredths - lastHundredths[column]) << 1);
+                lastHundredths[column] = hundredths;
+            } else {
+                putVarLong(1);
+                long bits = Double.doubleToRawLongBits(rate);
+                for (int shift = 56; shift >= 0; shift -= 8)
+                    data[length++] = (byte) (bits >>> shift);
+                lastHundredths[column] = 0;
+            }
+            lastDoubles[column] = rate;
+        }
+
+        /**
+         * @brief   Writes a signed number as a zig-zag varint: 7 bits per byte,
+         *          with the highest bit set in every byte but the last one.
+         *
+         * @param   value   The number.
+         */
+        private void putVarLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                data[length++] = (byte) (zigZag | 0x80);
+                zigZag >>>= 7;
+            }
+            data[length++] = (byte) zigZag;
+        }
+
+        /**
+         * @brief   Decodes a state into arrays.
+         *
+         * @param   i               Index of the state.
+         * @param   ints            Array where the integers are written, in
+         *                          the order of copyState().
+         * @param   intOffset       Position of the first integer.
+         * @param   doubles         Array where the rates are written.
+         * @param   doubleOffset    Position of the first rate.
+         *
+         * @pre     The state i is kept (see isKept()).
+         * @post    The arrays hold the state i.
+         */
+        private void decode(int i, int[] ints, int intOffset, double[] doubles,
+                            int doubleOffset) {
+            if (i == size - 1) {
+                System.arraycopy(lastInts, 0, ints, intOffset, STATE_INTS);
+                System.arraycopy(lastDoubles, 0, doubles, doubleOffset, STATE_DOUBLES);
+                return;
+            }
+            Arrays.fill(ints, intOffset, intOffset + STATE_INTS, 0);
+            long[] hundredths = new long[STATE_DOUBLES];
+            int position = blockOffsets[i / BLOCK_STEPS - firstBlock];
+            for (int k = i % BLOCK_STEPS; k >= 0; k--)
+                position = decodeNext(position, ints, intOffset, hundredths, doubles, doubleOffset);
+        }
+
+        /**
+         * @brief   Decodes the state following another one of the same block.
+         *
+         * @param   position        Position of the state in data.
+         * @param   ints            Integers of the previous state, or zeros at
+         *                          the start of a block, replaced by those of
+         *                          the state.
+         * @param   intOffset       Position of the first integer.
+         * @param   hundredths      Hundredths of the rates of the previous
+         *                          state, replaced by those of the state.
+         * @param   doubles         Array where the rates are written.
+         * @param   doubleOffset    Position of the first rate.
+         *
+         * @return  The position of the next state.
+         */
+        private int decodeNext(int position, int[] ints, int intOffset, long[] hundredths,
+                               double[] doubles, int doubleOffset) {
+            for (int column = 0; column < COLUMNS; column++) {
+                long zigZag = 0;
+                byte b;
+                for (int shift = 0; ; shift += 7) {
+                    b = data[position++];
+                    zigZag |= (long) (b & 0x7F) << shift;
+                    if (b >= 0)
+                        break;
+                }
+                long delta = (zigZag >>> 1) ^ -(zigZag & 1);
+                if (column < STATE_INTS) {
+                    ints[intOffset + column] += (int) delta;
+                    continue;
+                }
+                int rate = column - STATE_INTS;
+                if ((delta & 1) != 0) {
+                    long bits = 0;
+                    for (int n = 0; n < 8; n++)
+                        bits = (bits << 8) | (data[position++] & 0xFF);
+                    doubles[doubleOffset + rate] = Double.longBitsToDouble(bits);
+                    hundredths[rate] = 0;
+                } else {
+                    hundredths[rate] += delta >> 1;
+                    doubles[doubleOffset + rate] = hundredths[rate] / 100.0;
+                }
+            }
+            return position;
+        }
+
+        /**
+         * @brief   Replaces the oldest kept block by its summary.
+         *
+         * @pre     There is a complete block kept.
+         * @post    The block is the last window, and its bytes are no longer
+         *          in data.
+         */
+        private void removeBlock() {
+            if (numWindows == windowFirst.length)
+                mergeWindows();
+            int w = numWindows++;
+            windowFirst[w] = firstBlock * BLOCK_STEPS;
+            windowSize[w] = BLOCK_STEPS;
+            Arrays.fill(scratchInts, 0);
+            Arrays.fill(scratchHundredths, 0);
+            int position = 0;
+            for (int k = 0; k < BLOCK_STEPS; k++) {
+                position = decodeNext(position, scratchInts, 0, scratchHundredths, scratchDoubles, 0);
+                for (int column = 0; column < COLUMNS; column++) {
+                    double value = column < STATE_INTS ? scratchInts[column]
+                            : scratchDoubles[column - STATE_INTS];
+                    int stat = 3 * (w * COLUMNS + column);
+                    if (k == 0) {
+                        windowStats[stat] = value;
+                        windowStats[stat + 1] = value;
+                        windowStats[stat + 2] = value;
+                    } else {
+                        windowStats[stat] = Math.min(windowStats[stat], value);
+                        windowStats[stat + 1] = Math.max(windowStats[stat + 1], value);
+                        windowStats[stat + 2] += value;
+                    }
+                }
+            }
+            int removed = blockOffsets[1];
+            System.arraycopy(data, removed, data, 0, length - removed);
+            length -= removed;
+            int blocks = size / BLOCK_STEPS - firstBlock;
+            for (int block = 1; block <= blocks && block < blockOffsets.length; block++)
+                blockOffsets[block - 1] = blockOffsets[block] - removed;
+            firstBlock++;
+        }
+
+        /**
+         * @brief   Merges each pair of consecutive windows, from the oldest one.
+         *
+         * @pre     --
+         * @post    Half of the windows are free, or one less if their number
+         *          was odd.
+         */
+        private void mergeWindows() {
+            int merged = 0;
+            for (int w = 0; w < numWindows; w += 2, merged++) {
+                windowFirst[merged] = windowFirst[w];
+                windowSize[merged] = windowSize[w];
+                System.arraycopy(windowStats, 3 * w * COLUMNS, windowStats,
+                        3 * merged * COLUMNS, 3 * COLUMNS);
+                if (w + 1 == numWindows)
+                    continue;
+                windowSize[merged] += windowSize[w + 1];
+                for (int column = 0; column < COLUMNS; column++) {
+                    int stat = 3 * (merged * COLUMNS + column);
+                    int next = 3 * ((w + 1) * COLUMNS + column);
+                    windowStats[stat] = Math.min(windowStats[stat], windowStats[next]);
+                    windowStats[stat + 1] = Math.max(windowStats[stat + 1], windowStats[next + 1]);
+                    windowStats[stat + 2] += windowStats[next + 2];
+                }
+            }
+            numWindows = merged;
+        }
+
+        /**
+         * @param   i   Index of the state.
+         *
+         * @return  True if the state i is kept whole, false if it has been
+         *          summarized or does not exist.
+         */
+        private boolean isKept(int i) {
+            return i >= firstBlock * BLOCK_STEPS && i < size;
+        }
+
+        /**
+         * @param   i   Index of a state that is no longer kept.
+         *
+         * @return  The minimum, mean and maximum of each number over the
+         *          window holding the state i, to be shown.
+         */
+        private String summary(int i) {
+            int w = numWindows - 1;
+            while (w > 0 && windowFirst[w] > i)
+                w--;
+            String separator =
+                    "******************************************************";
+            String format = "* %-17s %10s %10s %10s *\n";
+            String[] names = {"Simulation step", "Inhabitants", "Infected",
+                    "Contagious", "Sick", "Immune", "Deaths", "Vaccinated",
+                    "Transmission %", "Mortality %"};
+            StringBuilder sb = new StringBuilder(separator).append("\n");
+            sb.append(String.format(format, "Over " + windowSize[w] + " steps", "Minimum",
+                    "Mean", "Maximum"));
+            for (int column = 0; column < COLUMNS; column++) {
+                int stat = 3 * (w * COLUMNS + column);
+                String mean = String.format(Locale.ROOT, "%.2f", windowStats[stat + 2] / windowSize[w]);
+                if (column < STATE_INTS)
+                    sb.append(String.format(format, names[column], (long) windowStats[stat],
+                            mean, (long) windowStats[stat + 1]));
+                else
+                    sb.append(String.format(format, names[column], windowStats[stat],
+                            mean, windowStats[stat + 1]));
+            }
+            return sb.append(separator).append("\n").toString();
+        }
+
+        /**
+         * @param   i   Index of the state.
+         *
+         * @return  The number of infected inhabitants at the state i.
+         *
+         * @pre     0 <= i < size.
+         */
+        private int getInfected(int i) {
+            if (i == size - 1)
+                return lastInts[2];
+            int[] ints = new int[STATE_INTS];
+            decode(i, ints, 0, new double[STATE_DOUBLES], 0);
+            return ints[2];
+        }
+
+        /**
+         * @param   i   Index of the state.
+         *
+         * @throws  IndexOutOfBoundsException   if there is no state i.
+         *
+         * @return  The state i, to be shown.
+         */
+        private RegionState get(int i) {
+            if (!isKept(i))
+                throw new IndexOutOfBoundsException("Invalid simulation step.");
+            int[] ints = new int[STATE_INTS];
+            double[] doubles = new double[STATE_DOUBLES];
+            decode(i, ints, 0, doubles, 0);
+            return new RegionState(ints[0], ints[1], ints[2], ints[3], ints[5],
+                    ints[4], ints[6], ints[7], doubles[0], doubles[1]);
+        }
+    }
+
+    /** @brief  Inhabitants vaccinated at the same time with the same vaccine. */
+    private static class Doses {
+        /** @brief  The vaccine applied. */
+        private final Vaccine vaccine;
+        /** @brief  Number of inhabitants vaccinated. */
+        private final int count;
+        /** @brief  Remaining time until the vaccine takes effect. */
+        private int activation;
+        /** @brief  Remaining time of the effect once it has started. */
+        private int duration;
+
+        /**
+         * @param   vaccine The vaccine applied.
+         * @param   count   Number of inhabitants vaccinated.
+         */
+        private Doses(Vaccine vaccine, int count) {
+            this.vaccine = vaccine;
+            this.count = count;
+            this.activation = vaccine.getActivationTime();
+            this.duration = vaccine.getDuration();
+        }
+    }
+
+    /**
+     * @brief   Doses applied to the region of the vaccines that target the
+     *          same virus.
+     *
+     * @details Only the doses of the first vaccine among them count as
+     *          vaccinated against the target, and their number is kept as the
+     *          doses are applied and expire. The viruses of the region that the
+     *          vaccines cover, the target and the mutations of its lineage, are
+     *          marked as they appear, so the doses reach them without checking
+     *          every virus.
+     *          The vaccines in effect are counted by their activated doses, so
+     *          a vaccine only changes the parameters of the covered viruses
+     *          when its first doses are activated or its last ones expire.
+     */
+    private static class TargetDoses {
+        /** @brief  The targeted virus. */
+        private final Virus target;
+        /** @brief  Doses that have not expired, in the order they were
+         *          applied. */
+        private final List<Doses> doses;
+        /** @brief  Vaccine of the first doses, or null if there are none. */
+        private Vaccine vaccine;
+        /** @brief  Number of inhabitants vaccinated with that vaccine. */
+        private int numVaccinated;
+        /** @brief  Indices in the list of viruses of the covered viruses. */
+        private final BitSet covered;
+        /** @brief  Number of activated doses of each vaccine in effect, in
+         *          the order the vaccines took effect. */
+        private final Map<Vaccine, Integer> inEffect;
+
+        /**
+         * @param   target  The targeted virus.
+         */
+        private TargetDoses(Virus target) {
+            this.target = target;
+            this.doses = new ArrayList<>();
+            this.vaccine = null;
+            this.numVaccinated = 0;
+            this.covered = new BitSet();
+            this.inEffect = new LinkedHashMap<>();
+        }
+
+        /**
+         * @param   virus   A virus of the region.
+         *
+         * @return  True if the virus is the target or descends from it by
+         *          mutations. A vaccine whose target was not found covers no
+         *          virus.
+         */
+        private boolean covers(Virus virus) {
+            return target != null && virus.descendsFrom(target);
+        }
+
+        /**
+         * @param   added   Doses just applied to the region.
+         */
+        private void add(Doses added) {
+            doses.add(added);
+            if (vaccine == null) {
+                vaccine = added.vaccine;
+                numVaccinated = added.count;
+            } else if (added.vaccine == vaccine)
+                numVaccinated += added.count;
+        }
+
+        /**
+         * @param   vaccine Vaccine whose doses have just been activated.
+         *
+         * @return  True if no doses of the vaccine were in effect before.
+         */
+        private boolean startEffects(Vaccine vaccine) {
+            Integer numDoses = inEffect.get(vaccine);
+            inEffect.put(vaccine, numDoses == null ? 1 : numDoses + 1);
+            return numDoses == null;
+        }
+
+        /**
+         * @param   vaccine Vaccine whose doses have just expired.
+         *
+         * @return  True if no doses of the vaccine are left in effect.
+         */
+        private boolean endEffects(Vaccine vaccine) {
+            int numDoses = inEffect.get(vaccine);
+            if (numDoses == 1) {
+                inEffect.remove(vaccine);
+                return true;
+            }
+            inEffect.put(vaccine, numDoses - 1);
+            return false;
+        }
+
+        /**
+         * @param   expired Doses that have just expired.
+         */
+        private void remove(Doses expired) {
+            doses.remove(expired);
+            if (expired.vaccine != vaccine)
+                return;
+            numVaccinated -= expired.count;
+            if (doses.isEmpty()) {
+                vaccine = null;
+                numVaccinated = 0;
+            } else if (doses.get(0).vaccine != vaccine) {
+                // The first doses were the last ones of their vaccine
+                vaccine = doses.get(0).vaccine;
+                numVaccinated = 0;
+                for (int i = 0; i < doses.size(); i++)
+                    if (doses.get(i).vaccine == vaccine)
+                        numVaccinated += doses.get(i).count;
+            }
+        }
+    }
+
+    /** @brief  Cells of the region passed to the InfectionKernel, one per
+     *          virus. */
+    private static class InfectionBatch {
+        /** @brief  Number of infected of each virus. */
+        private int[] infected = new int[0];
+        /** @brief  Number of inhabitants that can be infected by each virus. */
+        private int[] susceptible = new int[0];
+        /** @brief  Fraction of infected inhabitants of each virus. */
+        private double[] infectedFraction = new double[0];
+        /** @brief  Contagion rate of each virus. */
+        private double[] contagionRate = new double[0];
+        /** @brief  Mobility of the region for each virus. */
+        private double[] mobility = new double[0];
+        /** @brief  New infections of each virus computed by the kernel. */
+        private int[] numToInfect = new int[0];
+
+        /**
+         * @brief   Makes room for a number of cells.
+         *
+         * @param   n   Number of cells.
+         *
+         * @pre     n >= 0.
+         * @post    Every array has at least n elements.
+         */
+        private void reserve(int n) {
+            if (n <= infected.length)
+                return;
+            int capacity = Math.max(n, 2 * infected.length);
+            infected = new int[capacity];
+            susceptible = new int[capacity];
+            infectedFraction = new double[capacity];
+            contagionRate = new double[capacity];
+            mobility = new double[capacity];
+            numToInfect = new int[capacity];
+        }
+    }
+
+    /** @brief  Values of each age stratum of the region for the virus being
+     *          updated. */
+    private static class StrataBatch {
+        /** @brief  Fraction of infected of each stratum. */
+        private final double[] infectedFraction;
+        /** @brief  Probability of infection of each stratum. */
+        private final double[] probability;
+        /** @brief  New infections of each stratum. */
+        private final int[] infections;
+        /** @brief  People of each stratum that change stage. */
+        private final int[] counts;
+        /** @brief  Weights used to split people between the strata. */
+        private final int[] weights;
+
+        /**
+         * @param   k   Number of strata.
+         */
+        private StrataBatch(int k) {
+            infectedFraction = new double[k];
+            probability = new double[k];
+            infections = new int[k];
+            counts = new int[k];
+            weights = new int[k];
+        }
+    }
 }
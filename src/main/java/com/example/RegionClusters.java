@@ -0,0 +1,109 @@
+package main.java.com.example;
+
+import java.util.*;
+
+/**
+ * @class   RegionClusters
+ * @brief   Partition of the regions into clusters of neighboring regions.
+ *
+ * @details Used by the GraphVisualizer to show a bounded number of elements
+ *          when the world is too big to display one node per region. Each
+ *          cluster is grown by a breadth-first search over the neighboring
+ *          regions, so the regions of a cluster are mostly close to each
+ *          other in the mobility graph. Neighbors that are not among the
+ *          grouped regions are ignored, so a cluster can be split again.
+ */
+public class RegionClusters {
+    /** @brief  Regions of each cluster. */
+    private final List<List<Region>> clusters;
+    /** @brief  Index of the cluster of each region, by region name. */
+    private final Map<String, Integer> clusterOf;
+
+    /**
+     * @brief   Groups the regions into at most maxClusters clusters.
+     *
+     * @param   regions     Map of all regions in the simulation.
+     * @param   maxClusters Maximum number of clusters to create.
+     *
+     * @throws  IllegalArgumentException    if maxClusters is not positive.
+     *
+     * @pre     regions is not null and maxClusters > 0.
+     * @post    Every region belongs to exactly one cluster and no cluster has
+     *          more than ceil(regions / maxClusters) regions.
+     */
+    public RegionClusters(Map<String, Region> regions, int maxClusters) {
+        if (maxClusters <= 0)
+            throw new IllegalArgumentException("The maximum number of " +
+                    "clusters must be positive.");
+        this.clusters = new ArrayList<>();
+        this.clusterOf = new HashMap<>();
+        int clusterSize = Math.max(1,
+                (regions.size() + maxClusters - 1) / maxClusters);
+        List<String> names = new ArrayList<>(regions.keySet());
+        Collections.sort(names);
+        Deque<Region> queue = new ArrayDeque<>();
+        List<Region> cluster = null;
+        for (String name : names) {
+            if (clusterOf.containsKey(name))
+                continue;
+            // A cluster whose neighborhood is exhausted keeps growing from the
+            // next free region, so all the clusters but the last one are full
+            if (cluster == null || cluster.size() >= clusterSize) {
+                cluster = new ArrayList<>();
+                clusters.add(cluster);
+            }
+            int index = clusters.size() - 1;
+            queue.add(regions.get(name));
+            clusterOf.put(name, index);
+            while (!queue.isEmpty()) {
+                Region region = queue.poll();
+                cluster.add(region);
+                for (Region neighbor : region.getNeighboringRegions().keySet())
+                    if (cluster.size() + queue.size() < clusterSize &&
+                            regions.containsKey(neighbor.getName()) &&
+                            !clusterOf.containsKey(neighbor.getName())) {
+                        clusterOf.put(neighbor.getName(), index);
+                        queue.add(neighbor);
+                    }
+            }
+        }
+    }
+
+    /** @return The number of clusters. */
+    public int getNumClusters() {
+        return clusters.size();
+    }
+
+    /**
+     * @param   cluster Index of the cluster.
+     *
+     * @return  The regions of the cluster.
+     */
+    public List<Region> getRegions(int cluster) {
+        return Collections.unmodifiableList(clusters.get(cluster));
+    }
+
+    /**
+     * @param   regionName  The name of the region.
+     *
+     * @return  The index of the cluster of the region, or -1 if the region is
+     *          unknown.
+     */
+    public int getCluster(String regionName) {
+        Integer cluster = clusterOf.get(regionName);
+        return cluster == null ? -1 : cluster;
+    }
+
+    /**
+     * @param   cluster Index of the cluster.
+     *
+     * @return  The label shown for the cluster: the name of its first region
+     *          followed by the number of other regions it contains.
+     */
+    public String getLabel(int cluster) {
+        List<Region> regions = clusters.get(cluster);
+        if (regions.size() == 1)
+            return regions.get(0).getName();
+        return regions.get(0).getName() + " +" + (regions.size() - 1);
+    }
+}
@@ -0,0 +1,375 @@
+package main.java.com.example;
+
+import java.io.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * @class   RegionHistory
+ * @brief   Recorded state of the regions at each simulation step.
+ *
+ * @details Stores, for each step, the value of each Metric for the regions
+ *          with some value, added over all the viruses of the region. Each
+ *          frame only keeps those regions, sorted by index, so a step of a
+ *          world where few regions are infected takes little room, and any
+ *          step can be read directly, which makes replaying or scrubbing
+ *          through a long simulation instant. The highest value of each metric
+ *          is kept up to date as the frames are added.
+ *
+ *          A history may keep only its last frames, like the region states
+ *          with Simulator.retainSteps().
+ *
+ *          A history can be saved to a file and loaded again to replay a
+ *          simulation without running it. A history still being recorded is
+ *          replayed from a snapshot(), as the frames are added and dropped by
+ *          the thread of the simulation.
+ */
+public class RegionHistory implements Consumer<Simulator> {
+    /** @brief  Values recorded for each region. */
+    public enum Metric { INFECTED, SICK, DEATHS, VACCINATED }
+
+    /** @brief  Identifies the history files. */
+    private static final String FILE_HEADER = "VIRUSLAND_HISTORY";
+    /** @brief  Number of metrics. */
+    private static final int NUM_METRICS = Metric.values().length;
+
+    /** @brief  Names of the regions, in the order of the frames. */
+    private final String[] regionNames;
+    /** @brief  Index of each region, by region name. */
+    private final Map<String, Integer> regionIndex;
+    /** @brief  Number of last frames kept, or 0 to keep them all. */
+    private final int retainedFrames;
+    /** @brief  Recorded frames, from the oldest one kept at first. */
+    private final List<Frame> frames;
+    /** @brief  Index in frames of the oldest frame kept. */
+    private int first;
+    /** @brief  Kept frames holding the highest value of each metric, by
+     *          metric, from the highest value, each one recorded after the
+     *          previous one and with a lower value. */
+    private final List<ArrayDeque<Frame>> maxFrames;
+    /** @brief  Values of each region at the step being recorded, by metric,
+     *          reused at each step. */
+    private final int[][] values;
+    /** @brief  Regions with some value at the step being recorded, reused at
+     *          each step. */
+    private final int[] touched;
+
+    /**
+     * @brief   Creates an empty history for the given regions that keeps all
+     *          its frames.
+     *
+     * @param   regionNames Names of the regions to record.
+     */
+    public RegionHistory(Collection<String> regionNames) {
+        this(regionNames, 0);
+    }
+
+    /**
+     * @brief   Creates an empty history for the given regions.
+     *
+     * @param   regionNames     Names of the regions to record.
+     * @param   retainedFrames  Number of last frames kept, or 0 to keep them
+     *                          all.
+     *
+     * @throws  IllegalArgumentException    if retainedFrames is negative.
+     */
+    public RegionHistory(Collection<String> regionNames, int retainedFrames) {
+        if (retainedFrames < 0)
+            throw new IllegalArgumentException("The number of retained frames " +
+                    "cannot be negative.");
+        this.regionNames = regionNames.toArray(new String[0]);
+        Arrays.sort(this.regionNames);
+        this.regionIndex = new HashMap<>();
+        for (int i = 0; i < this.regionNames.length; i++)
+            regionIndex.put(this.regionNames[i], i);
+        this.retainedFrames = retainedFrames;
+        this.frames = new ArrayList<>();
+        this.maxFrames = new ArrayList<>();
+        for (int m = 0; m < NUM_METRICS; m++)
+            maxFrames.add(new ArrayDeque<>());
+        this.values = new int[NUM_METRICS][this.regionNames.length];
+        this.touched = new int[this.regionNames.length];
+    }
+
+    /**
+     * @brief   Records the current state of the regions of the simulation.
+     *
+     * @param   s   Simulator containing the current state of the simulation.
+     *
+     * @pre     s is not null.
+     * @post    A new frame has been added at the end of the history, and the
+     *          oldest one removed if there were more than the retained ones.
+     */
+    @Override
+    public void accept(Simulator s) {
+        int numTouched = 0;
+        for (Map.Entry<Region, List<Virus>> entry : s.getRegionViruses().entrySet()) {
+            Integer i = regionIndex.get(entry.getKey().getName());
+            if (i == null || entry.getValue().isEmpty())
+                continue;
+            Region region = entry.getKey();
+            for (Virus virus : entry.getValue()) {
+                values[Metric.INFECTED.ordinal()][i] += region.getNumInfected(virus);
+                values[Metric.SICK.ordinal()][i] += region.getNumSick(virus);
+                values[Metric.DEATHS.ordinal()][i] += region.getNumDeaths(virus);
+                values[Metric.VACCINATED.ordinal()][i] += region.getNumVaccinated(virus);
+            }
+            touched[numTouched++] = i;
+        }
+        Arrays.sort(touched, 0, numTouched);
+        int numRegions = 0;
+        for (int k = 0; k < numTouched; k++) {
+            int i = touched[k];
+            boolean any = false;
+            for (int m = 0; m < NUM_METRICS; m++)
+                any |= values[m][i] != 0;
+            if (any)
+                touched[numRegions++] = i;
+            else
+                clear(i);
+        }
+        Frame frame = new Frame(s.getSimulationStep(), numRegions);
+        for (int k = 0; k < numRegions; k++) {
+            int i = touched[k];
+            frame.regions[k] = i;
+            for (int m = 0; m < NUM_METRICS; m++)
+                frame.values[k * NUM_METRICS + m] = values[m][i];
+            clear(i);
+        }
+        frame.done();
+        add(frame);
+    }
+
+    /**
+     * @param   i   Index of a region.
+     *
+     * @pre     --
+     * @post    The values of the region for the next step are 0.
+     */
+    private void clear(int i) {
+        for (int m = 0; m < NUM_METRICS; m++)
+            values[m][i] = 0;
+    }
+
+    /**
+     * @param   frame   A new frame.
+     *
+     * @pre     The highest values of the frame are set.
+     * @post    The frame is the last one of the history, the highest values
+     *          include it and only the retained frames are kept.
+     */
+    private synchronized void add(Frame frame) {
+        for (int m = 0; m < NUM_METRICS; m++) {
+            // A frame older than one with a value at least as high is never
+            // the highest one again
+            ArrayDeque<Frame> candidates = maxFrames.get(m);
+            while (!candidates.isEmpty() && candidates.peekLast().maxValues[m] <= frame.maxValues[m])
+                candidates.removeLast();
+            candidates.addLast(frame);
+        }
+        frames.add(frame);
+        if (retainedFrames > 0 && frames.size() - first > retainedFrames) {
+            Frame dropped = frames.set(first++, null);
+            for (ArrayDeque<Frame> candidates : maxFrames)
+                if (candidates.peekFirst() == dropped)
+                    candidates.removeFirst();
+            // Drop the released frames once they are half of the list
+            if (first >= frames.size() / 2) {
+                frames.subList(0, first).clear();
+                first = 0;
+            }
+        }
+    }
+
+    /**
+     * @brief   Copies the frames kept so far.
+     *
+     * @details The frames are never changed once added, so the copy shares
+     *          them with this history.
+     *
+     * @return  A history with the kept frames, which keeps all of them and is
+     *          not changed by the frames recorded later.
+     */
+    public synchronized RegionHistory snapshot() {
+        RegionHistory copy = new RegionHistory(Arrays.asList(regionNames));
+        for (Frame frame : frames.subList(first, frames.size()))
+            copy.add(frame);
+        return copy;
+    }
+
+    /** @return The number of recorded frames. */
+    public int getNumFrames() {
+        return frames.size() - first;
+    }
+
+    /**
+     * @param   frame   Index of the frame.
+     *
+     * @return  The frame, from 0 for the oldest one kept.
+     */
+    private Frame getFrame(int frame) {
+        if (frame < 0 || frame >= getNumFrames())
+            throw new IndexOutOfBoundsException("Invalid frame " + frame + ".");
+        return frames.get(first + frame);
+    }
+
+    /**
+     * @param   frame   Index of the frame.
+     *
+     * @return  The simulation step of the frame.
+     */
+    public int getStep(int frame) {
+        return getFrame(frame).step;
+    }
+
+    /** @return The names of the recorded regions. */
+    public List<String> getRegionNames() {
+        return Collections.unmodifiableList(Arrays.asList(regionNames));
+    }
+
+    /**
+     * @param   frame       Index of the frame.
+     * @param   metric      The metric to read.
+     * @param   regionName  The name of the region.
+     *
+     * @return  The value of the metric for the region at the frame, or 0 if
+     *          the region is not recorded.
+     */
+    public int getValue(int frame, Metric metric, String regionName) {
+        Integer i = regionIndex.get(regionName);
+        if (i == null)
+            return 0;
+        Frame f = getFrame(frame);
+        int k = Arrays.binarySearch(f.regions, i);
+        return k < 0 ? 0 : f.values[k * NUM_METRICS + metric.ordinal()];
+    }
+
+    /**
+     * @param   metric  The metric to look for.
+     *
+     * @return  The highest value of the metric for any region and kept
+     *          frame.
+     */
+    public int getMaxValue(Metric metric) {
+        Frame frame = maxFrames.get(metric.ordinal()).peekFirst();
+        return frame == null ? 0 : frame.maxValues[metric.ordinal()];
+    }
+
+    /**
+     * @brief   Writes the history to a file.
+     *
+     * @param   file    The file to write.
+     *
+     * @throws  IOException If the file cannot be written.
+     *
+     * @pre     --
+     * @post    The file contains all the kept frames.
+     */
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeUTF(FILE_HEADER);
+            out.writeInt(regionNames.length);
+            for (String name : regionNames)
+                out.writeUTF(name);
+            out.writeInt(NUM_METRICS);
+            out.writeInt(getNumFrames());
+            int[] dense = new int[regionNames.length];
+            for (Frame frame : frames.subList(first, frames.size())) {
+                out.writeInt(frame.step);
+                for (int m = 0; m < NUM_METRICS; m++) {
+                    for (int k = 0; k < frame.regions.length; k++)
+                        dense[frame.regions[k]] = frame.values[k * NUM_METRICS + m];
+                    for (int value : dense)
+                        out.writeInt(value);
+                    for (int k = 0; k < frame.regions.length; k++)
+                        dense[frame.regions[k]] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief   Reads a history file.
+     *
+     * @param   file    The file to read.
+     *
+     * @throws  IOException If the file does not exist or is not a history
+     *                      file.
+     *
+     * @return  The history stored in the file.
+     */
+    public static RegionHistory load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (!in.readUTF().equals(FILE_HEADER))
+                throw new IOException("Not a history file: " + file.getName());
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++)
+                names[i] = in.readUTF();
+            RegionHistory history = new RegionHistory(Arrays.asList(names));
+            int numMetrics = in.readInt();
+            if (numMetrics != NUM_METRICS)
+                throw new IOException("Unsupported history file: " + file.getName());
+            int numFrames = in.readInt();
+            for (int f = 0; f < numFrames; f++) {
+                int step = in.readInt();
+                for (int m = 0; m < numMetrics; m++)
+                    for (int i = 0; i < names.length; i++)
+                        history.values[m][history.regionIndex.get(names[i])] = in.readInt();
+                int numRegions = 0;
+                for (int i = 0; i < names.length; i++) {
+                    boolean any = false;
+                    for (int m = 0; m < numMetrics; m++)
+                        any |= history.values[m][i] != 0;
+                    if (any)
+                        history.touched[numRegions++] = i;
+                }
+                Frame frame = new Frame(step, numRegions);
+                for (int k = 0; k < numRegions; k++) {
+                    int i = history.touched[k];
+                    frame.regions[k] = i;
+                    for (int m = 0; m < numMetrics; m++)
+                        frame.values[k * numMetrics + m] = history.values[m][i];
+                }
+                for (int m = 0; m < numMetrics; m++)
+                    Arrays.fill(history.values[m], 0);
+                frame.done();
+                history.add(frame);
+            }
+            return history;
+        }
+    }
+
+    /** @brief  Values of the regions with some value at a step. */
+    private static class Frame {
+        /** @brief  Simulation step of the frame. */
+        private final int step;
+        /** @brief  Indices of the regions, in increasing order. */
+        private final int[] regions;
+        /** @brief  Values of each region, by metric. */
+        private final int[] values;
+        /** @brief  Highest value of each metric, set by done(). */
+        private final int[] maxValues;
+
+        /**
+         * @param   step        Simulation step of the frame.
+         * @param   numRegions  Number of regions with some value.
+         */
+        private Frame(int step, int numRegions) {
+            this.step = step;
+            this.regions = new int[numRegions];
+            this.values = new int[numRegions * NUM_METRICS];
+            this.maxValues = new int[NUM_METRICS];
+        }
+
+        /**
+         * @pre     The values of the frame are set.
+         * @post    The highest values of the frame are set.
+         */
+        private void done() {
+            for (int v = 0; v < values.length; v++)
+                maxValues[v % NUM_METRICS] = Math.max(maxValues[v % NUM_METRICS], values[v]);
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package main.java.com.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * @class   ResultWriter
+ * @brief   Writes the state of every region and virus at each simulation step
+ *          to a file, on a background thread.
+ *
+ * @details The simulation thread only copies the numbers of the states of the
+ *          step into a batch (see Region.copyState()) and queues it. A
+ *          background thread encodes the batches as CSV, JSON lines or a
+ *          compact binary format and writes them through a buffer, which is
+ *          only flushed when no other batch is waiting, so the writing of a
+ *          step overlaps with the computation of the next ones.
+ *
+ *          The batches are recycled through a second queue, so no object is
+ *          created at each step once every batch has room for the states of
+ *          a step. When all the batches are waiting to be written, the
+ *          simulation either waits for the writer or drops the step, as
+ *          chosen by the Backpressure.
+ *
+ *          The binary format starts with the header VIRUSLAND_RESULTS. Then
+ *          each record starts with a byte: NAME is followed by a name in UTF,
+ *          which takes the next id, and STATE by the step, the ids of the
+ *          region and the virus and the other integers of the state, as
+ *          zig-zag varints, and its two rates as doubles.
+ */
+public class ResultWriter implements Consumer<Simulator>, AutoCloseable {
+    /** @brief  Formats in which the states can be written. */
+    public enum Format { CSV, JSONL, BINARY }
+
+    /** @brief  What to do when the writer falls behind the simulation. */
+    public enum Backpressure {
+        /** @brief  The simulation waits for a batch to be written. */
+        BLOCK,
+        /** @brief  The states of the step are not written. */
+        DROP
+    }
+
+    /** @brief  Number of batches when no other number is given. */
+    public static final int DEFAULT_CAPACITY = 16;
+    /** @brief  Identifies the binary files. */
+    static final String BINARY_HEADER = "VIRUSLAND_RESULTS";
+    /** @brief  Binary record that defines a name. */
+    static final byte NAME = 0;
+    /** @brief  Binary record with a state. */
+    static final byte STATE = 1;
+    /** @brief  Names of the columns of a state, in the order of copyState(),
+     *          after the region and the virus. */
+    private static final String[] COLUMNS = {"step", "inhabitants", "infected",
+            "contagious", "sick", "immune", "deaths", "vaccinated",
+            "transmission_rate", "mortality_rate"};
+
+    /** @brief  Format in which the states are written. */
+    private final Format format;
+    /** @brief  What to do when all the batches are waiting to be written. */
+    private final Backpressure backpressure;
+    /** @brief  Stream of the file. */
+    private final OutputStream out;
+    /** @brief  Batches waiting to be written. */
+    private final BlockingQueue<Batch> filled;
+    /** @brief  Batches that can be filled. */
+    private final BlockingQueue<Batch> free;
+    /** @brief  Background thread that writes the batches. */
+    private final Thread worker;
+    /** @brief  Number of steps dropped because the writer fell behind. */
+    private int droppedSteps;
+    /** @brief  First error of the background thread, or null. */
+    private volatile IOException error;
+
+    /**
+     * @brief   Opens the file and starts the background thread.
+     *
+     * @param   file            The file to write.
+     * @param   format          Format in which the states are written.
+     * @param   backpressure    What to do when the writer falls behind.
+     * @param   capacity        Number of steps that can wait to be written.
+     *
+     * @throws  IOException                 If the file cannot be created.
+     * @throws  IllegalArgumentException    if capacity is not positive.
+     *
+     * @pre     --
+     * @post    The background thread is waiting for batches.
+     */
+    public ResultWriter(File file, Format format, Backpressure backpressure,
+                        int capacity) throws IOException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive.");
+        this.format = format;
+        this.backpressure = backpressure;
+        this.out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+        this.filled = new ArrayBlockingQueue<>(capacity + 1);
+        this.free = new ArrayBlockingQueue<>(capacity);
+        for (int k = 0; k < capacity; k++)
+            free.add(new Batch());
+        this.worker = new Thread(this::write, "result-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * @brief   Queues the states of the current step to be written.
+     *
+     * @param   s   Simulator containing the current state of the simulation.
+     *
+     * @pre     s is not null.
+     * @post    The states have been queued, or dropped if every batch was
+     *          waiting to be written and the backpressure is DROP.
+     */
+    @Override
+    public void accept(Simulator s) {
+        record(s.getSimulationStep(), s.getRegionViruses());
+    }
+
+    /**
+     * @brief   Queues the states of some regions at a step to be written.
+     *
+     * @param   step            Simulation step, as in Region.regionState().
+     * @param   regionViruses   Viruses within each region.
+     *
+     * @pre     regionViruses is not null.
+     * @post    The states have been queued, or dropped if every batch was
+     *          waiting to be written and the backpressure is DROP.
+     */
+    public void record(int step, Map<Region, List<Virus>> regionViruses) {
+        Batch batch;
+        if (backpressure == Backpressure.DROP) {
+            batch = free.poll();
+            if (batch == null) {
+                droppedSteps++;
+                return;
+            }
+        } else {
+            try {
+                batch = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        batch.fill(step, regionViruses);
+        filled.add(batch);
+    }
+
+    /** @return The number of steps dropped because the writer fell behind. */
+    public int getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * @brief   Writes the pending batches, stops the background thread and
+     *          closes the file.
+     *
+     * @throws  IOException If a batch or the file could not be written.
+     *
+     * @pre     --
+     * @post    All the queued states have been written.
+     */
+    @Override
+    public void close() throws IOException {
+        filled.add(Batch.END);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (error == null)
+                error = e;
+        }
+        if (error != null)
+            throw error;
+    }
+
+    /**
+     * @brief   Body of the background thread: writes each queued batch until
+     *          the end of the results.
+     */
+    private void write() {
+        Encoder encoder = format == Format.BINARY ? new BinaryEncoder(out) : new TextEncoder(out, format);
+        Batch batch = null;
+        try {
+            encoder.begin();
+            while ((batch = filled.take()) != Batch.END) {
+                encoder.write(batch);
+                free.add(batch);
+                batch = null;
+                if (filled.isEmpty())
+                    encoder.flush();
+            }
+            encoder.flush();
+        } catch (IOException e) {
+            error = e;
+            // Keep giving the batches back, so the simulation never waits
+            if (batch != Batch.END) {
+                if (batch != null)
+                    free.add(batch);
+                drain();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @brief   Gives back the queued batches without writing them, until the
+     *          end of the results.
+     */
+    private void drain() {
+        try {
+            Batch batch;
+            while ((batch = filled.take()) != Batch.END)
+                free.add(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** @brief  States of the regions and viruses at a simulation step. */
+    private static class Batch {
+        /** @brief  Batch that marks the end of the results. */
+        private static final Batch END = new Batch();
+
+        /** @brief  Region of each state. */
+        private Region[] regions = new Region[0];
+        /** @brief  Virus of each state. */
+        private Virus[] viruses = new Virus[0];
+        /** @brief  Integers of each state, Region.STATE_INTS per state. */
+        private int[] ints = new int[0];
+        /** @brief  Doubles of each state, Region.STATE_DOUBLES per state. */
+        private double[] doubles = new double[0];
+        /** @brief  Number of states. */
+        private int size;
+
+        /**
+         * @brief   Copies the states of a step.
+         *
+         * @param   step            Simulation step.
+         * @param   regionViruses   Viruses within each region.
+         */
+        private void fill(int step, Map<Region, List<Virus>> regionViruses) {
+            size = 0;
+            for (Map.Entry<Region, List<Virus>> entry : regionViruses.entrySet()) {
+                Region region = entry.getKey();
+                List<Virus> list = entry.getValue();
+                for (int v = 0; v < list.size(); v++) {
+                    if (size == regions.length)
+                        grow();
+                    if (region.copyState(list.get(v), step, ints, size * Region.STATE_INTS,
+                            doubles, size * Region.STATE_DOUBLES)) {
+                        regions[size] = region;
+                        viruses[size] = list.get(v);
+                        size++;
+                    }
+                }
+            }
+        }
+
+        /** @brief  Doubles the room of the batch. */
+        private void grow() {
+            int capacity = Math.max(16, 2 * regions.length);
+            regions = Arrays.copyOf(regions, capacity);
+            viruses = Arrays.copyOf(viruses, capacity);
+            ints = Arrays.copyOf(ints, capacity * Region.STATE_INTS);
+            doubles = Arrays.copyOf(doubles, capacity * Region.STATE_DOUBLES);
+        }
+    }
+
+    /** @brief  Writes batches in a format. */
+    private interface Encoder {
+        /**
+         * @brief   Writes the start of the file.
+         *
+         * @throws  IOException If the file cannot be written.
+         */
+        void begin() throws IOException;
+
+        /**
+         * @brief   Writes the states of a batch.
+         *
+         * @param   batch   The batch.
+         * @throws  IOException If the file cannot be written.
+         */
+        void write(Batch batch) throws IOException;
+
+        /**
+         * @brief   Writes to the file everything encoded so far.
+         *
+         * @throws  IOException If the file cannot be written.
+         */
+        void flush() throws IOException;
+    }
+
+    /** @brief  Writes the states as CSV or JSON lines. */
+    private static class TextEncoder implements Encoder {
+        /** @brief  Writer of the file. */
+        private final Writer writer;
+        /** @brief  CSV or JSONL. */
+        private final Format format;
+        /** @brief  Line being written, reused for every state. */
+        private final StringBuilder line;
+
+        /**
+         * @param   out     Stream of the file.
+         * @param   format  CSV or JSONL.
+         */
+        private TextEncoder(OutputStream out, Format format) {
+            this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            this.format = format;
+            this.line = new StringBuilder();
+        }
+
+        @Override
+        public void begin() throws IOException {
+            if (format == Format.CSV)
+                writer.write("region,virus," + String.join(",", COLUMNS) + "\n");
+        }
+
+        @Override
+        public void write(Batch batch) throws IOException {
+            for (int k = 0; k < batch.size; k++) {
+                line.setLength(0);
+                int ints = k * Region.STATE_INTS, doubles = k * Region.STATE_DOUBLES;
+                if (format == Format.CSV) {
+                    line.append(csv(batch.regions[k].getName())).append(',')
+                            .append(csv(batch.viruses[k].getName()));
+                    for (int c = 0; c < Region.STATE_INTS; c++)
+                        line.append(',').append(batch.ints[ints + c]);
+                    for (int c = 0; c < Region.STATE_DOUBLES; c++)
+                        line.append(',').append(batch.doubles[doubles + c]);
+                } else {
+                    line.append("{\"region\":").append(QueryServer.quote(batch.regions[k].getName()))
+                            .append(",\"virus\":").append(QueryServer.quote(batch.viruses[k].getName()));
+                    for (int c = 0; c < Region.STATE_INTS; c++)
+                        line.append(",\"").append(COLUMNS[c]).append("\":").append(batch.ints[ints + c]);
+                    for (int c = 0; c < Region.STATE_DOUBLES; c++)
+                        line.append(",\"").append(COLUMNS[Region.STATE_INTS + c]).append("\":")
+                                .append(batch.doubles[doubles + c]);
+                    line.append('}');
+                }
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        /**
+         * @param   s   A name.
+         *
+         * @return  The name as a CSV field, quoted if needed.
+         */
+        private static String csv(String s) {
+            if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0)
+                return s;
+            return "\"" + s.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    /** @brief  Writes the states in the binary format. */
+    private static class BinaryEncoder implements Encoder {
+        /** @brief  Stream of the file. */
+        private final DataOutputStream data;
+        /** @brief  Id of each name already written. */
+        private final Map<String, Integer> ids;
+
+        /**
+         * @param   out Stream of the file.
+         */
+        private BinaryEncoder(OutputStream out) {
+            this.data = new DataOutputStream(out);
+            this.ids = new HashMap<>();
+        }
+
+        @Override
+        public void begin() throws IOException {
+            data.writeUTF(BINARY_HEADER);
+        }
+
+        @Override
+        public void write(Batch batch) throws IOException {
+            for (int k = 0; k < batch.size; k++) {
+                int region = id(batch.regions[k].getName());
+                int virus = id(batch.viruses[k].getName());
+                int ints = k * Region.STATE_INTS, doubles = k * Region.STATE_DOUBLES;
+                data.writeByte(STATE);
+                writeVarInt(batch.ints[ints]);
+                writeVarInt(region);
+                writeVarInt(virus);
+                for (int c = 1; c < Region.STATE_INTS; c++)
+                    writeVarInt(batch.ints[ints + c]);
+                for (int c = 0; c < Region.STATE_DOUBLES; c++)
+                    data.writeDouble(batch.doubles[doubles + c]);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            data.flush();
+        }
+
+        /**
+         * @brief   Writes an integer in zig-zag encoding, 7 bits per byte, so
+         *          small counts take a single byte.
+         *
+         * @param   value   The integer.
+         * @throws  IOException If the file cannot be written.
+         */
+        private void writeVarInt(int value) throws IOException {
+            int zigZag = (value << 1) ^ (value >> 31);
+            while ((zigZag & ~0x7F) != 0) {
+                data.writeByte((zigZag & 0x7F) | 0x80);
+                zigZag >>>= 7;
+            }
+            data.writeByte(zigZag);
+        }
+
+        /**
+         * @param   name    Name of a region or a virus.
+         * @throws  IOException If the file cannot be written.
+         *
+         * @return  The id of the name, which is defined in the file the first
+         *          time.
+         */
+        private int id(String name) throws IOException {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = ids.size();
+                ids.put(name, id);
+                data.writeByte(NAME);
+                data.writeUTF(name);
+            }
+            return id;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package main.java.com.example;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * @class   RollupCube
+ * @brief   Totals of the simulation by group of regions, virus family and
+ *          range of steps, kept up to date as the simulation runs.
+ *
+ * @details The regions are grouped with RegionClusters, so each group is an
+ *          area of neighboring regions. At each step, the value of each Metric
+ *          is added over the regions of each group and the viruses of each
+ *          family, mutants included since they keep the family of their
+ *          origin, and also over all the groups and all the families. Each of
+ *          these cells keeps its values over time in a Fenwick tree, whose
+ *          nodes are the sums of runs of 1, 2, 4, 8... steps, so the sum of a
+ *          cell over any range of steps is read in logarithmic time, and a
+ *          new step is added in logarithmic time too, without touching the
+ *          previous ones.
+ *
+ *          The values are summed over the steps: for the deaths, which are
+ *          counted at the step they happen, a sum is the number of deaths in
+ *          the range, while for the other metrics it is the number of
+ *          person-steps, which divided by the steps gives the mean.
+ */
+public class RollupCube implements Consumer<Simulator> {
+    /** @brief  Values recorded for each group and family. */
+    public enum Metric { INFECTED, CONTAGIOUS, SICK, DEATHS, VACCINATED }
+
+    /** @brief  Group or family standing for all of them. */
+    public static final int ALL = -1;
+    /** @brief  Number of steps with room in the trees at the start. */
+    private static final int INITIAL_CAPACITY = 64;
+    /** @brief  Number of metrics. */
+    private static final int NUM_METRICS = Metric.values().length;
+
+    /** @brief  Groups of regions. */
+    private final RegionClusters groups;
+    /** @brief  Number of groups, plus one for the whole world. */
+    private final int numGroupCells;
+    /** @brief  Names of the families, in the order they were found. */
+    private final List<String> families;
+    /** @brief  Index of each family, by name, from 1 since 0 stands for all
+     *          the families. */
+    private final Map<String, Integer> familyIndex;
+    /** @brief  Fenwick tree of each cell over the steps, from index 1. */
+    private long[][] trees;
+    /** @brief  Values of each cell at the step being added. */
+    private long[] values;
+    /** @brief  Simulation step of the first recorded step. */
+    private int firstStep;
+    /** @brief  Number of recorded steps. */
+    private int numSteps;
+    /** @brief  Number of steps with room in the trees. */
+    private int capacity;
+
+    /**
+     * @brief   Creates an empty cube for the regions of a simulation.
+     *
+     * @param   regions     Map of all regions in the simulation.
+     * @param   maxGroups   Maximum number of groups of regions.
+     *
+     * @throws  IllegalArgumentException    if maxGroups is not positive.
+     *
+     * @pre     regions is not null.
+     * @post    No step has been recorded.
+     */
+    public RollupCube(Map<String, Region> regions, int maxGroups) {
+        this.groups = new RegionClusters(regions, maxGroups);
+        this.numGroupCells = groups.getNumClusters() + 1;
+        this.families = new ArrayList<>();
+        this.familyIndex = new HashMap<>();
+        this.capacity = INITIAL_CAPACITY;
+        this.trees = new long[0][];
+        this.values = new long[0];
+        addCells();
+        this.firstStep = 0;
+        this.numSteps = 0;
+    }
+
+    /**
+     * @brief   Adds the current state of the regions of the simulation.
+     *
+     * @param   s   Simulator containing the current state of the simulation.
+     *
+     * @pre     s is not null.
+     * @post    The current step is the last recorded step.
+     */
+    @Override
+    public void accept(Simulator s) {
+        record(s.getSimulationStep(), s.getRegionViruses());
+    }
+
+    /**
+     * @brief   Adds the state of some regions at a step.
+     *
+     * @details A step that has already been recorded is ignored, and the steps
+     *          that were not recorded before this one count as zeros.
+     *
+     * @param   step            Simulation step.
+     * @param   regionViruses   Viruses of each region.
+     *
+     * @pre     regionViruses is not null.
+     * @post    The step is the last recorded step.
+     */
+    public void record(int step, Map<Region, List<Virus>> regionViruses) {
+        if (numSteps == 0)
+            firstStep = step;
+        else if (step < firstStep + numSteps)
+            return;
+        Arrays.fill(values, 0);
+        while (firstStep + numSteps < step)
+            append();
+        int world = numGroupCells - 1;
+        for (Map.Entry<Region, List<Virus>> entry : regionViruses.entrySet()) {
+            Region region = entry.getKey();
+            int group = groups.getCluster(region.getName());
+            if (group < 0)
+                continue;
+            for (Virus virus : entry.getValue()) {
+                int family = virus.getFamily() == null ? 0 : getFamilyIndex(virus.getFamily().getName());
+                for (Metric metric : Metric.values()) {
+                    long value = getValue(region, virus, metric);
+                    values[cell(0, group, metric)] += value;
+                    values[cell(0, world, metric)] += value;
+                    if (family != 0) {
+                        values[cell(family, group, metric)] += value;
+                        values[cell(family, world, metric)] += value;
+                    }
+                }
+            }
+        }
+        append();
+    }
+
+    /**
+     * @param   region  The region.
+     * @param   virus   A virus of the region.
+     * @param   metric  The metric to read.
+     *
+     * @return  The value of the metric for the virus in the region.
+     */
+    private static long getValue(Region region, Virus virus, Metric metric) {
+        switch (metric) {
+            case INFECTED:
+                return region.getNumInfected(virus);
+            case CONTAGIOUS:
+                return region.getNumContagious(virus);
+            case SICK:
+                return region.getNumSick(virus);
+            case DEATHS:
+                return region.getNumDeaths(virus);
+            default:
+                return region.getNumVaccinated(virus);
+        }
+    }
+
+    /**
+     * @param   familyName  The name of a family.
+     *
+     * @return  The index of the family, whose cells are created if it had not
+     *          been found yet.
+     */
+    private int getFamilyIndex(String familyName) {
+        Integer index = familyIndex.get(familyName);
+        if (index == null) {
+            families.add(familyName);
+            index = families.size();
+            familyIndex.put(familyName, index);
+            addCells();
+        }
+        return index;
+    }
+
+    /**
+     * @brief   Creates the cells of a new family, or of all the families.
+     *
+     * @pre     --
+     * @post    The new cells have a zero at every recorded step.
+     */
+    private void addCells() {
+        int numCells = trees.length;
+        trees = Arrays.copyOf(trees, numCells + numGroupCells * NUM_METRICS);
+        for (int c = numCells; c < trees.length; c++)
+            trees[c] = new long[capacity + 1];
+        values = Arrays.copyOf(values, trees.length);
+    }
+
+    /**
+     * @param   family  Index of the family, or 0 for all of them.
+     * @param   group   Index of the group, or the last one for the world.
+     * @param   metric  The metric.
+     *
+     * @return  The index of the cell.
+     */
+    private int cell(int family, int group, Metric metric) {
+        return (family * numGroupCells + group) * NUM_METRICS + metric.ordinal();
+    }
+
+    /**
+     * @brief   Adds the values of every cell as the next step.
+     *
+     * @details Node n of a Fenwick tree is the sum of the lowbit(n) steps that
+     *          end at step n, which is the new value plus the nodes that
+     *          cover the rest of them.
+     *
+     * @pre     --
+     * @post    The values have been recorded and set to zero.
+     */
+    private void append() {
+        int n = numSteps + 1;
+        if (n > capacity) {
+            capacity *= 2;
+            for (int c = 0; c < trees.length; c++)
+                trees[c] = Arrays.copyOf(trees[c], capacity + 1);
+        }
+        int start = n - (n & -n);
+        for (int c = 0; c < trees.length; c++) {
+            long[] tree = trees[c];
+            long sum = values[c];
+            for (int j = n - 1; j > start; j -= j & -j)
+                sum += tree[j];
+            tree[n] = sum;
+            values[c] = 0;
+        }
+        numSteps = n;
+    }
+
+    /**
+     * @param   tree    Fenwick tree of a cell.
+     * @param   n       Number of recorded steps to add.
+     *
+     * @return  The sum of the first n recorded steps.
+     */
+    private static long prefixSum(long[] tree, int n) {
+        long sum = 0;
+        for (int j = n; j > 0; j -= j & -j)
+            sum += tree[j];
+        return sum;
+    }
+
+    /**
+     * @param   metric      The metric.
+     * @param   group       Index of the group, or ALL for the whole world.
+     * @param   familyName  Name of the family, or null for all the families.
+     * @param   fromStep    First simulation step of the range.
+     * @param   toStep      Last simulation step of the range.
+     *
+     * @throws  IllegalArgumentException    if the group does not exist.
+     *
+     * @return  The sum of the metric over the regions of the group, the
+     *          viruses of the family and the recorded steps of the range. A
+     *          family that has not been found yet sums 0.
+     */
+    public long sum(Metric metric, int group, String familyName, int fromStep, int toStep) {
+        if (group != ALL && (group < 0 || group >= groups.getNumClusters()))
+            throw new IllegalArgumentException("Unknown group " + group + ".");
+        int family = 0;
+        if (familyName != null) {
+            Integer index = familyIndex.get(familyName);
+            if (index == null)
+                return 0;
+            family = index;
+        }
+        int from = Math.max(fromStep - firstStep, 0);
+        int to = Math.min(toStep - firstStep + 1, numSteps);
+        if (from >= to)
+            return 0;
+        long[] tree = trees[cell(family, group == ALL ? numGroupCells - 1 : group, metric)];
+        return prefixSum(tree, to) - prefixSum(tree, from);
+    }
+
+    /**
+     * @brief   Sums a metric by group and by buckets of steps.
+     *
+     * @param   metric      The metric.
+     * @param   familyName  Name of the family, or null for all the families.
+     * @param   fromStep    First simulation step of the first bucket.
+     * @param   toStep      Last simulation step of the range.
+     * @param   bucketSteps Number of steps of each bucket.
+     *
+     * @throws  IllegalArgumentException    if bucketSteps is not positive.
+     *
+     * @return  The sums of the metric, by group and by bucket from fromStep.
+     *          The last bucket may be shorter than the others.
+     */
+    public long[][] groupBy(Metric metric, String familyName, int fromStep, int toStep,
+                            int bucketSteps) {
+        if (bucketSteps <= 0)
+            throw new IllegalArgumentException("The buckets must have at least one step.");
+        int numBuckets = toStep < fromStep ? 0 : (toStep - fromStep) / bucketSteps + 1;
+        long[][] sums = new long[groups.getNumClusters()][numBuckets];
+        for (int group = 0; group < sums.length; group++)
+            for (int bucket = 0; bucket < numBuckets; bucket++) {
+                int start = fromStep + bucket * bucketSteps;
+                sums[group][bucket] = sum(metric, group, familyName, start,
+                        Math.min(start + bucketSteps - 1, toStep));
+            }
+        return sums;
+    }
+
+    /** @return The number of groups of regions. */
+    public int getNumGroups() {
+        return groups.getNumClusters();
+    }
+
+    /**
+     * @param   group   Index of the group.
+     *
+     * @return  The label of the group: its first region and the number of
+     *          other regions it contains.
+     */
+    public String getGroupLabel(int group) {
+        return groups.getLabel(group);
+    }
+
+    /**
+     * @param   regionName  The name of a region.
+     *
+     * @return  The index of the group of the region, or -1 if it is unknown.
+     */
+    public int getGroup(String regionName) {
+        return groups.getCluster(regionName);
+    }
+
+    /** @return The names of the families found so far. */
+    public List<String> getFamilies() {
+        return Collections.unmodifiableList(families);
+    }
+
+    /** @return The first recorded simulation step. */
+    public int getFirstStep() {
+        return firstStep;
+    }
+
+    /** @return The last recorded simulation step, or firstStep - 1 if none. */
+    public int getLastStep() {
+        return firstStep + numSteps - 1;
+    }
+}
@@ -0,0 +1,320 @@
+package main.java.com.example;
+
+import java.util.Arrays;
+
+/**
+ * @class   SimulationPartition
+ * @brief   Part of the regions of the mobility graph stepped by one of several
+ *          worker processes.
+ *
+ * @details The regions are split in contiguous blocks of indices of the
+ *          mobility graph, so every process computes the same partition from
+ *          the same files. Since the graph numbers the regions in locality
+ *          order (see MobilityGraph.localityOrder()), each block is a compact
+ *          area of the world with few neighbors in other blocks. Each part steps its own regions and needs, at each
+ *          step, the inhabitants of its halo: the regions of other parts that
+ *          are neighbors of its own. Its boundary is the set of its own
+ *          regions that are in the halo of another part, whose inhabitants it
+ *          publishes at each step.
+ *
+ *          The contagious that the regions of the part send to regions of
+ *          other parts are kept in reusable arrays until they are sent, and
+ *          so are those sent to its own regions, which are imported together
+ *          with the ones received from other parts, in the order of their
+ *          source region.
+ */
+public class SimulationPartition {
+    /** @brief  Index of the part. */
+    private final int part;
+    /** @brief  Number of parts. */
+    private final int numParts;
+    /** @brief  Number of regions of the graph. */
+    private final int numRegions;
+    /** @brief  Own regions that are neighbors of a region of another part. */
+    private final int[] boundary;
+    /** @brief  Regions of other parts that are neighbors of an own region. */
+    private final int[] halo;
+    /** @brief  Own region sending each export. */
+    private int[] exportSources;
+    /** @brief  Region of another part reached by each export. */
+    private int[] exportTargets;
+    /** @brief  Virus of the contagious of each export. */
+    private Virus[] exportViruses;
+    /** @brief  Number of contagious of each export. */
+    private int[] exportTravellers;
+    /** @brief  Number of exports of the step. */
+    private int numExports;
+    /** @brief  Own region sending each contagious that stays in the part. */
+    private int[] localSources;
+    /** @brief  Own region reached by each contagious that stays in the part. */
+    private int[] localTargets;
+    /** @brief  Virus of each contagious that stays in the part. */
+    private Virus[] localViruses;
+    /** @brief  Number of contagious of each arrival that stays in the part. */
+    private int[] localTravellers;
+    /** @brief  Number of arrivals that stay in the part during the step. */
+    private int numLocal;
+
+    /**
+     * @brief   Computes a part of the regions of a graph.
+     *
+     * @param   graph       The mobility graph of all the regions.
+     * @param   part        Index of the part.
+     * @param   numParts    Number of parts.
+     *
+     * @throws  IllegalArgumentException    if the part is not between 0 and
+     *                                      numParts - 1.
+     *
+     * @pre     graph is not null.
+     * @post    The boundary and the halo of the part are sorted by index.
+     */
+    public SimulationPartition(MobilityGraph graph, int part, int numParts) {
+        if (numParts < 1 || part < 0 || part >= numParts)
+            throw new IllegalArgumentException("Invalid part " + part + " of " +
+                    numParts + ".");
+        this.part = part;
+        this.numParts = numParts;
+        this.numRegions = graph.getNumRegions();
+        boolean[] isBoundary = new boolean[numRegions];
+        boolean[] isHalo = new boolean[numRegions];
+        int numBoundary = 0, numHalo = 0;
+        for (int i = 0; i < numRegions; i++) {
+            boolean own = isOwned(i);
+            for (int k = 0; k < graph.getDegree(i); k++) {
+                int j = graph.getNeighbor(i, k);
+                if (own && !isOwned(j) && !isHalo[j]) {
+                    isHalo[j] = true;
+                    numHalo++;
+                } else if (!own && isOwned(j) && !isBoundary[j]) {
+                    isBoundary[j] = true;
+                    numBoundary++;
+                }
+            }
+        }
+        this.boundary = new int[numBoundary];
+        this.halo = new int[numHalo];
+        for (int i = 0, b = 0, h = 0; i < numRegions; i++) {
+            if (isBoundary[i])
+                boundary[b++] = i;
+            if (isHalo[i])
+                halo[h++] = i;
+        }
+        this.exportSources = new int[Math.max(1, numHalo)];
+        this.exportTargets = new int[exportSources.length];
+        this.exportViruses = new Virus[exportSources.length];
+        this.exportTravellers = new int[exportSources.length];
+        this.numExports = 0;
+        this.localSources = new int[Math.max(1, numBoundary)];
+        this.localTargets = new int[localSources.length];
+        this.localViruses = new Virus[localSources.length];
+        this.localTravellers = new int[localSources.length];
+        this.numLocal = 0;
+    }
+
+    /**
+     * @param   i           Index of a region.
+     * @param   numRegions  Number of regions of the graph.
+     * @param   numParts    Number of parts.
+     *
+     * @return  The part that steps the region.
+     */
+    public static int owner(int i, int numRegions, int numParts) {
+        return (int) ((long) i * numParts / numRegions);
+    }
+
+    /** @return The index of the part. */
+    public int getPart() {
+        return part;
+    }
+
+    /** @return The number of parts. */
+    public int getNumParts() {
+        return numParts;
+    }
+
+    /**
+     * @param   i   Index of a region.
+     *
+     * @return  True if the region is stepped by this part.
+     */
+    public boolean isOwned(int i) {
+        return owner(i, numRegions, numParts) == part;
+    }
+
+    /** @return The indices of the regions stepped by this part. */
+    public int[] getOwned() {
+        int first = 0;
+        while (first < numRegions && !isOwned(first))
+            first++;
+        int last = first;
+        while (last < numRegions && isOwned(last))
+            last++;
+        int[] owned = new int[last - first];
+        for (int k = 0; k < owned.length; k++)
+            owned[k] = first + k;
+        return owned;
+    }
+
+    /** @return The own regions that are neighbors of other parts, by index. */
+    public int[] getBoundary() {
+        return boundary.clone();
+    }
+
+    /** @return The regions of other parts next to this one, by index. */
+    public int[] getHalo() {
+        return halo.clone();
+    }
+
+    /**
+     * @brief   Keeps contagious of a virus sent by an own region, to be sent
+     *          to another part or imported by this one.
+     *
+     * @param   source      Index of the region sending the contagious.
+     * @param   target      Index of the region reached.
+     * @param   virus       The virus of the contagious.
+     * @param   travellers  Number of contagious.
+     *
+     * @pre     The source is stepped by this part, and the contagious are
+     *          added in increasing order of source.
+     * @post    The contagious are the last export of the step if the target is
+     *          stepped by another part, or the last local arrival otherwise.
+     */
+    public void addArrival(int source, int target, Virus virus, int travellers) {
+        if (!isOwned(target)) {
+            exportContagious(source, target, virus, travellers);
+            return;
+        }
+        if (numLocal == localSources.length) {
+            localSources = Arrays.copyOf(localSources, 2 * numLocal);
+            localTargets = Arrays.copyOf(localTargets, 2 * numLocal);
+            localViruses = Arrays.copyOf(localViruses, 2 * numLocal);
+            localTravellers = Arrays.copyOf(localTravellers, 2 * numLocal);
+        }
+        localSources[numLocal] = source;
+        localTargets[numLocal] = target;
+        localViruses[numLocal] = virus;
+        localTravellers[numLocal] = travellers;
+        numLocal++;
+    }
+
+    /**
+     * @brief   Keeps contagious of a virus sent to a region of another part.
+     *
+     * @param   source      Index of the region sending the contagious.
+     * @param   target      Index of the region reached.
+     * @param   virus       The virus of the contagious.
+     * @param   travellers  Number of contagious.
+     *
+     * @pre     The region is not stepped by this part.
+     * @post    The contagious are the last export of the step.
+     */
+    public void exportContagious(int source, int target, Virus virus, int travellers) {
+        if (numExports == exportTargets.length) {
+            exportSources = Arrays.copyOf(exportSources, 2 * numExports);
+            exportTargets = Arrays.copyOf(exportTargets, 2 * numExports);
+            exportViruses = Arrays.copyOf(exportViruses, 2 * numExports);
+            exportTravellers = Arrays.copyOf(exportTravellers, 2 * numExports);
+        }
+        exportSources[numExports] = source;
+        exportTargets[numExports] = target;
+        exportViruses[numExports] = virus;
+        exportTravellers[numExports] = travellers;
+        numExports++;
+    }
+
+    /**
+     * @brief   Forgets the exports and the local arrivals of the previous
+     *          step.
+     *
+     * @pre     --
+     * @post    There are no exports and no local arrivals.
+     */
+    public void clearExports() {
+        Arrays.fill(exportViruses, 0, numExports, null);
+        numExports = 0;
+        Arrays.fill(localViruses, 0, numLocal, null);
+        numLocal = 0;
+    }
+
+    /** @return The number of exports of the step. */
+    public int getNumExports() {
+        return numExports;
+    }
+
+    /**
+     * @param   k   Index of the export.
+     *
+     * @return  The index of the region sending the export.
+     */
+    public int getExportSource(int k) {
+        return exportSources[k];
+    }
+
+    /**
+     * @param   k   Index of the export.
+     *
+     * @return  The index of the region reached by the export.
+     */
+    public int getExportTarget(int k) {
+        return exportTargets[k];
+    }
+
+    /**
+     * @param   k   Index of the export.
+     *
+     * @return  The virus of the contagious of the export.
+     */
+    public Virus getExportVirus(int k) {
+        return exportViruses[k];
+    }
+
+    /**
+     * @param   k   Index of the export.
+     *
+     * @return  The number of contagious of the export.
+     */
+    public int getExportTravellers(int k) {
+        return exportTravellers[k];
+    }
+
+    /** @return The number of arrivals of the step that stay in the part. */
+    public int getNumLocalArrivals() {
+        return numLocal;
+    }
+
+    /**
+     * @param   k   Index of the local arrival.
+     *
+     * @return  The index of the region sending the contagious.
+     */
+    public int getLocalSource(int k) {
+        return localSources[k];
+    }
+
+    /**
+     * @param   k   Index of the local arrival.
+     *
+     * @return  The index of the region reached by the contagious.
+     */
+    public int getLocalTarget(int k) {
+        return localTargets[k];
+    }
+
+    /**
+     * @param   k   Index of the local arrival.
+     *
+     * @return  The virus of the contagious.
+     */
+    public Virus getLocalVirus(int k) {
+        return localViruses[k];
+    }
+
+    /**
+     * @param   k   Index of the local arrival.
+     *
+     * @return  The number of contagious.
+     */
+    public int getLocalTravellers(int k) {
+        return localTravellers[k];
+    }
+}
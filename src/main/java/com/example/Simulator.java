@@ -5,17 +5,28 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * @class   Simulator
  * @brief   Initiates the simulation.
  */
 public class Simulator {
+    /** @brief  Totals of the whole world kept for each virus and family. */
+    public enum WorldTotal { INFECTED, CONTAGIOUS, SICK, DEATHS, VACCINATED, TOTAL_DEATHS }
+
+    /** @brief  Number of world totals. */
+    private static final int NUM_TOTALS = WorldTotal.values().length;
+    /** @brief  Number of regions ranked by each metric of the hotspots. */
+    public static final int NUM_HOTSPOTS = 10;
 
     /** @brief List of regions. */
     private static Map<String, Region> a_regions;
     /** @brief List of vaccines. */
     private static Map<String, Vaccine> a_vaccines;
+    /** @brief Name of the target virus of each vaccine loaded before it, by
+     *         name of the vaccine. */
+    private static Map<String, String> a_vaccineTargets;
     /** @brief List of families. */
     static Map<String, Family> a_families;
     /** @brief List of viruses. */
@@ -24,10 +35,58 @@ public class Simulator {
     private static Map<String, VirusDNA> a_virusesDNA;
     /** @brief List of RNA viruses. */
     private static Map<String, VirusRNA> a_virusesRNA;
+    /** @brief Age strata of the inhabitants of every region, or null if
+     *         there is no ages file. */
+    private static AgeStructure a_ages;
     /** @brief List of viruses within each Region. */
     private final Map<Region, List<Virus>> a_region_viruses;
+    /** @brief Keys of a_region_viruses, walked at each step without an iterator. */
+    private final List<Region> a_stepped;
+    /** @brief Indices in a_mobility of the regions of a_stepped, in
+     *         increasing order. */
+    private int[] a_steppedOrder;
+    /** @brief Copy of a_steppedOrder walked while spreading the contagious,
+     *         reused at each step. */
+    private int[] a_sources;
+    /** @brief Step at which each region skipped until a countdown expires is
+     *         fully updated again, or 0 if it is not skipped, by index in
+     *         a_mobility. */
+    private int[] a_wakeStep;
+    /** @brief Number of regions being skipped. */
+    private int a_numQuiet;
+    /** @brief Mutations of the region being updated, reused at each update. */
+    private final List<Virus> a_mutations;
     /** @brief Simulation step. */
     private int a_step;
+    /** @brief Flows of people between the regions. */
+    private MobilityGraph a_mobility;
+    /** @brief Inhabitants of each region at the start of the step, by index in a_mobility. */
+    private int[] a_inhabitants;
+    /** @brief Inhabitants arriving in each region during the step, by index in a_mobility. */
+    private int[] a_external;
+    /** @brief Neighbors reached by the contagious of a region, by index in a_mobility. */
+    private int[] a_targets;
+    /** @brief Contagious arriving in each neighbor in a_targets. */
+    private int[] a_arrivals;
+    /** @brief Listeners notified at the end of each simulation step. */
+    private final List<Consumer<Simulator>> a_stepListeners;
+    /** @brief Index of the part of the regions stepped by this simulator. */
+    private int a_part;
+    /** @brief Number of parts the regions are split into, or 0 if they are
+     *         not split. */
+    private int a_numParts;
+    /** @brief Regions stepped by this simulator, or null if it steps them all. */
+    private SimulationPartition a_partition;
+    /** @brief World totals of each virus: those of the last step, followed by
+     *         those being added during the step. */
+    private final Map<Virus, long[]> a_virusTotals;
+    /** @brief World totals of each family, as in a_virusTotals. */
+    private final Map<Family, long[]> a_familyTotals;
+    /** @brief Values of a_virusTotals and a_familyTotals, walked at each step
+     *         without an iterator. */
+    private final List<long[]> a_allTotals;
+    /** @brief Regions with the most infected, sick and deaths. */
+    private final HotspotIndex a_hotspots;
 
     /**
      * @brief   Constructor of the Simulator class.
@@ -39,12 +98,24 @@ public class Simulator {
     Simulator() {
         a_regions = new HashMap<>();
         a_vaccines = new HashMap<>();
+        a_vaccineTargets = new HashMap<>();
         a_virusesDNA = new HashMap<>();
         a_virusesRNA = new HashMap<>();
         a_viruses = new HashMap<>();
         a_families = new HashMap<>();
+        a_ages = null;
         this.a_region_viruses = new HashMap<>();
+        this.a_stepped = new ArrayList<>();
+        this.a_numQuiet = 0;
+        this.a_mutations = new ArrayList<>();
         this.a_step = 0;
+        this.a_stepListeners = new ArrayList<>();
+        this.a_part = 0;
+        this.a_numParts = 0;
+        this.a_virusTotals = new HashMap<>();
+        this.a_familyTotals = new HashMap<>();
+        this.a_allTotals = new ArrayList<>();
+        this.a_hotspots = new HotspotIndex(NUM_HOTSPOTS);
     }
 
     /**
@@ -58,9 +129,28 @@ public class Simulator {
      * @post    Adds the specified virus to each region as indicated in the
      *          "initialState.txt" file.
      *          Also saves this information in the Map a_region_viruses using
-     *          the method AddVirusToRegion();
+     *          the method AddVirusToRegion(), and builds the mobility graph of
+     *          the loaded regions, numbered so that neighbors are close (see
+     *          MobilityGraph.localityOrder()). If an ages file was loaded, the
+     *          inhabitants of every region are split into its age strata
+     *          first. If the regions are split into parts (see
+     *          usePartition()), only the regions of this part are infected.
      */
     public void initializeSimulation(String filepath) throws IOException {
+        if (a_ages != null)
+            for (Region r : a_regions.values())
+                r.useAgeStructure(a_ages);
+        a_mobility = new MobilityGraph(MobilityGraph.localityOrder(a_regions.values()));
+        a_inhabitants = new int[a_mobility.getNumRegions()];
+        a_external = new int[a_mobility.getNumRegions()];
+        a_wakeStep = new int[a_mobility.getNumRegions()];
+        a_steppedOrder = new int[a_mobility.getNumRegions()];
+        a_sources = new int[a_mobility.getNumRegions()];
+        a_targets = new int[a_mobility.getMaxDegree()];
+        a_arrivals = new int[a_mobility.getMaxDegree()];
+        if (a_numParts > 0)
+            a_partition = new SimulationPartition(a_mobility, a_part, a_numParts);
+
         List<Pair<String, List<Pair<String, Integer>>>> virus_regions;
         File selectedFile = new File(filepath);
         virus_regions = processInitialStateFiles(selectedFile);
@@ -72,6 +162,8 @@ public class Simulator {
                 System.err.println("Region not found: " + r);
                 continue;
             }
+            if (a_partition != null && !a_partition.isOwned(a_mobility.indexOf(region)))
+                continue;
             for (Pair<String, Integer> pair2 : pair.second) {
                 String v = pair2.first;
                 Integer p_sick = pair2.second;
@@ -85,25 +177,443 @@ public class Simulator {
                 AddVirusToRegion(region, virus);
             }
         }
+        for (int i = 0; i < a_stepped.size(); i++)
+            addToWorldTotals(a_stepped.get(i));
+        publishWorldTotals();
     }
 
     /**
      * @brief   Simulates a step of the simulator.
      *
+     * @details A region where nobody can be infected only changes through
+     *          countdowns (see Region.getQuietSteps()). Such a region is
+     *          skipped up to the step at which the next countdown expires, and
+     *          only records its state in between, unless a new virus, the
+     *          contagious of a neighbor or an intervention wakes it up before.
+     *
+     *          A skipped region is still visited at every step, in constant
+     *          time per virus: its visitors depend on the inhabitants of its
+     *          neighbors at that step, the people it sends to its neighbors on
+     *          its own inhabitants, which change with its visitors, and its
+     *          state of every step is read by regionState(), the history and
+     *          the world totals.
+     *
      * @pre     --
      * @post    Updates the information for each region in the Map
-     *          a_region_viruses for each virus within it.
+     *          a_region_viruses for each virus within it and notifies the step
+     *          listeners. The people arriving in each region are computed for
+     *          all the regions at once from the inhabitants at the start of
+     *          the step, and so are the contagious (see spreadContagious()). Unless a new variant appears or the region states
+     *          need more room (see reserveSteps()), no object is created.
      */
     public void simulate() {
-        for (Map.Entry<Region, List<Virus>> r_Entry : a_region_viruses.entrySet()) {
-            List<Virus> mutations = new ArrayList<>();
-            Region r = r_Entry.getKey();
-            r.updateRegion(mutations);
-            for (Virus v : mutations) {
-                AddVirusToRegion(r, v);
+        gatherInhabitants();
+        computeExternalPopulations();
+        spreadContagious();
+        updateRegions();
+    }
+
+    /**
+     * @brief   Copies the inhabitants of every region at the start of the step.
+     *
+     * @pre     The simulation has been initialized.
+     * @post    getInhabitants() returns the inhabitants of each region.
+     */
+    void gatherInhabitants() {
+        a_mobility.gatherInhabitants(a_inhabitants);
+    }
+
+    /**
+     * @param   index   Index of the region in the mobility graph.
+     *
+     * @return  The inhabitants of the region at the start of the step.
+     */
+    int getInhabitants(int index) {
+        return a_inhabitants[index];
+    }
+
+    /**
+     * @brief   Replaces the inhabitants of a region at the start of the step,
+     *          with those received from the part that steps it.
+     *
+     * @param   index       Index of the region in the mobility graph.
+     * @param   inhabitants Inhabitants of the region.
+     *
+     * @pre     gatherInhabitants() has been called in this step.
+     * @post    The people arriving from the region are computed from the
+     *          given inhabitants.
+     */
+    void setInhabitants(int index, int inhabitants) {
+        a_inhabitants[index] = inhabitants;
+    }
+
+    /**
+     * @brief   Computes the people arriving in every region during the step.
+     *
+     * @pre     The inhabitants of the step have been gathered.
+     * @post    The arrivals of each region are ready for the update.
+     */
+    void computeExternalPopulations() {
+        a_mobility.computeExternalPopulations(a_inhabitants, a_external);
+    }
+
+    /**
+     * @brief   Updates the regions with viruses and ends the step.
+     *
+     * @pre     The contagious of the step have been spread.
+     * @post    The regions have recorded their state, the step number has
+     *          increased and the step listeners have been notified.
+     */
+    void updateRegions() {
+        for (int i = 0; i < a_stepped.size(); i++) {
+            Region r = a_stepped.get(i);
+            int index = a_mobility.indexOf(r);
+            int external = a_external[index];
+            if (a_wakeStep[index] != 0) {
+                if (a_step < a_wakeStep[index]) {
+                    r.skipStep(external);
+                    addToWorldTotals(r);
+                    continue;
+                }
+                wake(r);
+            }
+            a_mutations.clear();
+            r.updateRegion(a_mutations, external);
+            for (int m = 0; m < a_mutations.size(); m++) {
+                AddVirusToRegion(r, a_mutations.get(m));
+            }
+            int quietSteps = r.getQuietSteps();
+            if (quietSteps > 0) {
+                a_wakeStep[index] = quietSteps == Integer.MAX_VALUE ?
+                        Integer.MAX_VALUE : a_step + 1 + quietSteps;
+                a_numQuiet++;
             }
+            addToWorldTotals(r);
         }
+        publishWorldTotals();
         a_step++;
+        for (int i = 0; i < a_stepListeners.size(); i++) {
+            a_stepListeners.get(i).accept(this);
+        }
+    }
+
+    /**
+     * @brief   Adds the counts of a region that has just been stepped to the
+     *          world totals being added during the step, and offers the
+     *          region to the hotspots.
+     *
+     * @param   r   The region.
+     *
+     * @pre     r is in a_region_viruses.
+     * @post    The counts of each virus of the region have been added to the
+     *          totals of the virus and of its family.
+     */
+    private void addToWorldTotals(Region r) {
+        List<Virus> viruses = a_region_viruses.get(r);
+        long regionInfected = 0, regionSick = 0, regionDeaths = 0;
+        for (int v = 0; v < viruses.size(); v++) {
+            Virus virus = viruses.get(v);
+            int infected = r.getNumInfected(virus);
+            int contagious = r.getNumContagious(virus);
+            int sick = r.getNumSick(virus);
+            int deaths = r.getNumDeaths(virus);
+            int vaccinated = r.getNumVaccinated(virus);
+            long[] virusTotals = a_virusTotals.get(virus);
+            if (virusTotals == null) {
+                virusTotals = new long[2 * NUM_TOTALS];
+                a_virusTotals.put(virus, virusTotals);
+                a_allTotals.add(virusTotals);
+            }
+            addTotals(virusTotals, infected, contagious, sick, deaths, vaccinated);
+            if (virus.getFamily() != null) {
+                long[] familyTotals = a_familyTotals.get(virus.getFamily());
+                if (familyTotals == null) {
+                    familyTotals = new long[2 * NUM_TOTALS];
+                    a_familyTotals.put(virus.getFamily(), familyTotals);
+                    a_allTotals.add(familyTotals);
+                }
+                addTotals(familyTotals, infected, contagious, sick, deaths, vaccinated);
+            }
+            regionInfected += infected;
+            regionSick += sick;
+            regionDeaths += deaths;
+        }
+        a_hotspots.offer(r, regionInfected, regionSick, regionDeaths);
+    }
+
+    /**
+     * @param   totals      Totals of a virus or family, as in a_virusTotals.
+     * @param   infected    Infected of a region.
+     * @param   contagious  Contagious of the region.
+     * @param   sick        Sick of the region.
+     * @param   deaths      Deaths of the region at the step.
+     * @param   vaccinated  Vaccinated of the region.
+     */
+    private static void addTotals(long[] totals, int infected, int contagious,
+                                  int sick, int deaths, int vaccinated) {
+        totals[NUM_TOTALS + WorldTotal.INFECTED.ordinal()] += infected;
+        totals[NUM_TOTALS + WorldTotal.CONTAGIOUS.ordinal()] += contagious;
+        totals[NUM_TOTALS + WorldTotal.SICK.ordinal()] += sick;
+        totals[NUM_TOTALS + WorldTotal.DEATHS.ordinal()] += deaths;
+        totals[NUM_TOTALS + WorldTotal.VACCINATED.ordinal()] += vaccinated;
+    }
+
+    /**
+     * @brief   Makes the totals added during the step the world totals.
+     *
+     * @details This is the barrier of the step: the totals read during the
+     *          step are those of the previous one, and are replaced all at
+     *          once by those of the regions just stepped.
+     *
+     * @pre     Every stepped region has been added to the totals.
+     * @post    The totals and the hotspots of the step are published and the
+     *          next ones start from 0.
+     */
+    private void publishWorldTotals() {
+        int totalDeaths = WorldTotal.TOTAL_DEATHS.ordinal();
+        for (int i = 0; i < a_allTotals.size(); i++) {
+            long[] totals = a_allTotals.get(i);
+            long cumulativeDeaths = totals[totalDeaths] + totals[NUM_TOTALS + WorldTotal.DEATHS.ordinal()];
+            System.arraycopy(totals, NUM_TOTALS, totals, 0, NUM_TOTALS);
+            totals[totalDeaths] = cumulativeDeaths;
+            Arrays.fill(totals, NUM_TOTALS, 2 * NUM_TOTALS, 0);
+        }
+        a_hotspots.publish();
+    }
+
+    /**
+     * @param   virus   The virus.
+     * @param   total   The total to read.
+     *
+     * @return  The total of the virus over all the regions stepped by this
+     *          simulator at the end of the last step, or 0 if the virus has
+     *          not reached any region. The totals of the viruses of a region
+     *          vaccinated since then are not updated until the next step.
+     */
+    public long getWorldTotal(Virus virus, WorldTotal total) {
+        long[] totals = a_virusTotals.get(virus);
+        return totals == null ? 0 : totals[total.ordinal()];
+    }
+
+    /** @return  The regions with the most infected, sick and deaths at the
+     *           end of the last step. */
+    public HotspotIndex getHotspots() {
+        return a_hotspots;
+    }
+
+    /**
+     * @param   family  The family.
+     * @param   total   The total to read.
+     *
+     * @return  The total of all the viruses of the family, variants included,
+     *          as in getWorldTotal().
+     */
+    public long getFamilyTotal(Family family, WorldTotal total) {
+        long[] totals = a_familyTotals.get(family);
+        return totals == null ? 0 : totals[total.ordinal()];
+    }
+
+    /**
+     * @brief   Carries the contagious of each region to its neighbors.
+     *
+     * @details The contagious of each virus travel through the open edges of
+     *          the mobility graph with the same percentages as the rest of the
+     *          inhabitants. They mix with the inhabitants of the neighbors
+     *          during the step (see Region.importContagious()), so a virus can
+     *          reach a region where it was not present. Only the edges of the
+     *          regions with contagious are walked, and quiet regions have
+     *          none. The regions are walked in the order of their index in
+     *          the mobility graph, so the viruses reach each region in the same
+     *          order whether the regions are split into parts or not. The
+     *          contagious reaching any region are kept by the partition, if
+     *          any, to be imported by the worker in that order (see
+     *          PartitionWorker).
+     *
+     * @pre     --
+     * @post    Every region reached by contagious has them imported, has the
+     *          virus in a_region_viruses and is fully updated in this step.
+     */
+    void spreadContagious() {
+        if (a_partition != null)
+            a_partition.clearExports();
+        // The regions joining during the walk have no contagious yet
+        int numStepped = a_stepped.size();
+        System.arraycopy(a_steppedOrder, 0, a_sources, 0, numStepped);
+        for (int i = 0; i < numStepped; i++) {
+            int index = a_sources[i];
+            if (a_wakeStep[index] != 0) {
+                continue;
+            }
+            Region r = a_mobility.getRegion(index);
+            List<Virus> viruses = a_region_viruses.get(r);
+            int numViruses = viruses.size();
+            for (int v = 0; v < numViruses; v++) {
+                Virus virus = viruses.get(v);
+                int contagious = Math.min(r.getNumContagious(virus), r.getNumInhabitants());
+                if (contagious <= 0) {
+                    continue;
+                }
+                int n = a_mobility.spreadTravellers(index, contagious, a_targets, a_arrivals);
+                for (int k = 0; k < n; k++) {
+                    if (a_partition != null)
+                        a_partition.addArrival(index, a_targets[k], virus, a_arrivals[k]);
+                    else
+                        importContagious(a_targets[k], virus, a_arrivals[k]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief   Brings contagious of a virus into a region for this step.
+     *
+     * @param   index       Index of the region in the mobility graph.
+     * @param   virus       The virus of the contagious.
+     * @param   travellers  Number of contagious arriving.
+     *
+     * @pre     travellers is not negative.
+     * @post    The region has the contagious imported, has the virus in
+     *          a_region_viruses and is fully updated in this step.
+     */
+    void importContagious(int index, Virus virus, int travellers) {
+        Region region = a_mobility.getRegion(index);
+        region.importContagious(virus, travellers);
+        AddVirusToRegion(region, virus);
+    }
+
+    /**
+     * @brief   Steps only a part of the regions, the rest being stepped by
+     *          other simulators (see PartitionWorker).
+     *
+     * @param   part        Index of the part of this simulator.
+     * @param   numParts    Number of parts.
+     *
+     * @throws  IllegalArgumentException    if the part is not between 0 and
+     *                                      numParts - 1.
+     *
+     * @pre     The simulation has not been initialized yet.
+     * @post    initializeSimulation() only infects the regions of the part, and
+     *          the contagious reaching other parts are kept by
+     *          getPartition().
+     */
+    public void usePartition(int part, int numParts) {
+        if (numParts < 1 || part < 0 || part >= numParts)
+            throw new IllegalArgumentException("Invalid part " + part + " of " +
+                    numParts + ".");
+        a_part = part;
+        a_numParts = numParts;
+    }
+
+    /** @return  The regions stepped by this simulator, or null if usePartition()
+     *           was not called. */
+    public SimulationPartition getPartition() {
+        return a_partition;
+    }
+
+    /**
+     * @brief   Makes room for the region states of a number of steps.
+     *
+     * @param   steps   Number of steps that will be simulated.
+     *
+     * @pre     steps is not negative.
+     * @post    The next steps record the region states without allocating
+     *          memory, unless new variants appear.
+     */
+    public void reserveSteps(int steps) {
+        for (Region r : a_regions.values()) {
+            r.reserveSteps(steps);
+        }
+    }
+
+    /**
+     * @brief   Limits the number of steps whose region states are kept whole
+     *          (see Region.retainSteps()).
+     *
+     * @param   steps   Number of last steps kept, or 0 to keep them all.
+     *
+     * @throws  IllegalArgumentException    if steps is negative.
+     *
+     * @pre     --
+     * @post    The memory of the region states no longer grows with the
+     *          steps, unless steps is 0.
+     */
+    public void retainSteps(int steps) {
+        for (Region r : a_regions.values()) {
+            r.retainSteps(steps);
+        }
+    }
+
+    /**
+     * @brief   Simulates every region agent by agent (see Region.useAgents()).
+     *
+     * @param   seed    Seed of the random numbers of the agents.
+     *
+     * @pre     The simulation has not been initialized yet.
+     * @post    The viruses added to the regions are simulated agent by agent.
+     */
+    public void useAgents(long seed) {
+        for (Region r : a_regions.values()) {
+            r.useAgents(seed);
+        }
+    }
+
+    /**
+     * @brief   Wakes up a region so that it is fully updated again.
+     *
+     * @param   r   Region to wake up.
+     *
+     * @pre     --
+     * @post    The region is fully updated at the next step.
+     */
+    private void wake(Region r) {
+        int index = a_mobility.indexOf(r);
+        if (index >= 0 && a_wakeStep[index] != 0) {
+            a_wakeStep[index] = 0;
+            a_numQuiet--;
+        }
+    }
+
+    /** @return  The number of regions that are fully updated at each step. */
+    public int getNumActiveRegions() {
+        return a_stepped.size() - a_numQuiet;
+    }
+
+    /**
+     * @return  True if nobody can be infected in any region anymore, so the
+     *          following steps only count down immunities, vaccines and
+     *          lockdowns until a new intervention.
+     */
+    public boolean isQuiescent() {
+        return a_numQuiet == a_stepped.size();
+    }
+
+    /**
+     * @return  The step at which the next countdown of a quiet region expires,
+     *          or Integer.MAX_VALUE if none is pending.
+     */
+    public int getNextEventStep() {
+        int nextEventStep = Integer.MAX_VALUE;
+        for (int wakeStep : a_wakeStep) {
+            if (wakeStep != 0) {
+                nextEventStep = Math.min(nextEventStep, wakeStep);
+            }
+        }
+        return nextEventStep;
+    }
+
+    /**
+     * @brief   Adds a listener notified at the end of each simulation step.
+     *
+     * @details Listeners run on the simulation thread, so they must return
+     *          quickly and leave any slow work to another thread.
+     *
+     * @param   listener    Listener to add.
+     *
+     * @pre     listener is not null.
+     * @post    The listener will be called after every call to simulate().
+     */
+    public void addStepListener(Consumer<Simulator> listener) {
+        a_stepListeners.add(listener);
     }
 
     /**
@@ -113,10 +623,17 @@ public class Simulator {
      * @param   v   Virus to add.
      */
     private void AddVirusToRegion(Region r, Virus v) {
+        wake(r);
         if (a_region_viruses.get(r) == null) { // If the region is not in the list, add it with the specified virus
             List<Virus> l_Viruses = new ArrayList<>();
             l_Viruses.add(v);
             a_region_viruses.put(r, l_Viruses);
+            a_stepped.add(r);
+            int index = a_mobility.indexOf(r);
+            if (index >= 0) {
+                r.joinAt(a_step, a_external[index]);
+                insertStepped(index);
+            }
         } else { // If the region is already in the list, add the specified virus to it
             List<Virus> l_Viruses = a_region_viruses.get(r);
             if (!l_Viruses.contains(v)) { // Only add the virus if it is not already in the list.
@@ -125,6 +642,21 @@ public class Simulator {
         }
     }
 
+    /**
+     * @param   index   Index in the mobility graph of a region just added to
+     *                  a_stepped.
+     *
+     * @pre     The region is not in a_steppedOrder.
+     * @post    a_steppedOrder contains the region and is still sorted.
+     */
+    private void insertStepped(int index) {
+        int n = a_stepped.size() - 1;
+        int position = Arrays.binarySearch(a_steppedOrder, 0, n, index);
+        position = -position - 1;
+        System.arraycopy(a_steppedOrder, position, a_steppedOrder, position + 1, n - position);
+        a_steppedOrder[position] = index;
+    }
+
     /**
      * @brief   Adds a vaccine to a region for a percentage of the population.
      *
@@ -140,6 +672,7 @@ public class Simulator {
     public void vaccinateRegion(Region r, Vaccine v, Integer p_vaccinated) {
         Region r_vaccinate = a_regions.get(r.getName());
         Vaccine vaccine = a_vaccines.get(v.getName());
+        wake(r_vaccinate);
         r_vaccinate.vaccinate(vaccine, p_vaccinated);
     }
 
@@ -154,6 +687,7 @@ public class Simulator {
      * @post    Confines region r with the parameters of confinement c.
      */
     public void confine(Region r, Confinement c) {
+        wake(r);
         r.applyHardLockdown(c);
     }
 
@@ -166,6 +700,7 @@ public class Simulator {
      * @post    Releases region r.
      */
     public void release(Region r) {
+        wake(r);
         r.relaxLockdown();
     }
 
@@ -201,6 +736,31 @@ public class Simulator {
         r.relaxClosure(closure_region);
     }
 
+    /**
+     * @brief   Closes the flow of people from and to every region of a set,
+     *          for example to lock down a whole area at once.
+     *
+     * @param   regions Regions whose flows are closed.
+     *
+     * @pre     The simulation has been initialized.
+     * @post    Every flow of people from or to one of the regions is closed.
+     */
+    public void closeAllFlows(Collection<Region> regions) {
+        a_mobility.setAllFlows(regions, false);
+    }
+
+    /**
+     * @brief   Opens the flow of people from and to every region of a set.
+     *
+     * @param   regions Regions whose flows are opened.
+     *
+     * @pre     The simulation has been initialized.
+     * @post    Every flow of people from or to one of the regions is open.
+     */
+    public void openAllFlows(Collection<Region> regions) {
+        a_mobility.setAllFlows(regions, true);
+    }
+
     /** @return  The current simulation step. */
     public Integer getSimulationStep() { return a_step; }
 
@@ -215,6 +775,16 @@ public class Simulator {
     /** @return  The map of all vaccines. */
     public Map<String, Vaccine> getVaccines() { return a_vaccines; }
 
+    /**
+     * @param   name    Name of a virus of the viruses file.
+     *
+     * @return  The virus, or null if there is none with the name.
+     */
+    public Virus getVirus(String name) { return a_viruses.get(name); }
+
+    /** @return  The flows of people between the regions. */
+    public MobilityGraph getMobilityGraph() { return a_mobility; }
+
     /**
      * @brief   Loads the data from the selected file.
      *
@@ -236,6 +806,8 @@ public class Simulator {
             processVaccineFile(selectedFile);
         } else if (fileName.startsWith("initial")) {
             processInitialStateFiles(selectedFile);
+        } else if (fileName.startsWith("age")) {
+            processAgeFile(selectedFile);
         } else {
             System.out.println("Unsupported file type: " + fileName);
         }
@@ -265,7 +837,10 @@ public class Simulator {
                 }
                 String vaccineName = vaccineParts[1];
                 String type = reader.readLine().split(" ", 3)[1];
-                Virus virus = a_viruses.get(reader.readLine().split(" ", 3)[1]);
+                String targetName = reader.readLine().split(" ", 3)[1];
+                Virus virus = a_viruses.get(targetName);
+                if (virus == null) // The viruses may be loaded afterwards
+                    a_vaccineTargets.put(vaccineName, targetName);
                 if (type.equals("attenuating")) {
                     int activationTime = Integer.parseInt(reader.readLine().split(" ", 3)[1]);
                     int duration = Integer.parseInt(reader.readLine().split(" ", 3)[1]);
@@ -288,6 +863,80 @@ public class Simulator {
         System.out.println("Vaccines loaded");
     }
 
+    /**
+     * @brief   Gives their target virus to the vaccines loaded before it.
+     *
+     * @pre     --
+     * @post    The vaccines whose target virus has been loaded target it.
+     */
+    private static void resolveVaccineTargets() {
+        Iterator<Map.Entry<String, String>> it = a_vaccineTargets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> entry = it.next();
+            Virus virus = a_viruses.get(entry.getValue());
+            if (virus != null) {
+                a_vaccines.get(entry.getKey()).setTargetVirus(virus);
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @brief   Processes the file containing the age strata of the
+     *          inhabitants.
+     *
+     * @details Each stratum has a name, its share of the inhabitants, its
+     *          average contacts with each stratum, in the order of the file,
+     *          and the factors applied to the disease probability and the
+     *          mortality rate of the viruses.
+     *
+     * @param   file        File containing the data of all the strata.
+     * @throws  IOException If the file does not exist.
+     *
+     * @pre     --
+     * @post    Processes the file and stores the strata in a_ages, which are
+     *          applied to every region when the simulation is initialized.
+     */
+    private static void processAgeFile(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new FileReader(file));
+        String line = reader.readLine();
+        List<String> names = new ArrayList<>();
+        List<Double> shares = new ArrayList<>();
+        List<double[]> contacts = new ArrayList<>();
+        List<Double> diseaseFactors = new ArrayList<>();
+        List<Double> mortalityFactors = new ArrayList<>();
+        if (line.equals("ages")) {
+            while ((line = reader.readLine()) != null) {
+                if (line.equals("*")) {
+                    continue;
+                }
+                String[] ageParts = line.split(" ", 3);
+                if (ageParts.length < 2) {
+                    continue; // Skip malformed lines
+                }
+                names.add(ageParts[1]);
+                shares.add(Double.parseDouble(reader.readLine().split(" ", 3)[1].replace("%", "")));
+                String[] row = reader.readLine().trim().split(" +");
+                double[] stratumContacts = new double[row.length - 1];
+                for (int i = 1; i < row.length; i++)
+                    stratumContacts[i - 1] = Double.parseDouble(row[i]);
+                contacts.add(stratumContacts);
+                diseaseFactors.add(Double.parseDouble(reader.readLine().split(" ", 3)[1]));
+                mortalityFactors.add(Double.parseDouble(reader.readLine().split(" ", 3)[1]));
+            }
+        }
+        reader.close();
+        int k = names.size();
+        double[] shareArray = new double[k], diseaseArray = new double[k], mortalityArray = new double[k];
+        for (int i = 0; i < k; i++) {
+            shareArray[i] = shares.get(i);
+            diseaseArray[i] = diseaseFactors.get(i);
+            mortalityArray[i] = mortalityFactors.get(i);
+        }
+        a_ages = new AgeStructure(names.toArray(new String[0]), shareArray,
+                contacts.toArray(new double[0][]), diseaseArray, mortalityArray);
+        System.out.println("Ages loaded");
+    }
 
     /**
      * @brief   Processes the file containing the regions.
@@ -418,6 +1067,7 @@ public class Simulator {
             line = reader.readLine();
         }
         reader.close();
+        resolveVaccineTargets();
         System.out.println("Viruses loaded");
     }
 
@@ -1,8 +1,5 @@
 package main.java.com.example;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * @class   Statistics
  * @brief   Stores all the statistics maps.
@@ -10,74 +7,146 @@ import java.util.List;
 public class Statistics {
 
     /** @brief  Incubation of the infected for each virus. */
-    private final List<Pair<Integer, Integer>> infected;
+    private final Cohorts infected;
     /** @brief  The total number of infected since the simulation started. */
-    private Integer totalInfected;
+    private int totalInfected;
     /** @brief  Latency of the infected for each virus. */
-    private final List<Pair<Integer, Integer>> latents;
+    private final Cohorts latents;
     /** @brief  Contagion of the infected for each virus. */
-    private final List<Pair<Integer, Integer>> contagious;
+    private final Cohorts contagious;
     /** @brief  The total number of contagious since the simulation started. */
-    private Integer totalContagious;
+    private int totalContagious;
     /** @brief  Sick people for each virus. */
-    private final List<Pair<Integer, Integer>> sick;
+    private final Cohorts sick;
     /** @brief  The total number of sick people since the simulation started. */
-    private  Integer totalSick;
+    private int totalSick;
     /** @brief  Immune people for each virus. */
-    private final List<Pair<Integer, Integer>> immune;
+    private final Cohorts immune;
     /** @brief Number of deaths for each virus. */
-    private Integer deaths;
+    private int deaths;
     /** @brief  Number of cured people for each virus. */
-    private Integer cured;
+    private int cured;
     /** @brief  The total number of vaccinated people since the simulation started. */
-    private Integer totalVaccinated;
+    private int totalVaccinated;
+    /** @brief  Contagious people arriving from the neighboring regions during
+     *          the current step. */
+    private int imported;
+    /** @brief  Agents of the region for the virus, or null in the compartment
+     *          model. */
+    private AgentPopulation agents;
+    /** @brief  Counts of each age stratum, shaped [stratum][stage] (see
+     *          AgeStructure), or null if the region has no strata. */
+    private int[] strata;
+    /** @brief  True if a vaccine has effects on the virus in the region. */
+    private boolean attenuated;
+    /** @brief  Probability of developing the disease with the effects of the
+     *          vaccines. */
+    private double diseaseProbability;
+    /** @brief  Duration of the disease with the effects of the vaccines. */
+    private int diseaseDuration;
+    /** @brief  Mortality rate with the effects of the vaccines. */
+    private double mortalityRate;
+    /** @brief  Contagion rate with the effects of the vaccines. */
+    private double contagionRate;
 
     public Statistics() {
-        infected = new ArrayList<>();
+        infected = new Cohorts();
         totalInfected = 0;
-        latents = new ArrayList<>();
-        contagious = new ArrayList<>();
+        latents = new Cohorts();
+        contagious = new Cohorts();
         totalContagious = 0;
-        sick = new ArrayList<>();
+        sick = new Cohorts();
         totalSick = 0;
-        immune = new ArrayList<>();
+        immune = new Cohorts();
         deaths = 0;
         cured = 0;
         totalVaccinated = 0;
+        imported = 0;
+        agents = null;
+        strata = null;
+        attenuated = false;
     }
 
     /** @return A list of the infected for a virus. */
-    public List<Pair<Integer, Integer>> getInfected() { return infected; }
+    public Cohorts getInfected() { return infected; }
 
     /** @return The total infected for a virus. */
-    public Integer getTotalInfected() { return totalInfected; }
+    public int getTotalInfected() { return totalInfected; }
 
     /** @return A list of the latency of the infected for a virus. */
-    public List<Pair<Integer, Integer>> getLatents() { return latents; }
+    public Cohorts getLatents() { return latents; }
 
     /** @return A list of the contagious for a virus. */
-    public List<Pair<Integer, Integer>> getContagious() { return contagious; }
+    public Cohorts getContagious() { return contagious; }
 
     /** @return The total contagious. */
-    public Integer getTotalContagious() { return totalContagious; }
+    public int getTotalContagious() { return totalContagious; }
 
     /** @return A list of the sick for a virus. */
-    public List<Pair<Integer, Integer>> getSick() { return sick; }
+    public Cohorts getSick() { return sick; }
 
     /** @return The total sick. */
-    public Integer getTotalSick() { return totalSick; }
+    public int getTotalSick() { return totalSick; }
 
     /** @return A list of the immune for a virus. */
-    public List<Pair<Integer, Integer>> getImmune() { return immune; }
+    public Cohorts getImmune() { return immune; }
 
     /** @return The total number of deaths. */
-    public Integer getDeaths() { return deaths; }
+    public int getDeaths() { return deaths; }
 
     /** @return The number of cured people for the virus. */
-    public Integer getCured() { return cured; }
+    public int getCured() { return cured; }
 
     /** @return The total number of vaccinated. */
-    public Integer getTotalVaccinated() { return totalVaccinated; }
+    public int getTotalVaccinated() { return totalVaccinated; }
+
+    /** @return The contagious arriving from the neighboring regions. */
+    public int getImported() { return imported; }
+
+    /** @return The agents of the virus, or null in the compartment model. */
+    public AgentPopulation getAgents() { return agents; }
+
+    /** @return The counts of each age stratum, or null without strata. */
+    public int[] getStrata() { return strata; }
+
+    /** @return True if a vaccine has effects on the virus in the region. */
+    public boolean isAttenuated() { return attenuated; }
+
+    /**
+     * @param   virus   The virus of the statistics.
+     *
+     * @return  The probability of developing the disease in the region.
+     */
+    public double getDiseaseProbability(Virus virus) {
+        return attenuated ? diseaseProbability : virus.getDiseaseProbability();
+    }
+
+    /**
+     * @param   virus   The virus of the statistics.
+     *
+     * @return  The duration of the disease in the region.
+     */
+    public int getDiseaseDuration(Virus virus) {
+        return attenuated ? diseaseDuration : virus.getDiseaseDuration();
+    }
+
+    /**
+     * @param   virus   The virus of the statistics.
+     *
+     * @return  The mortality rate of the virus in the region.
+     */
+    public double getMortalityRate(Virus virus) {
+        return attenuated ? mortalityRate : virus.getMortalityRate();
+    }
+
+    /**
+     * @param   virus   The virus of the statistics.
+     *
+     * @return  The contagion rate of the virus in the region.
+     */
+    public double getContagionRate(Virus virus) {
+        return attenuated ? contagionRate : virus.getContagionRate();
+    }
 
     /**
      * @param   totalInfected   Integer with the total of infected people.
@@ -85,7 +154,7 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of infected people.
      */
-    void increaseInfected(Integer totalInfected) {
+    void increaseInfected(int totalInfected) {
         this.totalInfected += totalInfected;
     }
 
@@ -95,7 +164,7 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of contagious.
      */
-    void increaseContagious(Integer totalContagious) {
+    void increaseContagious(int totalContagious) {
         this.totalContagious += totalContagious;
     }
 
@@ -105,7 +174,7 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of sick people.
      */
-    void increaseSick(Integer totalSick) { this.totalSick += totalSick; }
+    void increaseSick(int totalSick) { this.totalSick += totalSick; }
 
     /**
      * @param   deaths  Integer with the total deaths.
@@ -113,7 +182,7 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of deaths.
      */
-    void setDeaths(Integer deaths) { this.deaths = deaths; }
+    void setDeaths(int deaths) { this.deaths = deaths; }
 
     /**
      * @param   cured   Integer with the total cured.
@@ -121,7 +190,7 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of cured people.
      */
-    void setCured(Integer cured) { this.cured = cured; }
+    void setCured(int cured) { this.cured = cured; }
 
     /**
      * @param   totalVaccinated Integer with the total vaccinated.
@@ -129,7 +198,62 @@ public class Statistics {
      * @pre:    --
      * @post:   Updates the total number of vaccinated people.
      */
-    void increaseVaccinated(Integer totalVaccinated) {
+    void increaseVaccinated(int totalVaccinated) {
         this.totalVaccinated += totalVaccinated;
     }
+
+    /**
+     * @param   imported    Integer with the contagious arriving from a
+     *                      neighboring region.
+     *
+     * @pre:    --
+     * @post:   Updates the number of contagious arriving in the current step.
+     */
+    void increaseImported(int imported) { this.imported += imported; }
+
+    /**
+     * @pre:    --
+     * @post:   No contagious are arriving anymore.
+     */
+    void clearImported() { this.imported = 0; }
+
+    /**
+     * @param   agents  The agents of the region for the virus.
+     *
+     * @pre:    --
+     * @post:   The virus is simulated agent by agent.
+     */
+    void setAgents(AgentPopulation agents) { this.agents = agents; }
+
+    /**
+     * @param   strata  The counts of each age stratum for the virus.
+     *
+     * @pre:    --
+     * @post:   The virus is followed by age stratum.
+     */
+    void setStrata(int[] strata) { this.strata = strata; }
+
+    /**
+     * @param   diseaseProbability  Probability of developing the disease.
+     * @param   diseaseDuration     Duration of the disease.
+     * @param   mortalityRate       Mortality rate.
+     * @param   contagionRate       Contagion rate.
+     *
+     * @pre:    --
+     * @post:   The parameters are read instead of those of the virus.
+     */
+    void setVaccineEffects(double diseaseProbability, int diseaseDuration,
+                           double mortalityRate, double contagionRate) {
+        this.diseaseProbability = diseaseProbability;
+        this.diseaseDuration = diseaseDuration;
+        this.mortalityRate = mortalityRate;
+        this.contagionRate = contagionRate;
+        this.attenuated = true;
+    }
+
+    /**
+     * @pre:    --
+     * @post:   The parameters of the virus are read again.
+     */
+    void clearVaccineEffects() { this.attenuated = false; }
 }
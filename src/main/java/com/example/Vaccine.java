@@ -12,8 +12,9 @@ public class Vaccine {
     private final String name;
     /** @brief  The type of the vaccine. */
     private final String type;
-    /** @brief  The virus the vaccine is intended for. */
-    private final Virus targetVirus;
+    /** @brief  The virus the vaccine is intended for, or null if it has not
+     *          been loaded yet. */
+    private Virus targetVirus;
     /** @brief  The effectiveness percentage of the vaccine. */
     private final Integer effectiveness;
     /** @brief  The activation time of the vaccine. */
@@ -120,6 +121,16 @@ public class Vaccine {
         return targetVirus;
     }
 
+    /**
+     * @param   targetVirus The virus the vaccine is intended for.
+     *
+     * @pre     The vaccine has not been applied yet.
+     * @post    The vaccine targets the given virus and its mutations.
+     */
+    void setTargetVirus(Virus targetVirus) {
+        this.targetVirus = targetVirus;
+    }
+
     /** @return the percentage reduction in mortality rate. */
     public int getMortalityRateReduction() {
         return mortalityRateReduction;
@@ -244,6 +244,16 @@ public class Virus {
         return immunityDuration;
     }
 
+    /**
+     * @param   ancestor    A virus.
+     *
+     * @return  True if this virus is the given one or descends from it by
+     *          mutations.
+     */
+    public boolean descendsFrom(Virus ancestor) {
+        return equals(ancestor);
+    }
+
     /**
      * @param   o   The object to compare this Virus with
      *
@@ -257,9 +267,14 @@ public class Virus {
         return Objects.equals(name, virus.name) && Objects.equals(family, virus.family);
     }
 
-    /** @return  The hash value of this Virus. */
+    /**
+     * @details Same value as Objects.hash(name, family), without creating the
+     *          array of its arguments at each lookup.
+     *
+     * @return  The hash value of this Virus.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(name, family);
+        return 31 * (31 + Objects.hashCode(name)) + Objects.hashCode(family);
     }
 }
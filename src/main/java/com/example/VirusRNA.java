@@ -15,8 +15,11 @@ public class VirusRNA extends Virus {
     /** @brief Probability of mutation due to coincidence. */
     private double mutationProbabilityCoincidence;
 
+    /** @brief Virus this one mutated from, or null if it is not a mutation. */
+    private VirusRNA parent;
+
     /**
-     * @brief   Creates a copy of the given RNA virus.
+     * @brief   Creates a copy of the given RNA virus, of the same lineage.
      *
      * @param   virus   The RNA virus to copy.
      */
@@ -28,6 +31,7 @@ public class VirusRNA extends Virus {
                 virus.getContagionRate());
         this.mutationProbabilityCopyError = virus.getMutationProbabilityCopyError();
         this.mutationProbabilityCoincidence = virus.getMutationProbabilityCoincidence();
+        this.parent = virus.parent;
     }
 
     /**
@@ -53,6 +57,7 @@ public class VirusRNA extends Virus {
         super(name, family, probabilityOfIllness, incubationTime, latencyTime, durationOfIllness, durationOfInfection, durationOfImmunity, mortalityRate, contagionRate);
         this.mutationProbabilityCopyError = mutationProbabilityCopyError;
         this.mutationProbabilityCoincidence = mutationProbabilityCoincidence;
+        this.parent = null;
     }
 
     /** @return  Mutation probability due to copy error. */
@@ -65,6 +70,28 @@ public class VirusRNA extends Virus {
         return mutationProbabilityCoincidence;
     }
 
+    /** @return  The virus this one mutated from, or null if it is not a mutation. */
+    public VirusRNA getParent() {
+        return parent;
+    }
+
+    /**
+     * @details The lineage of the virus is walked up through the viruses it
+     *          mutated from.
+     *
+     * @param   ancestor    A virus.
+     *
+     * @return  True if this virus is the given one or descends from it by
+     *          mutations.
+     */
+    @Override
+    public boolean descendsFrom(Virus ancestor) {
+        for (VirusRNA virus = this; virus != null; virus = virus.parent)
+            if (virus.equals(ancestor))
+                return true;
+        return false;
+    }
+
     /**
      * @param   probability Probability of mutation due to coincidence
      *
@@ -94,6 +121,7 @@ public class VirusRNA extends Virus {
      */
     public VirusRNA mutateDueToCopyError() {
         VirusRNA mutatedVirus = new VirusRNA(this);
+        mutatedVirus.parent = this;
 
         // Assign the same family to the mutation.
         Family family = this.getFamily();
@@ -166,6 +194,9 @@ public class VirusRNA extends Virus {
     /**
      * @param   virusA  the virus A with which the mutation by coincidence occurs
      *
+     * @details The mutated virus is of the lineage of this virus, whose
+     *          copy it is, even if its name starts with the name of virusA.
+     *
      * @return  A new instance of Virus class representing the mutated virus
      *          C with a name assigned according to the described logic,
      *          resulting from the mutation by coincidence of this virus (B) and
@@ -177,6 +208,7 @@ public class VirusRNA extends Virus {
         }
 
         VirusRNA virusC = new VirusRNA(this);
+        virusC.parent = this;
 
         // Assign the same family to virusC.
         virusC.setFamily(virusA.getFamily());
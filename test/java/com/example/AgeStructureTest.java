@@ -0,0 +1,142 @@
+package java.com.example;
+
+import main.java.com.example.AgeStructure;
+import main.java.com.example.InfectionKernel;
+import org.junit.jupiter.api.*;
+
+/**
+ * @class   AgeStructureTest
+ *
+ * @brief   Class that contains the tests for the AgeStructure class.
+ *
+ * @details Executes various tests to verify that the strata are validated and
+ *          that the contacts between them give the expected probabilities of
+ *          infection.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class AgeStructureTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                AgeStructure.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the constructor of the AgeStructure class.
+     *
+     * @pre     --
+     * @post    The shares are normalized and invalid strata are rejected.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("AgeStructure()")
+    public void testConstructor() {
+        AgeStructure ages = new AgeStructure(new String[]{"young", "old"},
+                new double[]{30, 10}, new double[][]{{2, 1}, {1, 2}},
+                new double[]{0.5, 2}, new double[]{0.1, 3});
+        Assertions.assertEquals(2, ages.getNumStrata());
+        Assertions.assertEquals("old", ages.getName(1));
+        Assertions.assertEquals(0.75, ages.getShare(0), 1e-12);
+        Assertions.assertEquals(0.25, ages.getShare(1), 1e-12);
+        Assertions.assertEquals(2, ages.getDiseaseFactor(1));
+        Assertions.assertEquals(0.1, ages.getMortalityFactor(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AgeStructure(new String[]{"young", "old"}, new double[]{1, 1},
+                        new double[][]{{1, 1}}, new double[]{1, 1}, new double[]{1, 1}));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AgeStructure(new String[]{"young", "old"}, new double[]{1, -1},
+                        new double[][]{{1, 1}, {1, 1}}, new double[]{1, 1}, new double[]{1, 1}));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new AgeStructure(new String[]{"young"}, new double[]{1},
+                        new double[][]{{0}}, new double[]{1}, new double[]{1}));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the infectionProbabilities() method of the
+     *          AgeStructure class.
+     *
+     * @pre     --
+     * @post    Contacts proportional to the shares give every stratum the
+     *          probability of a region without strata, and contacts within
+     *          each stratum keep the infections in the infected stratum.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("infectionProbabilities()")
+    public void testInfectionProbabilities() {
+        double[] fractions = {0.2, 0.05, 0};
+        double[] probability = new double[3];
+        AgeStructure mixed = new AgeStructure(new String[]{"a", "b", "c"},
+                new double[]{0.2, 0.5, 0.3},
+                new double[][]{{2, 5, 3}, {2, 5, 3}, {2, 5, 3}},
+                new double[]{1, 1, 1}, new double[]{1, 1, 1});
+        mixed.infectionProbabilities(fractions, 0.4, 3, probability);
+        double infected = 0.2 * 0.2 + 0.5 * 0.05;
+        for (int a = 0; a < 3; a++)
+            Assertions.assertEquals(InfectionKernel.coincidenceProbability(infected, 0.4, 3),
+                    probability[a], 1e-12);
+
+        AgeStructure separated = new AgeStructure(new String[]{"a", "b", "c"},
+                new double[]{0.2, 0.5, 0.3},
+                new double[][]{{1, 0, 0}, {0, 1, 0}, {0, 0, 1}},
+                new double[]{1, 1, 1}, new double[]{1, 1, 1});
+        separated.infectionProbabilities(fractions, 0.4, 3, probability);
+        Assertions.assertEquals(InfectionKernel.coincidenceProbability(0.2, 0.4, 3),
+                probability[0], 1e-12);
+        Assertions.assertTrue(probability[0] > probability[1]);
+        Assertions.assertEquals(0, probability[2]);
+        testsPassed++;
+    }
+}
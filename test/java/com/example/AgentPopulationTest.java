@@ -0,0 +1,174 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * @class   AgentPopulationTest
+ *
+ * @brief   Class that contains the tests for the AgentPopulation class.
+ *
+ * @details Executes various tests to verify that the agents follow the
+ *          stages of the virus and that the same seed gives the same
+ *          results.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class AgentPopulationTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                AgentPopulation.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the infect() and makeSick() methods of the
+     *          AgentPopulation class.
+     *
+     * @pre     --
+     * @post    Only susceptible agents are infected or made sick, up to the
+     *          size of the population.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("infect() and makeSick()")
+    public void testInfect() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.3);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new AgentPopulation(-1, 1));
+        AgentPopulation agents = new AgentPopulation(101, 1);
+        Assertions.assertEquals(101, agents.size());
+        Assertions.assertEquals(30, agents.infect(virus, 30, 0));
+        Assertions.assertEquals(30, agents.getNumInfected());
+        Assertions.assertEquals(30, agents.getNumLatents());
+        Assertions.assertEquals(50, agents.makeSick(virus, 50, 0));
+        Assertions.assertEquals(50, agents.getNumSick());
+        Assertions.assertEquals(50, agents.getNumContagious());
+        Assertions.assertEquals(21, agents.infect(virus, 100, 1));
+        Assertions.assertEquals(0, agents.makeSick(virus, 1, 1));
+        Assertions.assertEquals(51, agents.getNumInfected());
+        Assertions.assertEquals(0, new AgentPopulation(0, 1).infect(virus, 5, 0));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the step() method of the AgentPopulation class.
+     *
+     * @pre     --
+     * @post    Without new infections, illness or deaths, the infected agents
+     *          become contagious, then immune, then susceptible again.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("step()")
+    public void testStep() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.0, 2, 1, 3, 2, 3,
+                0.0, 0.3);
+        AgentPopulation agents = new AgentPopulation(1000, 7);
+        agents.infect(virus, 10, 0);
+        int maxContagious = 0, maxImmune = 0, cured = 0;
+        for (int step = 1; step <= 20; step++) {
+            agents.step(virus, 0, step);
+            Assertions.assertEquals(0, agents.getNewInfected());
+            Assertions.assertEquals(0, agents.getNewSick());
+            Assertions.assertEquals(0, agents.getNumDead());
+            maxContagious = Math.max(maxContagious, agents.getNumContagious());
+            maxImmune = Math.max(maxImmune, agents.getNumImmune());
+            cured += agents.getNewCured();
+        }
+        Assertions.assertEquals(10, maxContagious);
+        Assertions.assertEquals(10, maxImmune);
+        Assertions.assertEquals(10, cured);
+        Assertions.assertEquals(0, agents.getNumInfected());
+        Assertions.assertEquals(0, agents.getNumContagious());
+        Assertions.assertEquals(0, agents.getNumImmune());
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the determinism of the step() method of the
+     *          AgentPopulation class.
+     *
+     * @pre     --
+     * @post    Two populations with the same seed go through the same counts,
+     *          and so does a population big enough to be stepped in parallel.
+     */
+    @Test
+    @Order(3)
+    @DisplayName("step() with a seed")
+    public void testSeed() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.3, 2, 1, 3, 2, 5,
+                0.1, 0.3);
+        for (int size : new int[]{5000, 1 << 20}) {
+            AgentPopulation first = new AgentPopulation(size, 42);
+            AgentPopulation second = new AgentPopulation(size, 42);
+            first.infect(virus, size / 100, 0);
+            second.infect(virus, size / 100, 0);
+            for (int step = 1; step <= 10; step++) {
+                first.step(virus, 0.05, step);
+                second.step(virus, 0.05, step);
+                Assertions.assertEquals(first.getNumInfected(), second.getNumInfected());
+                Assertions.assertEquals(first.getNumContagious(), second.getNumContagious());
+                Assertions.assertEquals(first.getNumSick(), second.getNumSick());
+                Assertions.assertEquals(first.getNumImmune(), second.getNumImmune());
+                Assertions.assertEquals(first.getNumDead(), second.getNumDead());
+            }
+            Assertions.assertTrue(first.getNumDead() > 0);
+        }
+        testsPassed++;
+    }
+}
@@ -0,0 +1,118 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+/**
+ * @class   HotspotIndexTest
+ *
+ * @brief   Class that contains the tests for the HotspotIndex class.
+ *
+ * @details Executes various tests to verify that the rankings hold the
+ *          regions with the highest values offered in each step.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class HotspotIndexTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                HotspotIndex.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the functions offer() and publish() of the
+     *          HotspotIndex class.
+     *
+     * @pre     --
+     * @post    Each ranking holds the k highest values offered in the last
+     *          step, from the highest one, and ignores the regions with 0.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("offer() and publish()")
+    public void testRankings() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HotspotIndex(0));
+        HotspotIndex hotspots = new HotspotIndex(5);
+        Random random = new Random(7);
+        for (int step = 0; step < 3; step++) {
+            List<Long> infected = new ArrayList<>();
+            Map<Long, Region> regions = new HashMap<>();
+            for (int i = 0; i < 200; i++) {
+                long value = 1 + random.nextInt(1000000);
+                if (regions.containsKey(value))
+                    continue;
+                Region region = new Region("Region " + i, 1000, 2);
+                regions.put(value, region);
+                infected.add(value);
+                hotspots.offer(region, value, i % 3, 0);
+            }
+            hotspots.publish();
+            infected.sort(Collections.reverseOrder());
+            Assertions.assertEquals(5, hotspots.size(HotspotIndex.Metric.INFECTED));
+            for (int rank = 0; rank < 5; rank++) {
+                long value = infected.get(rank);
+                Assertions.assertEquals(value, hotspots.getValue(HotspotIndex.Metric.INFECTED, rank));
+                Assertions.assertSame(regions.get(value),
+                        hotspots.getRegion(HotspotIndex.Metric.INFECTED, rank));
+                Assertions.assertEquals(2, hotspots.getValue(HotspotIndex.Metric.SICK, rank));
+            }
+            Assertions.assertEquals(0, hotspots.size(HotspotIndex.Metric.DEATHS));
+        }
+        Assertions.assertThrows(IndexOutOfBoundsException.class,
+                () -> hotspots.getRegion(HotspotIndex.Metric.INFECTED, 5));
+        testsPassed++;
+    }
+}
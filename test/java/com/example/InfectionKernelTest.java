@@ -0,0 +1,132 @@
+package java.com.example;
+
+import main.java.com.example.InfectionKernel;
+import org.junit.jupiter.api.*;
+
+/**
+ * @class   InfectionKernelTest
+ *
+ * @brief   Class that contains the tests for the InfectionKernel class.
+ *
+ * @details Executes various tests to verify that the kernel computes the same
+ *          infections as the formula with Math.pow.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class InfectionKernelTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                InfectionKernel.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the coincidenceProbability() method of the
+     *          InfectionKernel class.
+     *
+     * @pre     --
+     * @post    The probability matches the formula with Math.pow, including
+     *          the bases that have no logarithm.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("coincidenceProbability()")
+    public void testCoincidenceProbability() {
+        double[] fractions = {0, 0.001, 0.25, 0.5, 0.999, 1};
+        double[] rates = {0.1, 0.4, 1};
+        double[] mobilities = {0, 0.5, 2, 3, 7};
+        for (double fraction : fractions)
+            for (double rate : rates)
+                for (double mobility : mobilities)
+                    Assertions.assertEquals(1 - Math.pow(1 - fraction * rate, mobility),
+                            InfectionKernel.coincidenceProbability(fraction, rate, mobility),
+                            1e-12);
+        Assertions.assertEquals(1 - Math.pow(-1, 3),
+                InfectionKernel.coincidenceProbability(2, 1, 3));
+        Assertions.assertTrue(Double.isNaN(
+                InfectionKernel.coincidenceProbability(Double.NaN, 0.4, 2)));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the batched newInfections() method of the
+     *          InfectionKernel class.
+     *
+     * @pre     --
+     * @post    Each cell gets the same infections as when it is computed on its
+     *          own, and the cells beyond n are not written.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("newInfections()")
+    public void testNewInfections() {
+        int[] susceptible = {900, 0, 1000, -5, 400};
+        double[] fractions = {0.1, 0.5, Double.NaN, 0.2, 0.3};
+        double[] rates = {0.4, 0.4, 0.4, 0.4, 0.4};
+        double[] mobilities = {3, 3, 2, 2, 0};
+        int[] numToInfect = new int[6];
+        numToInfect[5] = -1;
+        InfectionKernel.newInfections(susceptible, fractions, rates, mobilities, numToInfect, 5);
+        for (int i = 0; i < 5; i++)
+            Assertions.assertEquals(InfectionKernel.newInfections(susceptible[i],
+                    InfectionKernel.coincidenceProbability(fractions[i], rates[i], mobilities[i])),
+                    numToInfect[i]);
+        Assertions.assertEquals((int) (900 * (1 - Math.pow(1 - 0.1 * 0.4, 3))), numToInfect[0]);
+        Assertions.assertEquals(0, numToInfect[1]);
+        Assertions.assertEquals(0, numToInfect[2]);
+        Assertions.assertEquals(0, numToInfect[3]);
+        Assertions.assertEquals(0, numToInfect[4]);
+        Assertions.assertEquals(-1, numToInfect[5]);
+        testsPassed++;
+    }
+}
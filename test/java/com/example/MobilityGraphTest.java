@@ -0,0 +1,231 @@
+package java.com.example;
+
+import main.java.com.example.MobilityGraph;
+import main.java.com.example.Region;
+import org.junit.jupiter.api.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * @class   MobilityGraphTest
+ *
+ * @brief   Class that contains the tests for the MobilityGraph class.
+ *
+ * @details Executes various tests to verify the correct functioning of the
+ *          MobilityGraph class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class MobilityGraphTest {
+    /** @brief Instance A of the Region class. */
+    Region regionA = new Region("Region A", 1000, 3);
+    /** @brief Instance B of the Region class. */
+    Region regionB = new Region("Region B", 500, 0.5);
+    /** @brief Instance C of the Region class. */
+    Region regionC = new Region("Region C", 700, 2);
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter and
+     *          connect the regions.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1 and region A is a
+     *          neighbor of regions B and C in both directions.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+        regionA.addNeighboringRegion(regionB, 10);
+        regionA.addNeighboringRegion(regionC, 20);
+        regionB.addNeighboringRegion(regionA, 30);
+        regionC.addNeighboringRegion(regionA, 40);
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                MobilityGraph.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the structure of the MobilityGraph class.
+     *
+     * @pre     The regions are correctly configured.
+     * @post    The graph has one index per region and one edge per neighbor.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("getNumRegions() and getNumEdges()")
+    public void testStructure() {
+        MobilityGraph graph = new MobilityGraph(Arrays.asList(regionA, regionB, regionC));
+        Assertions.assertEquals(3, graph.getNumRegions());
+        Assertions.assertEquals(4, graph.getNumEdges());
+        Assertions.assertNotEquals(graph.indexOf(regionA), graph.indexOf(regionB));
+        Assertions.assertEquals(-1, graph.indexOf(new Region("Region D", 10, 1)));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function computeExternalPopulations() of the
+     *          MobilityGraph class.
+     *
+     * @pre     The regions are correctly configured.
+     * @post    The arrivals of each region are the percentages of its
+     *          neighbors' inhabitants that travel to it.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("computeExternalPopulations()")
+    public void testExternalPopulations() {
+        MobilityGraph graph = new MobilityGraph(Arrays.asList(regionA, regionB, regionC));
+        int[] inhabitants = new int[3];
+        int[] external = new int[3];
+        graph.gatherInhabitants(inhabitants);
+        graph.computeExternalPopulations(inhabitants, external);
+        Assertions.assertEquals(30 * 500 / 100 + 40 * 700 / 100,
+                external[graph.indexOf(regionA)]);
+        Assertions.assertEquals(10 * 1000 / 100, external[graph.indexOf(regionB)]);
+        Assertions.assertEquals(20 * 1000 / 100, external[graph.indexOf(regionC)]);
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the functions setFlows() and setAllFlows() of the
+     *          MobilityGraph class.
+     *
+     * @pre     The regions are correctly configured.
+     * @post    Closures apply in both directions, only to the given regions,
+     *          and closed edges carry no people.
+     */
+    @Test
+    @Order(3)
+    @DisplayName("setFlows() and setAllFlows()")
+    public void testClosures() {
+        MobilityGraph graph = new MobilityGraph(Arrays.asList(regionA, regionB, regionC));
+        graph.setFlows(regionA, Arrays.asList(regionB), false);
+        Assertions.assertTrue(regionA.isClosedWith(regionB));
+        Assertions.assertTrue(regionB.isClosedWith(regionA));
+        Assertions.assertFalse(regionA.isClosedWith(regionC));
+        int[] inhabitants = new int[3];
+        int[] external = new int[3];
+        graph.gatherInhabitants(inhabitants);
+        graph.computeExternalPopulations(inhabitants, external);
+        Assertions.assertEquals(40 * 700 / 100, external[graph.indexOf(regionA)]);
+        Assertions.assertEquals(0, external[graph.indexOf(regionB)]);
+
+        graph.setAllFlows(Arrays.asList(regionA), false);
+        Assertions.assertTrue(regionC.isClosedWith(regionA));
+        graph.setAllFlows(Arrays.asList(regionA), true);
+        Assertions.assertFalse(regionA.isClosedWith(regionB));
+        Assertions.assertFalse(regionC.isClosedWith(regionA));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function spreadTravellers() of the MobilityGraph
+     *          class.
+     *
+     * @pre     The regions are correctly configured.
+     * @post    The travellers of a region reach its neighbors with the
+     *          percentages of the region, and not through closed edges.
+     */
+    @Test
+    @Order(4)
+    @DisplayName("spreadTravellers()")
+    public void testSpreadTravellers() {
+        MobilityGraph graph = new MobilityGraph(Arrays.asList(regionA, regionB, regionC));
+        int[] targets = new int[graph.getMaxDegree()];
+        int[] arrivals = new int[graph.getMaxDegree()];
+        Assertions.assertEquals(2, graph.getMaxDegree());
+        int n = graph.spreadTravellers(graph.indexOf(regionA), 100, targets, arrivals);
+        Assertions.assertEquals(2, n);
+        for (int k = 0; k < n; k++) {
+            if (graph.getRegion(targets[k]) == regionB)
+                Assertions.assertEquals(10, arrivals[k]);
+            else
+                Assertions.assertEquals(20, arrivals[k]);
+        }
+        n = graph.spreadTravellers(graph.indexOf(regionB), 100, targets, arrivals);
+        Assertions.assertEquals(1, n);
+        Assertions.assertSame(regionA, graph.getRegion(targets[0]));
+        Assertions.assertEquals(30, arrivals[0]);
+        Assertions.assertEquals(0, graph.spreadTravellers(graph.indexOf(regionB), 3,
+                targets, arrivals));
+
+        graph.setFlows(regionA, Arrays.asList(regionB), false);
+        n = graph.spreadTravellers(graph.indexOf(regionA), 100, targets, arrivals);
+        Assertions.assertEquals(1, n);
+        Assertions.assertSame(regionC, graph.getRegion(targets[0]));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function localityOrder() of the MobilityGraph
+     *          class.
+     *
+     * @pre     --
+     * @post    A chain of regions given in a scrambled order is numbered along
+     *          the chain, so every edge joins consecutive indices.
+     */
+    @Test
+    @Order(5)
+    @DisplayName("localityOrder()")
+    public void testLocalityOrder() {
+        Region[] chain = new Region[8];
+        for (int i = 0; i < chain.length; i++)
+            chain[i] = new Region("Region " + i, 100, 1);
+        for (int i = 0; i + 1 < chain.length; i++) {
+            chain[i].addNeighboringRegion(chain[i + 1], 10);
+            chain[i + 1].addNeighboringRegion(chain[i], 10);
+        }
+        List<Region> scrambled = Arrays.asList(chain[3], chain[6], chain[0], chain[5],
+                chain[2], chain[7], chain[4], chain[1]);
+        Assertions.assertTrue(new MobilityGraph(scrambled).getBandwidth() > 1);
+        List<Region> ordered = MobilityGraph.localityOrder(scrambled);
+        Assertions.assertEquals(chain.length, new HashSet<>(ordered).size());
+        MobilityGraph graph = new MobilityGraph(ordered);
+        Assertions.assertEquals(1, graph.getBandwidth());
+        Assertions.assertEquals(ordered, MobilityGraph.localityOrder(scrambled));
+        testsPassed++;
+    }
+}
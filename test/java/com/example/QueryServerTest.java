@@ -0,0 +1,226 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * @class   QueryServerTest
+ *
+ * @brief   Class that contains the tests for the QueryServer class.
+ *
+ * @details Executes various tests to verify that the server answers the
+ *          queries from the snapshots of the recorded steps.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class QueryServerTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                QueryServer.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Sends a query to a server.
+     *
+     * @param   server  The server.
+     * @param   query   Path and parameters of the query.
+     *
+     * @return  The status of the answer followed by its body.
+     */
+    private static String get(QueryServer server, String query) throws IOException {
+        URL url = new URL("http://localhost:" + server.getPort() + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return status + " " + new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @brief   Test for the queries of the QueryServer class.
+     *
+     * @pre     --
+     * @post    The queries read the counts of the recorded steps, and the
+     *          steps that are not retained are answered with an error.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("record() and queries")
+    public void testQueries() throws IOException {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Region regionA = new Region("Region A", 1000, 0.5);
+        Region regionB = new Region("Region B", 1000, 0.5);
+        regionA.initializeVirusStatistics(virus);
+        regionA.infect(virus, 10);
+        regionB.initializeVirusStatistics(virus);
+        regionB.infect(virus, 30);
+        Map<Region, List<Virus>> regionViruses = new HashMap<>();
+        regionViruses.put(regionA, Collections.singletonList(virus));
+        regionViruses.put(regionB, Collections.singletonList(virus));
+
+        try (QueryServer server = new QueryServer(0, 2)) {
+            Assertions.assertTrue(get(server, "/step").startsWith("404 "));
+            for (int step = 0; step < 3; step++)
+                server.record(step, regionViruses);
+            Assertions.assertEquals("200 {\"step\":2,\"firstRetained\":1}", get(server, "/step"));
+            Assertions.assertTrue(get(server, "/virus?name=Influenza&step=0").startsWith("404 "));
+            int infectedA = regionA.getNumInfected(virus);
+            int infectedB = regionB.getNumInfected(virus);
+            Assertions.assertTrue(get(server, "/region?name=Region%20A&step=1")
+                    .contains("\"Influenza\":{\"infected\":" + infectedA + ","));
+            Assertions.assertTrue(get(server, "/virus?name=Influenza")
+                    .contains("\"totals\":{\"infected\":" + (infectedA + infectedB) + ","));
+            Assertions.assertEquals("200 {\"step\":2,\"metric\":\"infected\",\"regions\":[" +
+                            "{\"region\":\"Region B\",\"value\":" + infectedB + "}]}",
+                    get(server, "/top?metric=infected&k=1"));
+            Assertions.assertTrue(get(server, "/top?metric=unknown").startsWith("400 "));
+            Assertions.assertTrue(get(server, "/region?name=Region%20C").startsWith("404 "));
+        }
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the world totals of the QueryServer class.
+     *
+     * @pre     --
+     * @post    The totals of a virus are right when they exceed the range of
+     *          an int.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("world totals beyond int")
+    public void testLargeTotals() throws IOException {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Map<Region, List<Virus>> regionViruses = new HashMap<>();
+        long totalInfected = 0;
+        for (int i = 0; i < 3; i++) {
+            Region region = new Region("Region " + i, 2_000_000_000, 0.5);
+            region.initializeVirusStatistics(virus);
+            region.infect(virus, 1_000_000_000);
+            regionViruses.put(region, Collections.singletonList(virus));
+            totalInfected += region.getNumInfected(virus);
+        }
+
+        try (QueryServer server = new QueryServer(0, 1)) {
+            server.record(0, regionViruses);
+            Assertions.assertTrue(totalInfected > Integer.MAX_VALUE);
+            Assertions.assertTrue(get(server, "/virus?name=Influenza")
+                    .contains("\"totals\":{\"infected\":" + totalInfected + ","));
+        }
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the snapshots of the QueryServer class.
+     *
+     * @pre     --
+     * @post    Each step answers with its own counts, whether they changed
+     *          since the previous step or not, and only lists a virus in the
+     *          regions where it is present.
+     */
+    @Test
+    @Order(3)
+    @DisplayName("snapshots of changed counts")
+    public void testSnapshots() throws IOException {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus influenza = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Virus gripe = new VirusDNA("Gripe", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Region regionA = new Region("Region A", 1000, 0.5);
+        Region regionB = new Region("Region B", 1000, 0.5);
+        regionA.initializeVirusStatistics(influenza);
+        regionA.infect(influenza, 10);
+        regionB.initializeVirusStatistics(influenza);
+        regionB.initializeVirusStatistics(gripe);
+        regionB.infect(gripe, 20);
+        Map<Region, List<Virus>> regionViruses = new HashMap<>();
+        regionViruses.put(regionA, Collections.singletonList(influenza));
+        regionViruses.put(regionB, Arrays.asList(influenza, gripe));
+
+        try (QueryServer server = new QueryServer(0, 3)) {
+            server.record(0, regionViruses);
+            int before = regionA.getNumInfected(influenza);
+            regionA.infect(influenza, 5);
+            int after = regionA.getNumInfected(influenza);
+            Assertions.assertNotEquals(before, after);
+            server.record(1, regionViruses);
+            server.record(2, regionViruses);
+            Assertions.assertTrue(get(server, "/region?name=Region%20A&step=0")
+                    .contains("\"Influenza\":{\"infected\":" + before + ","));
+            for (int step = 1; step < 3; step++)
+                Assertions.assertTrue(get(server, "/region?name=Region%20A&step=" + step)
+                        .contains("\"Influenza\":{\"infected\":" + after + ","));
+            Assertions.assertFalse(get(server, "/region?name=Region%20A").contains("Gripe"));
+            for (int step = 0; step < 3; step++)
+                Assertions.assertTrue(get(server, "/virus?name=Gripe&step=" + step)
+                        .contains("\"regions\":1,\"totals\":{\"infected\":" +
+                                regionB.getNumInfected(gripe) + ","));
+            Assertions.assertTrue(get(server, "/virus?name=Influenza")
+                    .contains("\"regions\":2,"));
+        }
+        testsPassed++;
+    }
+}
@@ -1,9 +1,14 @@
 package java.com.example;
 
-import main.java.com.example.Pair;
-import main.java.com.example.Region;
+import main.java.com.example.*;
 import org.junit.jupiter.api.*;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @class   RegionTest
  *
@@ -114,4 +119,536 @@ class RegionTest {
         Assertions.assertEquals(20, (int) regionA.getNeighboringRegions().get(regionC));
         testsPassed++;
     }
+
+    /**
+     * @brief   Test for the functions getQuietSteps() and skipStep() of the
+     *          Region class.
+     *
+     * @pre     --
+     * @post    A region skipped while it is quiet records the same states as
+     *          a region fully updated at every step.
+     */
+    @Test
+    @Order(3)
+    @DisplayName("getQuietSteps() and skipStep()")
+    public void testQuietSteps() {
+        Family family = new Family("Hepadnaviridae", 0);
+        Virus virus = new VirusDNA("HepatitisB", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Vaccine vaccine = new Vaccine("VC_HepaB_A1", "attenuating", virus, 6,
+                100, 50, 50, 50, 50);
+        Region updated = new Region("Region D", 1000, 0.5);
+        Region skipped = new Region("Region E", 1000, 0.5);
+        for (Region region : new Region[]{updated, skipped}) {
+            region.initializeVirusStatistics(virus);
+            region.infect(virus, 10);
+            region.vaccinate(vaccine, 10);
+        }
+        int numSteps = 60, numSkipped = 0, quietSteps = 0;
+        for (int step = 1; step <= numSteps; step++) {
+            updated.updateRegion(new ArrayList<>(), 0);
+            if (quietSteps > 0) {
+                skipped.skipStep(0);
+                quietSteps--;
+                numSkipped++;
+            } else {
+                skipped.updateRegion(new ArrayList<>(), 0);
+                quietSteps = skipped.getQuietSteps();
+            }
+        }
+        Assertions.assertTrue(numSkipped > 0);
+        Assertions.assertTrue(skipped.getQuietSteps() > 0);
+        for (int step = 1; step <= numSteps; step++)
+            Assertions.assertEquals(
+                    updated.regionState(virus, step).replace("REGION D", "REGION E"),
+                    skipped.regionState(virus, step));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test that the function updateRegion() of the Region class does
+     *          not allocate memory once the region is in a steady state.
+     *
+     * @pre     The JVM can measure the memory allocated by a thread.
+     * @post    Updating the region for many steps does not allocate any
+     *          object at each step.
+     */
+    @Test
+    @Order(4)
+    @DisplayName("updateRegion() allocation")
+    public void testUpdateAllocation() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Family family = new Family("Hepadnaviridae", 0);
+        Virus virus = new VirusDNA("HepatitisB", family, 0.1, 6, 3, 8, 5, 30,
+                0.01, 0.2);
+        Region region = new Region("Region F", 1000000, 2);
+        region.initializeVirusStatistics(virus);
+        region.infect(virus, 1000);
+        int warmupSteps = 2000, measuredSteps = 5000;
+        region.reserveSteps(warmupSteps + measuredSteps);
+        List<Virus> mutations = new ArrayList<>();
+        for (int step = 0; step < warmupSteps; step++)
+            region.updateRegion(mutations, 0);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int step = 0; step < measuredSteps; step++)
+            region.updateRegion(mutations, 0);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        // Any object created at each step would take at least 16 bytes per
+        // step, while the JIT may allocate a few bytes once when it recompiles
+        Assertions.assertTrue(allocated < measuredSteps);
+        Assertions.assertTrue(mutations.isEmpty());
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the functions importContagious() and joinAt() of the
+     *          Region class.
+     *
+     * @pre     --
+     * @post    Contagious arriving from a neighbor infect a region that had no
+     *          infected, whose states start at the step it joined.
+     */
+    @Test
+    @Order(5)
+    @DisplayName("importContagious() and joinAt()")
+    public void testImportContagious() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.3);
+        Region reached = new Region("Region F", 1000, 2);
+        Region isolated = new Region("Region G", 1000, 2);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> reached.importContagious(virus, -1));
+        reached.joinAt(4, 0);
+        isolated.joinAt(4, 0);
+        reached.importContagious(virus, 100);
+        isolated.initializeVirusStatistics(virus);
+        reached.updateRegion(new ArrayList<>(), 0);
+        isolated.updateRegion(new ArrayList<>(), 0);
+        Assertions.assertTrue(reached.getNumInfected(virus) > 0);
+        Assertions.assertEquals(0, isolated.getNumInfected(virus));
+
+        reached.updateRegion(new ArrayList<>(), 0);
+        Assertions.assertTrue(reached.regionState(virus, 5).contains("AT SIMULATION STEP 4"));
+        Assertions.assertTrue(reached.regionState(virus, 6).contains("AT SIMULATION STEP 5"));
+        Assertions.assertThrows(IndexOutOfBoundsException.class,
+                () -> reached.regionState(virus, 4));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function useAgents() of the Region class.
+     *
+     * @pre     --
+     * @post    An agent-based region reports its agents through the same
+     *          states and rejects vaccines and late changes of mode.
+     */
+    @Test
+    @Order(6)
+    @DisplayName("useAgents()")
+    public void testUseAgents() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.1, 0.3);
+        Vaccine vaccine = new Vaccine("VC_Flu_A1", "attenuating", virus, 6,
+                100, 50, 50, 50, 50);
+        Region region = new Region("Region H", 1000, 2);
+        region.useAgents(3);
+        Assertions.assertTrue(region.isAgentBased());
+        region.infect(virus, 10);
+        Assertions.assertEquals(10, region.getNumInfected(virus));
+        Assertions.assertThrows(IllegalStateException.class, () -> region.useAgents(4));
+        Assertions.assertThrows(IllegalStateException.class, () -> region.vaccinate(vaccine, 10));
+        for (int step = 0; step < 5; step++)
+            region.updateRegion(new ArrayList<>(), 0);
+        Assertions.assertTrue(region.getNumContagious(virus) > 0);
+        Assertions.assertEquals(0, region.getQuietSteps());
+        Assertions.assertTrue(region.getNumInhabitants() <= 1000);
+        Assertions.assertTrue(region.regionState(virus, 5).contains("AT SIMULATION STEP 4"));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function useAgeStructure() of the Region class.
+     *
+     * @pre     --
+     * @post    The counts of the age strata add up to the counts of the region
+     *          and the deaths fall on the strata with the highest mortality.
+     */
+    @Test
+    @Order(7)
+    @DisplayName("useAgeStructure()")
+    public void testUseAgeStructure() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.2, 0.3);
+        AgeStructure ages = new AgeStructure(new String[]{"young", "old"},
+                new double[]{0.75, 0.25}, new double[][]{{3, 1}, {3, 1}},
+                new double[]{1, 1}, new double[]{0, 2});
+        Region region = new Region("Region I", 10001, 2);
+        region.useAgeStructure(ages);
+        Assertions.assertSame(ages, region.getAgeStructure());
+        Assertions.assertEquals(7501, region.getNumInhabitants(0));
+        Assertions.assertEquals(2500, region.getNumInhabitants(1));
+        region.initializeVirusStatistics(virus);
+        region.infect(virus, 100);
+        Assertions.assertThrows(IllegalStateException.class, () -> region.useAgeStructure(ages));
+        Assertions.assertThrows(IllegalStateException.class, () -> region.useAgents(1));
+        for (int step = 0; step < 10; step++) {
+            region.updateRegion(new ArrayList<>(), 0);
+            Assertions.assertEquals(region.getNumInfected(virus),
+                    region.getNumInfected(virus, 0) + region.getNumInfected(virus, 1));
+            Assertions.assertEquals(region.getNumSick(virus),
+                    region.getNumSick(virus, 0) + region.getNumSick(virus, 1));
+        }
+        Assertions.assertEquals(0, region.getTotalDeaths(virus, 0));
+        Assertions.assertTrue(region.getTotalDeaths(virus, 1) > 0);
+        Assertions.assertEquals(10001 - region.getTotalDeaths(virus, 1),
+                region.getNumInhabitants());
+        Assertions.assertTrue(region.getRegionTotals(virus).contains("Deaths of old"));
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> new Region("Region J", 100, 1).getNumSick(virus, 0));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function regionState() of the Region class over a
+     *          long history.
+     *
+     * @pre     --
+     * @post    The states of past steps, which are stored compressed in
+     *          blocks, are the same as when they were the current ones.
+     */
+    @Test
+    @Order(8)
+    @DisplayName("regionState() history")
+    public void testStateHistory() {
+        Family family = new Family("Hepadnaviridae", 0);
+        Virus virus = new VirusDNA("HepatitisB", family, 0.1, 6, 3, 8, 5, 30,
+                0.01, 0.2);
+        Region region = new Region("Region K", 1000000, 2);
+        region.initializeVirusStatistics(virus);
+        region.infect(virus, 1000);
+        int steps = 300;
+        List<String> history = new ArrayList<>();
+        for (int step = 1; step <= steps; step++) {
+            region.updateRegion(new ArrayList<>(), 0);
+            history.add(region.regionState(virus, step));
+        }
+        for (int step = steps; step >= 1; step--)
+            Assertions.assertEquals(history.get(step - 1), region.regionState(virus, step));
+        Assertions.assertThrows(IndexOutOfBoundsException.class,
+                () -> region.regionState(virus, steps + 1));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function retainSteps() of the Region class.
+     *
+     * @pre     --
+     * @post    Only the last steps are kept whole, the older ones are
+     *          summarized, the totals do not change and recording the states
+     *          does not create objects.
+     */
+    @Test
+    @Order(9)
+    @DisplayName("retainSteps()")
+    public void testRetainSteps() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Family family = new Family("Hepadnaviridae", 0);
+        Virus virus = new VirusDNA("HepatitisB", family, 0.1, 6, 3, 8, 5, 30,
+                0.01, 0.2);
+        Region whole = new Region("Region L", 1000000, 2);
+        Region retained = new Region("Region L", 1000000, 2);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> retained.retainSteps(-1));
+        retained.retainSteps(100);
+        for (Region region : new Region[]{whole, retained}) {
+            region.initializeVirusStatistics(virus);
+            region.infect(virus, 1000);
+        }
+        int steps = 3000;
+        for (int step = 0; step < steps; step++) {
+            whole.updateRegion(new ArrayList<>(), 0);
+            retained.updateRegion(new ArrayList<>(), 0);
+        }
+        for (int step = steps - 99; step <= steps; step++)
+            Assertions.assertEquals(whole.regionState(virus, step), retained.regionState(virus, step));
+        Assertions.assertTrue(retained.regionState(virus, 1).contains("Minimum"));
+        Assertions.assertEquals(whole.getRegionTotals(virus), retained.getRegionTotals(virus));
+        if (threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+            List<Virus> mutations = new ArrayList<>();
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int step = 0; step < steps; step++)
+                retained.updateRegion(mutations, 0);
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            Assertions.assertTrue(allocated < steps);
+        }
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the function getNumVaccinated() of the Region class.
+     *
+     * @pre     --
+     * @post    Only the doses of the first vaccine applied that targets the
+     *          virus are counted, until they expire and the doses of the next
+     *          one are counted instead.
+     */
+    @Test
+    @Order(10)
+    @DisplayName("getNumVaccinated()")
+    public void testNumVaccinated() {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Flu", family, 0.1, 2, 1, 3, 2, 20, 0.0, 0.1);
+        Virus other = new VirusDNA("Measles", family, 0.1, 2, 1, 3, 2, 20, 0.0, 0.1);
+        Vaccine first = new Vaccine("VC_Flu_A1", "attenuating", virus, 1, 3,
+                50, 50, 50, 50);
+        Vaccine second = new Vaccine("VC_Flu_A2", "attenuating", virus, 1, 10,
+                50, 50, 50, 50);
+        Region region = new Region("Region M", 1000, 0.5);
+        region.initializeVirusStatistics(virus);
+        region.initializeVirusStatistics(other);
+        region.infect(virus, 10);
+        region.vaccinate(first, 10);
+        region.vaccinate(second, 20);
+        region.vaccinate(first, 5);
+        Assertions.assertEquals(150, region.getNumVaccinated(virus));
+        Assertions.assertEquals(0, region.getNumVaccinated(other));
+        int steps = 0;
+        while (region.getNumVaccinated(virus) == 150 && steps++ < 30)
+            region.updateRegion(new ArrayList<>(), 0);
+        Assertions.assertEquals(200, region.getNumVaccinated(virus));
+        while (region.getNumVaccinated(virus) == 200 && steps++ < 30)
+            region.updateRegion(new ArrayList<>(), 0);
+        Assertions.assertEquals(0, region.getNumVaccinated(virus));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the effects of the vaccines of the Region class.
+     *
+     * @pre     --
+     * @post    An attenuating vaccine changes the parameters of its target
+     *          only while its doses are in effect, and more doses of the same
+     *          vaccine do not add up its effects.
+     */
+    @Test
+    @Order(11)
+    @DisplayName("vaccine effects")
+    public void testVaccineEffects() {
+        Family family = new Family("Hepadnaviridae", 0);
+        Virus virus = new VirusDNA("HepatitisB", family, 0.0, 2, 1, 40, 2, 60,
+                0.1, 0.0);
+        Vaccine vaccine = new Vaccine("VC_HepaB_A1", "attenuating", virus, 1, 5,
+                50, 0, 0, 0);
+        Region once = new Region("Region N", 100000, 0.5);
+        Region twice = new Region("Region N", 100000, 0.5);
+        for (Region region : new Region[]{once, twice}) {
+            region.initializeVirusStatistics(virus);
+            region.makeSick(virus, 10);
+            region.vaccinate(vaccine, 10);
+        }
+        twice.vaccinate(vaccine, 10);
+        List<Integer> deaths = new ArrayList<>();
+        for (int step = 0; step < 12; step++) {
+            once.updateRegion(new ArrayList<>(), 0);
+            twice.updateRegion(new ArrayList<>(), 0);
+            Assertions.assertEquals(once.getNumDeaths(virus), twice.getNumDeaths(virus));
+            deaths.add(once.getNumDeaths(virus));
+        }
+        // Half the mortality while the vaccine is in effect, and the whole
+        // mortality once it has expired
+        Assertions.assertTrue(deaths.get(1) < deaths.get(0) * 0.6);
+        Assertions.assertTrue(deaths.get(7) > deaths.get(6) * 1.5);
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test that the vaccines of the Region class cover the lineage
+     *          of their target virus.
+     *
+     * @pre     --
+     * @post    The mutations of the target are vaccinated, and a mutation by
+     *          coincidence is only vaccinated if it descends from the target,
+     *          whatever its name starts with.
+     */
+    @Test
+    @Order(12)
+    @DisplayName("vaccine lineage")
+    public void testVaccineLineage() {
+        Family family = new Family("Orthomyxoviridae", 20);
+        VirusRNA flu = new VirusRNA("Flu", family, 0.5, 2, 1, 5, 5, 30, 0.05,
+                0.3, 0.0, 0.0);
+        VirusRNA gripe = new VirusRNA("Gripe", family, 0.5, 2, 1, 5, 5, 30, 0.05,
+                0.3, 0.0, 0.0);
+        VirusRNA copyError = flu.mutateDueToCopyError();
+        VirusRNA fromGripe = gripe.mutateByCoincidence(flu);
+        VirusRNA fromFlu = flu.mutateByCoincidence(gripe);
+        Assertions.assertTrue(fromGripe.getName().startsWith("Flu"));
+        Assertions.assertSame(gripe, fromGripe.getParent());
+        Vaccine vaccine = new Vaccine("VC_Flu_A1", "attenuating", flu, 6, 100,
+                50, 50, 50, 50);
+        Region region = new Region("Region O", 1000, 0.5);
+        for (Virus virus : new Virus[]{flu, gripe, copyError, fromGripe})
+            region.initializeVirusStatistics(virus);
+        region.vaccinate(vaccine, 10);
+        region.initializeVirusStatistics(fromFlu);
+        region.updateRegion(new ArrayList<>(), 0);
+        String vaccinated = vaccinatedLine(region.getRegionTotals(flu));
+        Assertions.assertTrue(vaccinated.endsWith("100 *"));
+        Assertions.assertEquals(vaccinated, vaccinatedLine(region.getRegionTotals(copyError)));
+        Assertions.assertTrue(vaccinatedLine(region.getRegionTotals(gripe)).endsWith(" 0 *"));
+        Assertions.assertTrue(vaccinatedLine(region.getRegionTotals(fromGripe)).endsWith(" 0 *"));
+        Assertions.assertTrue(copyError.descendsFrom(flu));
+        Assertions.assertTrue(fromFlu.descendsFrom(flu));
+        Assertions.assertFalse(fromGripe.descendsFrom(flu));
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the visitors moved by the function updateRegion() of
+     *          the Region class.
+     *
+     * @pre     --
+     * @post    The people arriving from a neighbor at an even step leave at
+     *          the next odd step, even if the neighbor has changed meanwhile,
+     *          so the population of the regions does not drift.
+     */
+    @Test
+    @Order(13)
+    @DisplayName("updateRegion() visitors")
+    public void testVisitors() {
+        Region host = new Region("Region P", 1000, 0.5);
+        Region neighbor = new Region("Region Q", 500, 0.5);
+        host.addNeighboringRegion(neighbor, 20);
+        neighbor.addNeighboringRegion(host, 10);
+        for (int step = 0; step < 20; step += 2) {
+            // The neighbor receives visitors from the host between the
+            // arrival and the departure of its own
+            host.updateRegion(new ArrayList<>());
+            neighbor.updateRegion(new ArrayList<>());
+            Assertions.assertEquals(1050, host.getNumInhabitants());
+            Assertions.assertEquals(710, neighbor.getNumInhabitants());
+            host.updateRegion(new ArrayList<>());
+            neighbor.updateRegion(new ArrayList<>());
+            Assertions.assertEquals(1000, host.getNumInhabitants());
+            Assertions.assertEquals(500, neighbor.getNumInhabitants());
+        }
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the visitors sent back home by the function
+     *          applyClosure() of the Region class.
+     *
+     * @pre     --
+     * @post    Only the visitors who came through the closed flow go back
+     *          home, in both directions, and the others leave at the next odd
+     *          step.
+     */
+    @Test
+    @Order(14)
+    @DisplayName("applyClosure() visitors")
+    public void testClosureVisitors() {
+        Region host = new Region("Region P", 1000, 0.5);
+        Region closed = new Region("Region Q", 500, 0.5);
+        Region open = new Region("Region R", 1000, 0.5);
+        host.addNeighboringRegion(closed, 20);
+        host.addNeighboringRegion(open, 20);
+        closed.addNeighboringRegion(host, 10);
+        open.addNeighboringRegion(host, 5);
+        new MobilityGraph(Arrays.asList(host, closed, open));
+        closed.updateRegion(new ArrayList<>());
+        open.updateRegion(new ArrayList<>());
+        host.updateRegion(new ArrayList<>());
+        Assertions.assertEquals(1130, host.getNumInhabitants());
+
+        host.applyClosure(Collections.singletonList(closed));
+        Assertions.assertEquals(1060, host.getNumInhabitants());
+        Assertions.assertEquals(500, closed.getNumInhabitants());
+        Assertions.assertEquals(1200, open.getNumInhabitants());
+        for (Region region : new Region[]{closed, open, host})
+            region.updateRegion(new ArrayList<>());
+        Assertions.assertEquals(1000, host.getNumInhabitants());
+        Assertions.assertEquals(500, closed.getNumInhabitants());
+        Assertions.assertEquals(1000, open.getNumInhabitants());
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the deaths counted by the function updateRegion() of
+     *          the Region class.
+     *
+     * @pre     --
+     * @post    Viruses killing all their sick at the same time never kill more
+     *          people than the inhabitants of the region.
+     */
+    @Test
+    @Order(15)
+    @DisplayName("updateRegion() deaths")
+    public void testDeathsCap() {
+        Family family = new Family("Filoviridae", 0);
+        Virus ebola = new VirusDNA("Ebola", family, 1.0, 1, 1, 3, 3, 20, 1.0, 0.0);
+        Virus marburg = new VirusDNA("Marburg", family, 1.0, 1, 1, 3, 3, 20, 1.0, 0.0);
+        Region region = new Region("Region S", 100, 0.5);
+        for (Virus virus : new Virus[]{ebola, marburg}) {
+            region.initializeVirusStatistics(virus);
+            region.infect(virus, 100);
+        }
+        int deaths = 0;
+        for (int step = 0; step < 10; step++) {
+            region.updateRegion(new ArrayList<>(), 0);
+            deaths += region.getNumDeaths(ebola) + region.getNumDeaths(marburg);
+            Assertions.assertTrue(region.getNumInhabitants() >= 0);
+        }
+        Assertions.assertEquals(100, deaths);
+        Assertions.assertEquals(0, region.getNumInhabitants());
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the mutations created by the function updateRegion()
+     *          of the Region class in an almost empty region.
+     *
+     * @pre     --
+     * @post    A region with a single inhabitant has no mutations, even if
+     *          the mutation probabilities are very high.
+     */
+    @Test
+    @Order(16)
+    @DisplayName("updateRegion() mutations")
+    public void testMutationsOfOne() {
+        Family family = new Family("Coronaviridae", 0);
+        VirusRNA first = new VirusRNA("SARS", family, 0.5, 2, 1, 5, 5, 30, 0.0,
+                1.0, 100.0, 100.0);
+        VirusRNA second = new VirusRNA("MERS", family, 0.5, 2, 1, 5, 5, 30, 0.0,
+                1.0, 100.0, 100.0);
+        Region region = new Region("Region T", 1, 0.5);
+        for (Virus virus : new Virus[]{first, second}) {
+            region.initializeVirusStatistics(virus);
+            region.infect(virus, 1);
+        }
+        List<Virus> mutations = new ArrayList<>();
+        for (int step = 0; step < 5; step++)
+            region.updateRegion(mutations, 0);
+        Assertions.assertTrue(mutations.isEmpty());
+        testsPassed++;
+    }
+
+    /**
+     * @param   totals  Totals of a region for a virus.
+     *
+     * @return  The line of the totals with the number of vaccinated.
+     */
+    private static String vaccinatedLine(String totals) {
+        for (String line : totals.split("\n"))
+            if (line.contains("Number of vaccinated"))
+                return line;
+        return "";
+    }
 }
@@ -0,0 +1,129 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * @class   ResultWriterTest
+ *
+ * @brief   Class that contains the tests for the ResultWriter class.
+ *
+ * @details Executes various tests to verify that the states queued at each
+ *          step are written to the file in each format.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ResultWriterTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                ResultWriter.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the CSV and binary formats of the ResultWriter class.
+     *
+     * @pre     --
+     * @post    Every state queued is written once, in the order of the steps.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("record() and close()")
+    public void testRecord() throws IOException {
+        Family family = new Family("Orthomyxoviridae", 0);
+        Virus virus = new VirusDNA("Influenza", family, 0.5, 2, 1, 3, 2, 20,
+                0.0, 0.1);
+        Region region = new Region("Region A", 1000, 0.5);
+        region.initializeVirusStatistics(virus);
+        region.infect(virus, 10);
+        Map<Region, List<Virus>> regionViruses = new HashMap<>();
+        regionViruses.put(region, Collections.singletonList(virus));
+
+        File csv = File.createTempFile("results", ".csv");
+        File binary = File.createTempFile("results", ".bin");
+        csv.deleteOnExit();
+        binary.deleteOnExit();
+        int numSteps = 20;
+        try (ResultWriter csvWriter = new ResultWriter(csv, ResultWriter.Format.CSV,
+                ResultWriter.Backpressure.BLOCK, 2);
+             ResultWriter binaryWriter = new ResultWriter(binary, ResultWriter.Format.BINARY,
+                     ResultWriter.Backpressure.BLOCK, 2)) {
+            for (int step = 1; step <= numSteps; step++) {
+                region.updateRegion(new ArrayList<>(), 0);
+                csvWriter.record(step, regionViruses);
+                binaryWriter.record(step, regionViruses);
+            }
+            Assertions.assertEquals(0, csvWriter.getDroppedSteps());
+        }
+
+        List<String> lines = Files.readAllLines(csv.toPath());
+        Assertions.assertEquals(numSteps + 1, lines.size());
+        Assertions.assertTrue(lines.get(0).startsWith("region,virus,step,"));
+        for (int step = 1; step <= numSteps; step++)
+            Assertions.assertTrue(lines.get(step).startsWith("Region A,Influenza," + (step - 1) + ","));
+
+        try (DataInputStream in = new DataInputStream(new FileInputStream(binary))) {
+            Assertions.assertEquals("VIRUSLAND_RESULTS", in.readUTF());
+            Assertions.assertEquals(0, in.readByte());
+            Assertions.assertEquals("Region A", in.readUTF());
+            Assertions.assertEquals(0, in.readByte());
+            Assertions.assertEquals("Influenza", in.readUTF());
+            Assertions.assertEquals(1, in.readByte());
+        }
+        testsPassed++;
+    }
+}
@@ -0,0 +1,147 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+/**
+ * @class   RollupCubeTest
+ *
+ * @brief   Class that contains the tests for the RollupCube class.
+ *
+ * @details Executes various tests to verify that the sums by group, family
+ *          and range of steps are the same as adding the recorded values.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class RollupCubeTest {
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                RollupCube.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the functions record(), sum() and groupBy() of the
+     *          RollupCube class.
+     *
+     * @pre     --
+     * @post    The sums of any range of steps are the sums of the values of
+     *          the regions at those steps, by group and by family.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("record(), sum() and groupBy()")
+    public void testSums() {
+        Family orthomyxo = new Family("Orthomyxoviridae", 0);
+        Family corona = new Family("Coronaviridae", 0);
+        Virus influenza = new VirusDNA("Influenza", orthomyxo, 0.5, 2, 1, 3, 2, 20,
+                0.1, 0.3);
+        Virus sars = new VirusDNA("SARS", corona, 0.5, 3, 1, 4, 3, 20, 0.2, 0.2);
+        Map<String, Region> regions = new TreeMap<>();
+        Map<Region, List<Virus>> regionViruses = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            Region region = new Region("Region " + i, 10000 * (i + 1), 2);
+            List<Virus> viruses = i % 2 == 0 ? Arrays.asList(influenza, sars)
+                    : Collections.singletonList(influenza);
+            for (Virus virus : viruses) {
+                region.initializeVirusStatistics(virus);
+                region.infect(virus, 100 * (i + 1));
+            }
+            regions.put(region.getName(), region);
+            regionViruses.put(region, viruses);
+        }
+        RollupCube rollup = new RollupCube(regions, 2);
+        Assertions.assertEquals(2, rollup.getNumGroups());
+        int steps = 50;
+        long[][] infected = new long[rollup.getNumGroups()][steps];
+        long[] deathsOfSars = new long[steps];
+        for (int step = 0; step < steps; step++) {
+            for (Map.Entry<Region, List<Virus>> entry : regionViruses.entrySet()) {
+                Region region = entry.getKey();
+                if (step > 0)
+                    region.updateRegion(new ArrayList<>(), 0);
+                for (Virus virus : entry.getValue()) {
+                    infected[rollup.getGroup(region.getName())][step] += region.getNumInfected(virus);
+                    if (virus == sars)
+                        deathsOfSars[step] += region.getNumDeaths(virus);
+                }
+            }
+            rollup.record(step, regionViruses);
+        }
+        Assertions.assertEquals(Arrays.asList("Orthomyxoviridae", "Coronaviridae"),
+                rollup.getFamilies());
+        for (int from = 0; from < steps; from += 7)
+            for (int to = from; to < steps; to += 5) {
+                long group0 = 0, group1 = 0, deaths = 0;
+                for (int step = from; step <= to; step++) {
+                    group0 += infected[0][step];
+                    group1 += infected[1][step];
+                    deaths += deathsOfSars[step];
+                }
+                Assertions.assertEquals(group0, rollup.sum(RollupCube.Metric.INFECTED, 0, null, from, to));
+                Assertions.assertEquals(group0 + group1,
+                        rollup.sum(RollupCube.Metric.INFECTED, RollupCube.ALL, null, from, to));
+                Assertions.assertEquals(deaths, rollup.sum(RollupCube.Metric.DEATHS,
+                        RollupCube.ALL, "Coronaviridae", from, to));
+            }
+        long[][] buckets = rollup.groupBy(RollupCube.Metric.INFECTED, null, 10, 29, 8);
+        Assertions.assertEquals(3, buckets[1].length);
+        Assertions.assertEquals(rollup.sum(RollupCube.Metric.INFECTED, 1, null, 26, 29), buckets[1][2]);
+        Assertions.assertEquals(0, rollup.sum(RollupCube.Metric.SICK, 0, "Filoviridae", 0, steps));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> rollup.sum(RollupCube.Metric.SICK, 2, null, 0, steps));
+        testsPassed++;
+    }
+}
@@ -0,0 +1,198 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @class   SimulationPartitionTest
+ *
+ * @brief   Class that contains the tests for the SimulationPartition class.
+ *
+ * @details Executes various tests to verify that the regions are split between
+ *          the parts with the right halos, and that a simulation split between
+ *          worker processes gives the same states as a single Simulator.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SimulationPartitionTest {
+    /** @brief Regions of a chain, each a neighbor of the next one. */
+    Region[] chain = {
+            new Region("Region A", 1000, 1),
+            new Region("Region B", 1000, 1),
+            new Region("Region C", 1000, 1),
+            new Region("Region D", 1000, 1)
+    };
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter and
+     *          connect the regions.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1 and each region of the
+     *          chain is a neighbor of the next one in both directions.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+        for (int i = 0; i + 1 < chain.length; i++) {
+            chain[i].addNeighboringRegion(chain[i + 1], 10);
+            chain[i + 1].addNeighboringRegion(chain[i], 10);
+        }
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                SimulationPartition.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Test for the halo and the boundary of the SimulationPartition
+     *          class.
+     *
+     * @pre     The regions are correctly configured.
+     * @post    Each half of the chain needs the first region of the other half
+     *          and sends it its own.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("getHalo() and getBoundary()")
+    public void testHalo() {
+        MobilityGraph graph = new MobilityGraph(Arrays.asList(chain));
+        SimulationPartition first = new SimulationPartition(graph, 0, 2);
+        SimulationPartition second = new SimulationPartition(graph, 1, 2);
+        Assertions.assertArrayEquals(new int[]{0, 1}, first.getOwned());
+        Assertions.assertArrayEquals(new int[]{2, 3}, second.getOwned());
+        Assertions.assertArrayEquals(new int[]{2}, first.getHalo());
+        Assertions.assertArrayEquals(new int[]{1}, first.getBoundary());
+        Assertions.assertArrayEquals(new int[]{1}, second.getHalo());
+        Assertions.assertArrayEquals(new int[]{2}, second.getBoundary());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new SimulationPartition(graph, 2, 2));
+
+        Virus virus = new Virus("Virus", null, 0.5, 1, 1, 1, 1, 1, 0.1, 0.5);
+        for (int k = 0; k < 3; k++)
+            first.exportContagious(1, 2, virus, k + 1);
+        Assertions.assertEquals(3, first.getNumExports());
+        Assertions.assertEquals(3, first.getExportTravellers(2));
+        Assertions.assertSame(virus, first.getExportVirus(0));
+        first.clearExports();
+        Assertions.assertEquals(0, first.getNumExports());
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for a simulation split between worker processes with the
+     *          PartitionCoordinator class.
+     *
+     * @pre     The files of res/res1 exist.
+     * @post    Two workers give the same states as a single one, which
+     *          steps every region.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("PartitionCoordinator.simulate()")
+    public void testWorkers() throws IOException {
+        String dir = "res" + File.separator + "res1";
+        int steps = 30;
+        List<String> expected = new ArrayList<>();
+        try (PartitionCoordinator c = new PartitionCoordinator(dir, 1)) {
+            for (int i = 0; i < steps; i++) {
+                c.simulate();
+                expected.addAll(c.getRegionStates());
+            }
+        }
+        List<String> states = new ArrayList<>();
+        try (PartitionCoordinator c = new PartitionCoordinator(dir, 2)) {
+            for (int i = 0; i < steps; i++) {
+                c.simulate();
+                states.addAll(c.getRegionStates());
+            }
+            Assertions.assertEquals(steps, c.getSimulationStep());
+        }
+        Collections.sort(expected);
+        Collections.sort(states);
+        Assertions.assertEquals(expected, states);
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for a simulation split between three worker processes,
+     *          where regions receive contagious from their own part and from
+     *          other parts at the same step.
+     *
+     * @pre     The files of res/res2 exist.
+     * @post    The viruses reach each region in the same order as in a single
+     *          process, so three workers give the same states as one.
+     */
+    @Test
+    @Order(3)
+    @DisplayName("simulate() with three parts")
+    public void testThreeParts() throws IOException {
+        String dir = "res" + File.separator + "res2";
+        int steps = 40;
+        List<String> expected = new ArrayList<>();
+        try (PartitionCoordinator c = new PartitionCoordinator(dir, 1)) {
+            for (int i = 0; i < steps; i++) {
+                c.simulate();
+                expected.addAll(c.getRegionStates());
+            }
+        }
+        List<String> states = new ArrayList<>();
+        try (PartitionCoordinator c = new PartitionCoordinator(dir, 3)) {
+            for (int i = 0; i < steps; i++) {
+                c.simulate();
+                states.addAll(c.getRegionStates());
+            }
+        }
+        Collections.sort(expected);
+        Collections.sort(states);
+        Assertions.assertEquals(expected, states);
+        testsPassed++;
+    }
+}
@@ -0,0 +1,220 @@
+package java.com.example;
+
+import main.java.com.example.*;
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.lang.reflect.Constructor;
+import java.util.*;
+
+/**
+ * @class   SimulatorTest
+ *
+ * @brief   Class that contains the tests for the world totals of the
+ *          Simulator class.
+ *
+ * @details Executes various tests to verify that the totals of each virus and
+ *          family published at the end of each step are the sums of the
+ *          counts of the regions, including the regions skipped while they
+ *          are quiet.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SimulatorTest {
+    /** @brief Totals that are the sum of a count of the regions at the step. */
+    private static final Simulator.WorldTotal[] STEP_TOTALS = {
+            Simulator.WorldTotal.INFECTED, Simulator.WorldTotal.CONTAGIOUS,
+            Simulator.WorldTotal.SICK, Simulator.WorldTotal.DEATHS,
+            Simulator.WorldTotal.VACCINATED
+    };
+    /** @brief Counter for the number of tests passed. */
+    private static int testsPassed = 0;
+    /** @brief Counter for the total number of tests. */
+    private static int totalTests = 0;
+
+    /**
+     * @brief   Executed before each test to increment the test counter.
+     *
+     * @pre     --
+     * @post    The test counter is incremented by 1.
+     */
+    @BeforeEach
+    public void beforeEachTest() {
+        totalTests++;
+    }
+
+    /**
+     * @brief   Executed after each test to display the name of the executed test.
+     *
+     * @param   testInfo    Information about the test.
+     *
+     * @pre     --
+     * @post    Information about the executed test is displayed.
+     */
+    @AfterEach
+    public void afterEachTest(TestInfo testInfo) {
+        String testName = "TEST " + testInfo.getDisplayName();
+        String padding = " ".repeat(Math.max(0, 36 - testName.length()));
+        System.out.println("<<<<<< " + testName + padding + "EXECUTED >>>>>>");
+    }
+
+    /**
+     * @brief   Executed before all tests to display the name of the class
+     *          being tested.
+     *
+     * @pre     --
+     * @post    The name of the class is displayed.
+     */
+    @BeforeAll
+    public static void initTests() {
+        System.out.println("[TESTING CLASS " +
+                Simulator.class.getName().toUpperCase() + "]");
+    }
+
+    /**
+     * @brief   Executed after all tests to display the number of tests passed.
+     *
+     * @pre     --
+     * @post    The final test results are displayed.
+     */
+    @AfterAll
+    public static void finalTests() {
+        System.out.println("[TOTAL TESTS: " + totalTests + " | TESTS PASSED: "
+                + testsPassed + "]");
+        System.out.println(testsPassed == totalTests ? "[OK]" : "[FAILED]");
+    }
+
+    /**
+     * @brief   Loads the files of a folder into a new simulator, as Main does.
+     *
+     * @param   dir The folder.
+     *
+     * @return  The initialized simulator.
+     */
+    private static Simulator load(String dir) throws Exception {
+        // The constructor is only meant to be used by Main
+        Constructor<Simulator> constructor = Simulator.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Simulator s = constructor.newInstance();
+        s.initializeSimulation(Main.loadFolder(dir));
+        return s;
+    }
+
+    /**
+     * @brief   Adds the counts of every region, by virus and by family.
+     *
+     * @param   s           The simulator.
+     * @param   byVirus     Sums of each virus, by ordinal of STEP_TOTALS.
+     * @param   byFamily    Sums of each family, by ordinal of STEP_TOTALS.
+     */
+    private static void sumRegions(Simulator s, Map<Virus, long[]> byVirus,
+                                   Map<Family, long[]> byFamily) {
+        for (Map.Entry<Region, List<Virus>> entry : s.getRegionViruses().entrySet()) {
+            Region region = entry.getKey();
+            for (Virus virus : entry.getValue()) {
+                long[] counts = {
+                        region.getNumInfected(virus), region.getNumContagious(virus),
+                        region.getNumSick(virus), region.getNumDeaths(virus),
+                        region.getNumVaccinated(virus)
+                };
+                long[] virusSums = byVirus.computeIfAbsent(virus, v -> new long[STEP_TOTALS.length]);
+                long[] familySums = virus.getFamily() == null ? new long[STEP_TOTALS.length]
+                        : byFamily.computeIfAbsent(virus.getFamily(), f -> new long[STEP_TOTALS.length]);
+                for (int t = 0; t < STEP_TOTALS.length; t++) {
+                    virusSums[t] += counts[t];
+                    familySums[t] += counts[t];
+                }
+            }
+        }
+    }
+
+    /**
+     * @brief   Test for getWorldTotal() and getFamilyTotal() of the Simulator
+     *          class.
+     *
+     * @pre     The files of res/res4 exist.
+     * @post    At the end of each step, the totals of each virus and family
+     *          are the sums of the counts of the regions, and the total
+     *          deaths are the sums of the deaths of every step, also while
+     *          some vaccinated regions are skipped.
+     */
+    @Test
+    @Order(1)
+    @DisplayName("getWorldTotal() and getFamilyTotal()")
+    public void testWorldTotals() throws Exception {
+        Simulator s = load("res" + File.separator + "res4");
+        // The vaccinated are still counted in the regions skipped later, and
+        // are published at the end of the first step
+        Vaccine vaccine = s.getVaccines().get("VaccineB");
+        for (Region region : new ArrayList<>(s.getRegionViruses().keySet()))
+            s.vaccinateRegion(region, vaccine, 20);
+        Map<Virus, Long> totalDeaths = new HashMap<>();
+        Map<Family, Long> familyDeaths = new HashMap<>();
+        boolean skipped = false;
+        for (int step = 1; step <= 40; step++) {
+            s.simulate();
+            skipped |= s.getNumActiveRegions() < s.getRegionViruses().size();
+            Map<Virus, long[]> byVirus = new HashMap<>();
+            Map<Family, long[]> byFamily = new HashMap<>();
+            sumRegions(s, byVirus, byFamily);
+            for (Map.Entry<Virus, long[]> entry : byVirus.entrySet()) {
+                Virus virus = entry.getKey();
+                for (int t = 0; t < STEP_TOTALS.length; t++)
+                    Assertions.assertEquals(entry.getValue()[t], s.getWorldTotal(virus, STEP_TOTALS[t]));
+                long deaths = totalDeaths.merge(virus, entry.getValue()[3], Long::sum);
+                Assertions.assertEquals(deaths, s.getWorldTotal(virus, Simulator.WorldTotal.TOTAL_DEATHS));
+            }
+            for (Map.Entry<Family, long[]> entry : byFamily.entrySet()) {
+                Family family = entry.getKey();
+                for (int t = 0; t < STEP_TOTALS.length; t++)
+                    Assertions.assertEquals(entry.getValue()[t], s.getFamilyTotal(family, STEP_TOTALS[t]));
+                long deaths = familyDeaths.merge(family, entry.getValue()[3], Long::sum);
+                Assertions.assertEquals(deaths, s.getFamilyTotal(family, Simulator.WorldTotal.TOTAL_DEATHS));
+            }
+        }
+        // The regions without anybody to infect are skipped in the last steps
+        Assertions.assertTrue(skipped);
+        testsPassed++;
+    }
+
+    /**
+     * @brief   Test for the publication of the world totals of the Simulator
+     *          class.
+     *
+     * @pre     The files of res/res4 exist.
+     * @post    The totals read between two steps are those of the last step,
+     *          even after a vaccination, and the step listeners read the
+     *          totals of the step that just ended.
+     */
+    @Test
+    @Order(2)
+    @DisplayName("world totals barrier")
+    public void testBarrier() throws Exception {
+        Simulator s = load("res" + File.separator + "res4");
+        Virus virus = s.getVirus("VirusB");
+        Vaccine vaccine = s.getVaccines().get("VaccineB");
+        List<Long> notified = new ArrayList<>();
+        s.addStepListener(simulator -> notified.add(
+                simulator.getWorldTotal(virus, Simulator.WorldTotal.INFECTED)));
+        for (int step = 0; step < 3; step++)
+            s.simulate();
+        Region vaccinated = null;
+        for (Map.Entry<Region, List<Virus>> entry : s.getRegionViruses().entrySet())
+            if (entry.getValue().contains(virus))
+                vaccinated = entry.getKey();
+        Assertions.assertNotNull(vaccinated);
+
+        long before = s.getWorldTotal(virus, Simulator.WorldTotal.VACCINATED);
+        s.vaccinateRegion(vaccinated, vaccine, 50);
+        Assertions.assertTrue(vaccinated.getNumVaccinated(virus) > 0);
+        Assertions.assertEquals(before, s.getWorldTotal(virus, Simulator.WorldTotal.VACCINATED));
+
+        s.simulate();
+        Map<Virus, long[]> byVirus = new HashMap<>();
+        sumRegions(s, byVirus, new HashMap<>());
+        Assertions.assertEquals(byVirus.get(virus)[4],
+                s.getWorldTotal(virus, Simulator.WorldTotal.VACCINATED));
+        Assertions.assertEquals(4, notified.size());
+        Assertions.assertEquals(byVirus.get(virus)[0], notified.get(3).longValue());
+        testsPassed++;
+    }
+}